@@ -0,0 +1,349 @@
+package mltk.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import mltk.util.Random;
+
+/**
+ * Base class for datasets that store their values in columns rather than in rows. Rows are exposed as flyweight
+ * {@link Instance} views backed by the columns, so that existing code iterating over {@link Instances} keeps working;
+ * subclasses only provide the column storage.
+ *
+ * <p>
+ * Values are indexed by storage row within a column. Shuffling only permutes the order of the storage rows, so that
+ * row views and their shallow copies keep pointing at the same values; the storage row of the i-th instance is given
+ * by {@link #getRowIndex(int)}. Shallow copies made through {@link Instance#clone()} share values and target with the
+ * row but keep their own weight, which matches the semantics of {@link Instance#clone()}.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public abstract class AbstractColumnarInstances extends Instances {
+
+	protected int[] order;
+	protected int numRows;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 */
+	protected AbstractColumnarInstances(List<Attribute> attributes, Attribute targetAtt) {
+		super(attributes, targetAtt, 0);
+		this.instances = new RowList();
+	}
+
+	/**
+	 * Returns the number of columns, i.e., the largest attribute index plus one.
+	 *
+	 * @return the number of columns.
+	 */
+	public abstract int width();
+
+	/**
+	 * Returns the storage row of the i-th instance, i.e., the index of its values in the columns. Storage rows are in
+	 * the order of the instances until they are shuffled.
+	 *
+	 * @param i the index of the instance.
+	 * @return the storage row of the i-th instance.
+	 */
+	public int getRowIndex(int i) {
+		return order != null ? order[i] : i;
+	}
+
+	@Override
+	public void clear() {
+		numRows = 0;
+		order = null;
+	}
+
+	@Override
+	public void shuffle() {
+		shuffle(Random.getInstance().getRandom());
+	}
+
+	@Override
+	public void shuffle(java.util.Random rand) {
+		if (order == null) {
+			order = new int[capacity()];
+			for (int i = 0; i < numRows; i++) {
+				order[i] = i;
+			}
+		}
+		// Same sequence of swaps as Collections.shuffle on a random access list
+		for (int i = numRows; i > 1; i--) {
+			int j = rand.nextInt(i);
+			int t = order[i - 1];
+			order[i - 1] = order[j];
+			order[j] = t;
+		}
+	}
+
+	/**
+	 * Returns the number of storage rows the columns can hold.
+	 *
+	 * @return the number of storage rows the columns can hold.
+	 */
+	protected abstract int capacity();
+
+	protected abstract double getStoredValue(int row, int attIndex);
+
+	protected abstract void setStoredValue(int row, int attIndex, double value);
+
+	protected abstract double getStoredTarget(int row);
+
+	protected abstract void setStoredTarget(int row, double target);
+
+	protected abstract double getStoredWeight(int row);
+
+	protected abstract void setStoredWeight(int row, double weight);
+
+	/**
+	 * Returns the vector view of a storage row. Rows are dense by default.
+	 *
+	 * @param row the storage row.
+	 * @return the vector view of a storage row.
+	 */
+	protected Vector createVector(int row) {
+		return new RowVector(this, row);
+	}
+
+	/**
+	 * Appends the next storage row to the order of the instances, if they have been shuffled. Called when an instance
+	 * is added.
+	 */
+	protected void appendRow() {
+		if (order != null) {
+			order[numRows] = numRows;
+		}
+		numRows++;
+	}
+
+	/**
+	 * Resizes the order of the instances along with the columns.
+	 *
+	 * @param capacity the new capacity.
+	 */
+	protected void resizeOrder(int capacity) {
+		if (order != null) {
+			order = Arrays.copyOf(order, capacity);
+		}
+	}
+
+	/**
+	 * Returns a copy of the column for an attribute index, with length {@link #size()} and in the order of the
+	 * instances. Values are read from the column storage without creating row views.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return a copy of the column for an attribute index.
+	 */
+	public double[] copyColumn(int attIndex) {
+		double[] copy = new double[numRows];
+		for (int i = 0; i < numRows; i++) {
+			copy[i] = getStoredValue(getRowIndex(i), attIndex);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the target column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the target column.
+	 */
+	public double[] copyTargets() {
+		double[] copy = new double[numRows];
+		for (int i = 0; i < numRows; i++) {
+			copy[i] = getStoredTarget(getRowIndex(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the weight column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the weight column.
+	 */
+	public double[] copyWeights() {
+		double[] copy = new double[numRows];
+		for (int i = 0; i < numRows; i++) {
+			copy[i] = getStoredWeight(getRowIndex(i));
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of a column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @param column the column.
+	 * @return a copy of a column.
+	 */
+	protected double[] copy(double[] column) {
+		if (order == null) {
+			return Arrays.copyOf(column, numRows);
+		}
+		double[] copy = new double[numRows];
+		for (int i = 0; i < numRows; i++) {
+			copy[i] = column[order[i]];
+		}
+		return copy;
+	}
+
+	/**
+	 * List view of the rows. Each access returns a flyweight bound to the storage row of the index.
+	 */
+	class RowList extends AbstractList<Instance> implements RandomAccess {
+
+		@Override
+		public Instance get(int index) {
+			if (index < 0 || index >= numRows) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numRows);
+			}
+			return new Row(AbstractColumnarInstances.this, getRowIndex(index), true);
+		}
+
+		@Override
+		public int size() {
+			return numRows;
+		}
+
+		@Override
+		public boolean add(Instance instance) {
+			AbstractColumnarInstances.this.add(instance);
+			return true;
+		}
+
+		@Override
+		public void clear() {
+			AbstractColumnarInstances.this.clear();
+		}
+
+	}
+
+	/**
+	 * Flyweight row view. Values and target are read from and written to the columns.
+	 */
+	static class Row extends Instance {
+
+		protected final AbstractColumnarInstances owner;
+		protected final int row;
+		protected final boolean sharedWeight;
+
+		Row(AbstractColumnarInstances owner, int row, boolean sharedWeight) {
+			this.owner = owner;
+			this.row = row;
+			this.sharedWeight = sharedWeight;
+			this.vector = owner.createVector(row);
+		}
+
+		@Override
+		public boolean isSparse() {
+			return vector.isSparse();
+		}
+
+		@Override
+		public double getWeight() {
+			return sharedWeight ? owner.getStoredWeight(row) : weight;
+		}
+
+		@Override
+		public void setWeight(double weight) {
+			if (sharedWeight) {
+				owner.setStoredWeight(row, weight);
+			} else {
+				this.weight = weight;
+			}
+		}
+
+		@Override
+		public double getTarget() {
+			return owner.getStoredTarget(row);
+		}
+
+		@Override
+		public void setTarget(double target) {
+			owner.setStoredTarget(row, target);
+		}
+
+		@Override
+		public Instance copy() {
+			return new Instance(vector.copy(), getTarget(), getWeight());
+		}
+
+		@Override
+		public Instance clone() {
+			Row copy = new Row(owner, row, false);
+			copy.weight = getWeight();
+			return copy;
+		}
+
+	}
+
+	/**
+	 * Dense vector view of a row.
+	 */
+	static class RowVector implements Vector {
+
+		protected final AbstractColumnarInstances owner;
+		protected final int row;
+
+		RowVector(AbstractColumnarInstances owner, int row) {
+			this.owner = owner;
+			this.row = row;
+		}
+
+		@Override
+		public double getValue(int index) {
+			return owner.getStoredValue(row, index);
+		}
+
+		/**
+		 * Returns a newly allocated array of values, since there is no row-major backing storage.
+		 */
+		@Override
+		public double[] getValues() {
+			double[] values = new double[owner.width()];
+			for (int j = 0; j < values.length; j++) {
+				values[j] = owner.getStoredValue(row, j);
+			}
+			return values;
+		}
+
+		@Override
+		public double[] getValues(int... indices) {
+			double[] values = new double[indices.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = owner.getStoredValue(row, indices[i]);
+			}
+			return values;
+		}
+
+		@Override
+		public void setValue(int index, double value) {
+			owner.setStoredValue(row, index, value);
+		}
+
+		@Override
+		public void setValue(int[] indices, double[] v) {
+			for (int i = 0; i < indices.length; i++) {
+				owner.setStoredValue(row, indices[i], v[i]);
+			}
+		}
+
+		@Override
+		public boolean isSparse() {
+			return false;
+		}
+
+		@Override
+		public DenseVector copy() {
+			return new DenseVector(getValues());
+		}
+
+	}
+
+}
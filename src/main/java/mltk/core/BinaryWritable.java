@@ -0,0 +1,32 @@
+package mltk.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Interface for objects that can also be read and written in binary format. The binary format is intended for fast
+ * loading; the text format of {@link Writable} remains available for inspection.
+ * 
+ * @author Yin Lou
+ * 
+ */
+public interface BinaryWritable {
+
+	/**
+	 * Reads in this object in binary format.
+	 * 
+	 * @param in the input stream.
+	 * @throws IOException
+	 */
+	void read(DataInputStream in) throws IOException;
+
+	/**
+	 * Writes this object in binary format.
+	 * 
+	 * @param out the output stream.
+	 * @throws IOException
+	 */
+	void write(DataOutputStream out) throws IOException;
+
+}
@@ -0,0 +1,213 @@
+package mltk.core;
+
+import java.util.Arrays;
+
+/**
+ * Class for a column of bin indices packed into the smallest primitive type that can hold them: one byte per value for
+ * up to 256 bins, two bytes for up to 65536 bins, and four bytes otherwise. Missing values are tracked in a separate
+ * bit set that is only allocated when the first missing value is stored.
+ *
+ * @author Yin Lou
+ *
+ */
+public class BinnedColumn {
+
+	/**
+	 * Bin index returned for missing values.
+	 */
+	public static final int MISSING = -1;
+
+	protected final int numBins;
+	protected byte[] bytes;
+	protected short[] shorts;
+	protected int[] ints;
+	protected long[] missing;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param numBins the number of bins.
+	 * @param capacity the capacity.
+	 */
+	public BinnedColumn(int numBins, int capacity) {
+		this.numBins = numBins;
+		if (numBins <= 1 << 8) {
+			bytes = new byte[capacity];
+		} else if (numBins <= 1 << 16) {
+			shorts = new short[capacity];
+		} else {
+			ints = new int[capacity];
+		}
+	}
+
+	/**
+	 * Copy constructor.
+	 *
+	 * @param column the column to copy.
+	 * @param length the number of values to copy.
+	 */
+	public BinnedColumn(BinnedColumn column, int length) {
+		this.numBins = column.numBins;
+		if (column.bytes != null) {
+			bytes = Arrays.copyOf(column.bytes, length);
+		} else if (column.shorts != null) {
+			shorts = Arrays.copyOf(column.shorts, length);
+		} else {
+			ints = Arrays.copyOf(column.ints, length);
+		}
+		if (column.missing != null) {
+			missing = Arrays.copyOf(column.missing, (length + 63) >>> 6);
+		}
+	}
+
+	/**
+	 * Constructs a column from the values of another column at some rows.
+	 *
+	 * @param column the column to copy.
+	 * @param rows the rows to copy, in order.
+	 * @param length the number of rows to copy.
+	 */
+	public BinnedColumn(BinnedColumn column, int[] rows, int length) {
+		this(column.numBins, length);
+		for (int i = 0; i < length; i++) {
+			set(i, column.get(rows[i]));
+		}
+	}
+
+	/**
+	 * Returns the number of bins.
+	 *
+	 * @return the number of bins.
+	 */
+	public int getNumBins() {
+		return numBins;
+	}
+
+	/**
+	 * Returns the bin index at a row, or {@link #MISSING} if the value is missing.
+	 *
+	 * @param row the row index.
+	 * @return the bin index at a row.
+	 */
+	public int get(int row) {
+		if (missing != null && (missing[row >>> 6] & (1L << row)) != 0) {
+			return MISSING;
+		}
+		if (bytes != null) {
+			return bytes[row] & 0xFF;
+		} else if (shorts != null) {
+			return shorts[row] & 0xFFFF;
+		} else {
+			return ints[row];
+		}
+	}
+
+	/**
+	 * Returns the value at a row, i.e., the bin index or {@code NaN} if the value is missing.
+	 *
+	 * @param row the row index.
+	 * @return the value at a row.
+	 */
+	public double getValue(int row) {
+		int bin = get(row);
+		return bin == MISSING ? Double.NaN : bin;
+	}
+
+	/**
+	 * Sets the bin index at a row.
+	 *
+	 * @param row the row index.
+	 * @param bin the bin index, or {@link #MISSING}.
+	 */
+	public void set(int row, int bin) {
+		if (bin == MISSING) {
+			if (missing == null) {
+				missing = new long[(capacity() + 63) >>> 6];
+			}
+			missing[row >>> 6] |= 1L << row;
+			bin = 0;
+		} else {
+			if (bin < 0 || bin >= numBins) {
+				throw new IllegalArgumentException("Bin index out of range: " + bin);
+			}
+			if (missing != null) {
+				missing[row >>> 6] &= ~(1L << row);
+			}
+		}
+		if (bytes != null) {
+			bytes[row] = (byte) bin;
+		} else if (shorts != null) {
+			shorts[row] = (short) bin;
+		} else {
+			ints[row] = bin;
+		}
+	}
+
+	/**
+	 * Sets the value at a row. The value must be a bin index or {@code NaN}.
+	 *
+	 * @param row the row index.
+	 * @param value the value.
+	 */
+	public void setValue(int row, double value) {
+		if (Double.isNaN(value)) {
+			set(row, MISSING);
+		} else {
+			int bin = (int) value;
+			if (bin != value) {
+				throw new IllegalArgumentException("Not a bin index: " + value);
+			}
+			set(row, bin);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if any value in this column is missing.
+	 *
+	 * @return {@code true} if any value in this column is missing.
+	 */
+	public boolean hasMissing() {
+		if (missing != null) {
+			for (long word : missing) {
+				if (word != 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the current capacity.
+	 *
+	 * @return the current capacity.
+	 */
+	public int capacity() {
+		if (bytes != null) {
+			return bytes.length;
+		} else if (shorts != null) {
+			return shorts.length;
+		} else {
+			return ints.length;
+		}
+	}
+
+	/**
+	 * Resizes this column.
+	 *
+	 * @param capacity the new capacity.
+	 */
+	public void resize(int capacity) {
+		if (bytes != null) {
+			bytes = Arrays.copyOf(bytes, capacity);
+		} else if (shorts != null) {
+			shorts = Arrays.copyOf(shorts, capacity);
+		} else {
+			ints = Arrays.copyOf(ints, capacity);
+		}
+		if (missing != null) {
+			missing = Arrays.copyOf(missing, (capacity + 63) >>> 6);
+		}
+	}
+
+}
@@ -0,0 +1,272 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mltk.core.Attribute.Type;
+
+/**
+ * Class for handling an ordered set of instances whose attributes are all binned or nominal. Each attribute is stored
+ * as a {@link BinnedColumn} of packed bin indices, which takes one byte per value for up to 256 bins instead of the
+ * eight bytes of a {@code double}. Such datasets are produced by
+ * {@link mltk.core.processor.Discretizer#discretize(Instances, int)}. Rows are exposed as flyweight {@link Instance}
+ * views, see {@link AbstractColumnarInstances}; values read from a row are bin indices, or {@code NaN} for missing
+ * values.
+ *
+ * @author Yin Lou
+ *
+ */
+public class BinnedInstances extends AbstractColumnarInstances {
+
+	protected BinnedColumn[] columns;
+	protected double[] targets;
+	protected double[] weights;
+
+	/**
+	 * Constructs a dataset from attributes and target attribute, with specified capacity.
+	 *
+	 * @param attributes the attributes, which must be binned or nominal.
+	 * @param targetAtt the target attribute.
+	 * @param capacity the capacity.
+	 */
+	public BinnedInstances(List<Attribute> attributes, Attribute targetAtt, int capacity) {
+		super(attributes, targetAtt);
+		this.columns = new BinnedColumn[ColumnarInstances.getWidth(attributes)];
+		for (Attribute attribute : attributes) {
+			columns[attribute.getIndex()] = new BinnedColumn(getNumBins(attribute), capacity);
+		}
+		this.targets = new double[capacity];
+		this.weights = new double[capacity];
+	}
+
+	/**
+	 * Constructs a packed dataset from a dataset whose attributes are all binned or nominal.
+	 *
+	 * @param instances the instances to convert.
+	 */
+	public BinnedInstances(Instances instances) {
+		this(instances.getAttributes(), instances.getTargetAttribute(), instances.size());
+		for (Instance instance : instances) {
+			add(instance);
+		}
+	}
+
+	/**
+	 * Copy constructor. The columns are deep copied, with storage rows in the order of the instances.
+	 *
+	 * @param instances the instances to copy.
+	 */
+	public BinnedInstances(BinnedInstances instances) {
+		super(instances.attributes, instances.targetAtt);
+		final int n = instances.numRows;
+		this.columns = new BinnedColumn[instances.columns.length];
+		for (int j = 0; j < columns.length; j++) {
+			if (instances.columns[j] == null) {
+				continue;
+			}
+			if (instances.order == null) {
+				columns[j] = new BinnedColumn(instances.columns[j], n);
+			} else {
+				columns[j] = new BinnedColumn(instances.columns[j], instances.order, n);
+			}
+		}
+		this.targets = instances.copyTargets();
+		this.weights = instances.copyWeights();
+		this.numRows = n;
+	}
+
+	@Override
+	public void add(Instance instance) {
+		ensureCapacity(numRows + 1);
+		final int i = numRows;
+		if (instance.isSparse()) {
+			for (BinnedColumn column : columns) {
+				if (column != null) {
+					column.set(i, 0);
+				}
+			}
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] values = sv.getValues();
+			for (int k = 0; k < indices.length; k++) {
+				if (indices[k] < columns.length && columns[indices[k]] != null) {
+					columns[indices[k]].setValue(i, values[k]);
+				}
+			}
+		} else {
+			for (int j = 0; j < columns.length; j++) {
+				if (columns[j] != null) {
+					columns[j].setValue(i, instance.getValue(j));
+				}
+			}
+		}
+		targets[i] = instance.getTarget();
+		weights[i] = instance.getWeight();
+		appendRow();
+	}
+
+	@Override
+	public int width() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the column for an attribute index, or {@code null} if no attribute has this index. The column is the
+	 * backing storage, indexed by storage row (see {@link #getRowIndex(int)}), and may have a larger capacity than
+	 * {@link #size()}.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the column for an attribute index.
+	 */
+	public BinnedColumn getColumn(int attIndex) {
+		return columns[attIndex];
+	}
+
+	/**
+	 * Returns the target column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getColumn(int)}, and may be longer than {@link #size()}.
+	 *
+	 * @return the target column.
+	 */
+	public double[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the weight column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getColumn(int)}, and may be longer than {@link #size()}.
+	 *
+	 * @return the weight column.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns a copy of the target column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the target column.
+	 */
+	@Override
+	public double[] copyTargets() {
+		return copy(targets);
+	}
+
+	/**
+	 * Returns a copy of the weight column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the weight column.
+	 */
+	@Override
+	public double[] copyWeights() {
+		return copy(weights);
+	}
+
+	/**
+	 * Returns the value at specified row and attribute index.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @return the value at specified row and attribute index.
+	 */
+	public double getValue(int row, int attIndex) {
+		return getStoredValue(getRowIndex(row), attIndex);
+	}
+
+	/**
+	 * Trims the capacity of the columns to the current size. Arrays returned by {@link #getTargets()} and
+	 * {@link #getWeights()} before are no longer the backing storage.
+	 */
+	public void trimToSize() {
+		if (targets.length != numRows) {
+			resize(numRows);
+		}
+	}
+
+	@Override
+	public BinnedInstances copy() {
+		BinnedInstances copy = new BinnedInstances(this);
+		copy.attributes = new ArrayList<>(attributes);
+		return copy;
+	}
+
+	@Override
+	protected int capacity() {
+		return targets.length;
+	}
+
+	@Override
+	protected double getStoredValue(int row, int attIndex) {
+		BinnedColumn column = attIndex < columns.length ? columns[attIndex] : null;
+		return column == null ? 0 : column.getValue(row);
+	}
+
+	/**
+	 * Sets a value of a storage row, which must be a bin index or {@code NaN}.
+	 */
+	@Override
+	protected void setStoredValue(int row, int attIndex, double value) {
+		BinnedColumn column = attIndex < columns.length ? columns[attIndex] : null;
+		if (column == null) {
+			throw new IllegalArgumentException("No attribute with index " + attIndex);
+		}
+		column.setValue(row, value);
+	}
+
+	@Override
+	protected double getStoredTarget(int row) {
+		return targets[row];
+	}
+
+	@Override
+	protected void setStoredTarget(int row, double target) {
+		targets[row] = target;
+	}
+
+	@Override
+	protected double getStoredWeight(int row) {
+		return weights[row];
+	}
+
+	@Override
+	protected void setStoredWeight(int row, double weight) {
+		weights[row] = weight;
+	}
+
+	protected void ensureCapacity(int capacity) {
+		if (capacity > targets.length) {
+			int newCapacity = Math.max(capacity, targets.length + (targets.length >> 1) + 1);
+			resize(newCapacity);
+		}
+	}
+
+	protected void resize(int capacity) {
+		for (BinnedColumn column : columns) {
+			if (column != null) {
+				column.resize(capacity);
+			}
+		}
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+		resizeOrder(capacity);
+	}
+
+	/**
+	 * Returns the number of bins of a binned attribute, or the cardinality of a nominal attribute.
+	 *
+	 * @param attribute the attribute.
+	 * @return the number of bins.
+	 * @throws IllegalArgumentException if the attribute is numeric.
+	 */
+	public static int getNumBins(Attribute attribute) {
+		if (attribute.getType() == Type.BINNED) {
+			return ((BinnedAttribute) attribute).getNumBins();
+		} else if (attribute.getType() == Type.NOMINAL) {
+			return ((NominalAttribute) attribute).getCardinality();
+		} else {
+			throw new IllegalArgumentException("Attribute is neither binned nor nominal: " + attribute.getName());
+		}
+	}
+
+}
@@ -0,0 +1,304 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for handling an ordered set of instances in column-major format. Feature values are stored in one primitive
+ * array per attribute index, and targets and weights are stored in their own columns. Rows are exposed as flyweight
+ * {@link Instance} views backed by the columns, see {@link AbstractColumnarInstances}.
+ *
+ * <p>
+ * Column arrays are indexed by attribute index (see {@link Attribute#getIndex()}), not by the position of the
+ * attribute in the attribute list. Within a column, values are indexed by storage row (see {@link #getRowIndex(int)}).
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class ColumnarInstances extends AbstractColumnarInstances {
+
+	protected double[][] columns;
+	protected double[] targets;
+	protected double[] weights;
+
+	/**
+	 * Constructs a dataset from attributes and target attribute.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 */
+	public ColumnarInstances(List<Attribute> attributes, Attribute targetAtt) {
+		this(attributes, targetAtt, 1000);
+	}
+
+	/**
+	 * Constructs a dataset from attributes and target attribute, with specified capacity.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 * @param capacity the capacity.
+	 */
+	public ColumnarInstances(List<Attribute> attributes, Attribute targetAtt, int capacity) {
+		this(attributes, targetAtt, getWidth(attributes), capacity);
+	}
+
+	/**
+	 * Constructs a dataset from attributes and target attribute, with specified number of columns and capacity.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 * @param width the number of columns, i.e., the largest attribute index plus one.
+	 * @param capacity the capacity.
+	 */
+	public ColumnarInstances(List<Attribute> attributes, Attribute targetAtt, int width, int capacity) {
+		super(attributes, targetAtt);
+		this.columns = new double[width][capacity];
+		this.targets = new double[capacity];
+		this.weights = new double[capacity];
+	}
+
+	/**
+	 * Constructs a columnar dataset from a row-oriented dataset. Dense and sparse instances are both accepted; absent
+	 * sparse entries are stored as zeros.
+	 *
+	 * @param instances the instances to convert.
+	 */
+	public ColumnarInstances(Instances instances) {
+		this(instances.getAttributes(), instances.getTargetAttribute(), instances.size());
+		for (Instance instance : instances) {
+			add(instance);
+		}
+	}
+
+	/**
+	 * Copy constructor. The columns are deep copied, with storage rows in the order of the instances.
+	 *
+	 * @param instances the instances to copy.
+	 */
+	public ColumnarInstances(ColumnarInstances instances) {
+		super(instances.attributes, instances.targetAtt);
+		this.columns = new double[instances.columns.length][];
+		for (int j = 0; j < columns.length; j++) {
+			columns[j] = instances.copyColumn(j);
+		}
+		this.targets = instances.copyTargets();
+		this.weights = instances.copyWeights();
+		this.numRows = instances.numRows;
+	}
+
+	@Override
+	public void add(Instance instance) {
+		ensureCapacity(numRows + 1);
+		final int i = numRows;
+		if (instance.isSparse()) {
+			for (double[] column : columns) {
+				column[i] = 0;
+			}
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] values = sv.getValues();
+			for (int k = 0; k < indices.length; k++) {
+				if (indices[k] < columns.length) {
+					columns[indices[k]][i] = values[k];
+				}
+			}
+		} else {
+			for (int j = 0; j < columns.length; j++) {
+				columns[j][i] = instance.getValue(j);
+			}
+		}
+		targets[i] = instance.getTarget();
+		weights[i] = instance.getWeight();
+		appendRow();
+	}
+
+	@Override
+	public int width() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the column for an attribute index. The returned array is the backing storage, indexed by storage row
+	 * (see {@link #getRowIndex(int)}), and may be longer than {@link #size()}; writes to it are visible through the
+	 * row views. It stays the backing storage until rows are added beyond the capacity or {@link #trimToSize()} is
+	 * called.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the column for an attribute index.
+	 */
+	public double[] getColumn(int attIndex) {
+		return columns[attIndex];
+	}
+
+	/**
+	 * Returns the column for an attribute.
+	 *
+	 * @param attribute the attribute.
+	 * @return the column for an attribute.
+	 */
+	public double[] getColumn(Attribute attribute) {
+		return getColumn(attribute.getIndex());
+	}
+
+	/**
+	 * Returns the target column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getColumn(int)}.
+	 *
+	 * @return the target column.
+	 */
+	public double[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the weight column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getColumn(int)}.
+	 *
+	 * @return the weight column.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns a copy of the column for an attribute index, with length {@link #size()} and in the order of the
+	 * instances.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return a copy of the column for an attribute index.
+	 */
+	@Override
+	public double[] copyColumn(int attIndex) {
+		return copy(columns[attIndex]);
+	}
+
+	/**
+	 * Returns a copy of the target column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the target column.
+	 */
+	@Override
+	public double[] copyTargets() {
+		return copy(targets);
+	}
+
+	/**
+	 * Returns a copy of the weight column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the weight column.
+	 */
+	@Override
+	public double[] copyWeights() {
+		return copy(weights);
+	}
+
+	/**
+	 * Returns the value at specified row and attribute index.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @return the value at specified row and attribute index.
+	 */
+	public double getValue(int row, int attIndex) {
+		return columns[attIndex][getRowIndex(row)];
+	}
+
+	/**
+	 * Returns the target at specified row.
+	 *
+	 * @param row the row index.
+	 * @return the target at specified row.
+	 */
+	public double getTarget(int row) {
+		return targets[getRowIndex(row)];
+	}
+
+	/**
+	 * Returns the weight at specified row.
+	 *
+	 * @param row the row index.
+	 * @return the weight at specified row.
+	 */
+	public double getWeight(int row) {
+		return weights[getRowIndex(row)];
+	}
+
+	/**
+	 * Trims the capacity of the columns to the current size. Arrays returned by {@link #getColumn(int)},
+	 * {@link #getTargets()} and {@link #getWeights()} before are no longer the backing storage.
+	 */
+	public void trimToSize() {
+		if (targets.length != numRows) {
+			resize(numRows);
+		}
+	}
+
+	@Override
+	public ColumnarInstances copy() {
+		ColumnarInstances copy = new ColumnarInstances(this);
+		copy.attributes = new ArrayList<>(attributes);
+		return copy;
+	}
+
+	@Override
+	protected int capacity() {
+		return targets.length;
+	}
+
+	@Override
+	protected double getStoredValue(int row, int attIndex) {
+		return columns[attIndex][row];
+	}
+
+	@Override
+	protected void setStoredValue(int row, int attIndex, double value) {
+		columns[attIndex][row] = value;
+	}
+
+	@Override
+	protected double getStoredTarget(int row) {
+		return targets[row];
+	}
+
+	@Override
+	protected void setStoredTarget(int row, double target) {
+		targets[row] = target;
+	}
+
+	@Override
+	protected double getStoredWeight(int row) {
+		return weights[row];
+	}
+
+	@Override
+	protected void setStoredWeight(int row, double weight) {
+		weights[row] = weight;
+	}
+
+	protected void ensureCapacity(int capacity) {
+		if (capacity > targets.length) {
+			int newCapacity = Math.max(capacity, targets.length + (targets.length >> 1) + 1);
+			resize(newCapacity);
+		}
+	}
+
+	protected void resize(int capacity) {
+		for (int j = 0; j < columns.length; j++) {
+			columns[j] = Arrays.copyOf(columns[j], capacity);
+		}
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+		resizeOrder(capacity);
+	}
+
+	static int getWidth(List<Attribute> attributes) {
+		int width = 0;
+		for (Attribute attribute : attributes) {
+			width = Math.max(width, attribute.getIndex() + 1);
+		}
+		return width;
+	}
+
+}
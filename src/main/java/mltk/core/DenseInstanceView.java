@@ -0,0 +1,363 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Class for a reusable dense view of instances restricted to a fixed set of attribute indices, typically those used by
+ * a model. Binding an instance resolves the values of these attributes once into a small scratch array, so that
+ * repeated lookups by all trees or terms of an ensemble take constant time instead of a binary search in
+ * {@link SparseVector#getValue(int)} each. Values of other attributes are read from the bound instance.
+ *
+ * <p>
+ * A view is not thread-safe; use one view per scoring thread, e.g., through a {@link Cache}. Typical usage:
+ * </p>
+ *
+ * <pre>
+ * DenseInstanceView view = new DenseInstanceView(brt.getAttributeIndices());
+ * for (Instance instance : instances) {
+ * 	double[] probs = brt.predictProbabilities(view.bind(instance));
+ * }
+ * </pre>
+ *
+ * @author Yin Lou
+ *
+ */
+public class DenseInstanceView extends Instance {
+
+	/**
+	 * Marks an empty entry in the slot table; keys of empty entries are not read, so any attribute index can be a key.
+	 */
+	private static final int EMPTY = -1;
+
+	protected int[] attIndices;
+	protected int[] keys;
+	protected int[] slots;
+	protected int mask;
+	protected double[] values;
+	protected Instance instance;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param attIndices the attribute indices to resolve.
+	 */
+	public DenseInstanceView(Collection<Integer> attIndices) {
+		init(toSortedArray(attIndices));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param attIndices the attribute indices to resolve.
+	 */
+	public DenseInstanceView(int[] attIndices) {
+		this(toList(attIndices));
+	}
+
+	private DenseInstanceView() {
+
+	}
+
+	/**
+	 * Initializes this view.
+	 *
+	 * @param attIndices the attribute indices to resolve, distinct and in ascending order; the array is kept as is.
+	 */
+	private void init(int[] attIndices) {
+		this.attIndices = attIndices;
+		// Open addressing table with load factor at most 1/2
+		int capacity = 2;
+		while (capacity < 2 * this.attIndices.length) {
+			capacity <<= 1;
+		}
+		this.keys = new int[capacity];
+		this.slots = new int[capacity];
+		this.mask = capacity - 1;
+		Arrays.fill(slots, EMPTY);
+		for (int i = 0; i < this.attIndices.length; i++) {
+			int h = hash(this.attIndices[i]) & mask;
+			while (slots[h] != EMPTY) {
+				h = (h + 1) & mask;
+			}
+			keys[h] = this.attIndices[i];
+			slots[h] = i;
+		}
+		this.values = new double[this.attIndices.length];
+		this.vector = new ViewVector();
+	}
+
+	/**
+	 * Binds an instance to this view and resolves the values of the attributes.
+	 *
+	 * @param instance the instance.
+	 * @return this view.
+	 */
+	public DenseInstanceView bind(Instance instance) {
+		this.instance = instance;
+		if (instance.isSparse()) {
+			Arrays.fill(values, 0);
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] v = sv.getValues();
+			if (indices.length <= attIndices.length) {
+				for (int k = 0; k < indices.length; k++) {
+					int slot = getSlot(indices[k]);
+					if (slot >= 0) {
+						values[slot] = v[k];
+					}
+				}
+			} else {
+				// Merge the sorted index arrays
+				int k = 0;
+				for (int i = 0; i < attIndices.length; i++) {
+					while (k < indices.length && indices[k] < attIndices[i]) {
+						k++;
+					}
+					if (k < indices.length && indices[k] == attIndices[i]) {
+						values[i] = v[k];
+					}
+				}
+			}
+		} else {
+			for (int i = 0; i < attIndices.length; i++) {
+				values[i] = instance.getValue(attIndices[i]);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Returns the bound instance.
+	 *
+	 * @return the bound instance.
+	 */
+	public Instance getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the resolved attribute indices in ascending order.
+	 *
+	 * @return the resolved attribute indices.
+	 */
+	public int[] getAttributeIndices() {
+		return attIndices;
+	}
+
+	/**
+	 * Returns {@code true} if the bound instance is sparse.
+	 */
+	@Override
+	public boolean isSparse() {
+		return instance.isSparse();
+	}
+
+	/**
+	 * Returns the vector of the bound instance, so that code relying on its representation keeps working.
+	 */
+	@Override
+	public Vector getVector() {
+		return instance.getVector();
+	}
+
+	@Override
+	public double getWeight() {
+		return instance.getWeight();
+	}
+
+	@Override
+	public void setWeight(double weight) {
+		instance.setWeight(weight);
+	}
+
+	@Override
+	public double getTarget() {
+		return instance.getTarget();
+	}
+
+	@Override
+	public void setTarget(double target) {
+		instance.setTarget(target);
+	}
+
+	@Override
+	public Instance copy() {
+		return instance.copy();
+	}
+
+	@Override
+	public Instance clone() {
+		return instance.clone();
+	}
+
+	/**
+	 * Returns the position of an attribute in the resolved values.
+	 * 
+	 * @param attIndex the attribute index.
+	 * @return the position of the attribute in the resolved values, or -1 if it is not resolved by this view.
+	 */
+	protected int getSlot(int attIndex) {
+		int h = hash(attIndex) & mask;
+		for (;;) {
+			int slot = slots[h];
+			if (slot == EMPTY) {
+				return -1;
+			} else if (keys[h] == attIndex) {
+				return slot;
+			}
+			h = (h + 1) & mask;
+		}
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static int[] toSortedArray(Collection<Integer> attIndices) {
+		TreeSet<Integer> set = new TreeSet<>(attIndices);
+		int[] a = new int[set.size()];
+		int k = 0;
+		for (int attIndex : set) {
+			a[k++] = attIndex;
+		}
+		return a;
+	}
+
+	private static List<Integer> toList(int[] a) {
+		List<Integer> list = new ArrayList<>(a.length);
+		for (int v : a) {
+			list.add(v);
+		}
+		return list;
+	}
+
+	/**
+	 * Class for the scoring views of a model, one per thread, over the attributes used by the model. The attribute
+	 * indices are collected lazily into a snapshot, which a model invalidates when it changes, e.g., when a tree is
+	 * added. The view of a thread is rebuilt only when the snapshot holds a different set of indices, so changes that
+	 * do not introduce new attributes keep the views. Attributes missing from an outdated snapshot, e.g., those of a
+	 * tree modified in place, are read from the bound instance.
+	 */
+	public static class Cache {
+
+		private final Consumer<Set<Integer>> collector;
+		private final ThreadLocal<DenseInstanceView> views;
+		private volatile int[] attIndices;
+		private volatile boolean valid;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param collector the function that adds the attribute indices used by the model to a set.
+		 */
+		public Cache(Consumer<Set<Integer>> collector) {
+			this.collector = collector;
+			this.views = new ThreadLocal<>();
+			this.attIndices = new int[0];
+		}
+
+		/**
+		 * Marks the snapshot of attribute indices as outdated, so that it is collected again on the next request.
+		 */
+		public void invalidate() {
+			valid = false;
+		}
+
+		/**
+		 * Returns the snapshot of the attribute indices used by the model, in ascending order.
+		 *
+		 * @return the snapshot of the attribute indices.
+		 */
+		public int[] getAttributeIndices() {
+			if (!valid) {
+				Set<Integer> set = new TreeSet<>();
+				collector.accept(set);
+				int[] a = toSortedArray(set);
+				if (!Arrays.equals(a, attIndices)) {
+					attIndices = a;
+				}
+				valid = true;
+			}
+			return attIndices;
+		}
+
+		/**
+		 * Returns the view of this thread over the current snapshot of attribute indices.
+		 *
+		 * @return the view of this thread.
+		 */
+		public DenseInstanceView get() {
+			int[] attIndices = getAttributeIndices();
+			DenseInstanceView view = views.get();
+			if (view == null || view.attIndices != attIndices) {
+				view = new DenseInstanceView();
+				view.init(attIndices);
+				views.set(view);
+			}
+			return view;
+		}
+
+	}
+
+	/**
+	 * Vector over the resolved values, falling back to the bound instance for other attributes. Writes go to
+	 * the bound instance.
+	 */
+	class ViewVector implements Vector {
+
+		@Override
+		public double getValue(int index) {
+			int slot = getSlot(index);
+			return slot >= 0 ? values[slot] : instance.getValue(index);
+		}
+
+		@Override
+		public double[] getValues() {
+			return instance.getValues();
+		}
+
+		@Override
+		public double[] getValues(int... indices) {
+			double[] v = new double[indices.length];
+			for (int i = 0; i < v.length; i++) {
+				v[i] = getValue(indices[i]);
+			}
+			return v;
+		}
+
+		@Override
+		public void setValue(int index, double value) {
+			instance.setValue(index, value);
+			int slot = getSlot(index);
+			if (slot >= 0) {
+				values[slot] = value;
+			}
+		}
+
+		@Override
+		public void setValue(int[] indices, double[] v) {
+			for (int i = 0; i < indices.length; i++) {
+				setValue(indices[i], v[i]);
+			}
+		}
+
+		@Override
+		public boolean isSparse() {
+			return instance.isSparse();
+		}
+
+		@Override
+		public Vector copy() {
+			return instance.getVector().copy();
+		}
+
+	}
+
+}
@@ -14,6 +14,13 @@ public class Instance implements Copyable<Instance> {
 	protected double[] target;
 	protected double weight;
 
+	/**
+	 * Constructor for subclasses that provide their own storage.
+	 */
+	protected Instance() {
+
+	}
+
 	/**
 	 * Constructs a dense instance from values, target and weight.
 	 * 
@@ -115,14 +122,16 @@ public class Instance implements Copyable<Instance> {
 	}
 
 	/**
-	 * Copy constructor.
+	 * Copy constructor. The vector and target are shared with the other instance. Row views that keep their target
+	 * elsewhere (e.g., rows of {@link AbstractColumnarInstances}) are read through their accessors, and the target is
+	 * copied.
 	 * 
 	 * @param instance the other instance to copy.
 	 */
 	public Instance(Instance instance) {
-		this.vector = instance.vector;
-		this.weight = instance.weight;
-		this.target = instance.target;
+		this.vector = instance.getVector();
+		this.weight = instance.getWeight();
+		this.target = instance.target != null ? instance.target : new double[] { instance.getTarget() };
 	}
 
 	/**
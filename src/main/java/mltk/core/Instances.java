@@ -18,6 +18,7 @@ public class Instances implements Iterable<Instance>, Copyable<Instances> {
 	protected List<Attribute> attributes;
 	protected List<Instance> instances;
 	protected Attribute targetAtt;
+	protected Schema schema;
 
 	/**
 	 * Constructs a dataset from attributes.
@@ -141,6 +142,22 @@ public class Instances implements Iterable<Instance>, Copyable<Instances> {
 		return attributes;
 	}
 
+	/**
+	 * Returns a schema of the current attributes, which supports constant-time lookup by name and by attribute index.
+	 * The schema is a snapshot and does not reflect later changes to the attributes. It is cached, and only rebuilt
+	 * after the attributes are set or the attribute list is changed in place.
+	 * 
+	 * @return a schema of the current attributes.
+	 */
+	public Schema getSchema() {
+		Schema schema = this.schema;
+		if (schema == null || !schema.matches(attributes)) {
+			schema = new Schema(attributes);
+			this.schema = schema;
+		}
+		return schema;
+	}
+
 	/**
 	 * Returns the list of attributes at given locations.
 	 * 
@@ -162,6 +179,7 @@ public class Instances implements Iterable<Instance>, Copyable<Instances> {
 	 */
 	public void setAttributes(List<Attribute> attributes) {
 		this.attributes = attributes;
+		this.schema = null;
 	}
 
 	/**
@@ -0,0 +1,259 @@
+package mltk.core;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class for handling an ordered set of instances whose columns are backed by {@link DoubleBuffer}s, typically
+ * memory-mapped from a binary dataset file (see {@link mltk.core.io.BinaryInstancesReader}). Mapped columns are
+ * read-only, and each column is copied to the heap the first time it is modified, so that learners that rewrite
+ * targets and weights (e.g., boosting) can still be used. Adding instances beyond the mapped rows copies all columns
+ * to the heap.
+ *
+ * <p>
+ * Rows are exposed as flyweight {@link Instance} views, see {@link AbstractColumnarInstances}. Storage rows are never
+ * moved, and the storage row of the i-th instance is given by {@link #getRowIndex(int)}.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class MappedInstances extends AbstractColumnarInstances {
+
+	protected DoubleBuffer[] columns;
+	protected DoubleBuffer targets;
+	protected DoubleBuffer weights;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 * @param columns the feature columns, indexed by attribute index.
+	 * @param targets the target column.
+	 * @param weights the weight column.
+	 */
+	public MappedInstances(List<Attribute> attributes, Attribute targetAtt, DoubleBuffer[] columns,
+			DoubleBuffer targets, DoubleBuffer weights) {
+		super(attributes, targetAtt);
+		this.columns = columns;
+		this.targets = targets;
+		this.weights = weights;
+		this.numRows = targets.limit();
+	}
+
+	@Override
+	public int width() {
+		return columns.length;
+	}
+
+	/**
+	 * Returns the column for an attribute index, indexed by storage row (see {@link #getRowIndex(int)}). Use absolute
+	 * {@code get} methods on the returned buffer. The buffer is read-only while it is mapped.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the column for an attribute index.
+	 */
+	public DoubleBuffer getColumn(int attIndex) {
+		return columns[attIndex];
+	}
+
+	/**
+	 * Returns the value at specified row and attribute index.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @return the value at specified row and attribute index.
+	 */
+	public double getValue(int row, int attIndex) {
+		return columns[attIndex].get(getRowIndex(row));
+	}
+
+	/**
+	 * Returns the target at specified row.
+	 *
+	 * @param row the row index.
+	 * @return the target at specified row.
+	 */
+	public double getTarget(int row) {
+		return targets.get(getRowIndex(row));
+	}
+
+	/**
+	 * Returns the weight at specified row.
+	 *
+	 * @param row the row index.
+	 * @return the weight at specified row.
+	 */
+	public double getWeight(int row) {
+		return weights.get(getRowIndex(row));
+	}
+
+	/**
+	 * Sets the value at specified row and attribute index. The column is copied to the heap if it is mapped.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @param value the new value.
+	 */
+	public void setValue(int row, int attIndex, double value) {
+		putValue(getRowIndex(row), attIndex, value);
+	}
+
+	/**
+	 * Sets the target at specified row. The target column is copied to the heap if it is mapped.
+	 *
+	 * @param row the row index.
+	 * @param target the new target.
+	 */
+	public void setTarget(int row, double target) {
+		putTarget(getRowIndex(row), target);
+	}
+
+	/**
+	 * Sets the weight at specified row. The weight column is copied to the heap if it is mapped.
+	 *
+	 * @param row the row index.
+	 * @param weight the new weight.
+	 */
+	public void setWeight(int row, double weight) {
+		putWeight(getRowIndex(row), weight);
+	}
+
+	/**
+	 * Adds an instance to the end of the dataset. All columns are copied to the heap, with room for more instances,
+	 * the first time the mapped rows are exceeded.
+	 *
+	 * @param instance the instance to add.
+	 */
+	@Override
+	public void add(Instance instance) {
+		ensureCapacity(numRows + 1);
+		final int i = numRows;
+		if (instance.isSparse()) {
+			for (int j = 0; j < columns.length; j++) {
+				putValue(i, j, 0);
+			}
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] values = sv.getValues();
+			for (int k = 0; k < indices.length; k++) {
+				if (indices[k] < columns.length) {
+					putValue(i, indices[k], values[k]);
+				}
+			}
+		} else {
+			for (int j = 0; j < columns.length; j++) {
+				putValue(i, j, instance.getValue(j));
+			}
+		}
+		putTarget(i, instance.getTarget());
+		putWeight(i, instance.getWeight());
+		appendRow();
+	}
+
+	/**
+	 * Returns a deep copy of this dataset on the heap, with storage rows in the order of the instances.
+	 *
+	 * @return a deep copy of this dataset on the heap.
+	 */
+	@Override
+	public ColumnarInstances copy() {
+		List<Attribute> attributes = new ArrayList<>(this.attributes);
+		ColumnarInstances copy = new ColumnarInstances(attributes, targetAtt, columns.length, numRows);
+		for (int j = 0; j < columns.length; j++) {
+			copy(columns[j], copy.columns[j]);
+		}
+		copy(targets, copy.targets);
+		copy(weights, copy.weights);
+		copy.numRows = numRows;
+		return copy;
+	}
+
+	protected void copy(DoubleBuffer column, double[] a) {
+		if (order == null) {
+			column.duplicate().get(a, 0, numRows);
+		} else {
+			for (int i = 0; i < numRows; i++) {
+				a[i] = column.get(order[i]);
+			}
+		}
+	}
+
+	@Override
+	protected int capacity() {
+		return targets.limit();
+	}
+
+	@Override
+	protected double getStoredValue(int row, int attIndex) {
+		return columns[attIndex].get(row);
+	}
+
+	@Override
+	protected void setStoredValue(int row, int attIndex, double value) {
+		putValue(row, attIndex, value);
+	}
+
+	@Override
+	protected double getStoredTarget(int row) {
+		return targets.get(row);
+	}
+
+	@Override
+	protected void setStoredTarget(int row, double target) {
+		putTarget(row, target);
+	}
+
+	@Override
+	protected double getStoredWeight(int row) {
+		return weights.get(row);
+	}
+
+	@Override
+	protected void setStoredWeight(int row, double weight) {
+		putWeight(row, weight);
+	}
+
+	protected void putValue(int row, int attIndex, double value) {
+		if (columns[attIndex].isReadOnly()) {
+			columns[attIndex] = copyToHeap(columns[attIndex], columns[attIndex].limit());
+		}
+		columns[attIndex].put(row, value);
+	}
+
+	protected void putTarget(int row, double target) {
+		if (targets.isReadOnly()) {
+			targets = copyToHeap(targets, targets.limit());
+		}
+		targets.put(row, target);
+	}
+
+	protected void putWeight(int row, double weight) {
+		if (weights.isReadOnly()) {
+			weights = copyToHeap(weights, weights.limit());
+		}
+		weights.put(row, weight);
+	}
+
+	protected void ensureCapacity(int capacity) {
+		final int limit = targets.limit();
+		if (capacity > limit) {
+			int newCapacity = Math.max(capacity, limit + (limit >> 1) + 1);
+			for (int j = 0; j < columns.length; j++) {
+				columns[j] = copyToHeap(columns[j], newCapacity);
+			}
+			targets = copyToHeap(targets, newCapacity);
+			weights = copyToHeap(weights, newCapacity);
+			resizeOrder(newCapacity);
+		}
+	}
+
+	static DoubleBuffer copyToHeap(DoubleBuffer buffer, int capacity) {
+		double[] a = new double[capacity];
+		buffer.duplicate().get(a, 0, buffer.limit());
+		return DoubleBuffer.wrap(a);
+	}
+
+}
@@ -1,6 +1,6 @@
 package mltk.core;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -17,26 +17,52 @@ import mltk.util.tuple.IntPair;
 public class Sampling {
 
 	/**
-	 * Returns a bootstrap sample.
+	 * Returns a bootstrap sample. An instance drawn k times is copied once, with k times its weight.
 	 * 
 	 * @param instances the data set.
 	 * @return a bootstrap sample.
 	 */
 	public static Instances createBootstrapSample(Instances instances) {
+		return createSample(instances, createBootstrapCounts(instances.size()));
+	}
+
+	/**
+	 * Returns a bootstrap sample as the number of times each instance is drawn. Unlike a bootstrap sample of
+	 * instances, no instance is copied, so a sample takes one array of size n.
+	 * 
+	 * @param n the size of the dataset to sample.
+	 * @return the number of times each instance is drawn.
+	 */
+	public static int[] createBootstrapCounts(int n) {
 		Random rand = Random.getInstance();
-		Map<Integer, Integer> map = new HashMap<>();
-		for (int i = 0; i < instances.size(); i++) {
-			int idx = rand.nextInt(instances.size());
-			map.put(idx, map.getOrDefault(idx, 0) + 1);
+		int[] counts = new int[n];
+		for (int i = 0; i < n; i++) {
+			counts[rand.nextInt(n)]++;
 		}
-		Instances bag = new Instances(instances.getAttributes(), instances.getTargetAttribute(), map.size());
-		for (Integer idx : map.keySet()) {
-			int weight = map.get(idx);
-			Instance instance = instances.get(idx).clone();
-			instance.setWeight(weight);
-			bag.add(instance);
+		return counts;
+	}
+
+	/**
+	 * Returns a bootstrap sample as the number of times each instance is drawn, with at least one out-of-bag
+	 * instance. Samples without out-of-bag instances are redrawn.
+	 * 
+	 * @param n the size of the dataset to sample.
+	 * @param oobIndices the list to hold the out-of-bag indexes.
+	 * @return the number of times each instance is drawn.
+	 */
+	public static int[] createBootstrapCounts(int n, List<Integer> oobIndices) {
+		for (;;) {
+			int[] counts = createBootstrapCounts(n);
+			oobIndices.clear();
+			for (int i = 0; i < n; i++) {
+				if (counts[i] == 0) {
+					oobIndices.add(i);
+				}
+			}
+			if (oobIndices.size() > 0) {
+				return counts;
+			}
 		}
-		return bag;
 	}
 
 	/**
@@ -48,21 +74,11 @@ public class Sampling {
 	 */
 	public static void createBootstrapSample(Instances instances, Map<Integer, Integer> bagIndices,
 			List<Integer> oobIndices) {
-		Random rand = Random.getInstance();
-		for (;;) {
-			bagIndices.clear();
-			oobIndices.clear();
-			for (int i = 0; i < instances.size(); i++) {
-				int idx = rand.nextInt(instances.size());
-				bagIndices.put(idx, bagIndices.getOrDefault(idx, 0) + 1);
-			}
-			for (int i = 0; i < instances.size(); i++) {
-				if (!bagIndices.containsKey(i)) {
-					oobIndices.add(i);
-				}
-			}
-			if (oobIndices.size() > 0) {
-				break;
+		int[] counts = createBootstrapCounts(instances.size(), oobIndices);
+		bagIndices.clear();
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				bagIndices.put(i, counts[i]);
 			}
 		}
 	}
@@ -74,16 +90,13 @@ public class Sampling {
 	 * @return a bootstrap sample of indices and weights.
 	 */
 	public static IntPair[] createBootstrapSampleIndices(int n) {
-		Random rand = Random.getInstance();
-		Map<Integer, Integer> map = new HashMap<>();
-		for (int i = 0; i < n; i++) {
-			int idx = rand.nextInt(n);
-			map.put(idx, map.getOrDefault(idx, 0) + 1);
-		}
-		IntPair[] indices = new IntPair[map.size()];
+		int[] counts = createBootstrapCounts(n);
+		IntPair[] indices = new IntPair[size(counts)];
 		int k = 0;
-		for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
-			indices[k++] = new IntPair(entry.getKey(), entry.getValue());
+		for (int i = 0; i < n; i++) {
+			if (counts[i] > 0) {
+				indices[k++] = new IntPair(i, counts[i]);
+			}
 		}
 		return indices;
 	}
@@ -106,6 +119,45 @@ public class Sampling {
 		return sample;
 	}
 
+	/**
+	 * Returns a subsample as the number of times each instance is drawn, that is, 1 for the instances in the
+	 * subsample and 0 for the others.
+	 * 
+	 * @param n the size of the dataset to sample.
+	 * @param m the sample size.
+	 * @return the number of times each instance is drawn.
+	 */
+	public static int[] createSubsampleCounts(int n, int m) {
+		Permutation perm = new Permutation(n);
+		perm.permute();
+		int[] a = perm.getPermutation();
+		int[] counts = new int[n];
+		for (int i = 0; i < m; i++) {
+			counts[a[i]] = 1;
+		}
+		return counts;
+	}
+
+	/**
+	 * Returns the sample given by the number of times each instance is drawn. An instance drawn k times is copied
+	 * once, with k times its weight.
+	 * 
+	 * @param instances the dataset.
+	 * @param counts the number of times each instance is drawn.
+	 * @return the sample.
+	 */
+	public static Instances createSample(Instances instances, int[] counts) {
+		Instances sample = new Instances(instances.getAttributes(), instances.getTargetAttribute(), size(counts));
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] > 0) {
+				Instance instance = instances.get(i).clone();
+				instance.setWeight(instance.getWeight() * counts[i]);
+				sample.add(instance);
+			}
+		}
+		return sample;
+	}
+
 	/**
 	 * Returns a set of bags.
 	 * 
@@ -127,4 +179,38 @@ public class Sampling {
 		return bags;
 	}
 
+	/**
+	 * Returns a set of bags as the number of times each instance is drawn in each bag. Without bagging, the only bag
+	 * draws every instance once.
+	 * 
+	 * @param n the size of the dataset.
+	 * @param b the number of bagging iterations.
+	 * @return a set of bags.
+	 */
+	public static int[][] createBags(int n, int b) {
+		int[][] bags = null;
+		if (b <= 0) {
+			// No bagging
+			int[] counts = new int[n];
+			Arrays.fill(counts, 1);
+			bags = new int[][] { counts };
+		} else {
+			bags = new int[b][];
+			for (int i = 0; i < b; i++) {
+				bags[i] = Sampling.createBootstrapCounts(n);
+			}
+		}
+		return bags;
+	}
+
+	private static int size(int[] counts) {
+		int size = 0;
+		for (int count : counts) {
+			if (count > 0) {
+				size++;
+			}
+		}
+		return size;
+	}
+
 }
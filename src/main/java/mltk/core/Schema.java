@@ -0,0 +1,166 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class for an immutable attribute schema. Besides the ordered list of attributes, it offers constant-time lookup of
+ * the position of an attribute in the list, both by name and by attribute index (see {@link Attribute#getIndex()}),
+ * so that code keyed by attribute does not need to rescan the attribute list or hash attribute names repeatedly.
+ * Positions by attribute index are kept in an array indexed by attribute index, unless the attribute indices are
+ * sparse, i.e., the largest one is much larger than the number of attributes, in which case they are hashed.
+ *
+ * @author Yin Lou
+ *
+ */
+public class Schema {
+
+	protected final List<Attribute> attributes;
+	protected final int[] indices;
+	protected final int width;
+	protected final Map<String, Integer> positionsByName;
+	protected final int[] positionsByIndex;
+	protected final Map<Integer, Integer> sparsePositionsByIndex;
+
+	/**
+	 * Constructor. If several attributes share a name or an index, lookups return the first one.
+	 *
+	 * @param attributes the attributes.
+	 */
+	public Schema(List<Attribute> attributes) {
+		final int p = attributes.size();
+		this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+		this.indices = new int[p];
+		this.width = ColumnarInstances.getWidth(attributes);
+		this.positionsByName = new HashMap<>(p * 2);
+		if (width <= Math.max(1024, 4 * p)) {
+			this.positionsByIndex = new int[width];
+			this.sparsePositionsByIndex = null;
+			Arrays.fill(positionsByIndex, -1);
+		} else {
+			this.positionsByIndex = null;
+			this.sparsePositionsByIndex = new HashMap<>(p * 2);
+		}
+		for (int j = p - 1; j >= 0; j--) {
+			Attribute attribute = attributes.get(j);
+			indices[j] = attribute.getIndex();
+			positionsByName.put(attribute.getName(), j);
+			if (attribute.getIndex() >= 0) {
+				if (positionsByIndex != null) {
+					positionsByIndex[attribute.getIndex()] = j;
+				} else {
+					sparsePositionsByIndex.put(attribute.getIndex(), j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns {@code true} if this schema describes a list of attributes, i.e., the list holds the same attributes at
+	 * the same positions, with the same attribute indices as when this schema was built.
+	 *
+	 * @param attributes the attributes.
+	 * @return {@code true} if this schema describes the list of attributes.
+	 */
+	public boolean matches(List<Attribute> attributes) {
+		if (attributes.size() != this.attributes.size()) {
+			return false;
+		}
+		for (int j = 0; j < indices.length; j++) {
+			Attribute attribute = attributes.get(j);
+			if (attribute != this.attributes.get(j) || attribute.getIndex() != indices[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 *
+	 * @return the number of attributes.
+	 */
+	public int size() {
+		return attributes.size();
+	}
+
+	/**
+	 * Returns the number of columns, i.e., the largest attribute index plus one.
+	 *
+	 * @return the number of columns.
+	 */
+	public int width() {
+		return width;
+	}
+
+	/**
+	 * Returns the attribute at a position.
+	 *
+	 * @param position the position.
+	 * @return the attribute at a position.
+	 */
+	public Attribute get(int position) {
+		return attributes.get(position);
+	}
+
+	/**
+	 * Returns the unmodifiable list of attributes.
+	 *
+	 * @return the unmodifiable list of attributes.
+	 */
+	public List<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the position of an attribute by name, or -1 if there is no such attribute.
+	 *
+	 * @param name the attribute name.
+	 * @return the position of an attribute.
+	 */
+	public int getPosition(String name) {
+		Integer position = positionsByName.get(name);
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Returns the position of an attribute by attribute index, or -1 if there is no such attribute.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the position of an attribute.
+	 */
+	public int getPositionByIndex(int attIndex) {
+		if (positionsByIndex != null) {
+			return attIndex >= 0 && attIndex < positionsByIndex.length ? positionsByIndex[attIndex] : -1;
+		}
+		Integer position = sparsePositionsByIndex.get(attIndex);
+		return position == null ? -1 : position;
+	}
+
+	/**
+	 * Returns the attribute with a name, or {@code null} if there is no such attribute.
+	 *
+	 * @param name the attribute name.
+	 * @return the attribute with a name.
+	 */
+	public Attribute getAttribute(String name) {
+		int position = getPosition(name);
+		return position < 0 ? null : attributes.get(position);
+	}
+
+	/**
+	 * Returns the attribute with an attribute index, or {@code null} if there is no such attribute.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the attribute with an attribute index.
+	 */
+	public Attribute getAttributeByIndex(int attIndex) {
+		int position = getPositionByIndex(attIndex);
+		return position < 0 ? null : attributes.get(position);
+	}
+
+}
@@ -0,0 +1,500 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class for handling an ordered set of sparse instances in compressed sparse row (CSR) format. All rows share three
+ * flat arrays: row pointers, attribute indices and values, so that no per-row arrays or boxed entries are allocated.
+ * The compressed sparse column (CSC) view, which column-oriented solvers need, is built from the rows with a single
+ * counting pass the first time it is requested, and is discarded whenever the dataset is modified.
+ *
+ * <p>
+ * Rows are exposed as flyweight {@link Instance} views (see {@link AbstractColumnarInstances}) whose vectors are
+ * {@link SparseVector}s. Since rows have no
+ * arrays of their own, {@link SparseVector#getIndices()} and {@link SparseVector#getValues()} return newly allocated
+ * copies; use {@link Vector#setValue(int, double)} to modify a stored entry.
+ * </p>
+ *
+ * <p>
+ * Shuffling only permutes the order of the storage rows, so no entry is moved. The CSR arrays are indexed by storage
+ * row, while the CSC view is indexed by the position of the instance.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class SparseInstances extends AbstractColumnarInstances {
+
+	protected int[] rowPtr;
+	protected int[] colIndices;
+	protected double[] rowValues;
+	protected double[] targets;
+	protected double[] weights;
+	protected int width;
+
+	protected int[] colPtr;
+	protected int[] rowIndices;
+	protected double[] colValues;
+
+	/**
+	 * Constructs a dataset from attributes and target attribute.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 */
+	public SparseInstances(List<Attribute> attributes, Attribute targetAtt) {
+		this(attributes, targetAtt, 1000);
+	}
+
+	/**
+	 * Constructs a dataset from attributes and target attribute, with specified capacity.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 * @param capacity the capacity in rows.
+	 */
+	public SparseInstances(List<Attribute> attributes, Attribute targetAtt, int capacity) {
+		super(attributes, targetAtt);
+		this.rowPtr = new int[capacity + 1];
+		this.colIndices = new int[capacity];
+		this.rowValues = new double[capacity];
+		this.targets = new double[capacity];
+		this.weights = new double[capacity];
+		this.width = ColumnarInstances.getWidth(attributes);
+	}
+
+	/**
+	 * Constructs a sparse dataset from a row-oriented dataset. Explicit entries of sparse instances are kept as they
+	 * are, and nonzero values of dense instances are stored.
+	 *
+	 * @param instances the instances to convert.
+	 */
+	public SparseInstances(Instances instances) {
+		this(instances.getAttributes(), instances.getTargetAttribute(), instances.size());
+		for (Instance instance : instances) {
+			add(instance);
+		}
+	}
+
+	/**
+	 * Copy constructor. The arrays are deep copied, with storage rows in the order of the instances.
+	 *
+	 * @param instances the instances to copy.
+	 */
+	public SparseInstances(SparseInstances instances) {
+		super(instances.attributes, instances.targetAtt);
+		final int n = instances.numRows;
+		final int nnz = instances.rowPtr[n];
+		if (instances.order == null) {
+			this.rowPtr = Arrays.copyOf(instances.rowPtr, n + 1);
+			this.colIndices = Arrays.copyOf(instances.colIndices, nnz);
+			this.rowValues = Arrays.copyOf(instances.rowValues, nnz);
+		} else {
+			this.rowPtr = new int[n + 1];
+			this.colIndices = new int[nnz];
+			this.rowValues = new double[nnz];
+			for (int i = 0; i < n; i++) {
+				int r = instances.order[i];
+				int len = instances.rowPtr[r + 1] - instances.rowPtr[r];
+				System.arraycopy(instances.colIndices, instances.rowPtr[r], colIndices, rowPtr[i], len);
+				System.arraycopy(instances.rowValues, instances.rowPtr[r], rowValues, rowPtr[i], len);
+				rowPtr[i + 1] = rowPtr[i] + len;
+			}
+		}
+		this.targets = instances.copyTargets();
+		this.weights = instances.copyWeights();
+		this.numRows = n;
+		this.width = instances.width;
+	}
+
+	@Override
+	public void add(Instance instance) {
+		ensureCapacity(numRows + 1);
+		int nnz = rowPtr[numRows];
+		if (instance.isSparse()) {
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] values = sv.getValues();
+			ensureNonZeroCapacity(nnz + indices.length);
+			for (int k = 0; k < indices.length; k++) {
+				colIndices[nnz] = indices[k];
+				rowValues[nnz] = values[k];
+				width = Math.max(width, indices[k] + 1);
+				nnz++;
+			}
+		} else {
+			double[] values = instance.getValues();
+			for (int j = 0; j < values.length; j++) {
+				if (values[j] != 0) {
+					ensureNonZeroCapacity(nnz + 1);
+					colIndices[nnz] = j;
+					rowValues[nnz] = values[j];
+					width = Math.max(width, j + 1);
+					nnz++;
+				}
+			}
+		}
+		targets[numRows] = instance.getTarget();
+		weights[numRows] = instance.getWeight();
+		appendRow();
+		rowPtr[numRows] = nnz;
+		invalidateColumns();
+	}
+
+	@Override
+	public int width() {
+		return width;
+	}
+
+	/**
+	 * Returns the number of stored entries.
+	 *
+	 * @return the number of stored entries.
+	 */
+	public int numNonZeros() {
+		return rowPtr[numRows];
+	}
+
+	/**
+	 * Returns the CSR row pointers. Entries of storage row {@code r} (see {@link #getRowIndex(int)}) are stored in
+	 * positions {@code [rowPtr[r], rowPtr[r + 1])} of {@link #getColumnIndices()} and {@link #getRowValues()}. The
+	 * returned array is the backing storage and may be longer than {@code size() + 1}.
+	 *
+	 * @return the CSR row pointers.
+	 */
+	public int[] getRowPointers() {
+		return rowPtr;
+	}
+
+	/**
+	 * Returns the CSR attribute indices. The returned array is the backing storage and may be longer than
+	 * {@link #numNonZeros()}.
+	 *
+	 * @return the CSR attribute indices.
+	 */
+	public int[] getColumnIndices() {
+		return colIndices;
+	}
+
+	/**
+	 * Returns the CSR values. The returned array is the backing storage and may be longer than
+	 * {@link #numNonZeros()}.
+	 *
+	 * @return the CSR values.
+	 */
+	public double[] getRowValues() {
+		return rowValues;
+	}
+
+	/**
+	 * Returns the CSC column pointers, indexed by attribute index. Entries of the column for attribute index
+	 * {@code j} are stored in positions {@code [colPtr[j], colPtr[j + 1])} of {@link #getRowIndices()} and
+	 * {@link #getColumnValues()}, in the order of the instances. The returned array has length {@code width() + 1}.
+	 *
+	 * @return the CSC column pointers.
+	 */
+	public int[] getColumnPointers() {
+		buildColumns();
+		return colPtr;
+	}
+
+	/**
+	 * Returns the CSC row indices, i.e., the indices of the instances. The returned array has length
+	 * {@link #numNonZeros()}.
+	 *
+	 * @return the CSC row indices.
+	 */
+	public int[] getRowIndices() {
+		buildColumns();
+		return rowIndices;
+	}
+
+	/**
+	 * Returns the CSC values. The returned array has length {@link #numNonZeros()}.
+	 *
+	 * @return the CSC values.
+	 */
+	public double[] getColumnValues() {
+		buildColumns();
+		return colValues;
+	}
+
+	/**
+	 * Returns the target column. The returned array is the backing storage, indexed by storage row (see
+	 * {@link #getRowIndex(int)}), and may be longer than {@link #size()}.
+	 *
+	 * @return the target column.
+	 */
+	public double[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the weight column. The returned array is the backing storage, indexed by storage row (see
+	 * {@link #getRowIndex(int)}), and may be longer than {@link #size()}.
+	 *
+	 * @return the weight column.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns a copy of the column for an attribute index, with length {@link #size()} and in the order of the
+	 * instances. Entries are scattered from the CSC view.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return a copy of the column for an attribute index.
+	 */
+	@Override
+	public double[] copyColumn(int attIndex) {
+		double[] copy = new double[numRows];
+		if (attIndex < width) {
+			buildColumns();
+			for (int k = colPtr[attIndex]; k < colPtr[attIndex + 1]; k++) {
+				copy[rowIndices[k]] = colValues[k];
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns a copy of the target column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the target column.
+	 */
+	@Override
+	public double[] copyTargets() {
+		return copy(targets);
+	}
+
+	/**
+	 * Returns a copy of the weight column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the weight column.
+	 */
+	@Override
+	public double[] copyWeights() {
+		return copy(weights);
+	}
+
+	/**
+	 * Returns the value at specified row and attribute index.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @return the value at specified row and attribute index.
+	 */
+	public double getValue(int row, int attIndex) {
+		return getStoredValue(getRowIndex(row), attIndex);
+	}
+
+	/**
+	 * Trims the capacity of the arrays to the current size. Arrays returned by {@link #getRowPointers()},
+	 * {@link #getColumnIndices()}, {@link #getRowValues()}, {@link #getTargets()} and {@link #getWeights()} before are
+	 * no longer the backing storage.
+	 */
+	public void trimToSize() {
+		final int nnz = rowPtr[numRows];
+		if (targets.length != numRows) {
+			resize(numRows);
+		}
+		if (colIndices.length != nnz) {
+			resizeNonZeros(nnz);
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		invalidateColumns();
+	}
+
+	@Override
+	public void shuffle(java.util.Random rand) {
+		super.shuffle(rand);
+		invalidateColumns();
+	}
+
+	@Override
+	public SparseInstances copy() {
+		SparseInstances copy = new SparseInstances(this);
+		copy.attributes = new ArrayList<>(attributes);
+		return copy;
+	}
+
+	/**
+	 * Builds the CSC view by counting the entries of each column, then scattering the rows in the order of the
+	 * instances. The view is built under the lock of this dataset, so that threads reading it concurrently, e.g.,
+	 * sparse GLM learners, see all of its arrays once {@link #colPtr} is set.
+	 */
+	protected synchronized void buildColumns() {
+		if (colPtr != null) {
+			return;
+		}
+		final int nnz = rowPtr[numRows];
+		int[] ptr = new int[width + 1];
+		for (int k = 0; k < nnz; k++) {
+			ptr[colIndices[k] + 1]++;
+		}
+		for (int j = 0; j < width; j++) {
+			ptr[j + 1] += ptr[j];
+		}
+		int[] next = Arrays.copyOf(ptr, width);
+		int[] rows = new int[nnz];
+		double[] values = new double[nnz];
+		for (int i = 0; i < numRows; i++) {
+			int r = getRowIndex(i);
+			for (int k = rowPtr[r]; k < rowPtr[r + 1]; k++) {
+				int pos = next[colIndices[k]]++;
+				rows[pos] = i;
+				values[pos] = rowValues[k];
+			}
+		}
+		colPtr = ptr;
+		rowIndices = rows;
+		colValues = values;
+	}
+
+	protected synchronized void invalidateColumns() {
+		colPtr = null;
+		rowIndices = null;
+		colValues = null;
+	}
+
+	@Override
+	protected int capacity() {
+		return targets.length;
+	}
+
+	@Override
+	protected double getStoredValue(int row, int attIndex) {
+		int k = find(row, attIndex);
+		return k >= 0 ? rowValues[k] : 0;
+	}
+
+	/**
+	 * Sets a stored entry of a storage row. Entries that are not stored cannot be set.
+	 */
+	@Override
+	protected void setStoredValue(int row, int attIndex, double value) {
+		int k = find(row, attIndex);
+		if (k >= 0) {
+			rowValues[k] = value;
+			invalidateColumns();
+		} else {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Override
+	protected double getStoredTarget(int row) {
+		return targets[row];
+	}
+
+	@Override
+	protected void setStoredTarget(int row, double target) {
+		targets[row] = target;
+	}
+
+	@Override
+	protected double getStoredWeight(int row) {
+		return weights[row];
+	}
+
+	@Override
+	protected void setStoredWeight(int row, double weight) {
+		weights[row] = weight;
+	}
+
+	@Override
+	protected Vector createVector(int row) {
+		return new RowVector(this, row);
+	}
+
+	/**
+	 * Returns the position of an entry of a storage row in the CSR arrays, or a negative value if it is not stored.
+	 */
+	protected int find(int row, int attIndex) {
+		int start = rowPtr[row];
+		int end = rowPtr[row + 1];
+		int k = Arrays.binarySearch(colIndices, start, end, attIndex);
+		return k >= start ? k : -1;
+	}
+
+	protected void ensureCapacity(int capacity) {
+		if (capacity > targets.length) {
+			int newCapacity = Math.max(capacity, targets.length + (targets.length >> 1) + 1);
+			resize(newCapacity);
+		}
+	}
+
+	protected void ensureNonZeroCapacity(int capacity) {
+		if (capacity > colIndices.length) {
+			int newCapacity = Math.max(capacity, colIndices.length + (colIndices.length >> 1) + 1);
+			resizeNonZeros(newCapacity);
+		}
+	}
+
+	protected void resize(int capacity) {
+		rowPtr = Arrays.copyOf(rowPtr, capacity + 1);
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+		resizeOrder(capacity);
+	}
+
+	protected void resizeNonZeros(int capacity) {
+		colIndices = Arrays.copyOf(colIndices, capacity);
+		rowValues = Arrays.copyOf(rowValues, capacity);
+	}
+
+	/**
+	 * Sparse vector view of a row.
+	 */
+	static class RowVector extends SparseVector {
+
+		protected final SparseInstances owner;
+		protected final int row;
+
+		RowVector(SparseInstances owner, int row) {
+			super(null, null);
+			this.owner = owner;
+			this.row = row;
+		}
+
+		@Override
+		public double getValue(int index) {
+			return owner.getStoredValue(row, index);
+		}
+
+		/**
+		 * Returns a newly allocated copy of the stored values.
+		 */
+		@Override
+		public double[] getValues() {
+			return Arrays.copyOfRange(owner.rowValues, owner.rowPtr[row], owner.rowPtr[row + 1]);
+		}
+
+		/**
+		 * Returns a newly allocated copy of the stored indices.
+		 */
+		@Override
+		public int[] getIndices() {
+			return Arrays.copyOfRange(owner.colIndices, owner.rowPtr[row], owner.rowPtr[row + 1]);
+		}
+
+		@Override
+		public void setValue(int index, double value) {
+			owner.setStoredValue(row, index, value);
+		}
+
+		@Override
+		public SparseVector copy() {
+			return new SparseVector(getIndices(), getValues());
+		}
+
+	}
+
+}
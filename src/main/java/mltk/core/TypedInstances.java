@@ -0,0 +1,336 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mltk.core.Attribute.Type;
+
+/**
+ * Class for handling an ordered set of instances in a typed column store. Each attribute is stored according to its
+ * type: numerical attributes as {@code double} columns, and nominal and binned attributes as {@link BinnedColumn}s of
+ * integer codes, which take one byte per value when there are at most 256 distinct values. The attributes are
+ * described by a {@link Schema}, which gives constant-time lookup of columns by name and by attribute index. Rows are
+ * exposed as flyweight {@link Instance} views, see {@link AbstractColumnarInstances}.
+ *
+ * @author Yin Lou
+ *
+ */
+public class TypedInstances extends AbstractColumnarInstances {
+
+	protected double[][] numericColumns;
+	protected BinnedColumn[] codedColumns;
+	protected double[] targets;
+	protected double[] weights;
+
+	/**
+	 * Constructs a dataset from attributes and target attribute.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 */
+	public TypedInstances(List<Attribute> attributes, Attribute targetAtt) {
+		this(attributes, targetAtt, 1000);
+	}
+
+	/**
+	 * Constructs a dataset from attributes and target attribute, with specified capacity.
+	 *
+	 * @param attributes the attributes.
+	 * @param targetAtt the target attribute.
+	 * @param capacity the capacity.
+	 */
+	public TypedInstances(List<Attribute> attributes, Attribute targetAtt, int capacity) {
+		super(attributes, targetAtt);
+		this.schema = new Schema(attributes);
+		final int width = schema.width();
+		this.numericColumns = new double[width][];
+		this.codedColumns = new BinnedColumn[width];
+		for (Attribute attribute : attributes) {
+			int attIndex = attribute.getIndex();
+			if (attribute.getType() == Type.NUMERIC) {
+				numericColumns[attIndex] = new double[capacity];
+			} else {
+				codedColumns[attIndex] = new BinnedColumn(BinnedInstances.getNumBins(attribute), capacity);
+			}
+		}
+		this.targets = new double[capacity];
+		this.weights = new double[capacity];
+	}
+
+	/**
+	 * Constructs a typed dataset from a row-oriented dataset. Dense and sparse instances are both accepted; absent
+	 * sparse entries are stored as zeros.
+	 *
+	 * @param instances the instances to convert.
+	 */
+	public TypedInstances(Instances instances) {
+		this(instances.getAttributes(), instances.getTargetAttribute(), instances.size());
+		for (Instance instance : instances) {
+			add(instance);
+		}
+	}
+
+	/**
+	 * Copy constructor. The columns are deep copied, with storage rows in the order of the instances.
+	 *
+	 * @param instances the instances to copy.
+	 */
+	public TypedInstances(TypedInstances instances) {
+		super(instances.attributes, instances.targetAtt);
+		final int n = instances.numRows;
+		this.schema = instances.schema;
+		this.numericColumns = new double[instances.numericColumns.length][];
+		this.codedColumns = new BinnedColumn[instances.codedColumns.length];
+		for (int j = 0; j < numericColumns.length; j++) {
+			if (instances.numericColumns[j] != null) {
+				numericColumns[j] = instances.copy(instances.numericColumns[j]);
+			} else if (instances.codedColumns[j] == null) {
+				continue;
+			} else if (instances.order == null) {
+				codedColumns[j] = new BinnedColumn(instances.codedColumns[j], n);
+			} else {
+				codedColumns[j] = new BinnedColumn(instances.codedColumns[j], instances.order, n);
+			}
+		}
+		this.targets = instances.copyTargets();
+		this.weights = instances.copyWeights();
+		this.numRows = n;
+	}
+
+	@Override
+	public void add(Instance instance) {
+		ensureCapacity(numRows + 1);
+		final int i = numRows;
+		if (instance.isSparse()) {
+			for (int j = 0; j < numericColumns.length; j++) {
+				putValue(i, j, 0);
+			}
+			SparseVector sv = (SparseVector) instance.getVector();
+			int[] indices = sv.getIndices();
+			double[] values = sv.getValues();
+			for (int k = 0; k < indices.length; k++) {
+				if (indices[k] < numericColumns.length) {
+					putValue(i, indices[k], values[k]);
+				}
+			}
+		} else {
+			for (int j = 0; j < numericColumns.length; j++) {
+				putValue(i, j, instance.getValue(j));
+			}
+		}
+		targets[i] = instance.getTarget();
+		weights[i] = instance.getWeight();
+		appendRow();
+	}
+
+	/**
+	 * Returns the schema of this dataset.
+	 *
+	 * @return the schema of this dataset.
+	 */
+	@Override
+	public Schema getSchema() {
+		return schema;
+	}
+
+	@Override
+	public void setAttributes(List<Attribute> attributes) {
+		for (Attribute attribute : attributes) {
+			if (getType(attribute.getIndex()) == null) {
+				throw new IllegalArgumentException("No column for attribute " + attribute.getName());
+			}
+		}
+		super.setAttributes(attributes);
+		this.schema = new Schema(attributes);
+	}
+
+	@Override
+	public int width() {
+		return numericColumns.length;
+	}
+
+	/**
+	 * Returns the storage type of the column for an attribute index: {@link Type#NUMERIC} for {@code double} columns,
+	 * {@link Type#NOMINAL} for coded columns, or {@code null} if no attribute has this index.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the storage type of the column.
+	 */
+	public Type getType(int attIndex) {
+		if (attIndex >= numericColumns.length) {
+			return null;
+		} else if (numericColumns[attIndex] != null) {
+			return Type.NUMERIC;
+		} else if (codedColumns[attIndex] != null) {
+			return Type.NOMINAL;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the {@code double} column for a numerical attribute index. The returned array is the backing storage,
+	 * indexed by storage row (see {@link #getRowIndex(int)}), and may be longer than {@link #size()}.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the {@code double} column, or {@code null} if the attribute is not numerical.
+	 */
+	public double[] getNumericColumn(int attIndex) {
+		return numericColumns[attIndex];
+	}
+
+	/**
+	 * Returns the coded column for a nominal or binned attribute index. The column is the backing storage, indexed by
+	 * storage row as in {@link #getNumericColumn(int)}.
+	 *
+	 * @param attIndex the attribute index.
+	 * @return the coded column, or {@code null} if the attribute is numerical.
+	 */
+	public BinnedColumn getCodedColumn(int attIndex) {
+		return codedColumns[attIndex];
+	}
+
+	/**
+	 * Returns the target column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getNumericColumn(int)}, and may be longer than {@link #size()}.
+	 *
+	 * @return the target column.
+	 */
+	public double[] getTargets() {
+		return targets;
+	}
+
+	/**
+	 * Returns the weight column. The returned array is the backing storage, indexed by storage row as in
+	 * {@link #getNumericColumn(int)}, and may be longer than {@link #size()}.
+	 *
+	 * @return the weight column.
+	 */
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**
+	 * Returns a copy of the target column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the target column.
+	 */
+	@Override
+	public double[] copyTargets() {
+		return copy(targets);
+	}
+
+	/**
+	 * Returns a copy of the weight column, with length {@link #size()} and in the order of the instances.
+	 *
+	 * @return a copy of the weight column.
+	 */
+	@Override
+	public double[] copyWeights() {
+		return copy(weights);
+	}
+
+	/**
+	 * Returns the value at specified row and attribute index. Codes of nominal and binned attributes are returned as
+	 * {@code double}, and {@code NaN} for missing values.
+	 *
+	 * @param row the row index.
+	 * @param attIndex the attribute index.
+	 * @return the value at specified row and attribute index.
+	 */
+	public double getValue(int row, int attIndex) {
+		return getStoredValue(getRowIndex(row), attIndex);
+	}
+
+	/**
+	 * Trims the capacity of the columns to the current size. Arrays returned by {@link #getNumericColumn(int)},
+	 * {@link #getTargets()} and {@link #getWeights()} before are no longer the backing storage.
+	 */
+	public void trimToSize() {
+		if (targets.length != numRows) {
+			resize(numRows);
+		}
+	}
+
+	@Override
+	public TypedInstances copy() {
+		TypedInstances copy = new TypedInstances(this);
+		copy.attributes = new ArrayList<>(attributes);
+		return copy;
+	}
+
+	@Override
+	protected int capacity() {
+		return targets.length;
+	}
+
+	@Override
+	protected double getStoredValue(int row, int attIndex) {
+		if (attIndex < numericColumns.length) {
+			if (numericColumns[attIndex] != null) {
+				return numericColumns[attIndex][row];
+			} else if (codedColumns[attIndex] != null) {
+				return codedColumns[attIndex].getValue(row);
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	protected void setStoredValue(int row, int attIndex, double value) {
+		if (getType(attIndex) == null) {
+			throw new IllegalArgumentException("No attribute with index " + attIndex);
+		}
+		putValue(row, attIndex, value);
+	}
+
+	protected void putValue(int row, int attIndex, double value) {
+		if (numericColumns[attIndex] != null) {
+			numericColumns[attIndex][row] = value;
+		} else if (codedColumns[attIndex] != null) {
+			codedColumns[attIndex].setValue(row, value);
+		}
+	}
+
+	@Override
+	protected double getStoredTarget(int row) {
+		return targets[row];
+	}
+
+	@Override
+	protected void setStoredTarget(int row, double target) {
+		targets[row] = target;
+	}
+
+	@Override
+	protected double getStoredWeight(int row) {
+		return weights[row];
+	}
+
+	@Override
+	protected void setStoredWeight(int row, double weight) {
+		weights[row] = weight;
+	}
+
+	protected void ensureCapacity(int capacity) {
+		if (capacity > targets.length) {
+			int newCapacity = Math.max(capacity, targets.length + (targets.length >> 1) + 1);
+			resize(newCapacity);
+		}
+	}
+
+	protected void resize(int capacity) {
+		for (int j = 0; j < numericColumns.length; j++) {
+			if (numericColumns[j] != null) {
+				numericColumns[j] = Arrays.copyOf(numericColumns[j], capacity);
+			} else if (codedColumns[j] != null) {
+				codedColumns[j].resize(capacity);
+			}
+		}
+		targets = Arrays.copyOf(targets, capacity);
+		weights = Arrays.copyOf(weights, capacity);
+		resizeOrder(capacity);
+	}
+
+}
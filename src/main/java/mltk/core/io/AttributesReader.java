@@ -53,14 +53,7 @@ public class AttributesReader {
 			if (line == null) {
 				break;
 			}
-			Attribute att = null;
-			if (line.indexOf("binned") != -1) {
-				att = BinnedAttribute.parse(line);
-			} else if (line.indexOf("{") != -1) {
-				att = NominalAttribute.parse(line);
-			} else {
-				att = NumericalAttribute.parse(line);
-			}
+			Attribute att = parse(line);
 			att.setIndex(i);
 			if (line.indexOf(" (target)") != -1) {
 				targetAtt = att;
@@ -80,4 +73,20 @@ public class AttributesReader {
 		return new Pair<List<Attribute>, Attribute>(attributes, targetAtt);
 	}
 
+	/**
+	 * Parses an attribute from a line in the attribute file. Flags such as " (target)" and " (x)" are ignored.
+	 * 
+	 * @param line the line.
+	 * @return a parsed attribute.
+	 */
+	static Attribute parse(String line) {
+		if (line.indexOf("binned") != -1) {
+			return BinnedAttribute.parse(line);
+		} else if (line.indexOf("{") != -1) {
+			return NominalAttribute.parse(line);
+		} else {
+			return NumericalAttribute.parse(line);
+		}
+	}
+
 }
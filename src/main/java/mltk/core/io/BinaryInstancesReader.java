@@ -0,0 +1,143 @@
+package mltk.core.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import mltk.core.Attribute;
+import mltk.core.MappedInstances;
+
+/**
+ * Class for reading instances in binary format. The binary format is produced by {@link BinaryInstancesWriter} and
+ * consists of a header holding the attribute schema followed by one block per column:
+ *
+ * <pre>
+ * int      magic number
+ * int      format version
+ * int      header length in bytes
+ * byte[]   header: number of attributes, (index, attribute) pairs, target attribute, number of rows and columns;
+ *          attributes are strings of any length, stored as their UTF-8 byte count followed by the bytes
+ * byte[]   padding to 8-byte boundary
+ * double[] one block of n values per column, in little-endian order
+ * double[] targets
+ * double[] weights
+ * </pre>
+ *
+ * Column blocks are memory-mapped rather than parsed, so reading is independent of the dataset size and the page cache
+ * is shared by all processes that map the same file. Each block is mapped as one buffer, which holds at most
+ * {@link Integer#MAX_VALUE} bytes, so a file holds at most {@link #MAX_ROWS} instances.
+ *
+ * @author Yin Lou
+ *
+ */
+public class BinaryInstancesReader {
+
+	static final int MAGIC = 0x4D4C544B;
+	static final int VERSION = 1;
+	static final int PREAMBLE_SIZE = 12;
+
+	/**
+	 * The largest number of instances whose column block can be mapped as one buffer.
+	 */
+	public static final int MAX_ROWS = Integer.MAX_VALUE / Double.BYTES;
+
+	/**
+	 * Reads a set of instances from a binary file.
+	 *
+	 * @param file the binary data file.
+	 * @return a set of memory-mapped instances.
+	 * @throws IOException
+	 */
+	public static MappedInstances read(String file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_SIZE);
+			readFully(channel, preamble, 0);
+			preamble.flip();
+			if (preamble.getInt() != MAGIC) {
+				throw new IOException("Not a binary dataset file: " + file);
+			}
+			int version = preamble.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary dataset version: " + version);
+			}
+			int headerLength = preamble.getInt();
+			ByteBuffer header = ByteBuffer.allocate(headerLength);
+			readFully(channel, header, PREAMBLE_SIZE);
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+			int numAttributes = in.readInt();
+			List<Attribute> attributes = new ArrayList<>(numAttributes);
+			for (int j = 0; j < numAttributes; j++) {
+				int index = in.readInt();
+				Attribute attribute = AttributesReader.parse(readString(in));
+				attribute.setIndex(index);
+				attributes.add(attribute);
+			}
+			Attribute targetAtt = null;
+			if (in.readBoolean()) {
+				targetAtt = AttributesReader.parse(readString(in));
+				targetAtt.setIndex(-1);
+			}
+			final int n = in.readInt();
+			final int width = in.readInt();
+			if (n < 0 || n > MAX_ROWS) {
+				throw new IOException("Cannot map " + n + " instances, at most " + MAX_ROWS + " fit in a column block");
+			}
+
+			long offset = getDataOffset(headerLength);
+			final long blockSize = (long) n * Double.BYTES;
+			DoubleBuffer[] columns = new DoubleBuffer[width];
+			for (int j = 0; j < width; j++) {
+				columns[j] = map(channel, offset, blockSize);
+				offset += blockSize;
+			}
+			DoubleBuffer targets = map(channel, offset, blockSize);
+			offset += blockSize;
+			DoubleBuffer weights = map(channel, offset, blockSize);
+
+			return new MappedInstances(attributes, targetAtt, columns, targets, weights);
+		} finally {
+			// Mappings remain valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads a string of any length written by {@link BinaryInstancesWriter}.
+	 */
+	static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static long getDataOffset(int headerLength) {
+		long offset = PREAMBLE_SIZE + headerLength;
+		return (offset + 7) & ~7L;
+	}
+
+	private static DoubleBuffer map(FileChannel channel, long offset, long size) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN)
+				.asDoubleBuffer();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int r = channel.read(buffer, position + buffer.position());
+			if (r < 0) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,196 @@
+package mltk.core.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+
+import mltk.cmdline.Argument;
+import mltk.cmdline.CmdLineParser;
+import mltk.core.AbstractColumnarInstances;
+import mltk.core.Attribute;
+import mltk.core.ColumnarInstances;
+import mltk.core.Instances;
+
+/**
+ * Class for writing instances in binary format. See {@link BinaryInstancesReader} for the layout.
+ *
+ * @author Yin Lou
+ *
+ */
+public class BinaryInstancesWriter {
+
+	static class Options {
+
+		@Argument(name = "-r", description = "attribute file path")
+		String attPath = null;
+
+		@Argument(name = "-d", description = "data set path", required = true)
+		String dataPath = null;
+
+		@Argument(name = "-o", description = "output binary data set path", required = true)
+		String outputPath = null;
+
+	}
+
+	/**
+	 * Converts a dataset in text format to binary format.
+	 *
+	 * <pre>
+	 * Usage: mltk.core.io.BinaryInstancesWriter
+	 * -d	data set path
+	 * -o	output binary data set path
+	 * [-r]	attribute file path
+	 * </pre>
+	 *
+	 * @param args the command line arguments.
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Options opts = new Options();
+		CmdLineParser parser = new CmdLineParser(BinaryInstancesWriter.class, opts);
+		try {
+			parser.parse(args);
+		} catch (IllegalArgumentException e) {
+			parser.printUsage();
+			System.exit(1);
+		}
+
+		Instances instances = InstancesReader.read(opts.attPath, opts.dataPath);
+		write(instances, opts.outputPath);
+	}
+
+	/**
+	 * Writes a set of instances to a binary file. Sparse instances are stored densely. Columns are streamed from the
+	 * instances one at a time, so that the instances are not copied into a columnar dataset first. At most
+	 * {@link BinaryInstancesReader#MAX_ROWS} instances can be written, since each column is mapped as one block.
+	 *
+	 * @param instances the instances to write.
+	 * @param file the binary data file path.
+	 * @throws IOException
+	 */
+	public static void write(Instances instances, String file) throws IOException {
+		final int n = instances.size();
+		if (n > BinaryInstancesReader.MAX_ROWS) {
+			throw new IOException("Cannot write " + n + " instances, at most " + BinaryInstancesReader.MAX_ROWS
+					+ " fit in a column block");
+		}
+		final int width = getWidth(instances);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		List<Attribute> attributes = instances.getAttributes();
+		header.writeInt(attributes.size());
+		for (Attribute attribute : attributes) {
+			header.writeInt(attribute.getIndex());
+			writeString(header, attribute.toString());
+		}
+		Attribute targetAtt = instances.getTargetAttribute();
+		header.writeBoolean(targetAtt != null);
+		if (targetAtt != null) {
+			writeString(header, targetAtt.toString());
+		}
+		header.writeInt(n);
+		header.writeInt(width);
+		header.flush();
+		byte[] headerBytes = bytes.toByteArray();
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+			long dataOffset = BinaryInstancesReader.getDataOffset(headerBytes.length);
+			ByteBuffer preamble = ByteBuffer.allocate((int) dataOffset);
+			preamble.putInt(BinaryInstancesReader.MAGIC);
+			preamble.putInt(BinaryInstancesReader.VERSION);
+			preamble.putInt(headerBytes.length);
+			preamble.put(headerBytes);
+			preamble.position(preamble.capacity());
+			preamble.flip();
+			writeFully(channel, preamble);
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+			if (instances instanceof ColumnarInstances) {
+				ColumnarInstances columnar = (ColumnarInstances) instances;
+				for (int j = 0; j < width; j++) {
+					double[] column = columnar.getColumn(j);
+					writeColumn(channel, buffer, n, i -> column[columnar.getRowIndex(i)]);
+				}
+				double[] targets = columnar.getTargets();
+				double[] weights = columnar.getWeights();
+				writeColumn(channel, buffer, n, i -> targets[columnar.getRowIndex(i)]);
+				writeColumn(channel, buffer, n, i -> weights[columnar.getRowIndex(i)]);
+			} else if (instances instanceof AbstractColumnarInstances) {
+				AbstractColumnarInstances columnar = (AbstractColumnarInstances) instances;
+				for (int j = 0; j < width; j++) {
+					double[] column = columnar.copyColumn(j);
+					writeColumn(channel, buffer, n, i -> column[i]);
+				}
+				double[] targets = columnar.copyTargets();
+				writeColumn(channel, buffer, n, i -> targets[i]);
+				double[] weights = columnar.copyWeights();
+				writeColumn(channel, buffer, n, i -> weights[i]);
+			} else {
+				for (int j = 0; j < width; j++) {
+					final int attIndex = j;
+					writeColumn(channel, buffer, n, i -> instances.get(i).getValue(attIndex));
+				}
+				writeColumn(channel, buffer, n, i -> instances.get(i).getTarget());
+				writeColumn(channel, buffer, n, i -> instances.get(i).getWeight());
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes a string as its UTF-8 byte count followed by the bytes, since {@link DataOutputStream#writeUTF(String)}
+	 * is limited to 65535 bytes, which nominal attributes with many states exceed.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Returns the number of columns of a set of instances, i.e., the largest attribute index plus one.
+	 */
+	private static int getWidth(Instances instances) {
+		if (instances instanceof AbstractColumnarInstances) {
+			return ((AbstractColumnarInstances) instances).width();
+		}
+		int width = 0;
+		for (Attribute attribute : instances.getAttributes()) {
+			width = Math.max(width, attribute.getIndex() + 1);
+		}
+		return width;
+	}
+
+	private static void writeColumn(FileChannel channel, ByteBuffer buffer, int n, IntToDoubleFunction column)
+			throws IOException {
+		buffer.clear();
+		for (int i = 0; i < n; i++) {
+			if (buffer.remaining() < Double.BYTES) {
+				buffer.flip();
+				writeFully(channel, buffer);
+				buffer.clear();
+			}
+			buffer.putDouble(column.applyAsDouble(i));
+		}
+		buffer.flip();
+		writeFully(channel, buffer);
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+}
@@ -0,0 +1,246 @@
+package mltk.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import mltk.core.Instance;
+
+/**
+ * Class for parsing a whitespace-delimited data file in parallel. The file is split into byte ranges that start at line
+ * boundaries, each range is tokenized by its own {@link LineTokenizer}, and the parsed chunks are returned in file
+ * order so that callers can merge them exactly as the sequential reader would.
+ *
+ * @author Yin Lou
+ *
+ */
+class ChunkReader {
+
+	/**
+	 * Parsed contents of a byte range.
+	 */
+	static class Chunk {
+
+		List<Instance> instances;
+		/**
+		 * Number of columns for each dense line, -1 for sparse lines. Only used in {@link LineParser.Mode#INFER}.
+		 */
+		int[] lengths;
+		/**
+		 * Errors for dense lines that could not be parsed, in order. Each corresponds to a null instance. Only used in
+		 * {@link LineParser.Mode#INFER}, where such a line may legally be skipped.
+		 */
+		List<RuntimeException> errors;
+		TreeSet<Integer> attrSet;
+
+		Chunk() {
+			instances = new ArrayList<>();
+			lengths = new int[16];
+			errors = new ArrayList<>();
+			attrSet = new TreeSet<>();
+		}
+
+		void add(Instance instance, int length) {
+			if (instances.size() == lengths.length) {
+				lengths = java.util.Arrays.copyOf(lengths, lengths.length * 2);
+			}
+			lengths[instances.size()] = length;
+			instances.add(instance);
+		}
+
+	}
+
+	/**
+	 * Reads a file in parallel.
+	 *
+	 * @param file the data file.
+	 * @param mode the parsing mode.
+	 * @param index the class index for {@link LineParser.Mode#SCHEMA}, the target index for
+	 *            {@link LineParser.Mode#DENSE}.
+	 * @param totalLength the number of columns for {@link LineParser.Mode#SCHEMA}.
+	 * @param numThreads the number of threads.
+	 * @return the parsed chunks in file order.
+	 * @throws IOException
+	 */
+	static List<Chunk> read(String file, final LineParser.Mode mode, final int index, final int totalLength,
+			int numThreads) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			final FileChannel channel = raf.getChannel();
+			// More chunks than threads for load balancing
+			long[] boundaries = split(channel, numThreads * 4);
+			List<Future<Chunk>> futures = new ArrayList<>();
+			for (int i = 0; i + 1 < boundaries.length; i++) {
+				final long start = boundaries[i];
+				final long end = boundaries[i + 1];
+				if (start == end) {
+					continue;
+				}
+				futures.add(executor.submit(new Callable<Chunk>() {
+
+					@Override
+					public Chunk call() throws IOException {
+						return parse(new RangeInputStream(channel, start, end), mode, index, totalLength);
+					}
+
+				}));
+			}
+			List<Chunk> chunks = new ArrayList<>(futures.size());
+			for (Future<Chunk> future : futures) {
+				chunks.add(get(future));
+			}
+			return chunks;
+		} finally {
+			executor.shutdownNow();
+			raf.close();
+		}
+	}
+
+	/**
+	 * Parses all lines of a stream. In {@link LineParser.Mode#INFER}, the number of columns is not known until the
+	 * chunks are merged, so every dense line is parsed and its number of columns is kept for the merge to check.
+	 */
+	static Chunk parse(InputStream in, LineParser.Mode mode, int index, int totalLength) throws IOException {
+		Chunk chunk = new Chunk();
+		LineTokenizer tokenizer = new LineTokenizer(in);
+		LineParser parser = new LineParser(mode, index, totalLength, null);
+		while (tokenizer.nextLine()) {
+			if (mode != LineParser.Mode.INFER) {
+				Instance instance = parser.parse(tokenizer);
+				if (instance != null) {
+					chunk.add(instance, tokenizer.numTokens());
+				}
+			} else if (LineParser.isSparse(tokenizer)) {
+				chunk.add(LineParser.parseSparseInstance(tokenizer, chunk.attrSet), -1);
+			} else {
+				// Dense instance, which may turn out to be the skipped first dense line
+				Instance instance = null;
+				try {
+					instance = LineParser.parseDenseInstance(tokenizer, -1);
+				} catch (RuntimeException e) {
+					chunk.errors.add(e);
+				}
+				chunk.add(instance, tokenizer.numTokens());
+			}
+		}
+		tokenizer.close();
+		return chunk;
+	}
+
+	/**
+	 * Splits a file into byte ranges that start at line boundaries.
+	 *
+	 * @param channel the file channel.
+	 * @param numChunks the desired number of chunks.
+	 * @return the boundaries, starting with 0 and ending with the file size.
+	 * @throws IOException
+	 */
+	static long[] split(FileChannel channel, int numChunks) throws IOException {
+		long size = channel.size();
+		long[] boundaries = new long[numChunks + 1];
+		for (int i = 1; i < numChunks; i++) {
+			long offset = Math.max(size / numChunks * i, boundaries[i - 1]);
+			boundaries[i] = alignToLine(channel, offset, size);
+		}
+		boundaries[numChunks] = size;
+		return boundaries;
+	}
+
+	/**
+	 * Returns the first line start at or after an offset. A position is a line start if it follows "\n", or follows
+	 * "\r" not followed by "\n", consistent with {@link LineTokenizer}.
+	 */
+	static long alignToLine(FileChannel channel, long offset, long size) throws IOException {
+		if (offset <= 0) {
+			return 0;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long base = offset - 1;
+		byte prev = 0;
+		boolean hasPrev = false;
+		while (base < size) {
+			buffer.clear();
+			int r = channel.read(buffer, base);
+			if (r <= 0) {
+				break;
+			}
+			for (int k = 0; k < r; k++) {
+				byte b = buffer.get(k);
+				if (hasPrev && (prev == '\n' || (prev == '\r' && b != '\n'))) {
+					return base + k;
+				}
+				prev = b;
+				hasPrev = true;
+			}
+			base += r;
+		}
+		return size;
+	}
+
+	private static Chunk get(Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Input stream over a byte range of a file channel using positional reads, so that ranges can be read concurrently.
+	 */
+	static class RangeInputStream extends InputStream {
+
+		private final FileChannel channel;
+		private long position;
+		private final long end;
+
+		RangeInputStream(FileChannel channel, long start, long end) {
+			this.channel = channel;
+			this.position = start;
+			this.end = end;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : (b[0] & 0xFF);
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (position >= end) {
+				return -1;
+			}
+			len = (int) Math.min(len, end - position);
+			int r = channel.read(ByteBuffer.wrap(b, off, len), position);
+			if (r > 0) {
+				position += r;
+			}
+			return r;
+		}
+
+	}
+
+}
@@ -1,6 +1,7 @@
 package mltk.core.io;
 
 import java.io.BufferedReader;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -23,6 +24,8 @@ import mltk.util.tuple.Pair;
  */
 public class InstancesReader {
 
+	static final String WHITESPACE = "\\s+";
+
 	/**
 	 * Reads a set of instances from attribute file and data file. Attribute file can be null. Default delimiter is
 	 * whitespace.
@@ -33,7 +36,7 @@ public class InstancesReader {
 	 * @throws IOException
 	 */
 	public static Instances read(String attFile, String dataFile) throws IOException {
-		return read(attFile, dataFile, "\\s+");
+		return read(attFile, dataFile, WHITESPACE);
 	}
 
 	/**
@@ -59,83 +62,151 @@ public class InstancesReader {
 			if (classIndex != -1) {
 				totalLength++;
 			}
-			BufferedReader br = new BufferedReader(new FileReader(dataFile), 65535);
-			for (;;) {
-				String line = br.readLine();
-				if (line == null) {
-					break;
-				}
-				String[] data = line.split(delimiter);
-				Instance instance = null;
-				if (data.length >= 2 && data[1].indexOf(':') >= 0) {
-					// Sparse instance
-					instance = parseSparseInstance(data);
-				} else if (data.length == totalLength) {
-					// Dense instance
-					instance = parseDenseInstance(data, classIndex);
-				} else {
-					System.err.println("Processed as dense vector but the number of attributes provided in the attribute file does not match with the number of columns in this row");
-				}
-				if (instance != null) {
-					instances.add(instance);
+			if (WHITESPACE.equals(delimiter)) {
+				LineTokenizer tokenizer = new LineTokenizer(new FileInputStream(dataFile));
+				LineParser parser = new LineParser(LineParser.Mode.SCHEMA, classIndex, totalLength, null);
+				while (tokenizer.nextLine()) {
+					Instance instance = parser.parse(tokenizer);
+					if (instance != null) {
+						instances.add(instance);
+					}
 				}
-			}
-			br.close();
-			
-			// Process skipped features
-			for (int i = attributes.size() - 1; i >= 0; i--) {
-				if (attributes.get(i).getIndex() < 0) {
-					attributes.remove(i);
+				tokenizer.close();
+			} else {
+				BufferedReader br = new BufferedReader(new FileReader(dataFile), 65535);
+				LineParser parser = new LineParser(LineParser.Mode.SCHEMA, classIndex, totalLength, null);
+				for (;;) {
+					String line = br.readLine();
+					if (line == null) {
+						break;
+					}
+					String[] data = line.split(delimiter);
+					Instance instance = null;
+					if (data.length >= 2 && data[1].indexOf(':') >= 0) {
+						// Sparse instance
+						instance = parseSparseInstance(data);
+					} else if (parser.accept(data.length)) {
+						// Dense instance
+						instance = parseDenseInstance(data, classIndex);
+					}
+					if (instance != null) {
+						instances.add(instance);
+					}
 				}
+				br.close();
 			}
 			
+			removeSkippedAttributes(attributes);
 			return instances;
 		} else {
 			List<Attribute> attributes = new ArrayList<>();
 			Instances instances = new Instances(attributes);
-			int totalLength = -1;
 
 			TreeSet<Integer> attrSet = new TreeSet<>();
-			BufferedReader br = new BufferedReader(new FileReader(dataFile), 65535);
-			for (;;) {
-				String line = br.readLine();
-				if (line == null) {
-					break;
+			LineParser parser = new LineParser(LineParser.Mode.INFER, -1, -1, attrSet);
+			if (WHITESPACE.equals(delimiter)) {
+				LineTokenizer tokenizer = new LineTokenizer(new FileInputStream(dataFile));
+				while (tokenizer.nextLine()) {
+					Instance instance = parser.parse(tokenizer);
+					if (instance != null) {
+						instances.add(instance);
+					}
 				}
-				String[] data = line.split(delimiter);
-				Instance instance = null;
-				if (data.length >= 2 && data[1].indexOf(':') >= 0) {
-					// Sparse instance
-					instance = parseSparseInstance(data, attrSet);
-				} else {
-					// Dense instance
-					if (totalLength == -1) {
-						totalLength = data.length;
-					} else if (data.length == totalLength) {
+				tokenizer.close();
+			} else {
+				BufferedReader br = new BufferedReader(new FileReader(dataFile), 65535);
+				for (;;) {
+					String line = br.readLine();
+					if (line == null) {
+						break;
+					}
+					String[] data = line.split(delimiter);
+					Instance instance = null;
+					if (data.length >= 2 && data[1].indexOf(':') >= 0) {
+						// Sparse instance
+						instance = parseSparseInstance(data, attrSet);
+					} else if (parser.accept(data.length)) {
+						// Dense instance
 						instance = parseDenseInstance(data, -1);
 					}
-
+					if (instance != null) {
+						instances.add(instance);
+					}
 				}
-				if (instance != null) {
+				br.close();
+			}
+
+			createAttributes(attributes, parser.getNumColumns(), attrSet);
+			assignTargetAttribute(instances);
+			return instances;
+		}
+	}
+
+	/**
+	 * Reads a set of instances from attribute file and data file using multiple threads. Attribute file can be null.
+	 * Delimiter is whitespace. The data file is split into byte ranges aligned to line boundaries, which are parsed
+	 * concurrently and merged in order, so the result is identical to {@link #read(String, String)}.
+	 * 
+	 * @param attFile the attribute file.
+	 * @param dataFile the data file.
+	 * @param numThreads the number of threads.
+	 * @return a set of instances.
+	 * @throws IOException
+	 */
+	public static Instances read(String attFile, String dataFile, int numThreads) throws IOException {
+		if (numThreads <= 1) {
+			return read(attFile, dataFile);
+		}
+		if (attFile != null) {
+			Pair<List<Attribute>, Attribute> pair = AttributesReader.read(attFile);
+			int classIndex = -1;
+			if (pair.v2 != null) {
+				classIndex = pair.v2.getIndex();
+				pair.v2.setIndex(-1);
+			}
+			List<Attribute> attributes = pair.v1;
+			Instances instances = new Instances(attributes, pair.v2);
+			int totalLength = instances.dimension();
+			if (classIndex != -1) {
+				totalLength++;
+			}
+			List<ChunkReader.Chunk> chunks = ChunkReader.read(dataFile, LineParser.Mode.SCHEMA, classIndex,
+					totalLength, numThreads);
+			for (ChunkReader.Chunk chunk : chunks) {
+				for (Instance instance : chunk.instances) {
 					instances.add(instance);
 				}
 			}
-			br.close();
 
-			if (totalLength == -1) {
-				for (Integer attIndex : attrSet) {
-					Attribute att = new NumericalAttribute("f" + attIndex);
-					att.setIndex(attIndex);
-					attributes.add(att);
-				}
-			} else {
-				for (int j = 0; j < totalLength; j++) {
-					Attribute att = new NumericalAttribute("f" + j);
-					att.setIndex(j);
-					attributes.add(att);
+			removeSkippedAttributes(attributes);
+			return instances;
+		} else {
+			List<Attribute> attributes = new ArrayList<>();
+			Instances instances = new Instances(attributes);
+
+			TreeSet<Integer> attrSet = new TreeSet<>();
+			LineParser parser = new LineParser(LineParser.Mode.INFER, -1, -1, attrSet);
+			List<ChunkReader.Chunk> chunks = ChunkReader.read(dataFile, LineParser.Mode.INFER, -1, -1, numThreads);
+			for (ChunkReader.Chunk chunk : chunks) {
+				int numErrors = 0;
+				for (int i = 0; i < chunk.instances.size(); i++) {
+					Instance instance = chunk.instances.get(i);
+					int length = chunk.lengths[i];
+					if (length >= 0) {
+						// Dense instance, checked in file order as the sequential reader does
+						RuntimeException error = instance == null ? chunk.errors.get(numErrors++) : null;
+						if (!parser.accept(length)) {
+							continue;
+						} else if (error != null) {
+							throw error;
+						}
+					}
+					instances.add(instance);
 				}
+				attrSet.addAll(chunk.attrSet);
 			}
 
+			createAttributes(attributes, parser.getNumColumns(), attrSet);
 			assignTargetAttribute(instances);
 			return instances;
 		}
@@ -150,7 +221,7 @@ public class InstancesReader {
 	 * @throws IOException
 	 */
 	public static Instances read(String file, int targetIndex) throws IOException {
-		return read(file, targetIndex, "\\s+");
+		return read(file, targetIndex, WHITESPACE);
 	}
 
 	/**
@@ -163,27 +234,61 @@ public class InstancesReader {
 	 * @throws IOException
 	 */
 	public static Instances read(String file, int targetIndex, String delimiter) throws IOException {
-		BufferedReader br = new BufferedReader(new FileReader(file), 65535);
 		List<Attribute> attributes = new ArrayList<>();
 		Instances instances = new Instances(attributes);
-		for (;;) {
-			String line = br.readLine();
-			if (line == null) {
-				break;
+		if (WHITESPACE.equals(delimiter)) {
+			LineTokenizer tokenizer = new LineTokenizer(new FileInputStream(file));
+			while (tokenizer.nextLine()) {
+				Instance instance = LineParser.parseDenseInstance(tokenizer, targetIndex);
+				instances.add(instance);
+			}
+			tokenizer.close();
+		} else {
+			BufferedReader br = new BufferedReader(new FileReader(file), 65535);
+			for (;;) {
+				String line = br.readLine();
+				if (line == null) {
+					break;
+				}
+				String[] data = line.split(delimiter);
+				Instance instance = parseDenseInstance(data, targetIndex);
+				instances.add(instance);
 			}
-			String[] data = line.split(delimiter);
-			Instance instance = parseDenseInstance(data, targetIndex);
-			instances.add(instance);
+			br.close();
 		}
-		br.close();
 
-		int numAttributes = instances.get(0).getValues().length;
-		for (int i = 0; i < numAttributes; i++) {
-			Attribute att = new NumericalAttribute("f" + i);
-			att.setIndex(i);
-			attributes.add(att);
+		createAttributes(attributes, instances.get(0).getValues().length, null);
+		if (targetIndex >= 0) {
+			assignTargetAttribute(instances);
 		}
 
+		return instances;
+	}
+
+	/**
+	 * Reads a set of dense instances from data file using multiple threads. Delimiter is whitespace. The result is
+	 * identical to {@link #read(String, int)}.
+	 * 
+	 * @param file the data file.
+	 * @param targetIndex the index of the target attribute, -1 if no target attribute.
+	 * @param numThreads the number of threads.
+	 * @return a set of dense instances.
+	 * @throws IOException
+	 */
+	public static Instances read(String file, int targetIndex, int numThreads) throws IOException {
+		if (numThreads <= 1) {
+			return read(file, targetIndex);
+		}
+		List<Attribute> attributes = new ArrayList<>();
+		Instances instances = new Instances(attributes);
+		List<ChunkReader.Chunk> chunks = ChunkReader.read(file, LineParser.Mode.DENSE, targetIndex, -1, numThreads);
+		for (ChunkReader.Chunk chunk : chunks) {
+			for (Instance instance : chunk.instances) {
+				instances.add(instance);
+			}
+		}
+
+		createAttributes(attributes, instances.get(0).getValues().length, null);
 		if (targetIndex >= 0) {
 			assignTargetAttribute(instances);
 		}
@@ -191,6 +296,83 @@ public class InstancesReader {
 		return instances;
 	}
 
+	/**
+	 * Opens a stream of instances from attribute file and data file. Attribute file can be null. Delimiter is
+	 * whitespace. Unlike {@link #read(String, String)}, instances are parsed lazily one at a time, so memory use does
+	 * not grow with the file size.
+	 * 
+	 * @param attFile the attribute file.
+	 * @param dataFile the data file.
+	 * @return a stream of instances.
+	 * @throws IOException
+	 */
+	public static InstancesStream stream(String attFile, String dataFile) throws IOException {
+		if (attFile != null) {
+			Pair<List<Attribute>, Attribute> pair = AttributesReader.read(attFile);
+			int classIndex = -1;
+			if (pair.v2 != null) {
+				classIndex = pair.v2.getIndex();
+				pair.v2.setIndex(-1);
+			}
+			List<Attribute> attributes = pair.v1;
+			int totalLength = attributes.size();
+			if (classIndex != -1) {
+				totalLength++;
+			}
+			removeSkippedAttributes(attributes);
+			return new InstancesStream(dataFile, LineParser.Mode.SCHEMA, classIndex, totalLength, attributes, pair.v2);
+		} else {
+			return new InstancesStream(dataFile, LineParser.Mode.INFER, -1, -1, null, null);
+		}
+	}
+
+	/**
+	 * Opens a stream of dense instances from data file. Delimiter is whitespace.
+	 * 
+	 * @param file the data file.
+	 * @param targetIndex the index of the target attribute, -1 if no target attribute.
+	 * @return a stream of dense instances.
+	 */
+	public static InstancesStream stream(String file, int targetIndex) {
+		return new InstancesStream(file, LineParser.Mode.DENSE, targetIndex, -1, null, null);
+	}
+
+	/**
+	 * Removes the attributes that are marked as skipped in the attribute file.
+	 * 
+	 * @param attributes the attributes.
+	 */
+	private static void removeSkippedAttributes(List<Attribute> attributes) {
+		for (int i = attributes.size() - 1; i >= 0; i--) {
+			if (attributes.get(i).getIndex() < 0) {
+				attributes.remove(i);
+			}
+		}
+	}
+
+	/**
+	 * Creates numerical attributes f0, f1, ... for a dataset without attribute file.
+	 * 
+	 * @param attributes the list to add attributes to.
+	 * @param totalLength the number of columns, -1 if all instances are sparse.
+	 * @param attrSet the attribute indices seen in sparse instances.
+	 */
+	private static void createAttributes(List<Attribute> attributes, int totalLength, TreeSet<Integer> attrSet) {
+		if (totalLength == -1) {
+			for (Integer attIndex : attrSet) {
+				Attribute att = new NumericalAttribute("f" + attIndex);
+				att.setIndex(attIndex);
+				attributes.add(att);
+			}
+		} else {
+			for (int j = 0; j < totalLength; j++) {
+				Attribute att = new NumericalAttribute("f" + j);
+				att.setIndex(j);
+				attributes.add(att);
+			}
+		}
+	}
+
 	/**
 	 * Parses a dense instance from strings.
 	 * 
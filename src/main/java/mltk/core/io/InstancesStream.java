@@ -0,0 +1,182 @@
+package mltk.core.io;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.NoSuchElementException;
+
+import mltk.core.Attribute;
+import mltk.core.Instance;
+
+/**
+ * Class for streaming instances from a data file in whitespace-delimited format. Each call to {@link #iterator()}
+ * starts a new pass over the file, holding only a bounded read buffer and the current instance in memory, so that
+ * single-pass jobs such as prediction and evaluation run in constant memory regardless of file size. The instances
+ * returned are identical to those in the dataset read by {@link InstancesReader}.
+ *
+ * <p>
+ * A pass closes its file once it is exhausted. A for-each loop that exits early leaves its pass open, so a stream
+ * should be used in a try-with-resources statement; closing the stream closes all of its open passes:
+ * </p>
+ *
+ * <pre>
+ * try (InstancesStream instances = InstancesReader.stream(attFile, dataFile)) {
+ * 	for (Instance instance : instances) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ *
+ * @author Yin Lou
+ *
+ */
+public class InstancesStream implements Iterable<Instance>, Closeable {
+
+	private final String file;
+	private final LineParser.Mode mode;
+	private final int index;
+	private final int totalLength;
+	private final List<Attribute> attributes;
+	private final Attribute targetAtt;
+	private final Set<InstanceIterator> openIterators;
+
+	InstancesStream(String file, LineParser.Mode mode, int index, int totalLength, List<Attribute> attributes,
+			Attribute targetAtt) {
+		this.file = file;
+		this.mode = mode;
+		this.index = index;
+		this.totalLength = totalLength;
+		this.attributes = attributes;
+		this.targetAtt = targetAtt;
+		this.openIterators = new HashSet<>();
+	}
+
+	/**
+	 * Returns the attributes, or {@code null} if there is no attribute file.
+	 *
+	 * @return the attributes, or {@code null} if there is no attribute file.
+	 */
+	public List<Attribute> getAttributes() {
+		return attributes;
+	}
+
+	/**
+	 * Returns the target attribute, or {@code null} if there is no attribute file. Without an attribute file the
+	 * target attribute is inferred from all targets, which requires reading the full dataset.
+	 *
+	 * @return the target attribute.
+	 */
+	public Attribute getTargetAttribute() {
+		return targetAtt;
+	}
+
+	/**
+	 * Opens a new pass over the data file. The file is closed when the iterator is exhausted, or by calling
+	 * {@link InstanceIterator#close()} or {@link #close()}.
+	 *
+	 * @return an iterator over the instances.
+	 * @throws UncheckedIOException if the file cannot be read.
+	 */
+	@Override
+	public InstanceIterator iterator() {
+		try {
+			InstanceIterator iter = new InstanceIterator(new LineTokenizer(new FileInputStream(file)));
+			synchronized (openIterators) {
+				openIterators.add(iter);
+			}
+			return iter;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the files of all passes that are still open. The stream can still start new passes.
+	 */
+	@Override
+	public void close() throws IOException {
+		List<InstanceIterator> iters;
+		synchronized (openIterators) {
+			iters = new ArrayList<>(openIterators);
+		}
+		IOException exception = null;
+		for (InstanceIterator iter : iters) {
+			try {
+				iter.close();
+			} catch (IOException e) {
+				exception = e;
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	/**
+	 * Iterator over the instances of one pass.
+	 */
+	public class InstanceIterator implements Iterator<Instance>, Closeable {
+
+		private LineTokenizer tokenizer;
+		private final LineParser parser;
+		private Instance next;
+
+		InstanceIterator(LineTokenizer tokenizer) {
+			this.tokenizer = tokenizer;
+			this.parser = new LineParser(mode, index, totalLength, null);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && tokenizer != null) {
+				try {
+					next = advance();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public Instance next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Instance instance = next;
+			next = null;
+			return instance;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (tokenizer != null) {
+				synchronized (openIterators) {
+					openIterators.remove(this);
+				}
+				LineTokenizer t = tokenizer;
+				tokenizer = null;
+				t.close();
+			}
+		}
+
+		private Instance advance() throws IOException {
+			while (tokenizer.nextLine()) {
+				Instance instance = parser.parse(tokenizer);
+				if (instance != null) {
+					return instance;
+				}
+			}
+			close();
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,174 @@
+package mltk.core.io;
+
+import java.util.TreeSet;
+
+import mltk.core.Instance;
+
+/**
+ * Class for parsing the lines of a data file into instances. It decides whether a line is a sparse or a dense instance
+ * and whether a dense line has the expected number of columns, so that {@link InstancesReader}, {@link ChunkReader}
+ * and {@link InstancesStream} read the same instances from the same file. A parser keeps the number of columns
+ * inferred from the first dense line, so a new parser is needed for each pass over a file.
+ *
+ * @author Yin Lou
+ *
+ */
+class LineParser {
+
+	/**
+	 * Parsing mode for each line.
+	 */
+	enum Mode {
+
+		/**
+		 * Lines are sparse or dense with a known number of columns (attribute file given).
+		 */
+		SCHEMA,
+		/**
+		 * Lines are sparse or dense with the number of columns inferred from the first dense line, which is skipped.
+		 */
+		INFER,
+		/**
+		 * All lines are dense.
+		 */
+		DENSE;
+	}
+
+	private final Mode mode;
+	private final int index;
+	private final TreeSet<Integer> attrSet;
+	private int numColumns;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mode the parsing mode.
+	 * @param index the class index for {@link Mode#SCHEMA}, the target index for {@link Mode#DENSE}.
+	 * @param totalLength the number of columns for {@link Mode#SCHEMA}.
+	 * @param attrSet the set to add the attribute indices of sparse instances to, can be null.
+	 */
+	LineParser(Mode mode, int index, int totalLength, TreeSet<Integer> attrSet) {
+		this.mode = mode;
+		this.index = mode == Mode.INFER ? -1 : index;
+		this.attrSet = attrSet;
+		this.numColumns = mode == Mode.SCHEMA ? totalLength : -1;
+	}
+
+	/**
+	 * Returns the number of columns of dense lines, or -1 if it is not known yet.
+	 *
+	 * @return the number of columns of dense lines.
+	 */
+	int getNumColumns() {
+		return numColumns;
+	}
+
+	/**
+	 * Parses the current line of a tokenizer.
+	 *
+	 * @param tokenizer the tokenizer.
+	 * @return an instance, or {@code null} if the line is skipped.
+	 */
+	Instance parse(LineTokenizer tokenizer) {
+		if (mode != Mode.DENSE && isSparse(tokenizer)) {
+			return parseSparseInstance(tokenizer, attrSet);
+		} else if (accept(tokenizer.numTokens())) {
+			return parseDenseInstance(tokenizer, index);
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if a dense line with a number of columns is to be parsed. In {@link Mode#INFER}, the first
+	 * dense line only sets the number of columns and is skipped. Other dense lines are skipped if their number of
+	 * columns differs, with a warning in {@link Mode#SCHEMA}.
+	 *
+	 * @param length the number of columns of the line.
+	 * @return {@code true} if the line is to be parsed.
+	 */
+	boolean accept(int length) {
+		switch (mode) {
+			case SCHEMA:
+				if (length != numColumns) {
+					System.err.println("Processed as dense vector but the number of attributes provided in the "
+							+ "attribute file does not match with the number of columns in this row");
+					return false;
+				}
+				return true;
+			case INFER:
+				if (numColumns == -1) {
+					numColumns = length;
+					return false;
+				}
+				return length == numColumns;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Returns {@code true} if the current line of a tokenizer is a sparse instance, i.e., a target followed by
+	 * index:value pairs.
+	 *
+	 * @param tokenizer the tokenizer.
+	 * @return {@code true} if the current line is a sparse instance.
+	 */
+	static boolean isSparse(LineTokenizer tokenizer) {
+		return tokenizer.numTokens() >= 2 && tokenizer.contains(1, ':');
+	}
+
+	/**
+	 * Parses a dense instance from the current line of a tokenizer.
+	 *
+	 * @param tokenizer the tokenizer.
+	 * @param classIndex the class index.
+	 * @return a dense instance from the current line.
+	 */
+	static Instance parseDenseInstance(LineTokenizer tokenizer, int classIndex) {
+		final int length = tokenizer.numTokens();
+		double classValue = Double.NaN;
+		if (classIndex < 0) {
+			double[] vector = new double[length];
+			for (int i = 0; i < length; i++) {
+				vector[i] = tokenizer.parseValue(i);
+			}
+			return new Instance(vector, classValue);
+		} else {
+			double[] vector = new double[length - 1];
+			for (int i = 0; i < length; i++) {
+				double value = tokenizer.parseValue(i);
+				if (i < classIndex) {
+					vector[i] = value;
+				} else if (i > classIndex) {
+					vector[i - 1] = value;
+				} else {
+					classValue = value;
+				}
+			}
+			return new Instance(vector, classValue);
+		}
+	}
+
+	/**
+	 * Parses a sparse instance from the current line of a tokenizer.
+	 *
+	 * @param tokenizer the tokenizer.
+	 * @param attrSet the attributes set, can be null.
+	 * @return a sparse instance from the current line.
+	 */
+	static Instance parseSparseInstance(LineTokenizer tokenizer, TreeSet<Integer> attrSet) {
+		double targetValue = tokenizer.parseDouble(0);
+		int[] indices = new int[tokenizer.numTokens() - 1];
+		double[] values = new double[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = tokenizer.parseIndex(i + 1);
+			values[i] = tokenizer.parsePairValue(i + 1);
+			if (attrSet != null) {
+				attrSet.add(indices[i]);
+			}
+		}
+		return new Instance(indices, values, targetValue);
+	}
+
+}
@@ -0,0 +1,386 @@
+package mltk.core.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Class for tokenizing whitespace-delimited text directly from bytes. Lines are split the same way as
+ * {@link java.io.BufferedReader#readLine()} and tokens the same way as {@code String.split("\\s+")}, but no
+ * {@code String} is created for a line or a token. Numbers are parsed in place and agree exactly with
+ * {@link Double#parseDouble(String)} and {@link Integer#parseInt(String)}.
+ *
+ * @author Yin Lou
+ *
+ */
+class LineTokenizer {
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+			1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private final InputStream in;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private boolean eof;
+	private boolean skipLF;
+
+	private int[] starts;
+	private int[] ends;
+	private int numTokens;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in the input stream.
+	 */
+	LineTokenizer(InputStream in) {
+		this(in, 65536);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param in the input stream.
+	 * @param bufferSize the initial buffer size.
+	 */
+	LineTokenizer(InputStream in, int bufferSize) {
+		this.in = in;
+		this.buffer = new byte[bufferSize];
+		this.starts = new int[16];
+		this.ends = new int[16];
+	}
+
+	/**
+	 * Advances to the next line and splits it into tokens.
+	 *
+	 * @return {@code false} if the end of the stream has been reached.
+	 * @throws IOException
+	 */
+	boolean nextLine() throws IOException {
+		numTokens = 0;
+		if (skipLF) {
+			if (position >= limit && !eof) {
+				fill(position);
+			}
+			if (position < limit && buffer[position] == '\n') {
+				position++;
+			}
+			skipLF = false;
+		}
+		int i = position;
+		for (;;) {
+			if (i >= limit) {
+				if (eof) {
+					break;
+				}
+				i -= fill(position);
+				continue;
+			}
+			byte b = buffer[i];
+			if (b == '\n' || b == '\r') {
+				break;
+			}
+			i++;
+		}
+		if (i == position && i >= limit) {
+			// End of stream, and no partial line
+			return false;
+		}
+		tokenize(position, i);
+		if (i < limit) {
+			// Consume line terminator, treating "\r\n" as one
+			skipLF = buffer[i] == '\r';
+			i++;
+		}
+		position = i;
+		return true;
+	}
+
+	/**
+	 * Returns the number of tokens in the current line.
+	 *
+	 * @return the number of tokens in the current line.
+	 */
+	int numTokens() {
+		return numTokens;
+	}
+
+	/**
+	 * Returns {@code true} if a token contains a character.
+	 *
+	 * @param token the token index.
+	 * @param c the character.
+	 * @return {@code true} if a token contains a character.
+	 */
+	boolean contains(int token, char c) {
+		return indexOf(starts[token], ends[token], (byte) c) >= 0;
+	}
+
+	/**
+	 * Parses a token as a double. Missing value "?" is supported.
+	 *
+	 * @param token the token index.
+	 * @return double value.
+	 */
+	double parseValue(int token) {
+		int start = starts[token];
+		int end = ends[token];
+		if (end - start == 1 && buffer[start] == '?') {
+			return Double.NaN;
+		}
+		return parseDouble(start, end);
+	}
+
+	/**
+	 * Parses a token as a double.
+	 *
+	 * @param token the token index.
+	 * @return double value.
+	 */
+	double parseDouble(int token) {
+		return parseDouble(starts[token], ends[token]);
+	}
+
+	/**
+	 * Parses the index of a sparse "index:value" token.
+	 *
+	 * @param token the token index.
+	 * @return the index.
+	 */
+	int parseIndex(int token) {
+		int start = starts[token];
+		int end = ends[token];
+		int colon = indexOf(start, end, (byte) ':');
+		return parseInt(start, colon < 0 ? end : colon);
+	}
+
+	/**
+	 * Parses the value of a sparse "index:value" token.
+	 *
+	 * @param token the token index.
+	 * @return the value.
+	 */
+	double parsePairValue(int token) {
+		int start = starts[token];
+		int end = ends[token];
+		int colon = indexOf(start, end, (byte) ':');
+		if (colon < 0 || colon + 1 == end) {
+			throw new ArrayIndexOutOfBoundsException(1);
+		}
+		int next = indexOf(colon + 1, end, (byte) ':');
+		return parseDouble(colon + 1, next < 0 ? end : next);
+	}
+
+	/**
+	 * Closes the underlying stream.
+	 *
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Splits [start, end) on whitespace. Like {@code String.split}, a leading delimiter yields an empty first token and
+	 * trailing delimiters are dropped; an empty line yields one empty token and a line of whitespace yields none.
+	 */
+	private void tokenize(int start, int end) {
+		int i = start;
+		if (i == end) {
+			addToken(start, end);
+			return;
+		}
+		if (isWhitespace(buffer[i])) {
+			addToken(start, start);
+			while (i < end && isWhitespace(buffer[i])) {
+				i++;
+			}
+			if (i == end) {
+				// Line of whitespace only
+				numTokens = 0;
+				return;
+			}
+		}
+		while (i < end) {
+			int tokenStart = i;
+			while (i < end && !isWhitespace(buffer[i])) {
+				i++;
+			}
+			addToken(tokenStart, i);
+			while (i < end && isWhitespace(buffer[i])) {
+				i++;
+			}
+		}
+	}
+
+	private void addToken(int start, int end) {
+		if (numTokens == starts.length) {
+			starts = Arrays.copyOf(starts, numTokens * 2);
+			ends = Arrays.copyOf(ends, numTokens * 2);
+		}
+		starts[numTokens] = start;
+		ends[numTokens] = end;
+		numTokens++;
+	}
+
+	/**
+	 * Discards bytes before {@code keep}, then reads more bytes. The buffer grows when a line does not fit.
+	 *
+	 * @return the number of bytes the data was shifted by.
+	 */
+	private int fill(int keep) throws IOException {
+		int remaining = limit - keep;
+		if (keep == 0 && remaining == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		} else if (keep > 0) {
+			System.arraycopy(buffer, keep, buffer, 0, remaining);
+		}
+		position -= keep;
+		limit = remaining;
+		int r = in.read(buffer, limit, buffer.length - limit);
+		if (r < 0) {
+			eof = true;
+		} else {
+			limit += r;
+		}
+		return keep;
+	}
+
+	private int indexOf(int start, int end, byte b) {
+		for (int i = start; i < end; i++) {
+			if (buffer[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Parses a double from [start, end). Plain decimal numbers whose significand fits in 53 bits and whose decimal
+	 * exponent is at most 22 in magnitude are computed with a single correctly rounded multiplication or division;
+	 * everything else is delegated to {@link Double#parseDouble(String)}.
+	 */
+	private double parseDouble(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int numDigits = 0;
+		int exponent = 0;
+		boolean hasDigits = false;
+		for (; i < end; i++) {
+			int d = buffer[i] - '0';
+			if (d < 0 || d > 9) {
+				break;
+			}
+			hasDigits = true;
+			if (mantissa != 0 || d != 0) {
+				if (++numDigits > 18) {
+					return parseDoubleSlow(start, end);
+				}
+				mantissa = mantissa * 10 + d;
+			}
+		}
+		if (i < end && buffer[i] == '.') {
+			i++;
+			for (; i < end; i++) {
+				int d = buffer[i] - '0';
+				if (d < 0 || d > 9) {
+					break;
+				}
+				hasDigits = true;
+				exponent--;
+				if (mantissa != 0 || d != 0) {
+					if (++numDigits > 18) {
+						return parseDoubleSlow(start, end);
+					}
+					mantissa = mantissa * 10 + d;
+				}
+			}
+		}
+		if (!hasDigits) {
+			return parseDoubleSlow(start, end);
+		}
+		if (i < end && (buffer[i] == 'e' || buffer[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+			if (i == end || end - i > 4) {
+				return parseDoubleSlow(start, end);
+			}
+			int e = 0;
+			for (; i < end; i++) {
+				int d = buffer[i] - '0';
+				if (d < 0 || d > 9) {
+					return parseDoubleSlow(start, end);
+				}
+				e = e * 10 + d;
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i != end) {
+			return parseDoubleSlow(start, end);
+		}
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		} else if (mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+			return parseDoubleSlow(start, end);
+		} else if (exponent >= 0) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		}
+		return negative ? -value : value;
+	}
+
+	private double parseDoubleSlow(int start, int end) {
+		return Double.parseDouble(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Parses an int from [start, end), delegating to {@link Integer#parseInt(String)} for anything but short plain
+	 * numbers.
+	 */
+	private int parseInt(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		if (i == end || end - i > 9) {
+			return parseIntSlow(start, end);
+		}
+		int value = 0;
+		for (; i < end; i++) {
+			int d = buffer[i] - '0';
+			if (d < 0 || d > 9) {
+				return parseIntSlow(start, end);
+			}
+			value = value * 10 + d;
+		}
+		return negative ? -value : value;
+	}
+
+	private int parseIntSlow(int start, int end) {
+		return Integer.parseInt(new String(buffer, start, end - start, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Returns {@code true} for the characters matched by the regular expression {@code \s}.
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+}
@@ -8,6 +8,7 @@ import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
 import mltk.core.Attribute;
 import mltk.core.BinnedAttribute;
+import mltk.core.BinnedInstances;
 import mltk.core.Bins;
 import mltk.core.Instance;
 import mltk.core.Instances;
@@ -252,6 +253,51 @@ public class Discretizer {
 		discretize(instances, attIndex, bins);
 	}
 
+	/**
+	 * Discretizes all numeric attributes with specified number of bins and returns the result as a packed dataset.
+	 * Nominal attributes are kept as they are. The input dataset is not modified.
+	 * 
+	 * @param instances the dataset to discretize.
+	 * @param maxNumBins the number of bins.
+	 * @return the discretized dataset.
+	 */
+	public static BinnedInstances discretize(Instances instances, int maxNumBins) {
+		List<Attribute> attributes = instances.getAttributes();
+		List<Attribute> binnedAttributes = new ArrayList<>(attributes.size());
+		Bins[] bins = new Bins[attributes.size()];
+		for (int j = 0; j < attributes.size(); j++) {
+			Attribute attribute = attributes.get(j);
+			if (attribute.getType() == Type.NUMERIC) {
+				bins[j] = computeBins(instances, j, maxNumBins);
+				BinnedAttribute binnedAttribute = new BinnedAttribute(attribute.getName(), bins[j]);
+				binnedAttribute.setIndex(attribute.getIndex());
+				binnedAttributes.add(binnedAttribute);
+			} else {
+				binnedAttributes.add(attribute);
+			}
+		}
+
+		BinnedInstances binnedInstances = new BinnedInstances(binnedAttributes, instances.getTargetAttribute(),
+				instances.size());
+		// Reused for each row, since add() copies the values
+		double[] values = new double[binnedInstances.width()];
+		Instance row = new Instance(values, 0.0);
+		for (Instance instance : instances) {
+			for (int j = 0; j < binnedAttributes.size(); j++) {
+				int attIndex = binnedAttributes.get(j).getIndex();
+				double v = instance.getValue(attIndex);
+				if (bins[j] != null && !Double.isNaN(v)) {
+					v = bins[j].getIndex(v);
+				}
+				values[attIndex] = v;
+			}
+			row.setTarget(instance.getTarget());
+			row.setWeight(instance.getWeight());
+			binnedInstances.add(row);
+		}
+		return binnedInstances;
+	}
+
 	static double getMedian(List<DoublePair> stats, int start, double midPoint) {
 		double weight = 0;
 		for (int i = start; i < stats.size(); i++) {
@@ -71,6 +71,25 @@ public class BaggedEnsemble extends Ensemble {
 		}
 	}
 
+	/**
+	 * Returns an ensemble of the compiled forms of the predictors in this ensemble, see {@link Predictor#compile()}.
+	 * The compiled ensemble does not reflect later changes. If every predictor is already its own compiled form, this
+	 * ensemble is returned, so that a compiled ensemble is not compiled again.
+	 * 
+	 * @return the compiled form of this ensemble.
+	 */
+	@Override
+	public BaggedEnsemble compile() {
+		BaggedEnsemble compiled = new BaggedEnsemble(predictors.size());
+		boolean isCompiled = true;
+		for (Predictor predictor : predictors) {
+			Predictor c = predictor.compile();
+			compiled.add(c);
+			isCompiled &= c == predictor;
+		}
+		return isCompiled ? this : compiled;
+	}
+
 	@Override
 	public BaggedEnsemble copy() {
 		BaggedEnsemble copy = new BaggedEnsemble(predictors.size());
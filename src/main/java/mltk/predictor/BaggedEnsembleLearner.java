@@ -2,6 +2,8 @@ package mltk.predictor;
 
 import mltk.core.Instances;
 import mltk.core.Sampling;
+import mltk.predictor.tree.TreeLearner;
+import mltk.util.Random;
 
 /**
  * Class for learning bagged ensembles.
@@ -12,8 +14,10 @@ import mltk.core.Sampling;
 public class BaggedEnsembleLearner extends Learner {
 
 	protected int baggingIters;
+	protected int numThreads;
 	protected Learner learner;
 	protected Instances[] bags;
+	protected int[][] bagCounts;
 
 	/**
 	 * Constructor.
@@ -23,6 +27,7 @@ public class BaggedEnsembleLearner extends Learner {
 	 */
 	public BaggedEnsembleLearner(int baggingIters, Learner learner) {
 		this.baggingIters = baggingIters;
+		this.numThreads = 1;
 		this.learner = learner;
 	}
 
@@ -44,6 +49,27 @@ public class BaggedEnsembleLearner extends Learner {
 		this.baggingIters = baggingIters;
 	}
 
+	/**
+	 * Returns the number of threads to train bags.
+	 * 
+	 * @return the number of threads to train bags.
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Sets the number of threads to train bags. Each bag is trained with its own random stream, derived from the
+	 * current random object and the index of the bag, so that the ensemble does not depend on the number of
+	 * threads. Bags are trained concurrently only by tree learners, which keep the state of each tree apart; other
+	 * learners train one bag at a time.
+	 * 
+	 * @param numThreads the number of threads to train bags.
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+
 	/**
 	 * Returns the learner.
 	 * 
@@ -63,14 +89,26 @@ public class BaggedEnsembleLearner extends Learner {
 	}
 
 	/**
-	 * Returns the bootstrap samples.
+	 * Returns the bootstrap samples. Bootstrap samples for tree learners are not materialized, see
+	 * {@link #build(Instances)}, in which case this method returns {@code null} and the samples are given by
+	 * {@link #getBagCounts()}.
 	 * 
-	 * @return the bootstrap samples.
+	 * @return the bootstrap samples, or {@code null} if they are not materialized.
 	 */
 	public Instances[] getBags() {
 		return bags;
 	}
 
+	/**
+	 * Returns the bootstrap samples of the last build on a training set as the number of times each instance is drawn
+	 * in each sample, or {@code null} if the samples were materialized, see {@link #getBags()}.
+	 * 
+	 * @return the number of times each instance is drawn in each bootstrap sample.
+	 */
+	public int[][] getBagCounts() {
+		return bagCounts;
+	}
+
 	/**
 	 * Sets the bootstrap samples.
 	 * 
@@ -80,14 +118,48 @@ public class BaggedEnsembleLearner extends Learner {
 		this.bags = bags;
 	}
 
+	/**
+	 * Builds a bagged ensemble. Tree learners are trained on the bootstrap samples as counts over the training set,
+	 * see {@link TreeLearner#build(Instances, int[][], int)}, so that no sample is copied; other learners are
+	 * trained on copies of the samples.
+	 * 
+	 * @param instances the training set.
+	 * @return a bagged ensemble.
+	 */
 	@Override
 	public BaggedEnsemble build(Instances instances) {
+		if (learner instanceof TreeLearner) {
+			return build(instances, Sampling.createBags(instances.size(), baggingIters));
+		}
+
 		// Create bags
 		bags = Sampling.createBags(instances, baggingIters);
+		bagCounts = null;
 
-		BaggedEnsemble baggedEnsemble = new BaggedEnsemble(bags.length);
-		for (Instances bag : bags) {
-			baggedEnsemble.add(learner.build(bag));
+		return build(bags);
+	}
+
+	/**
+	 * Builds a bagged ensemble on samples of a training set given by the number of times each instance is drawn.
+	 * 
+	 * @param instances the training set.
+	 * @param counts the number of times each instance is drawn in each sample.
+	 * @return a bagged ensemble.
+	 */
+	public BaggedEnsemble build(Instances instances, int[][] counts) {
+		bags = null;
+		bagCounts = counts;
+		BaggedEnsemble baggedEnsemble = new BaggedEnsemble(counts.length);
+		if (learner instanceof TreeLearner) {
+			for (Predictor predictor : ((TreeLearner) learner).build(instances, counts, numThreads)) {
+				baggedEnsemble.add(predictor);
+			}
+		} else {
+			Random random = Random.getInstance().split();
+			for (int i = 0; i < counts.length; i++) {
+				Instances bag = Sampling.createSample(instances, counts[i]);
+				baggedEnsemble.add(random.derive(i).call(() -> learner.build(bag)));
+			}
 		}
 		return baggedEnsemble;
 	}
@@ -100,8 +172,16 @@ public class BaggedEnsembleLearner extends Learner {
 	 */
 	public BaggedEnsemble build(Instances[] bags) {
 		BaggedEnsemble baggedEnsemble = new BaggedEnsemble(bags.length);
-		for (Instances bag : bags) {
-			baggedEnsemble.add(learner.build(bag));
+		if (learner instanceof TreeLearner) {
+			for (Predictor predictor : ((TreeLearner) learner).build(bags, numThreads)) {
+				baggedEnsemble.add(predictor);
+			}
+		} else {
+			Random random = Random.getInstance().split();
+			for (int i = 0; i < bags.length; i++) {
+				Instances bag = bags[i];
+				baggedEnsemble.add(random.derive(i).call(() -> learner.build(bag)));
+			}
 		}
 		return baggedEnsemble;
 	}
@@ -1,21 +1,20 @@
 package mltk.predictor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 
+import mltk.core.AbstractColumnarInstances;
 import mltk.core.Attribute;
 import mltk.core.Instance;
 import mltk.core.Instances;
-import mltk.core.SparseVector;
+import mltk.core.SparseInstances;
 import mltk.predictor.evaluation.Error;
 import mltk.predictor.evaluation.Metric;
 import mltk.predictor.evaluation.RMSE;
 import mltk.util.MathUtils;
 import mltk.util.StatUtils;
 import mltk.util.VectorUtils;
-import mltk.util.tuple.IntDoublePair;
 
 /**
  * Class for learners.
@@ -125,6 +124,12 @@ public abstract class Learner {
 	 * @return {@code true} if the instances are treated as sparse.
 	 */
 	protected boolean isSparse(Instances instances) {
+		if (instances instanceof SparseInstances) {
+			return true;
+		}
+		if (instances instanceof AbstractColumnarInstances) {
+			return false;
+		}
 		int numSparseInstances = 0;
 		for (Instance instance : instances) {
 			if (instance.isSparse()) {
@@ -136,59 +141,83 @@ public abstract class Learner {
 
 	/**
 	 * Returns the column-oriented format of sparse dataset. This method automatically removes attributes with
-	 * close-to-zero variance.
+	 * close-to-zero variance. Columns are read from the CSC view of {@link SparseInstances} and from the column
+	 * storage of other {@link AbstractColumnarInstances}; row-oriented datasets are converted first.
 	 * 
 	 * @param instances the instances.
 	 * @param normalize {@code true} if all the columns are normalized.
 	 * @return the column-oriented format of sparse dataset.
 	 */
 	protected SparseDataset getSparseDataset(Instances instances, boolean normalize) {
+		AbstractColumnarInstances columnar = null;
+		SparseInstances sparse = null;
+		if (instances instanceof SparseInstances) {
+			sparse = (SparseInstances) instances;
+			columnar = sparse;
+		} else if (instances instanceof AbstractColumnarInstances) {
+			columnar = (AbstractColumnarInstances) instances;
+		} else {
+			sparse = new SparseInstances(instances);
+			columnar = sparse;
+		}
 		List<Attribute> attributes = instances.getAttributes();
-		int maxAttrId = attributes.get(attributes.size() - 1).getIndex();
-		boolean[] included = new boolean[maxAttrId + 1];
+		final int width = columnar.width();
+		boolean[] included = new boolean[width];
 		for (Attribute attribute : attributes) {
-			included[attribute.getIndex()] = true;
+			if (attribute.getIndex() < width) {
+				included[attribute.getIndex()] = true;
+			}
 		}
 
 		final int n = instances.size();
-		Map<Integer, List<IntDoublePair>> map = new TreeMap<>();
-		double[] y = new double[n];
-
-		for (int i = 0; i < instances.size(); i++) {
-			Instance instance = instances.get(i);
-			SparseVector vector = (SparseVector) instance.getVector();
-			int[] indices = vector.getIndices();
-			double[] values = vector.getValues();
-			for (int j = 0; j < indices.length; j++) {
-				if (included[indices[j]]) {
-					if (!map.containsKey(indices[j])) {
-						map.put(indices[j], new ArrayList<IntDoublePair>());
-					}
-					List<IntDoublePair> list = map.get(indices[j]);
-					list.add(new IntDoublePair(i, values[j]));
-				}
-			}
-			y[i] = instance.getTarget();
+		double[] y = columnar.copyTargets();
+		int[] colPtr = null;
+		int[] rowIndices = null;
+		double[] colValues = null;
+		if (sparse != null) {
+			colPtr = sparse.getColumnPointers();
+			rowIndices = sparse.getRowIndices();
+			colValues = sparse.getColumnValues();
 		}
 
-		List<Integer> attrsList = new ArrayList<>(map.size());
-		List<int[]> indicesList = new ArrayList<>(map.size());
-		List<double[]> valuesList = new ArrayList<>(map.size());
-		List<Double> stdList = new ArrayList<>(map.size());
+		List<Integer> attrsList = new ArrayList<>();
+		List<int[]> indicesList = new ArrayList<>();
+		List<double[]> valuesList = new ArrayList<>();
+		List<Double> stdList = new ArrayList<>();
 		List<Double> cList = null;
 		if (normalize) {
 			cList = new ArrayList<>();
 		}
 		double factor = Math.sqrt(n);
-		for (Map.Entry<Integer, List<IntDoublePair>> entry : map.entrySet()) {
-			Integer attr = entry.getKey();
-			List<IntDoublePair> list = entry.getValue();
-			int[] indices = new int[list.size()];
-			double[] values = new double[list.size()];
-			for (int i = 0; i < list.size(); i++) {
-				IntDoublePair pair = list.get(i);
-				indices[i] = pair.v1;
-				values[i] = pair.v2;
+		for (int attr = 0; attr < width; attr++) {
+			if (!included[attr]) {
+				continue;
+			}
+			int[] indices = null;
+			double[] values = null;
+			if (sparse != null) {
+				indices = Arrays.copyOfRange(rowIndices, colPtr[attr], colPtr[attr + 1]);
+				values = Arrays.copyOfRange(colValues, colPtr[attr], colPtr[attr + 1]);
+			} else {
+				double[] column = columnar.copyColumn(attr);
+				int nnz = 0;
+				for (int i = 0; i < n; i++) {
+					if (column[i] != 0) {
+						nnz++;
+					}
+				}
+				indices = new int[nnz];
+				values = new double[nnz];
+				for (int i = 0, k = 0; i < n; i++) {
+					if (column[i] != 0) {
+						indices[k] = i;
+						values[k] = column[i];
+						k++;
+					}
+				}
+			}
+			if (indices.length == 0) {
+				continue;
 			}
 			double std = StatUtils.sd(values, n);
 			if (std > MathUtils.EPSILON) {
@@ -232,7 +261,8 @@ public abstract class Learner {
 
 	/**
 	 * Returns the column-oriented format of dense dataset. This method automatically removes attributes with
-	 * close-to-zero variance.
+	 * close-to-zero variance. When the instances are {@link AbstractColumnarInstances}, columns are copied from the
+	 * column storage in the order of the instances rather than read row by row.
 	 * 
 	 * @param instances the instances.
 	 * @param normalize {@code true} if all the columns are normalized.
@@ -242,12 +272,21 @@ public abstract class Learner {
 		List<Attribute> attributes = instances.getAttributes();
 		final int p = instances.dimension();
 		final int n = instances.size();
+		AbstractColumnarInstances columnar = null;
+		if (instances instanceof AbstractColumnarInstances) {
+			columnar = (AbstractColumnarInstances) instances;
+		}
 
 		// Convert to column oriented format
 		List<double[]> xList = new ArrayList<>(p);
-		double[] y = new double[n];
-		for (int i = 0; i < n; i++) {
-			y[i] = instances.get(i).getTarget();
+		double[] y = null;
+		if (columnar != null) {
+			y = columnar.copyTargets();
+		} else {
+			y = new double[n];
+			for (int i = 0; i < n; i++) {
+				y[i] = instances.get(i).getTarget();
+			}
 		}
 
 		List<Integer> attrsList = new ArrayList<>(p);
@@ -259,9 +298,14 @@ public abstract class Learner {
 		double factor = Math.sqrt(n);
 		for (int j = 0; j < p; j++) {
 			int attIndex = attributes.get(j).getIndex();
-			double[] x = new double[n];
-			for (int i = 0; i < n; i++) {
-				x[i] = instances.get(i).getValue(attIndex);
+			double[] x = null;
+			if (columnar != null) {
+				x = columnar.copyColumn(attIndex);
+			} else {
+				x = new double[n];
+				for (int i = 0; i < n; i++) {
+					x[i] = instances.get(i).getValue(attIndex);
+				}
 			}
 			double std = StatUtils.sd(x);
 			if (std > MathUtils.EPSILON) {
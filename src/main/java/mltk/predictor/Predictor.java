@@ -29,5 +29,17 @@ public interface Predictor extends Writable, Copyable<Predictor> {
 	 * @throws Exception
 	 */
 	public void write(PrintWriter out) throws Exception;
+	
+	/**
+	 * Returns the compiled form of this predictor for fast scoring. The compiled form implements the same predictor
+	 * interfaces as this predictor and makes the same predictions, but does not reflect later changes. A compiled
+	 * predictor is not compiled again, so it can be passed wherever a predictor is compiled before scoring, e.g., in
+	 * {@link mltk.predictor.evaluation.Evaluator}. By default, this predictor is returned.
+	 * 
+	 * @return the compiled form of this predictor.
+	 */
+	public default Predictor compile() {
+		return this;
+	}
 
 }
@@ -1,5 +1,6 @@
 package mltk.predictor.evaluation;
 
+import java.util.Arrays;
 import java.util.List;
 
 import mltk.cmdline.Argument;
@@ -7,6 +8,7 @@ import mltk.cmdline.CmdLineParser;
 import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.io.InstancesReader;
+import mltk.core.io.InstancesStream;
 import mltk.predictor.ProbabilisticClassifier;
 import mltk.predictor.Classifier;
 import mltk.predictor.Regressor;
@@ -14,7 +16,8 @@ import mltk.predictor.io.PredictorReader;
 import mltk.util.OptimUtils;
 
 /**
- * Class for making evaluations.
+ * Class for making evaluations. Predictors are compiled before scoring, see {@link mltk.predictor.Predictor#compile()};
+ * to evaluate the same model several times, pass its compiled form so that it is compiled only once.
  * 
  * @author Yin Lou
  * 
@@ -29,6 +32,7 @@ public class Evaluator {
 	 * @return the area under ROC curve.
 	 */
 	public static double evalAreaUnderROC(ProbabilisticClassifier classifier, Instances instances) {
+		classifier = (ProbabilisticClassifier) classifier.compile();
 		double[] probs = new double[instances.size()];
 		double[] targets = new double[instances.size()];
 		for (int i = 0; i < probs.length; i++) {
@@ -39,6 +43,30 @@ public class Evaluator {
 		return new AUC().eval(probs, targets);
 	}
 
+	/**
+	 * Returns the area under ROC curve. Only predictions and targets are kept in memory.
+	 * 
+	 * @param classifier a classifier that outputs probability.
+	 * @param instances the instances, e.g., an {@link mltk.core.io.InstancesStream}.
+	 * @return the area under ROC curve.
+	 */
+	public static double evalAreaUnderROC(ProbabilisticClassifier classifier, Iterable<Instance> instances) {
+		classifier = (ProbabilisticClassifier) classifier.compile();
+		double[] probs = new double[1024];
+		double[] targets = new double[1024];
+		int n = 0;
+		for (Instance instance : instances) {
+			if (n == probs.length) {
+				probs = Arrays.copyOf(probs, n * 2);
+				targets = Arrays.copyOf(targets, n * 2);
+			}
+			probs[n] = classifier.predictProbabilities(instance)[1];
+			targets[n] = instance.getTarget();
+			n++;
+		}
+		return new AUC().eval(Arrays.copyOf(probs, n), Arrays.copyOf(targets, n));
+	}
+
 	/**
 	 * Returns the root mean squared error.
 	 * 
@@ -64,15 +92,28 @@ public class Evaluator {
 	 * @return the root mean squared error.
 	 */
 	public static double evalRMSE(Regressor regressor, Instances instances) {
+		return evalRMSE(regressor, (Iterable<Instance>) instances);
+	}
+
+	/**
+	 * Returns the root mean squared error in a single pass.
+	 * 
+	 * @param regressor the regressor.
+	 * @param instances the instances, e.g., an {@link mltk.core.io.InstancesStream}.
+	 * @return the root mean squared error.
+	 */
+	public static double evalRMSE(Regressor regressor, Iterable<Instance> instances) {
+		regressor = (Regressor) regressor.compile();
 		double rmse = 0;
-		for (int i = 0; i < instances.size(); i++) {
-			Instance instance = instances.get(i);
+		int n = 0;
+		for (Instance instance : instances) {
 			double target = instance.getTarget();
 			double pred = regressor.regress(instance);
 			double d = target - pred;
 			rmse += d * d;
+			n++;
 		}
-		rmse = Math.sqrt(rmse / instances.size());
+		rmse = Math.sqrt(rmse / n);
 		return rmse;
 	}
 
@@ -84,16 +125,29 @@ public class Evaluator {
 	 * @return the classification error.
 	 */
 	public static double evalError(Classifier classifier, Instances instances) {
+		return evalError(classifier, (Iterable<Instance>) instances);
+	}
+
+	/**
+	 * Returns the classification error in a single pass.
+	 * 
+	 * @param classifier the classifier.
+	 * @param instances the instances, e.g., an {@link mltk.core.io.InstancesStream}.
+	 * @return the classification error.
+	 */
+	public static double evalError(Classifier classifier, Iterable<Instance> instances) {
+		classifier = (Classifier) classifier.compile();
 		double error = 0;
-		for (int i = 0; i < instances.size(); i++) {
-			Instance instance = instances.get(i);
+		int n = 0;
+		for (Instance instance : instances) {
 			double target = instance.getTarget();
 			double pred = classifier.classify(instance);
 			if (target != pred) {
 				error++;
 			}
+			n++;
 		}
-		error /= instances.size();
+		error /= n;
 		return error;
 	}
 	
@@ -105,13 +159,26 @@ public class Evaluator {
 	 * @return the logistic loss.
 	 */
 	public static double evalLogisticLoss(Regressor regressor, Instances instances) {
+		return evalLogisticLoss(regressor, (Iterable<Instance>) instances);
+	}
+
+	/**
+	 * Returns the logistic loss in a single pass.
+	 * 
+	 * @param regressor the regressor.
+	 * @param instances the instances, e.g., an {@link mltk.core.io.InstancesStream}.
+	 * @return the logistic loss.
+	 */
+	public static double evalLogisticLoss(Regressor regressor, Iterable<Instance> instances) {
+		regressor = (Regressor) regressor.compile();
 		double loss = 0;
-		for (int i = 0; i < instances.size(); i++) {
-			Instance instance = instances.get(i);
+		int n = 0;
+		for (Instance instance : instances) {
 			double pred = regressor.regress(instance);
 			loss += OptimUtils.computeLogisticLoss(pred, instance.getTarget());
+			n++;
 		}
-		loss /= instances.size();
+		loss /= n;
 		return loss;
 	}
 	
@@ -123,15 +190,28 @@ public class Evaluator {
 	 * @return the mean absolute error.
 	 */
 	public static double evalMAE(Regressor regressor, Instances instances) {
+		return evalMAE(regressor, (Iterable<Instance>) instances);
+	}
+
+	/**
+	 * Returns the mean absolute error in a single pass.
+	 * 
+	 * @param regressor the regressor.
+	 * @param instances the instances, e.g., an {@link mltk.core.io.InstancesStream}.
+	 * @return the mean absolute error.
+	 */
+	public static double evalMAE(Regressor regressor, Iterable<Instance> instances) {
+		regressor = (Regressor) regressor.compile();
 		double mae = 0;
-		for (int i = 0; i < instances.size(); i++) {
-			Instance instance = instances.get(i);
+		int n = 0;
+		for (Instance instance : instances) {
 			double target = instance.getTarget();
 			double pred = regressor.regress(instance);
 			double d = target - pred;
 			mae += Math.abs(d);
+			n++;
 		}
-		mae /= instances.size();
+		mae /= n;
 		return mae;
 	}
 
@@ -175,32 +255,33 @@ public class Evaluator {
 			System.exit(1);
 		}
 
-		Instances instances = InstancesReader.read(opts.attPath, opts.dataPath);
-		mltk.predictor.Predictor predictor = PredictorReader.read(opts.modelPath);
-
-		switch (opts.task) {
-			case "a":
-				double auc = evalAreaUnderROC((ProbabilisticClassifier) predictor, instances);
-				System.out.println("AUC: " + auc);
-				break;
-			case "c":
-				double error = evalError((Classifier) predictor, instances);
-				System.out.println("Error: " + error);
-				break;
-			case "l":
-				double logisticLoss = evalLogisticLoss((Regressor) predictor, instances);
-				System.out.println("Logistic Loss: " + logisticLoss);
-				break;
-			case "m":
-				double mae = evalMAE((Regressor) predictor, instances);
-				System.out.println("MAE: " + mae);
-				break;
-			case "r":
-				double rmse = evalRMSE((Regressor) predictor, instances);
-				System.out.println("RMSE: " + rmse);
-				break;
-			default:
-				break;
+		try (InstancesStream instances = InstancesReader.stream(opts.attPath, opts.dataPath)) {
+			mltk.predictor.Predictor predictor = PredictorReader.read(opts.modelPath);
+
+			switch (opts.task) {
+				case "a":
+					double auc = evalAreaUnderROC((ProbabilisticClassifier) predictor, instances);
+					System.out.println("AUC: " + auc);
+					break;
+				case "c":
+					double error = evalError((Classifier) predictor, instances);
+					System.out.println("Error: " + error);
+					break;
+				case "l":
+					double logisticLoss = evalLogisticLoss((Regressor) predictor, instances);
+					System.out.println("Logistic Loss: " + logisticLoss);
+					break;
+				case "m":
+					double mae = evalMAE((Regressor) predictor, instances);
+					System.out.println("MAE: " + mae);
+					break;
+				case "r":
+					double rmse = evalRMSE((Regressor) predictor, instances);
+					System.out.println("RMSE: " + rmse);
+					break;
+				default:
+					break;
+			}
 		}
 	}
 
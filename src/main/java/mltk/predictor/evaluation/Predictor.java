@@ -9,6 +9,7 @@ import mltk.cmdline.CmdLineParser;
 import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.io.InstancesReader;
+import mltk.core.io.InstancesStream;
 import mltk.predictor.Classifier;
 import mltk.predictor.Learner.Task;
 import mltk.predictor.ProbabilisticClassifier;
@@ -78,81 +79,69 @@ public class Predictor {
 			System.exit(1);
 		}
 
-		Instances instances = InstancesReader.read(opts.attPath, opts.dataPath);
-		mltk.predictor.Predictor predictor = PredictorReader.read(opts.modelPath);
-
-		switch (task) {
-			case REGRESSION:
-				Regressor regressor = (Regressor) predictor;
-				double rmse = Evaluator.evalRMSE(regressor, instances);
-				System.out.println("RMSE on Test: " + rmse);
+		mltk.predictor.Predictor predictor = PredictorReader.read(opts.modelPath).compile();
+		boolean residual = opts.residualPath != null;
+		if (residual && task == Task.CLASSIFICATION && !(predictor instanceof Regressor)) {
+			System.out.println("Warning: Classifier does not support outputing pseudo residual.");
+			residual = false;
+		}
 
-				if (opts.predictionPath != null) {
-					PrintWriter out = new PrintWriter(opts.predictionPath);
+		// The metric, predictions and residuals are computed in a single pass
+		try (InstancesStream instances = InstancesReader.stream(opts.attPath, opts.dataPath);
+				PrintWriter predOut = opts.predictionPath != null ? new PrintWriter(opts.predictionPath) : null;
+				PrintWriter residualOut = residual ? new PrintWriter(opts.residualPath) : null) {
+			int n = 0;
+			switch (task) {
+				case REGRESSION:
+					Regressor regressor = (Regressor) predictor;
+					double rmse = 0;
 					for (Instance instance : instances) {
 						double pred = regressor.regress(instance);
-						out.println(pred);
+						double d = instance.getTarget() - pred;
+						rmse += d * d;
+						n++;
+						if (predOut != null) {
+							predOut.println(pred);
+						}
+						if (residualOut != null) {
+							residualOut.println(d);
+						}
 					}
-					out.flush();
-					out.close();
-				}
-
-				if (opts.residualPath != null) {
-					PrintWriter out = new PrintWriter(opts.residualPath);
+					rmse = Math.sqrt(rmse / n);
+					System.out.println("RMSE on Test: " + rmse);
+
+					break;
+				case CLASSIFICATION:
+					Classifier classifier = (Classifier) predictor;
+					ProbabilisticClassifier probClassifier = opts.prob ? (ProbabilisticClassifier) predictor : null;
+					Regressor regressingClassifier = residualOut != null ? (Regressor) predictor : null;
+					double error = 0;
 					for (Instance instance : instances) {
-						double pred = regressor.regress(instance);
-						out.println(instance.getTarget() - pred);
-					}
-					out.flush();
-					out.close();
-				}
-
-				break;
-			case CLASSIFICATION:
-				Classifier classifier = (Classifier) predictor;
-				double error = Evaluator.evalError(classifier, instances);
-				System.out.println("Error rate on Test: " + (error * 100) + " %");
-
-				if (opts.predictionPath != null) {
-					if (opts.prob) {
-						PrintWriter out = new PrintWriter(opts.predictionPath);
-						ProbabilisticClassifier probClassifier = (ProbabilisticClassifier) predictor;
-						for (Instance instance : instances) {
-							double[] pred = probClassifier.predictProbabilities(instance);
-							out.println(Arrays.toString(pred));
+						int cls = (int) instance.getTarget();
+						double pred = classifier.classify(instance);
+						if (instance.getTarget() != pred) {
+							error++;
 						}
-						out.flush();
-						out.close();
-					} else {
-						PrintWriter out = new PrintWriter(opts.predictionPath);
-						for (Instance instance : instances) {
-							double pred = classifier.classify(instance);
-							out.println((int) pred);
+						n++;
+						if (predOut != null) {
+							if (probClassifier != null) {
+								predOut.println(Arrays.toString(probClassifier.predictProbabilities(instance)));
+							} else {
+								predOut.println((int) pred);
+							}
 						}
-						out.flush();
-						out.close();
-					}
-				}
-
-				if (opts.residualPath != null) {
-					if (predictor instanceof Regressor) {
-						PrintWriter out = new PrintWriter(opts.residualPath);
-						Regressor regressingClassifier = (Regressor) predictor;
-						for (Instance instance : instances) {
-							double pred = regressingClassifier.regress(instance);
-							int cls = (int) instance.getTarget();
-							out.println(OptimUtils.getPseudoResidual(pred, cls));
+						if (residualOut != null) {
+							double score = regressingClassifier.regress(instance);
+							residualOut.println(OptimUtils.getPseudoResidual(score, cls));
 						}
-						out.flush();
-						out.close();
-					} else {
-						System.out.println("Warning: Classifier does not support outputing pseudo residual.");
 					}
-				}
+					error /= n;
+					System.out.println("Error rate on Test: " + (error * 100) + " %");
 
-				break;
-			default:
-				break;
+					break;
+				default:
+					break;
+			}
 		}
 	}
 
@@ -167,6 +156,20 @@ public class Predictor {
 	 */
 	public static void predict(Regressor regressor, Instances instances, String path, boolean residual)
 			throws IOException {
+		predict(regressor, (Iterable<Instance>) instances, path, residual);
+	}
+
+	/**
+	 * Makes predictions for a dataset in a single pass.
+	 * 
+	 * @param regressor the model.
+	 * @param instances the dataset, e.g., an {@link InstancesStream}.
+	 * @param path the output path.
+	 * @param residual {@code true} if residuals are the output.
+	 * @throws IOException
+	 */
+	public static void predict(Regressor regressor, Iterable<Instance> instances, String path, boolean residual)
+			throws IOException {
 		PrintWriter out = new PrintWriter(path);
 		if (residual) {
 			for (Instance instance : instances) {
@@ -192,6 +195,18 @@ public class Predictor {
 	 * @throws IOException
 	 */
 	public static void predict(Classifier classifier, Instances instances, String path) throws IOException {
+		predict(classifier, (Iterable<Instance>) instances, path);
+	}
+
+	/**
+	 * Makes predictions for a dataset in a single pass.
+	 * 
+	 * @param classifier the model.
+	 * @param instances the dataset, e.g., an {@link InstancesStream}.
+	 * @param path the output path.
+	 * @throws IOException
+	 */
+	public static void predict(Classifier classifier, Iterable<Instance> instances, String path) throws IOException {
 		PrintWriter out = new PrintWriter(path);
 		for (Instance instance : instances) {
 			int pred = classifier.classify(instance);
@@ -1,9 +1,13 @@
 package mltk.predictor.function;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 import mltk.util.ArrayUtils;
@@ -14,7 +18,7 @@ import mltk.util.ArrayUtils;
  * @author Yin Lou
  * 
  */
-public class Array1D implements Regressor, UnivariateFunction {
+public class Array1D implements Regressor, UnivariateFunction, BinaryWritable {
 
 	/**
 	 * Attribute index. Must be binned/nominal attribute; otherwise the behavior is not guaranteed.
@@ -138,6 +142,20 @@ public class Array1D implements Regressor, UnivariateFunction {
 		out.println(Arrays.toString(predictions));
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndex = in.readInt();
+		predictionOnMV = in.readDouble();
+		predictions = ArrayUtils.readDoubleArray(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(attIndex);
+		out.writeDouble(predictionOnMV);
+		ArrayUtils.writeDoubleArray(out, predictions);
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		double v = instance.getValue(attIndex);
@@ -1,9 +1,13 @@
 package mltk.predictor.function;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 import mltk.util.ArrayUtils;
@@ -15,7 +19,7 @@ import mltk.util.tuple.IntPair;
  * @author Yin Lou
  * 
  */
-public class Array2D implements Regressor, BivariateFunction {
+public class Array2D implements Regressor, BivariateFunction, BinaryWritable {
 
 	/**
 	 * First attribute index.
@@ -238,6 +242,26 @@ public class Array2D implements Regressor, BivariateFunction {
 		out.println("PredictionOnMV12: " + predictionOnMV12);
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndex1 = in.readInt();
+		attIndex2 = in.readInt();
+		predictions = ArrayUtils.readDoubleMatrix(in);
+		predictionsOnMV1 = ArrayUtils.readDoubleArray(in);
+		predictionsOnMV2 = ArrayUtils.readDoubleArray(in);
+		predictionOnMV12 = in.readDouble();
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(attIndex1);
+		out.writeInt(attIndex2);
+		ArrayUtils.writeDoubleMatrix(out, predictions);
+		ArrayUtils.writeDoubleArray(out, predictionsOnMV1);
+		ArrayUtils.writeDoubleArray(out, predictionsOnMV2);
+		out.writeDouble(predictionOnMV12);
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		return evaluate(instance.getValue(attIndex1), instance.getValue(attIndex2));
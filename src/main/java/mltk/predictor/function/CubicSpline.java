@@ -1,9 +1,13 @@
 package mltk.predictor.function;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 import mltk.util.ArrayUtils;
@@ -14,7 +18,7 @@ import mltk.util.ArrayUtils;
  * @author Yin Lou
  * 
  */
-public class CubicSpline implements Regressor, UnivariateFunction {
+public class CubicSpline implements Regressor, UnivariateFunction, BinaryWritable {
 
 	protected int attIndex;
 	protected double intercept;
@@ -94,6 +98,22 @@ public class CubicSpline implements Regressor, UnivariateFunction {
 		out.println(Arrays.toString(w));
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndex = in.readInt();
+		intercept = in.readDouble();
+		knots = ArrayUtils.readDoubleArray(in);
+		w = ArrayUtils.readDoubleArray(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(attIndex);
+		out.writeDouble(intercept);
+		ArrayUtils.writeDoubleArray(out, knots);
+		ArrayUtils.writeDoubleArray(out, w);
+	}
+
 	@Override
 	public double evaluate(double x) {
 		double pred = intercept + w[0] * x + w[1] * x * x + w[2] * x * x * x;
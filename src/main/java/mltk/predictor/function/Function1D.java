@@ -1,9 +1,13 @@
 package mltk.predictor.function;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 import mltk.util.ArrayUtils;
@@ -22,7 +26,7 @@ import mltk.util.VectorUtils;
  * @author Yin Lou
  * 
  */
-public class Function1D implements Regressor, UnivariateFunction {
+public class Function1D implements Regressor, UnivariateFunction, BinaryWritable {
 
 	/**
 	 * Attribute index.
@@ -314,6 +318,22 @@ public class Function1D implements Regressor, UnivariateFunction {
 		out.println(Arrays.toString(predictions));
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndex = in.readInt();
+		predictionOnMV = in.readDouble();
+		splits = ArrayUtils.readDoubleArray(in);
+		predictions = ArrayUtils.readDoubleArray(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(attIndex);
+		out.writeDouble(predictionOnMV);
+		ArrayUtils.writeDoubleArray(out, splits);
+		ArrayUtils.writeDoubleArray(out, predictions);
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		return evaluate(instance.getValue(attIndex));
@@ -1,5 +1,7 @@
 package mltk.predictor.function;
 
+import mltk.core.BinnedColumn;
+import mltk.core.BinnedInstances;
 import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.util.tuple.Pair;
@@ -54,6 +56,10 @@ public class Histogram2D {
 	 * @param hist2d the histogram to compute.
 	 */
 	public static void computeHistogram2D(Instances instances, int f1, int f2, Histogram2D hist2d) {
+		if (instances instanceof BinnedInstances) {
+			computeHistogram2D((BinnedInstances) instances, f1, f2, hist2d);
+			return;
+		}
 		for (Instance instance : instances) {
 			double resp = instance.getTarget() * instance.getWeight();
 			double weight = instance.getWeight();
@@ -77,6 +83,42 @@ public class Histogram2D {
 		}
 	}
 	
+	/**
+	 * Computes 2D histogram given (f1, f2) directly from packed columns.
+	 * 
+	 * @param instances the data set.
+	 * @param f1 the 1st feature.
+	 * @param f2 the 2nd feature.
+	 * @param hist2d the histogram to compute.
+	 */
+	public static void computeHistogram2D(BinnedInstances instances, int f1, int f2, Histogram2D hist2d) {
+		BinnedColumn column1 = instances.getColumn(f1);
+		BinnedColumn column2 = instances.getColumn(f2);
+		double[] targets = instances.getTargets();
+		double[] weights = instances.getWeights();
+		// Columns are indexed by storage row, and all rows are summed regardless of their order
+		final int n = instances.size();
+		for (int i = 0; i < n; i++) {
+			double weight = weights[i];
+			double resp = targets[i] * weight;
+			int idx1 = column1.get(i);
+			int idx2 = column2.get(i);
+			if (idx1 != BinnedColumn.MISSING && idx2 != BinnedColumn.MISSING) {
+				hist2d.resp[idx1][idx2] += resp;
+				hist2d.count[idx1][idx2] += weight;
+			} else if (idx1 == BinnedColumn.MISSING && idx2 != BinnedColumn.MISSING) {
+				hist2d.respOnMV1[idx2] += resp;
+				hist2d.countOnMV1[idx2] += weight;
+			} else if (idx1 != BinnedColumn.MISSING && idx2 == BinnedColumn.MISSING) {
+				hist2d.respOnMV2[idx1] += resp;
+				hist2d.countOnMV2[idx1] += weight;
+			} else {
+				hist2d.respOnMV12 += resp;
+				hist2d.countOnMV12 += weight;
+			}
+		}
+	}
+	
 	/**
 	 * Computes auxiliary data structure given 2D histogram and cumulative 1D histograms.
 	 * 
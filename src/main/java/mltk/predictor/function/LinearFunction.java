@@ -1,8 +1,12 @@
 package mltk.predictor.function;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 
@@ -12,7 +16,7 @@ import mltk.predictor.Regressor;
  * @author Yin Lou
  *
  */
-public class LinearFunction implements Regressor, UnivariateFunction {
+public class LinearFunction implements Regressor, UnivariateFunction, BinaryWritable {
 
 	/**
 	 * The attribute index.
@@ -64,6 +68,18 @@ public class LinearFunction implements Regressor, UnivariateFunction {
 		out.println("Beta: " + beta);
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndex = in.readInt();
+		beta = in.readDouble();
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(attIndex);
+		out.writeDouble(beta);
+	}
+
 	@Override
 	public double evaluate(double x) {
 		return beta * x;
@@ -1,15 +1,22 @@
 package mltk.predictor.gam;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
+import mltk.core.BinaryWritable;
+import mltk.core.DenseInstanceView;
 import mltk.core.Instance;
 import mltk.predictor.ProbabilisticClassifier;
 import mltk.predictor.Regressor;
+import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
 import mltk.util.ArrayUtils;
 import mltk.util.MathUtils;
 
@@ -19,7 +26,7 @@ import mltk.util.MathUtils;
  * @author Yin Lou
  * 
  */
-public class GAM implements ProbabilisticClassifier, Regressor {
+public class GAM implements ProbabilisticClassifier, Regressor, BinaryWritable {
 
 	class RegressorList implements Iterable<Regressor> {
 
@@ -52,6 +59,13 @@ public class GAM implements ProbabilisticClassifier, Regressor {
 	protected double intercept;
 	protected List<Regressor> regressors;
 	protected List<int[]> terms;
+	protected final DenseInstanceView.Cache views = new DenseInstanceView.Cache(attIndices -> {
+		for (int[] term : terms) {
+			for (int attIndex : term) {
+				attIndices.add(attIndex);
+			}
+		}
+	});
 
 	/**
 	 * Constructor.
@@ -86,6 +100,7 @@ public class GAM implements ProbabilisticClassifier, Regressor {
 		int size = Integer.parseInt(in.readLine().split(": ")[1]);
 		regressors = new ArrayList<>(size);
 		terms = new ArrayList<>(size);
+		views.invalidate();
 		in.readLine();
 		for (int i = 0; i < size; i++) {
 			int[] term = ArrayUtils.parseIntArray(in.readLine().split(": ")[1]);
@@ -116,6 +131,29 @@ public class GAM implements ProbabilisticClassifier, Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		intercept = in.readDouble();
+		int size = in.readInt();
+		regressors = new ArrayList<>(size);
+		terms = new ArrayList<>(size);
+		views.invalidate();
+		for (int i = 0; i < size; i++) {
+			terms.add(ArrayUtils.readIntArray(in));
+			regressors.add((Regressor) PredictorReader.read(in));
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeDouble(intercept);
+		out.writeInt(regressors.size());
+		for (int i = 0; i < regressors.size(); i++) {
+			ArrayUtils.writeIntArray(out, terms.get(i));
+			PredictorWriter.write(regressors.get(i), out);
+		}
+	}
+
 	/**
 	 * Adds a new term into this GAM. The term is an array of attribute indices that are used in the regressor.
 	 * 
@@ -125,10 +163,18 @@ public class GAM implements ProbabilisticClassifier, Regressor {
 	public void add(int[] term, Regressor regressor) {
 		terms.add(term);
 		regressors.add(regressor);
+		views.invalidate();
 	}
 
+	/**
+	 * Regresses an instance. A sparse instance is bound to a {@link DenseInstanceView} of the attributes in the terms
+	 * once, so that the terms look up its attributes in constant time.
+	 */
 	@Override
 	public double regress(Instance instance) {
+		if (instance.isSparse() && !(instance instanceof DenseInstanceView)) {
+			instance = getView().bind(instance);
+		}
 		double pred = intercept;
 		for (Regressor regressor : regressors) {
 			pred += regressor.regress(instance);
@@ -167,6 +213,16 @@ public class GAM implements ProbabilisticClassifier, Regressor {
 		return regressors;
 	}
 
+	/**
+	 * Returns the scoring view of this thread, over the attributes in the terms when it was first requested since the
+	 * last term was added.
+	 * 
+	 * @return the scoring view of this thread.
+	 */
+	protected DenseInstanceView getView() {
+		return views.get();
+	}
+
 	@Override
 	public GAM copy() {
 		GAM copy = new GAM();
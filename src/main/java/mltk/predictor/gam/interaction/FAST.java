@@ -11,10 +11,11 @@ import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
 import mltk.core.Attribute;
 import mltk.core.BinnedAttribute;
+import mltk.core.BinnedColumn;
+import mltk.core.BinnedInstances;
 import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.NominalAttribute;
-import mltk.core.Attribute.Type;
 import mltk.core.io.InstancesReader;
 import mltk.core.processor.Discretizer;
 import mltk.predictor.function.CHistogram;
@@ -120,11 +121,8 @@ public class FAST {
 		List<Attribute> attributes = instances.getAttributes();
 
 		System.out.println("Discretizing attribute...");
-		for (int i = 0; i < attributes.size(); i++) {
-			if (attributes.get(i).getType() == Type.NUMERIC) {
-				Discretizer.discretize(instances, i, opts.maxNumBins);
-			}
-		}
+		instances = Discretizer.discretize(instances, opts.maxNumBins);
+		attributes = instances.getAttributes();
 
 		System.out.println("Generating all pairs of attributes...");
 		List<Element<IntPair>> pairs = new ArrayList<>();
@@ -211,6 +209,25 @@ public class FAST {
 	protected static double computeCHistograms(Instances instances, boolean[] used, CHistogram[] cHist) {
 		double ySq = 0;
 		// compute histogram
+		if (instances instanceof BinnedInstances) {
+			ySq = computeHistograms((BinnedInstances) instances, used, cHist);
+		} else {
+			ySq = computeHistograms(instances, used, cHist);
+		}
+		// compute cumulative histogram
+		for (int j = 0; j < cHist.length; j++) {
+			if (used[j]) {
+				for (int idx = 1; idx < cHist[j].size(); idx++) {
+					cHist[j].sum[idx] += cHist[j].sum[idx - 1];
+					cHist[j].count[idx] += cHist[j].count[idx - 1];
+				}
+			}
+		}
+		return ySq;
+	}
+
+	static double computeHistograms(Instances instances, boolean[] used, CHistogram[] cHist) {
+		double ySq = 0;
 		for (Instance instance : instances) {
 			double resp = instance.getTarget();
 			for (int j = 0; j < instances.getAttributes().size(); j++) {
@@ -227,12 +244,35 @@ public class FAST {
 			}
 			ySq += resp * resp * instance.getWeight();
 		}
-		// compute cumulative histogram
-		for (int j = 0; j < cHist.length; j++) {
+		return ySq;
+	}
+
+	static double computeHistograms(BinnedInstances instances, boolean[] used, CHistogram[] cHist) {
+		double[] targets = instances.getTargets();
+		double[] weights = instances.getWeights();
+		// Columns are indexed by storage row, and all rows are summed regardless of their order
+		final int n = instances.size();
+		double ySq = 0;
+		for (int i = 0; i < n; i++) {
+			double resp = targets[i];
+			ySq += resp * resp * weights[i];
+		}
+		// Column by column, so that each pass streams through one packed column
+		for (int j = 0; j < used.length; j++) {
 			if (used[j]) {
-				for (int idx = 1; idx < cHist[j].size(); idx++) {
-					cHist[j].sum[idx] += cHist[j].sum[idx - 1];
-					cHist[j].count[idx] += cHist[j].count[idx - 1];
+				BinnedColumn column = instances.getColumn(j);
+				CHistogram hist = cHist[j];
+				for (int i = 0; i < n; i++) {
+					double resp = targets[i];
+					double weight = weights[i];
+					int idx = column.get(i);
+					if (idx != BinnedColumn.MISSING) {
+						hist.sum[idx] += resp * weight;
+						hist.count[idx] += weight;
+					} else {
+						hist.sumOnMV += resp * weight;
+						hist.countOnMV += weight;
+					}
 				}
 			}
 		}
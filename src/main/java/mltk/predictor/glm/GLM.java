@@ -1,9 +1,13 @@
 package mltk.predictor.glm;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.core.SparseVector;
 import mltk.predictor.LinkFunction;
@@ -19,7 +23,7 @@ import mltk.util.StatUtils;
  * @author Yin Lou
  * 
  */
-public class GLM implements ProbabilisticClassifier, Regressor {
+public class GLM implements ProbabilisticClassifier, Regressor, BinaryWritable {
 
 	/**
 	 * The coefficient vectors.
@@ -159,6 +163,20 @@ public class GLM implements ProbabilisticClassifier, Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		link = LinkFunction.get(in.readUTF());
+		intercept = ArrayUtils.readDoubleArray(in);
+		w = ArrayUtils.readDoubleMatrix(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeUTF(link.toString());
+		ArrayUtils.writeDoubleArray(out, intercept);
+		ArrayUtils.writeDoubleMatrix(out, w);
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		return regress(intercept[0], w[0], instance);
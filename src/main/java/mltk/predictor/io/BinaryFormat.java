@@ -0,0 +1,80 @@
+package mltk.predictor.io;
+
+import java.io.IOException;
+
+import mltk.predictor.Predictor;
+import mltk.predictor.function.Array1D;
+import mltk.predictor.function.Array2D;
+import mltk.predictor.function.CubicSpline;
+import mltk.predictor.function.Function1D;
+import mltk.predictor.function.Function2D;
+import mltk.predictor.function.LinearFunction;
+import mltk.predictor.gam.GAM;
+import mltk.predictor.glm.GLM;
+import mltk.predictor.tree.CompiledRegressionTree;
+import mltk.predictor.tree.DecisionTable;
+import mltk.predictor.tree.RegressionTree;
+import mltk.predictor.tree.ensemble.ag.AdditiveGroves;
+import mltk.predictor.tree.ensemble.ag.CompiledAdditiveGroves;
+import mltk.predictor.tree.ensemble.brt.BDT;
+import mltk.predictor.tree.ensemble.brt.BRT;
+import mltk.predictor.tree.ensemble.brt.CompiledBRT;
+import mltk.predictor.tree.ensemble.rf.CompiledRandomForest;
+import mltk.predictor.tree.ensemble.rf.RandomForest;
+
+/**
+ * Class for constants of the binary predictor format.
+ * 
+ * <p>
+ * A file starts with {@link #MAGIC} and {@link #VERSION}, followed by one predictor. Each predictor, including nested
+ * ones, is written as a type tag followed by its own binary representation. Built-in predictors are identified by a
+ * small integer tag and instantiated through {@link #CLASSES}; other predictors are identified by {@link #TAG_CLASS}
+ * and their class name.
+ * </p>
+ * 
+ * @author Yin Lou
+ * 
+ */
+class BinaryFormat {
+
+	static final int MAGIC = 0x4D4C544D;
+	static final int VERSION = 1;
+
+	static final int TAG_CLASS = 0;
+
+	/**
+	 * Built-in predictor classes. The tag of a class is its position plus one; new classes must be appended.
+	 */
+	static final Class<?>[] CLASSES = { BRT.class, BDT.class, RandomForest.class, GAM.class, GLM.class,
+			AdditiveGroves.class, RegressionTree.class, DecisionTable.class, Array1D.class, Array2D.class,
+			CubicSpline.class, Function1D.class, Function2D.class, LinearFunction.class, CompiledBRT.class,
+			CompiledRandomForest.class, CompiledAdditiveGroves.class, CompiledRegressionTree.class };
+
+	/**
+	 * Returns the tag of a predictor, or {@link #TAG_CLASS} if it is not a built-in predictor.
+	 */
+	static int getTag(Predictor predictor) {
+		Class<?> clazz = predictor.getClass();
+		for (int i = 0; i < CLASSES.length; i++) {
+			if (CLASSES[i] == clazz) {
+				return i + 1;
+			}
+		}
+		return TAG_CLASS;
+	}
+
+	/**
+	 * Creates an empty built-in predictor from its tag.
+	 */
+	static Predictor newInstance(int tag) throws IOException {
+		if (tag < 1 || tag > CLASSES.length) {
+			throw new IOException("Unknown predictor tag: " + tag);
+		}
+		try {
+			return (Predictor) CLASSES[tag - 1].getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IOException("Cannot instantiate predictor: " + CLASSES[tag - 1].getName(), e);
+		}
+	}
+
+}
@@ -1,8 +1,13 @@
 package mltk.predictor.io;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.IOException;
 
+import mltk.core.BinaryWritable;
 import mltk.predictor.Predictor;
 
 /**
@@ -75,4 +80,79 @@ public class PredictorReader {
 		return clazz.cast(predictor);
 	}
 
+	/**
+	 * Reads a predictor in binary format through a buffered stream. The caller is responsible for converting the
+	 * predictor to correct type.
+	 * 
+	 * @param path the file path for the predictor.
+	 * @return the parsed predictor.
+	 * @throws IOException
+	 */
+	public static Predictor readBinary(String path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+			return readBinary(in);
+		}
+	}
+
+	/**
+	 * Reads a predictor in binary format. The caller is responsible for providing the correct predictor type.
+	 * 
+	 * @param path the file path for the predictor.
+	 * @param clazz the class of the predictor.
+	 * @param <T> the type of the predictor class.
+	 * @return the parsed predictor.
+	 * @throws IOException
+	 */
+	public static <T extends Predictor> T readBinary(String path, Class<T> clazz) throws IOException {
+		Predictor predictor = readBinary(path);
+		return clazz.cast(predictor);
+	}
+
+	/**
+	 * Reads a predictor in binary format, including the file header, from an input stream.
+	 * 
+	 * @param in the input stream.
+	 * @return the parsed predictor.
+	 * @throws IOException
+	 */
+	public static Predictor readBinary(DataInputStream in) throws IOException {
+		if (in.readInt() != BinaryFormat.MAGIC) {
+			throw new IOException("Not a binary predictor file");
+		}
+		int version = in.readInt();
+		if (version != BinaryFormat.VERSION) {
+			throw new IOException("Unsupported binary predictor version: " + version);
+		}
+		return read(in);
+	}
+
+	/**
+	 * Reads a predictor in binary format without the file header. This method is used by predictors to read nested
+	 * predictors written by {@link PredictorWriter#write(Predictor, java.io.DataOutputStream)}.
+	 * 
+	 * @param in the input stream.
+	 * @return the parsed predictor.
+	 * @throws IOException
+	 */
+	public static Predictor read(DataInputStream in) throws IOException {
+		int tag = in.readInt();
+		Predictor predictor = null;
+		if (tag == BinaryFormat.TAG_CLASS) {
+			String predictorName = in.readUTF();
+			try {
+				Class<?> clazz = Class.forName(predictorName);
+				predictor = (Predictor) clazz.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IOException("Cannot instantiate predictor: " + predictorName, e);
+			}
+		} else {
+			predictor = BinaryFormat.newInstance(tag);
+		}
+		if (!(predictor instanceof BinaryWritable)) {
+			throw new IOException("Binary format is not supported for " + predictor.getClass().getCanonicalName());
+		}
+		((BinaryWritable) predictor).read(in);
+		return predictor;
+	}
+
 }
@@ -1,7 +1,12 @@
 package mltk.predictor.io;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 
+import mltk.core.BinaryWritable;
 import mltk.predictor.Predictor;
 
 /**
@@ -26,4 +31,53 @@ public class PredictorWriter {
 		out.close();
 	}
 
+	/**
+	 * Writes a predictor to file in binary format, which can be read by {@link PredictorReader#readBinary(String)}.
+	 * 
+	 * @param predictor the predictor to write.
+	 * @param path the file path.
+	 * @throws IOException
+	 */
+	public static void writeBinary(Predictor predictor, String path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
+			writeBinary(predictor, out);
+		}
+	}
+
+	/**
+	 * Writes a predictor in binary format, including the file header, to an output stream.
+	 * 
+	 * @param predictor the predictor to write.
+	 * @param out the output stream.
+	 * @throws IOException
+	 */
+	public static void writeBinary(Predictor predictor, DataOutputStream out) throws IOException {
+		out.writeInt(BinaryFormat.MAGIC);
+		out.writeInt(BinaryFormat.VERSION);
+		write(predictor, out);
+		out.flush();
+	}
+
+	/**
+	 * Writes a predictor in binary format without the file header. This method is used by predictors to write nested
+	 * predictors.
+	 * 
+	 * @param predictor the predictor to write.
+	 * @param out the output stream.
+	 * @throws IOException
+	 * @throws IllegalArgumentException if the predictor does not support binary format.
+	 */
+	public static void write(Predictor predictor, DataOutputStream out) throws IOException {
+		if (!(predictor instanceof BinaryWritable)) {
+			throw new IllegalArgumentException("Binary format is not supported for "
+					+ predictor.getClass().getCanonicalName());
+		}
+		int tag = BinaryFormat.getTag(predictor);
+		out.writeInt(tag);
+		if (tag == BinaryFormat.TAG_CLASS) {
+			out.writeUTF(predictor.getClass().getName());
+		}
+		((BinaryWritable) predictor).write(out);
+	}
+
 }
@@ -0,0 +1,254 @@
+package mltk.predictor.tree;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import mltk.core.BinaryWritable;
+import mltk.core.Instance;
+import mltk.predictor.Regressor;
+
+/**
+ * Class for the compiled form of a regression tree. The nodes are laid out in breadth-first order in parallel
+ * primitive arrays, so that routing an instance follows array offsets instead of node objects. The two children of
+ * an interior node are adjacent, the left one first.
+ *
+ * <p>
+ * A compiled tree is a snapshot: later changes to the regression tree, such as {@link RegressionTree#multiply(double)},
+ * are not reflected. Writing a compiled tree writes its source tree, which reads back as a {@link RegressionTree} from
+ * text format and as a compiled tree from binary format.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class CompiledRegressionTree implements Regressor, BinaryWritable {
+
+	/**
+	 * The split attribute indices, or -1 for leaves.
+	 */
+	protected int[] attIndices;
+
+	/**
+	 * The split points of interior nodes.
+	 */
+	protected double[] splits;
+
+	/**
+	 * The offsets of the left children of interior nodes.
+	 */
+	protected int[] children;
+
+	/**
+	 * The predictions of leaves.
+	 */
+	protected double[] values;
+
+	/**
+	 * Constructor.
+	 */
+	public CompiledRegressionTree() {
+
+	}
+
+	/**
+	 * Compiles a regression tree.
+	 *
+	 * @param tree the regression tree.
+	 */
+	public CompiledRegressionTree(RegressionTree tree) {
+		compile(tree);
+	}
+
+	/**
+	 * Returns the source tree as it was compiled, rebuilt from the arrays of this compiled tree.
+	 *
+	 * @return the source tree.
+	 */
+	public RegressionTree getModel() {
+		TreeNode[] nodes = new TreeNode[attIndices.length];
+		// Children follow their parents, so they are built first
+		for (int i = nodes.length - 1; i >= 0; i--) {
+			if (attIndices[i] < 0) {
+				nodes[i] = new RegressionTreeLeaf(values[i]);
+			} else {
+				TreeInteriorNode interiorNode = new TreeInteriorNode(attIndices[i], splits[i]);
+				interiorNode.left = nodes[children[i]];
+				interiorNode.right = nodes[children[i] + 1];
+				nodes[i] = interiorNode;
+			}
+		}
+		return new RegressionTree(nodes[0]);
+	}
+
+	/**
+	 * Reads in a {@link RegressionTree} and compiles it.
+	 */
+	@Override
+	public void read(BufferedReader in) throws Exception {
+		RegressionTree tree = new RegressionTree();
+		tree.read(in);
+		compile(tree);
+	}
+
+	/**
+	 * Writes the source tree as it was compiled, see {@link #getModel()}.
+	 */
+	@Override
+	public void write(PrintWriter out) throws Exception {
+		getModel().write(out);
+	}
+
+	/**
+	 * Reads in a {@link RegressionTree} in binary format and compiles it.
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		RegressionTree tree = new RegressionTree();
+		tree.read(in);
+		compile(tree);
+	}
+
+	/**
+	 * Writes the source tree as it was compiled in binary format, see {@link #getModel()}.
+	 */
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		getModel().write(out);
+	}
+
+	@Override
+	public CompiledRegressionTree copy() {
+		CompiledRegressionTree copy = new CompiledRegressionTree();
+		copy.attIndices = attIndices.clone();
+		copy.splits = splits.clone();
+		copy.children = children.clone();
+		copy.values = values.clone();
+		return copy;
+	}
+
+	protected void compile(RegressionTree tree) {
+		List<TreeNode> nodes = new ArrayList<>();
+		ArrayDeque<TreeNode> q = new ArrayDeque<>();
+		q.add(tree.getRoot());
+		while (!q.isEmpty()) {
+			TreeNode node = q.remove();
+			nodes.add(node);
+			if (!node.isLeaf()) {
+				TreeInteriorNode interiorNode = (TreeInteriorNode) node;
+				q.add(interiorNode.left);
+				q.add(interiorNode.right);
+			}
+		}
+
+		final int n = nodes.size();
+		attIndices = new int[n];
+		splits = new double[n];
+		children = new int[n];
+		values = new double[n];
+		// Children are appended to the queue in node order
+		int next = 1;
+		for (int i = 0; i < n; i++) {
+			TreeNode node = nodes.get(i);
+			if (node.isLeaf()) {
+				attIndices[i] = -1;
+				values[i] = ((RegressionTreeLeaf) node).prediction;
+			} else {
+				TreeInteriorNode interiorNode = (TreeInteriorNode) node;
+				attIndices[i] = interiorNode.attIndex;
+				splits[i] = interiorNode.splitPoint;
+				children[i] = next;
+				next += 2;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 *
+	 * @return the number of nodes.
+	 */
+	public int size() {
+		return attIndices.length;
+	}
+
+	/**
+	 * Returns the split attribute indices, or -1 for leaves. The returned array is the backing storage.
+	 *
+	 * @return the split attribute indices.
+	 */
+	public int[] getAttributeIndices() {
+		return attIndices;
+	}
+
+	/**
+	 * Returns the split points of interior nodes. The returned array is the backing storage.
+	 *
+	 * @return the split points.
+	 */
+	public double[] getSplitPoints() {
+		return splits;
+	}
+
+	/**
+	 * Returns the offsets of the left children of interior nodes; the right child follows the left one. The
+	 * returned array is the backing storage.
+	 *
+	 * @return the offsets of the left children.
+	 */
+	public int[] getChildren() {
+		return children;
+	}
+
+	/**
+	 * Returns the predictions of leaves. The returned array is the backing storage.
+	 *
+	 * @return the predictions of leaves.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the offset of the leaf that an instance falls into.
+	 *
+	 * @param instance the instance.
+	 * @return the offset of the leaf.
+	 */
+	public int getLeafIndex(Instance instance) {
+		int node = 0;
+		while (attIndices[node] >= 0) {
+			node = instance.getValue(attIndices[node]) <= splits[node] ? children[node] : children[node] + 1;
+		}
+		return node;
+	}
+
+	@Override
+	public double regress(Instance instance) {
+		return values[getLeafIndex(instance)];
+	}
+
+	/**
+	 * Returns the prediction of an instance with the value of one attribute replaced, without modifying the
+	 * instance. This is used to compute permutation importances.
+	 *
+	 * @param instance the instance.
+	 * @param attIndex the index of the attribute to replace.
+	 * @param value the value to use for the attribute.
+	 * @return the prediction of the instance with the value of the attribute replaced.
+	 */
+	public double regress(Instance instance, int attIndex, double value) {
+		int node = 0;
+		while (attIndices[node] >= 0) {
+			double v = attIndices[node] == attIndex ? value : instance.getValue(attIndices[node]);
+			node = v <= splits[node] ? children[node] : children[node] + 1;
+		}
+		return values[node];
+	}
+
+}
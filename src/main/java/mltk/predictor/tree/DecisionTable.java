@@ -1,9 +1,14 @@
 package mltk.predictor.tree;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Arrays;
+import java.util.Set;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.util.ArrayUtils;
 import mltk.util.VectorUtils;
@@ -14,7 +19,7 @@ import mltk.util.VectorUtils;
  * @author Yin Lou
  *
  */
-public class DecisionTable implements RTree {
+public class DecisionTable implements RTree, BinaryWritable {
 
 	protected int[] attIndices;
 	protected double[] splits;
@@ -53,6 +58,17 @@ public class DecisionTable implements RTree {
 		return attIndices;
 	}
 	
+	/**
+	 * Adds the attribute indices used in this tree to a set.
+	 * 
+	 * @param attIndices the set of attribute indices.
+	 */
+	public void collectAttributeIndices(Set<Integer> attIndices) {
+		for (int attIndex : this.attIndices) {
+			attIndices.add(attIndex);
+		}
+	}
+	
 	/**
 	 * Returns the splits in this tree.
 	 * 
@@ -92,6 +108,22 @@ public class DecisionTable implements RTree {
 		out.println(Arrays.toString(predValues));
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		attIndices = ArrayUtils.readIntArray(in);
+		splits = ArrayUtils.readDoubleArray(in);
+		predIndices = ArrayUtils.readLongArray(in);
+		predValues = ArrayUtils.readDoubleArray(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		ArrayUtils.writeIntArray(out, attIndices);
+		ArrayUtils.writeDoubleArray(out, splits);
+		ArrayUtils.writeLongArray(out, predIndices);
+		ArrayUtils.writeDoubleArray(out, predValues);
+	}
+
 	@Override
 	public DecisionTable copy() {
 		int[] attIndicesCopy = Arrays.copyOf(attIndices, attIndices.length);
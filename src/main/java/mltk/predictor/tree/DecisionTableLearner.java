@@ -1,16 +1,22 @@
 package mltk.predictor.tree;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 import mltk.core.Attribute;
 import mltk.core.Attribute.Type;
 import mltk.core.BinnedAttribute;
+import mltk.core.BinnedColumn;
+import mltk.core.BinnedInstances;
+import mltk.core.ColumnarInstances;
 import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.NominalAttribute;
@@ -148,16 +154,42 @@ public class DecisionTableLearner extends RTreeLearner {
 
 	@Override
 	public DecisionTable build(Instances instances) {
+		return build(instances, Random.getInstance().nextLong());
+	}
+	
+	@Override
+	public DecisionTable build(Instances instances, long seed) {
+		return build(instances, createDataset(instances, seed));
+	}
+	
+	@Override
+	public DecisionTable build(Instances instances, double[] gradients, double[] hessians) {
+		return build(instances, gradients, hessians, Random.getInstance().nextLong());
+	}
+	
+	@Override
+	public DecisionTable build(Instances instances, double[] gradients, double[] hessians, long seed) {
+		return build(instances, createDataset(instances, gradients, hessians, seed));
+	}
+	
+	/**
+	 * Builds a decision table from the dataset for the root.
+	 * 
+	 * @param instances the training set.
+	 * @param dataset the dataset for the root.
+	 * @return a decision table.
+	 */
+	protected DecisionTable build(Instances instances, Dataset dataset) {
 		DecisionTable ot = null;
 		switch (mode) {
 			case ONE_PASS_GREEDY:
-				ot = buildOnePassGreedy(instances, maxDepth);
+				ot = buildOnePassGreedy(instances, dataset, maxDepth);
 				break;
 			case MULTI_PASS_CYCLIC:
-				ot = buildMultiPassCyclic(instances, maxDepth, numPasses);
+				ot = buildMultiPassCyclic(instances, dataset, maxDepth, numPasses);
 				break;
 			case MULTI_PASS_RANDOM:
-				ot = buildMultiPassRandom(instances, maxDepth, numPasses);
+				ot = buildMultiPassRandom(instances, dataset, maxDepth, numPasses);
 			default:
 				break;
 		}
@@ -172,6 +204,18 @@ public class DecisionTableLearner extends RTreeLearner {
 	 * @return an oblivious regression tree.
 	 */
 	public DecisionTable buildOnePassGreedy(Instances instances, int maxDepth) {
+		return buildOnePassGreedy(instances, createDataset(instances, Random.getInstance().nextLong()), maxDepth);
+	}
+	
+	/**
+	 * Builds a standard oblivious regression tree using greedy tree induction.
+	 * 
+	 * @param instances the training set.
+	 * @param dataset the dataset for the root.
+	 * @param maxDepth the maximum depth.
+	 * @return an oblivious regression tree.
+	 */
+	protected DecisionTable buildOnePassGreedy(Instances instances, Dataset dataset, int maxDepth) {
 		// stats[0]: totalWeights
 		// stats[1]: sum
 		// stats[2]: weightedMean
@@ -179,16 +223,10 @@ public class DecisionTableLearner extends RTreeLearner {
 		Map<Long, Dataset> map = new HashMap<>(instances.size());
 		List<Integer> attList = new ArrayList<>(maxDepth);
 		List<Double> splitList = new ArrayList<>(maxDepth);
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
 		map.put(Long.valueOf(0L), dataset);
 		
 		if (maxDepth <= 0) {
-			getStats(dataset.instances, stats);
+			getStats(dataset, stats);
 			final double weightedMean = stats[2];
 			return new DecisionTable(
 					new int[] {},
@@ -225,50 +263,15 @@ public class DecisionTableLearner extends RTreeLearner {
 		}
 		
 		for (int d = 0; d < maxDepth; d++) {
-			double bestGain = Double.NEGATIVE_INFINITY;
 			List<IntDoublePair> splitCandidates = new ArrayList<>();
 			
-			for (int j = 0; j < attributes.size(); j++) {
-				List<Double> values = featureValues.get(j);
-				if (values.size() <= 1) {
-					continue;
-				}
-				
-				Attribute attribute = attributes.get(j);
-				int attIndex = attribute.getIndex();
-				String attName = attribute.getName();
-				
-				double[] gains = new double[values.size() - 1];
-				for (Dataset data : map.values()) {
-					getStats(data.instances, stats);
-					final double totalWeights = stats[0];
-					final double sum = stats[1];
-					
-					List<IntDoublePair> sortedList = data.sortedLists.get(attName);
-					List<Double> uniqueValues = new ArrayList<>(sortedList.size());
-					List<DoublePair> histogram = new ArrayList<>(sortedList.size());
-					getHistogram(data.instances, sortedList, uniqueValues, totalWeights, sum, histogram);
-					double[] localGains = evalSplits(uniqueValues, histogram, totalWeights, sum);
-					processGains(uniqueValues, localGains, values, gains);
-				}
-				
-				int idx = StatUtils.indexOfMax(gains);
-				if (bestGain <= gains[idx]) {
-					double split = (values.get(idx) + values.get(idx + 1)) / 2;
-					if (bestGain < gains[idx]) {
-						bestGain = gains[idx];
-						splitCandidates.clear();
-					}
-					splitCandidates.add(new IntDoublePair(attIndex, split));
-				}
-			}
+			findSplits(map.values(), attributes, featureValues, splitCandidates);
 			
 			if (splitCandidates.size() == 0) {
 				break;
 			}
 			
-			Random rand = Random.getInstance();
-			IntDoublePair split = splitCandidates.get(rand.nextInt(splitCandidates.size()));
+			IntDoublePair split = splitCandidates.get(dataset.random.nextInt(splitCandidates.size()));
 			attList.add(split.v1);
 			splitList.add(split.v2);
 			
@@ -276,14 +279,14 @@ public class DecisionTableLearner extends RTreeLearner {
 			for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 				Long key = entry.getKey();
 				Dataset data = entry.getValue();
-				Dataset left = new Dataset(data.instances);
-				Dataset right = new Dataset(data.instances);
-				data.split(split.v1, split.v2, left, right);
-				if (left.instances.size() > 0) {
+				Dataset left = new Dataset(data);
+				Dataset right = new Dataset(data);
+				split(data, split.v1, split.v2, left, right);
+				if (left.size() > 0) {
 					Long leftKey = (key << 1) | 1L;
 					mapNew.put(leftKey, left);
 				}
-				if (right.instances.size() > 0) {
+				if (right.size() > 0) {
 					Long rightKey = key << 1;
 					mapNew.put(rightKey, right);
 				}
@@ -298,7 +301,7 @@ public class DecisionTableLearner extends RTreeLearner {
 		for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 			Long key = entry.getKey();
 			Dataset data = entry.getValue();
-			getStats(data.instances, stats);
+			getStats(data, stats);
 			list.add(new LongDoublePair(key, stats[2]));
 		}
 		Collections.sort(list, new LongDoublePairComparator());
@@ -322,6 +325,19 @@ public class DecisionTableLearner extends RTreeLearner {
 	 * @return an oblivious regression tree.
 	 */
 	public DecisionTable buildMultiPassCyclic(Instances instances, int maxDepth, int numPasses) {
+		return buildMultiPassCyclic(instances, createDataset(instances, Random.getInstance().nextLong()), maxDepth, numPasses);
+	}
+	
+	/**
+	 * Builds an oblivious regression tree using multi-pass cyclic backfitting.
+	 * 
+	 * @param instances the training set.
+	 * @param dataset the dataset for the root.
+	 * @param maxDepth the maximum depth.
+	 * @param numPasses the number of passes.
+	 * @return an oblivious regression tree.
+	 */
+	protected DecisionTable buildMultiPassCyclic(Instances instances, Dataset dataset, int maxDepth, int numPasses) {
 		// stats[0]: totalWeights
 		// stats[1]: sum
 		// stats[2]: weightedMean
@@ -329,16 +345,10 @@ public class DecisionTableLearner extends RTreeLearner {
 		Map<Long, Dataset> map = new HashMap<>(instances.size());
 		int[] attIndices = new int[maxDepth];
 		double[] splits = new double[maxDepth];
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
 		map.put(Long.valueOf(0L), dataset);
 		
 		if (maxDepth <= 0) {
-			getStats(dataset.instances, stats);
+			getStats(dataset, stats);
 			final double weightedMean = stats[2];
 			return new DecisionTable(
 					new int[] {},
@@ -376,7 +386,6 @@ public class DecisionTableLearner extends RTreeLearner {
 		
 		for (int pass = 0; pass < numPasses; pass++) {
 			for (int d = 0; d < maxDepth; d++) {
-				double bestGain = Double.NEGATIVE_INFINITY;
 				List<IntDoublePair> splitCandidates = new ArrayList<>();
 				
 				// Remove depth d
@@ -402,7 +411,7 @@ public class DecisionTableLearner extends RTreeLearner {
 							right = data;
 						}
 						// This key will be updated anyway
-						mapNew.put(key, Dataset.merge(left, right));
+						mapNew.put(key, merge(left, right));
 						processedKeys.add(key);
 						processedKeys.add(otherKey);
 					} else {
@@ -411,47 +420,13 @@ public class DecisionTableLearner extends RTreeLearner {
 				}
 				map = mapNew;
 				
-				for (int j = 0; j < attributes.size(); j++) {
-					Attribute attribute = attributes.get(j);
-					int attIndex = attribute.getIndex();
-					String attName = attribute.getName();
-					
-					List<Double> values = featureValues.get(j);
-					if (values.size() <= 1) {
-						continue;
-					}
-					
-					double[] gains = new double[values.size() - 1];
-					for (Dataset data : map.values()) {
-						getStats(data.instances, stats);
-						final double totalWeights = stats[0];
-						final double sum = stats[1];
-						
-						List<IntDoublePair> sortedList = data.sortedLists.get(attName);
-						List<Double> uniqueValues = new ArrayList<>(sortedList.size());
-						List<DoublePair> histogram = new ArrayList<>(sortedList.size());
-						getHistogram(data.instances, sortedList, uniqueValues, totalWeights, sum, histogram);
-						double[] localGains = evalSplits(uniqueValues, histogram, totalWeights, sum);
-						processGains(uniqueValues, localGains, values, gains);
-					}
-					
-					int idx = StatUtils.indexOfMax(gains);
-					if (bestGain <= gains[idx]) {
-						double split = (values.get(idx) + values.get(idx + 1)) / 2;
-						if (bestGain < gains[idx]) {
-							bestGain = gains[idx];
-							splitCandidates.clear();
-						}
-						splitCandidates.add(new IntDoublePair(attIndex, split));
-					}
-				}
+				findSplits(map.values(), attributes, featureValues, splitCandidates);
 				
 				if (splitCandidates.size() == 0) {
 					break;
 				}
 				
-				Random rand = Random.getInstance();
-				IntDoublePair split = splitCandidates.get(rand.nextInt(splitCandidates.size()));
+				IntDoublePair split = splitCandidates.get(dataset.random.nextInt(splitCandidates.size()));
 				attIndices[d] = split.v1;
 				splits[d] = split.v2;
 				
@@ -459,15 +434,15 @@ public class DecisionTableLearner extends RTreeLearner {
 				for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 					Long key = entry.getKey();
 					Dataset data = entry.getValue();
-					Dataset left = new Dataset(data.instances);
-					Dataset right = new Dataset(data.instances);
-					data.split(split.v1, split.v2, left, right);
+					Dataset left = new Dataset(data);
+					Dataset right = new Dataset(data);
+					split(data, split.v1, split.v2, left, right);
 					int s = maxDepth - d - 1;
-					if (left.instances.size() > 0) {
+					if (left.size() > 0) {
 						Long leftKey = key | (1L << s);
 						mapNew.put(leftKey, left);
 					}
-					if (right.instances.size() > 0) {
+					if (right.size() > 0) {
 						Long rightKey = key & ~(1L << s);
 						mapNew.put(rightKey, right);
 					}
@@ -480,7 +455,7 @@ public class DecisionTableLearner extends RTreeLearner {
 		for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 			Long key = entry.getKey();
 			Dataset data = entry.getValue();
-			getStats(data.instances, stats);
+			getStats(data, stats);
 			list.add(new LongDoublePair(key, stats[2]));
 		}
 		Collections.sort(list, new LongDoublePairComparator());
@@ -504,6 +479,19 @@ public class DecisionTableLearner extends RTreeLearner {
 	 * @return an oblivious regression tree.
 	 */
 	public DecisionTable buildMultiPassRandom(Instances instances, int maxDepth, int numPasses) {
+		return buildMultiPassRandom(instances, createDataset(instances, Random.getInstance().nextLong()), maxDepth, numPasses);
+	}
+	
+	/**
+	 * Builds an oblivious regression tree using multi-pass random backfitting.
+	 * 
+	 * @param instances the training set.
+	 * @param dataset the dataset for the root.
+	 * @param maxDepth the maximum depth.
+	 * @param numPasses the number of passes.
+	 * @return an oblivious regression tree.
+	 */
+	protected DecisionTable buildMultiPassRandom(Instances instances, Dataset dataset, int maxDepth, int numPasses) {
 		// stats[0]: totalWeights
 		// stats[1]: sum
 		// stats[2]: weightedMean
@@ -511,16 +499,10 @@ public class DecisionTableLearner extends RTreeLearner {
 		Map<Long, Dataset> map = new HashMap<>(instances.size());
 		int[] attIndices = new int[maxDepth];
 		double[] splits = new double[maxDepth];
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
 		map.put(Long.valueOf(0L), dataset);
 		
 		if (maxDepth <= 0) {
-			getStats(dataset.instances, stats);
+			getStats(dataset, stats);
 			final double weightedMean = stats[2];
 			return new DecisionTable(
 					new int[] {},
@@ -558,12 +540,11 @@ public class DecisionTableLearner extends RTreeLearner {
 		
 		for (int iter = 0; iter < numPasses; iter++) {
 			for (int k = 0; k < maxDepth; k++) {
-				double bestGain = Double.NEGATIVE_INFINITY;
 				List<IntDoublePair> splitCandidates = new ArrayList<>();
 				
 				int d = k;
 				if (iter > 0) {
-					d = Random.getInstance().nextInt(maxDepth);
+					d = dataset.random.nextInt(maxDepth);
 				}
 				
 				// Remove depth d
@@ -589,7 +570,7 @@ public class DecisionTableLearner extends RTreeLearner {
 							right = data;
 						}
 						// This key will be updated anyway
-						mapNew.put(key, Dataset.merge(left, right));
+						mapNew.put(key, merge(left, right));
 						processedKeys.add(key);
 						processedKeys.add(otherKey);
 					} else {
@@ -598,47 +579,13 @@ public class DecisionTableLearner extends RTreeLearner {
 				}
 				map = mapNew;
 				
-				for (int j = 0; j < attributes.size(); j++) {
-					Attribute attribute = attributes.get(j);
-					int attIndex = attribute.getIndex();
-					String attName = attribute.getName();
-					
-					List<Double> values = featureValues.get(j);
-					if (values.size() <= 1) {
-						continue;
-					}
-					
-					double[] gains = new double[values.size() - 1];
-					for (Dataset data : map.values()) {
-						getStats(data.instances, stats);
-						final double totalWeights = stats[0];
-						final double sum = stats[1];
-						
-						List<IntDoublePair> sortedList = data.sortedLists.get(attName);
-						List<Double> uniqueValues = new ArrayList<>(sortedList.size());
-						List<DoublePair> histogram = new ArrayList<>(sortedList.size());
-						getHistogram(data.instances, sortedList, uniqueValues, totalWeights, sum, histogram);
-						double[] localGains = evalSplits(uniqueValues, histogram, totalWeights, sum);
-						processGains(uniqueValues, localGains, values, gains);
-					}
-					
-					int idx = StatUtils.indexOfMax(gains);
-					if (bestGain <= gains[idx]) {
-						double split = (values.get(idx) + values.get(idx + 1)) / 2;
-						if (bestGain < gains[idx]) {
-							bestGain = gains[idx];
-							splitCandidates.clear();
-						}
-						splitCandidates.add(new IntDoublePair(attIndex, split));
-					}
-				}
+				findSplits(map.values(), attributes, featureValues, splitCandidates);
 				
 				if (splitCandidates.size() == 0) {
 					break;
 				}
 				
-				Random rand = Random.getInstance();
-				IntDoublePair split = splitCandidates.get(rand.nextInt(splitCandidates.size()));
+				IntDoublePair split = splitCandidates.get(dataset.random.nextInt(splitCandidates.size()));
 				attIndices[d] = split.v1;
 				splits[d] = split.v2;
 				
@@ -646,15 +593,15 @@ public class DecisionTableLearner extends RTreeLearner {
 				for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 					Long key = entry.getKey();
 					Dataset data = entry.getValue();
-					Dataset left = new Dataset(data.instances);
-					Dataset right = new Dataset(data.instances);
-					data.split(split.v1, split.v2, left, right);
+					Dataset left = new Dataset(data);
+					Dataset right = new Dataset(data);
+					split(data, split.v1, split.v2, left, right);
 					int s = maxDepth - d - 1;
-					if (left.instances.size() > 0) {
+					if (left.size() > 0) {
 						Long leftKey = key | (1L << s);
 						mapNew.put(leftKey, left);
 					}
-					if (right.instances.size() > 0) {
+					if (right.size() > 0) {
 						Long rightKey = key & ~(1L << s);
 						mapNew.put(rightKey, right);
 					}
@@ -667,7 +614,7 @@ public class DecisionTableLearner extends RTreeLearner {
 		for (Map.Entry<Long, Dataset> entry : map.entrySet()) {
 			Long key = entry.getKey();
 			Dataset data = entry.getValue();
-			getStats(data.instances, stats);
+			getStats(data, stats);
 			list.add(new LongDoublePair(key, stats[2]));
 		}
 		Collections.sort(list, new LongDoublePairComparator());
@@ -682,6 +629,406 @@ public class DecisionTableLearner extends RTreeLearner {
 		return new DecisionTable(attIndices, splits, predIndices, predValues);
 	}
 	
+	@Override
+	public void cache(Instances instances) {
+		if (instances instanceof BinnedInstances) {
+			// Packed datasets are cheap to set up, see createDataset()
+			cache = null;
+		} else {
+			super.cache(instances);
+		}
+	}
+
+	/**
+	 * Creates the dataset for the root. For packed datasets, the cells of the table hold the storage rows (see
+	 * {@link BinnedInstances#getRowIndex(int)}) of their instances rather than row views, and their targets and
+	 * weights are read from the columns; sorted lists are only built for columns with missing values, and the other
+	 * columns are histogrammed directly from the bins of the rows in
+	 * {@link #getHistogram(Dataset, Attribute, List, double, double, List)}.
+	 * 
+	 * @param instances the training set.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances) {
+		if (instances instanceof BinnedInstances) {
+			BinnedInstances binnedInstances = (BinnedInstances) instances;
+			Dataset dataset = Dataset.createPartition(instances, binnedInstances.getTargets(),
+					binnedInstances.getWeights());
+			dataset.instances = instances;
+			setResponses(dataset);
+			final int n = instances.size();
+			List<Attribute> attributes = dataset.schema.getAttributes();
+			for (int j = 0; j < attributes.size(); j++) {
+				BinnedColumn column = binnedInstances.getColumn(attributes.get(j).getIndex());
+				if (column.hasMissing()) {
+					List<IntDoublePair> sortedList = new ArrayList<>();
+					for (int i = 0; i < n; i++) {
+						double v = column.getValue(i);
+						if (v != 0.0) {
+							sortedList.add(new IntDoublePair(i, v));
+						}
+					}
+					Collections.sort(sortedList, COMP);
+					dataset.sortedLists.set(j, sortedList);
+				}
+			}
+			return dataset;
+		} else if (this.cache != null) {
+			return Dataset.create(this.cache, instances);
+		} else {
+			return Dataset.create(instances);
+		}
+	}
+
+	/**
+	 * Creates the dataset for the root with a random stream, from which ties between splits are broken.
+	 * 
+	 * @param instances the training set.
+	 * @param seed the seed of the random stream.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances, long seed) {
+		Dataset dataset = createDataset(instances);
+		dataset.random = new SplittableRandom(seed);
+		return dataset;
+	}
+
+	/**
+	 * Creates the dataset for the root, in which the targets and weights of the instances are replaced by gradients
+	 * and hessians. The instances themselves are not modified: the root is packed, holding the gradients and
+	 * hessians as its targets and weights. Without binned instances, its rows are the positions of the instances,
+	 * which index the sorted lists of the root as well.
+	 * 
+	 * @param instances the training set.
+	 * @param gradients the gradients.
+	 * @param hessians the hessians.
+	 * @param seed the seed of the random stream.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances, double[] gradients, double[] hessians, long seed) {
+		Dataset dataset = createDataset(instances, seed);
+		if (dataset.partition != null) {
+			// Gradients are in the order of the instances, and rows are storage rows
+			BinnedInstances binnedInstances = (BinnedInstances) instances;
+			Partition partition = dataset.partition;
+			partition.targets = new double[gradients.length];
+			partition.weights = new double[hessians.length];
+			for (int i = 0; i < gradients.length; i++) {
+				int row = binnedInstances.getRowIndex(i);
+				partition.targets[row] = gradients[i];
+				partition.weights[row] = hessians[i];
+			}
+			setResponses(dataset);
+			return dataset;
+		}
+		Dataset packed = Dataset.createPartition(dataset.instances, gradients, hessians);
+		packed.instances = dataset.instances;
+		packed.sortedLists = dataset.sortedLists;
+		packed.random = dataset.random;
+		setResponses(packed);
+		return packed;
+	}
+
+	/**
+	 * Sets the responses of a packed dataset from its targets and weights.
+	 * 
+	 * @param dataset the packed dataset.
+	 */
+	protected void setResponses(Dataset dataset) {
+		Partition partition = dataset.partition;
+		partition.responses = new double[partition.weights.length];
+		for (int i = 0; i < partition.responses.length; i++) {
+			partition.responses[i] = getResponse(partition.targets[i], partition.weights[i]);
+		}
+	}
+
+	/**
+	 * Splits the dataset of a cell. The rows of a packed dataset are assigned to the children from the bins of the
+	 * column, or from the values of the instances without binned instances, keeping their order, and their sorted lists
+	 * are split as those of row views in {@link Dataset#split(int, double, Dataset, Dataset)}.
+	 * 
+	 * @param data the dataset to split.
+	 * @param attIndex the attribute index.
+	 * @param split the split point.
+	 * @param left the dataset of the left child.
+	 * @param right the dataset of the right child.
+	 */
+	protected void split(Dataset data, int attIndex, double split, Dataset left, Dataset right) {
+		if (data.partition == null) {
+			data.split(attIndex, split, left, right);
+			return;
+		}
+		BinnedColumn column = getBinnedColumn(data, attIndex);
+		final int n = data.size();
+		int[] leftRows = new int[n];
+		int[] rightRows = new int[n];
+		int[] leftHash = new int[n];
+		int[] rightHash = new int[n];
+		int numLeft = 0;
+		int numRight = 0;
+		for (int i = 0; i < n; i++) {
+			int row = data.partition.rows[data.partition.start + i];
+			double value = column != null ? column.getValue(row) : getValue(data.instances, row, attIndex);
+			if (value <= split) {
+				leftHash[i] = numLeft;
+				rightHash[i] = -1;
+				leftRows[numLeft++] = row;
+			} else {
+				leftHash[i] = -1;
+				rightHash[i] = numRight;
+				rightRows[numRight++] = row;
+			}
+		}
+		setRows(left, Arrays.copyOf(leftRows, numLeft));
+		setRows(right, Arrays.copyOf(rightRows, numRight));
+		data.splitSortedLists(leftHash, rightHash, left, right);
+	}
+
+	/**
+	 * Merges the datasets of two cells, with the rows of the left cell first.
+	 * 
+	 * @param left the dataset of the left cell.
+	 * @param right the dataset of the right cell.
+	 * @return the merged dataset.
+	 */
+	protected Dataset merge(Dataset left, Dataset right) {
+		if (left.partition == null) {
+			return Dataset.merge(left, right);
+		}
+		final int lSize = left.size();
+		int[] rows = new int[lSize + right.size()];
+		System.arraycopy(left.partition.rows, left.partition.start, rows, 0, lSize);
+		System.arraycopy(right.partition.rows, right.partition.start, rows, lSize, right.size());
+		Dataset data = new Dataset(left);
+		setRows(data, rows);
+		Dataset.mergeSortedLists(left, right, lSize, data);
+		return data;
+	}
+
+	/**
+	 * Returns the binned column of an attribute in a packed dataset, or {@code null} if its instances are not binned.
+	 */
+	private static BinnedColumn getBinnedColumn(Dataset dataset, int attIndex) {
+		if (dataset.instances instanceof BinnedInstances) {
+			return ((BinnedInstances) dataset.instances).getColumn(attIndex);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the value of an attribute at a row of a packed dataset whose instances are not binned. The columns of
+	 * columnar instances are read directly rather than through row views.
+	 */
+	private static double getValue(Instances instances, int row, int attIndex) {
+		if (instances instanceof ColumnarInstances) {
+			return ((ColumnarInstances) instances).getValue(row, attIndex);
+		}
+		return instances.get(row).getValue(attIndex);
+	}
+
+	/**
+	 * Sets the rows of a packed dataset, which then holds its own sorted lists.
+	 */
+	private static void setRows(Dataset dataset, int[] rows) {
+		Partition partition = dataset.partition;
+		partition.rows = rows;
+		partition.start = 0;
+		partition.end = rows.length;
+		dataset.sortedLists = Dataset.createSortedLists(dataset.schema.size());
+	}
+
+	/**
+	 * Finds the best splits of a level over all attributes. Attributes are evaluated concurrently if the parallelism
+	 * level is greater than 1, and the attributes with the best gain are collected in attribute order, so that the
+	 * table does not depend on the parallelism level.
+	 * 
+	 * @param datasets the datasets of the cells at the current level.
+	 * @param attributes the attributes.
+	 * @param featureValues the sorted candidate values of each attribute.
+	 * @param splitCandidates the list to store the best splits.
+	 */
+	protected void findSplits(Collection<Dataset> datasets, final List<Attribute> attributes,
+			final List<List<Double>> featureValues, List<IntDoublePair> splitCandidates) {
+		// The statistics of a cell are the same for all attributes
+		final List<Dataset> cells = new ArrayList<>(datasets);
+		final double[][] cellStats = new double[cells.size()][3];
+		for (int i = 0; i < cells.size(); i++) {
+			getStats(cells.get(i), cellStats[i]);
+		}
+		
+		final double[] bestGains = new double[attributes.size()];
+		final double[] bestSplits = new double[attributes.size()];
+		final boolean[] evaluated = new boolean[attributes.size()];
+		forEach(attributes.size(), j -> {
+			List<Double> values = featureValues.get(j);
+			if (values.size() <= 1) {
+				return;
+			}
+			
+			Attribute attribute = attributes.get(j);
+			double[] gains = new double[values.size() - 1];
+			for (int i = 0; i < cells.size(); i++) {
+				final double totalWeights = cellStats[i][0];
+				final double sum = cellStats[i][1];
+				
+				List<Double> uniqueValues = new ArrayList<>();
+				List<DoublePair> histogram = new ArrayList<>();
+				getHistogram(cells.get(i), attribute, uniqueValues, totalWeights, sum, histogram);
+				double[] localGains = evalSplits(uniqueValues, histogram, totalWeights, sum);
+				processGains(uniqueValues, localGains, values, gains);
+			}
+			
+			int idx = StatUtils.indexOfMax(gains);
+			bestGains[j] = gains[idx];
+			bestSplits[j] = (values.get(idx) + values.get(idx + 1)) / 2;
+			evaluated[j] = true;
+		});
+		
+		double bestGain = Double.NEGATIVE_INFINITY;
+		for (int j = 0; j < attributes.size(); j++) {
+			if (evaluated[j] && bestGain <= bestGains[j]) {
+				if (bestGain < bestGains[j]) {
+					bestGain = bestGains[j];
+					splitCandidates.clear();
+				}
+				splitCandidates.add(new IntDoublePair(attributes.get(j).getIndex(), bestSplits[j]));
+			}
+		}
+	}
+
+	/**
+	 * Computes the histogram of an attribute in a dataset. Without a sorted list, the attribute is binned or nominal
+	 * without missing values, and the histogram is accumulated per bin in the same order as from a sorted list.
+	 * 
+	 * @param data the dataset.
+	 * @param attribute the attribute.
+	 * @param uniqueValues the unique values to compute.
+	 * @param w the total weights.
+	 * @param s the weighted sum of targets.
+	 * @param histogram the histogram to compute.
+	 */
+	protected void getHistogram(Dataset data, Attribute attribute, List<Double> uniqueValues, double w, double s,
+			List<DoublePair> histogram) {
+		List<IntDoublePair> sortedList = data.getSortedList(attribute);
+		if (sortedList != null) {
+			if (data.partition == null) {
+				getHistogram(data.instances, sortedList, uniqueValues, w, s, histogram);
+			} else {
+				getHistogram(data, sortedList, uniqueValues, w, s, histogram);
+			}
+			return;
+		}
+		final int attIndex = attribute.getIndex();
+		final int numBins = BinnedInstances.getNumBins(attribute);
+		double[] weights = new double[numBins];
+		double[] sums = new double[numBins];
+		boolean[] present = new boolean[numBins];
+		if (data.partition != null) {
+			Partition partition = data.partition;
+			BinnedColumn column = getBinnedColumn(data, attIndex);
+			for (int i = partition.start; i < partition.end; i++) {
+				int row = partition.rows[i];
+				int bin = column != null ? column.get(row) : (int) getValue(data.instances, row, attIndex);
+				if (bin != 0) {
+					weights[bin] += partition.weights[row];
+					sums[bin] += partition.responses[row];
+					present[bin] = true;
+				} else {
+					present[0] = true;
+				}
+			}
+		} else {
+			for (Instance instance : data.instances) {
+				int bin = (int) instance.getValue(attIndex);
+				if (bin != 0) {
+					double weight = instance.getWeight();
+					weights[bin] += weight;
+					sums[bin] += instance.getTarget() * weight;
+					present[bin] = true;
+				} else {
+					present[0] = true;
+				}
+			}
+		}
+		double sumWeight = 0;
+		double sumTarget = 0;
+		for (int b = 1; b < numBins; b++) {
+			if (present[b]) {
+				uniqueValues.add((double) b);
+				histogram.add(new DoublePair(weights[b], sums[b]));
+				sumWeight += weights[b];
+				sumTarget += sums[b];
+			}
+		}
+		if (present[0]) {
+			// Zero entries are present
+			uniqueValues.add(0, ZERO);
+			histogram.add(0, new DoublePair(w - sumWeight, s - sumTarget));
+		}
+	}
+	
+	/**
+	 * Computes the histogram of a packed dataset from a sorted list, whose entries are positions in the rows of the
+	 * dataset, like {@link #getHistogram(Instances, List, List, double, double, List)}.
+	 * 
+	 * @param data the packed dataset.
+	 * @param pairs the sorted list.
+	 * @param uniqueValues the list to store unique values.
+	 * @param w the total weights.
+	 * @param s the weighted sum of targets.
+	 * @param histogram the list to store the histogram.
+	 */
+	protected void getHistogram(Dataset data, List<IntDoublePair> pairs, List<Double> uniqueValues, double w,
+			double s, List<DoublePair> histogram) {
+		final int start = data.partition.start;
+		int[] rows = data.partition.rows;
+		double[] weights = data.partition.weights;
+		double[] responses = data.partition.responses;
+		if (pairs.size() > 0) {
+			int row = rows[start + pairs.get(0).v1];
+			double lastValue = pairs.get(0).v2;
+			double totalWeight = weights[row];
+			double sum = responses[row];
+
+			for (int i = 1; i < pairs.size(); i++) {
+				IntDoublePair pair = pairs.get(i);
+				double value = pair.v2;
+				row = rows[start + pair.v1];
+				if (value != lastValue) {
+					uniqueValues.add(lastValue);
+					histogram.add(new DoublePair(totalWeight, sum));
+					lastValue = value;
+					totalWeight = weights[row];
+					sum = responses[row];
+				} else {
+					totalWeight += weights[row];
+					sum += responses[row];
+				}
+			}
+			uniqueValues.add(lastValue);
+			histogram.add(new DoublePair(totalWeight, sum));
+		}
+
+		if (pairs.size() != data.size()) {
+			// Zero entries are present
+			double sumWeight = 0;
+			double sumTarget = 0;
+			for (DoublePair pair : histogram) {
+				sumWeight += pair.v1;
+				sumTarget += pair.v2;
+			}
+
+			double weightOnZero = w - sumWeight;
+			double sumOnZero = s - sumTarget;
+			int idx = Collections.binarySearch(uniqueValues, ZERO);
+			if (idx < 0) {
+				// This should always happen
+				uniqueValues.add(-idx - 1, ZERO);
+				histogram.add(-idx - 1, new DoublePair(weightOnZero, sumOnZero));
+			}
+		}
+	}
+	
 	protected void processGains(List<Double> uniqueValues, double[] localGains, List<Double> values, double[] gains) {
 		int i = 0;
 		int j = 0;
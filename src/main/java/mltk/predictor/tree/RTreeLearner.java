@@ -19,6 +19,15 @@ public abstract class RTreeLearner extends TreeLearner {
 	@Override
 	public abstract RTree build(Instances instances);
 	
+	@Override
+	public abstract RTree build(Instances instances, double[] gradients, double[] hessians);
+	
+	@Override
+	public abstract RTree build(Instances instances, long seed);
+	
+	@Override
+	public abstract RTree build(Instances instances, double[] gradients, double[] hessians, long seed);
+	
 	protected void getHistogram(Instances instances, List<IntDoublePair> pairs, List<Double> uniqueValues, double w,
 			double s, List<DoublePair> histogram) {
 		if (pairs.size() > 0) {
@@ -66,6 +75,112 @@ public abstract class RTreeLearner extends TreeLearner {
 		}
 	}
 
+	/**
+	 * Computes the histogram of an attribute over a dataset in the index-partition representation, using the sorted
+	 * range of the attribute at a position.
+	 * 
+	 * @param dataset the dataset.
+	 * @param position the position of the attribute.
+	 * @param uniqueValues the list to store unique values.
+	 * @param w the sum of weights.
+	 * @param s the sum of responses.
+	 * @param histogram the list to store the histogram.
+	 */
+	protected void getHistogram(Dataset dataset, int position, List<Double> uniqueValues, double w, double s,
+			List<DoublePair> histogram) {
+		Partition partition = dataset.partition;
+		int[] rows = partition.sortedRows[position];
+		double[] values = partition.sortedValues[position];
+		int start = partition.starts[position];
+		int end = partition.ends[position];
+		double[] weights = partition.weights;
+		double[] responses = partition.responses;
+		if (start < end) {
+			double lastValue = values[start];
+			double totalWeight = weights[rows[start]];
+			double sum = responses[rows[start]];
+
+			for (int i = start + 1; i < end; i++) {
+				double value = values[i];
+				double weight = weights[rows[i]];
+				double resp = responses[rows[i]];
+				if (value != lastValue) {
+					uniqueValues.add(lastValue);
+					histogram.add(new DoublePair(totalWeight, sum));
+					lastValue = value;
+					totalWeight = weight;
+					sum = resp;
+				} else {
+					totalWeight += weight;
+					sum += resp;
+				}
+			}
+			uniqueValues.add(lastValue);
+			histogram.add(new DoublePair(totalWeight, sum));
+		}
+
+		if (end - start != dataset.size()) {
+			// Zero entries are present
+			double sumWeight = 0;
+			double sumTarget = 0;
+			for (DoublePair pair : histogram) {
+				sumWeight += pair.v1;
+				sumTarget += pair.v2;
+			}
+
+			double weightOnZero = w - sumWeight;
+			double sumOnZero = s - sumTarget;
+			int idx = Collections.binarySearch(uniqueValues, ZERO);
+			if (idx < 0) {
+				// This should always happen
+				uniqueValues.add(-idx - 1, ZERO);
+				histogram.add(-idx - 1, new DoublePair(weightOnZero, sumOnZero));
+			}
+		}
+	}
+
+	/**
+	 * Returns the response of an instance that is summed when evaluating splits, i.e., its weighted target.
+	 * 
+	 * @param target the target.
+	 * @param weight the weight.
+	 * @return the response of an instance.
+	 */
+	protected double getResponse(double target, double weight) {
+		return target * weight;
+	}
+
+	protected boolean getStats(Dataset dataset, double[] stats) {
+		if (dataset.partition == null) {
+			return getStats(dataset.instances, stats);
+		}
+		stats[0] = stats[1] = stats[2] = 0;
+		if (dataset.size() == 0) {
+			return true;
+		}
+		Partition partition = dataset.partition;
+		int[] rows = partition.rows;
+		double[] targets = partition.targets;
+		double[] weights = partition.weights;
+		double[] responses = partition.responses;
+		double firstTarget = targets[rows[partition.start]];
+		boolean stdIs0 = true;
+		for (int i = partition.start; i < partition.end; i++) {
+			int row = rows[i];
+			double target = targets[row];
+			stats[0] += weights[row];
+			stats[1] += responses[row];
+			if (stdIs0 && target != firstTarget) {
+				stdIs0 = false;
+			}
+		}
+		stats[2] = stats[1] / stats[0];
+		if (Double.isNaN(stats[2])) {
+			stats[2] = 0;
+		}
+		return stdIs0;
+	}
+
 	protected boolean getStats(Instances instances, double[] stats) {
 		stats[0] = stats[1] = stats[2] = 0;
 		if (instances.size() == 0) {
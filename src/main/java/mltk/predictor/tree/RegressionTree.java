@@ -1,8 +1,13 @@
 package mltk.predictor.tree;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Set;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 
 /**
@@ -11,7 +16,7 @@ import mltk.core.Instance;
  * @author Yin Lou
  * 
  */
-public class RegressionTree implements RTree {
+public class RegressionTree implements RTree, BinaryWritable {
 
 	/**
 	 * The root of a tree.
@@ -71,6 +76,40 @@ public class RegressionTree implements RTree {
 		return (RegressionTreeLeaf) node;
 	}
 
+	/**
+	 * Adds the attribute indices used in this tree to a set.
+	 * 
+	 * @param attIndices the set of attribute indices.
+	 */
+	public void collectAttributeIndices(Set<Integer> attIndices) {
+		collectAttributeIndices(root, attIndices);
+	}
+
+	/**
+	 * Adds the attribute indices used in this subtree to a set.
+	 * 
+	 * @param node the root of the subtree.
+	 * @param attIndices the set of attribute indices.
+	 */
+	protected void collectAttributeIndices(TreeNode node, Set<Integer> attIndices) {
+		if (node != null && !node.isLeaf()) {
+			TreeInteriorNode interiorNode = (TreeInteriorNode) node;
+			attIndices.add(interiorNode.attIndex);
+			collectAttributeIndices(interiorNode.left, attIndices);
+			collectAttributeIndices(interiorNode.right, attIndices);
+		}
+	}
+
+	/**
+	 * Returns the compiled form of this regression tree.
+	 * 
+	 * @return the compiled form of this regression tree.
+	 */
+	@Override
+	public CompiledRegressionTree compile() {
+		return new CompiledRegressionTree(this);
+	}
+
 	/**
 	 * Multiplies this regression tree with a constant.
 	 * 
@@ -117,6 +156,44 @@ public class RegressionTree implements RTree {
 		root.write(out);
 	}
 
+	/**
+	 * Reads this tree in binary format. Nodes are stored in pre-order.
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		root = readNode(in);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		writeNode(root, out);
+	}
+
+	protected static TreeNode readNode(DataInputStream in) throws IOException {
+		if (in.readBoolean()) {
+			return new RegressionTreeLeaf(in.readDouble());
+		} else {
+			TreeInteriorNode node = new TreeInteriorNode(in.readInt(), in.readDouble());
+			node.left = readNode(in);
+			node.right = readNode(in);
+			return node;
+		}
+	}
+
+	protected static void writeNode(TreeNode node, DataOutputStream out) throws IOException {
+		if (node.isLeaf()) {
+			out.writeBoolean(true);
+			out.writeDouble(((RegressionTreeLeaf) node).prediction);
+		} else {
+			TreeInteriorNode interiorNode = (TreeInteriorNode) node;
+			out.writeBoolean(false);
+			out.writeInt(interiorNode.attIndex);
+			out.writeDouble(interiorNode.splitPoint);
+			writeNode(interiorNode.left, out);
+			writeNode(interiorNode.right, out);
+		}
+	}
+
 	@Override
 	public RegressionTree copy() {
 		return new RegressionTree(root.copy());
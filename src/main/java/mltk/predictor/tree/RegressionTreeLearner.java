@@ -1,10 +1,13 @@
 package mltk.predictor.tree;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.RecursiveAction;
 
 import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
@@ -31,9 +34,18 @@ public class RegressionTreeLearner extends RTreeLearner {
 	
 	static class Options extends LearnerOptions {
 
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
 		@Argument(name = "-m", description = "construction mode:parameter. Construction mode can be alpha limited (a), depth limited (d), number of leaves limited (l) and minimum leaf size limited (s) (default: a:0.001)")
 		String mode = "a:0.001";
 
+		@Argument(name = "-b", description = "maximum number of bins for histogram-based split finding, 0 for exact split finding (default: 0)")
+		int maxNumBins = 0;
+
+		@Argument(name = "-p", description = "maximum number of histograms kept for histogram subtraction (default: 64)")
+		int maxNumHistograms = 64;
+
 		@Argument(name = "-s", description = "seed of the random number generator (default: 0)")
 		long seed = 0L;
 
@@ -48,7 +60,10 @@ public class RegressionTreeLearner extends RTreeLearner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
+	 * [-P]	parallelism level (default: 1)
 	 * [-m]	construction mode:parameter. Construction mode can be alpha limited (a), depth limited (d), number of leaves limited (l) and minimum leaf size limited (s) (default: a:0.001)
+	 * [-b]	maximum number of bins for histogram-based split finding, 0 for exact split finding (default: 0)
+	 * [-p]	maximum number of histograms kept for histogram subtraction (default: 64)
 	 * [-s]	seed of the random number generator (default: 0)
 	 * </pre>
 	 *
@@ -62,6 +77,9 @@ public class RegressionTreeLearner extends RTreeLearner {
 		try {
 			parser.parse(args);
 			learner.setParameters(opts.mode);
+			learner.setMaxNumBins(opts.maxNumBins);
+			learner.setMaxNumHistograms(opts.maxNumHistograms);
+			learner.setParallelism(opts.parallelism);
 		} catch (IllegalArgumentException e) {
 			parser.printUsage();
 			System.exit(1);
@@ -96,31 +114,93 @@ public class RegressionTreeLearner extends RTreeLearner {
 	protected int maxNumLeaves;
 	protected int minLeafSize;
 	protected double alpha;
+	protected int maxNumBins;
+	protected int maxNumHistograms;
+	protected int minTaskSize;
+	protected int minParallelWork;
+	protected int histogramBlockSize;
 	protected Mode mode;
 
 	/**
 	 * Constructor.
 	 */
 	public RegressionTreeLearner() {
+		maxNumHistograms = 64;
+		minTaskSize = 1024;
+		minParallelWork = 1 << 16;
+		histogramBlockSize = 1 << 14;
 		alpha = 0.01;
 		mode = Mode.ALPHA_LIMITED;
 	}
 
 	@Override
 	public RegressionTree build(Instances instances) {
+		return build(instances, Random.getInstance().nextLong());
+	}
+	
+	@Override
+	public RegressionTree build(Instances instances, long seed) {
+		return build(createDataset(instances, null, null, seed));
+	}
+	
+	@Override
+	public RegressionTree build(Instances instances, int[] counts, long seed) {
+		return build(createDataset(instances, null, null, counts, seed));
+	}
+	
+	/**
+	 * Builds a tree on a sample of a training set from the binned or sorted attributes of the whole training set, so
+	 * that samples built together bin or sort the training set once and each only takes its arrays indexed by row.
+	 * 
+	 * @param instances the training set.
+	 * @param features the binned or sorted attributes of the training set, see {@link #createFeatures(Instances)}.
+	 * @param counts the number of times each instance is drawn.
+	 * @param seed the seed of the random numbers.
+	 * @return a tree.
+	 */
+	@Override
+	protected RegressionTree build(Instances instances, Dataset features, int[] counts, long seed) {
+		return build(createDataset(instances, features, null, null, counts, seed));
+	}
+	
+	@Override
+	public RegressionTree build(Instances instances, double[] gradients, double[] hessians) {
+		return build(instances, gradients, hessians, Random.getInstance().nextLong());
+	}
+	
+	@Override
+	public RegressionTree build(Instances instances, double[] gradients, double[] hessians, long seed) {
+		return build(createDataset(instances, gradients, hessians, seed));
+	}
+	
+	@Override
+	public RegressionTree build(Instances instances, double[] gradients, double[] hessians, long seed,
+			RegressionTreeLeaf[] leaves) {
+		Dataset dataset = createDataset(instances, gradients, hessians, seed);
+		dataset.partition.leaves = leaves;
+		return build(dataset);
+	}
+	
+	/**
+	 * Builds a regression tree from the dataset for the root.
+	 * 
+	 * @param dataset the dataset for the root.
+	 * @return a regression tree.
+	 */
+	protected RegressionTree build(Dataset dataset) {
 		RegressionTree rt = null;
 		switch (mode) {
 			case ALPHA_LIMITED:
-				rt = buildAlphaLimitedTree(instances, alpha);
+				rt = buildAlphaLimitedTree(dataset, alpha);
 				break;
 			case NUM_LEAVES_LIMITED:
-				rt = buildNumLeafLimitedTree(instances, maxNumLeaves);
+				rt = buildNumLeafLimitedTree(dataset, maxNumLeaves);
 				break;
 			case DEPTH_LIMITED:
-				rt = buildDepthLimitedTree(instances, maxDepth);
+				rt = buildDepthLimitedTree(dataset, maxDepth);
 				break;
 			case MIN_LEAF_SIZE_LIMITED:
-				rt = buildMinLeafSizeLimitedTree(instances, minLeafSize);
+				rt = buildMinLeafSizeLimitedTree(dataset, minLeafSize);
 			default:
 				break;
 		}
@@ -160,6 +240,20 @@ public class RegressionTreeLearner extends RTreeLearner {
 		return false;
 	}
 
+	@Override
+	public void cache(Instances instances) {
+		cache = createFeatures(instances);
+	}
+	
+	@Override
+	protected Dataset createFeatures(Instances instances) {
+		if (maxNumBins > 0) {
+			return Dataset.create(new BinnedFeatures(instances.size(), maxNumBins), instances);
+		} else {
+			return Dataset.create(new SortedFeatures(instances.size()), instances);
+		}
+	}
+
 	/**
 	 * Returns the alpha.
 	 *
@@ -205,6 +299,24 @@ public class RegressionTreeLearner extends RTreeLearner {
 		return minLeafSize;
 	}
 
+	/**
+	 * Returns the maximum number of bins for histogram-based split finding, or 0 if splits are found exactly.
+	 *
+	 * @return the maximum number of bins.
+	 */
+	public int getMaxNumBins() {
+		return maxNumBins;
+	}
+
+	/**
+	 * Returns the maximum number of histograms kept for histogram subtraction.
+	 *
+	 * @return the maximum number of histograms kept for histogram subtraction.
+	 */
+	public int getMaxNumHistograms() {
+		return maxNumHistograms;
+	}
+
 	/**
 	 * Sets the alpha. Alpha is the maximum proportion of the training set in the leaf node.
 	 *
@@ -250,12 +362,41 @@ public class RegressionTreeLearner extends RTreeLearner {
 		this.minLeafSize = minLeafSize;
 	}
 
-	protected RegressionTree buildAlphaLimitedTree(Instances instances, double alpha) {
-		final int limit = (int) (alpha * instances.size());
-		return buildMinLeafSizeLimitedTree(instances, limit);
+	/**
+	 * Sets the maximum number of bins for histogram-based split finding. When positive, each attribute is
+	 * discretized once into at most this many bins, and splits are found from per-bin sums of weights and targets
+	 * instead of sorted lists. Split points always lie between the values of two adjacent bins, so the trees are the
+	 * same as in exact split finding when no attribute has more distinct values than bins. Set to 0 (the default)
+	 * for exact split finding.
+	 *
+	 * @param maxNumBins the maximum number of bins.
+	 */
+	public void setMaxNumBins(int maxNumBins) {
+		this.maxNumBins = maxNumBins;
+	}
+
+	/**
+	 * Sets the maximum number of histograms kept for histogram subtraction in histogram-based split finding. A node
+	 * waiting to be split keeps its histogram; when it is split, only the smaller child is scanned and the histogram
+	 * of the larger child is obtained by subtracting it from that of the parent. Once this many histograms are kept,
+	 * further nodes wait without keeping their histograms, and their children are scanned. The limit applies to the
+	 * whole tree, including subtrees grown concurrently; besides the kept histograms, a tree only uses a few
+	 * histograms per thread at a time. Each histogram takes 20 bytes per bin of every attribute. Histograms hold
+	 * fixed-point sums, so a subtracted histogram is the same as a scanned one and the limit only trades memory for
+	 * time; it does not change the tree.
+	 *
+	 * @param maxNumHistograms the maximum number of histograms.
+	 */
+	public void setMaxNumHistograms(int maxNumHistograms) {
+		this.maxNumHistograms = maxNumHistograms;
+	}
+
+	protected RegressionTree buildAlphaLimitedTree(Dataset dataset, double alpha) {
+		final int limit = (int) (alpha * dataset.size());
+		return buildMinLeafSizeLimitedTree(dataset, limit);
 	}
 
-	protected RegressionTree buildDepthLimitedTree(Instances instances, int maxDepth) {
+	protected RegressionTree buildDepthLimitedTree(Dataset dataset, int maxDepth) {
 		RegressionTree tree = new RegressionTree();
 		final int limit = 5;
 		// stats[0]: totalWeights
@@ -264,98 +405,30 @@ public class RegressionTreeLearner extends RTreeLearner {
 		// stats[3]: splitEval
 		double[] stats = new double[4];
 		if (maxDepth <= 0) {
-			getStats(instances, stats);
-			tree.root = new RegressionTreeLeaf(stats[1]);
+			getStats(dataset, stats);
+			tree.root = createLeaf(dataset, stats[1]);
 			return tree;
 		}
-		Map<TreeNode, Dataset> datasets = new HashMap<>();
-		Map<TreeNode, Integer> depths = new HashMap<>();
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
 		tree.root = createNode(dataset, limit, stats);
-		PriorityQueue<Element<TreeNode>> q = new PriorityQueue<>();
-		q.add(new Element<TreeNode>(tree.root, stats[2]));
-		datasets.put(tree.root, dataset);
-		depths.put(tree.root, 0);
-
-		while (!q.isEmpty()) {
-			Element<TreeNode> elemt = q.remove();
-			TreeNode node = elemt.element;
-			Dataset data = datasets.get(node);
-			int depth = depths.get(node);
-			if (!node.isLeaf()) {
-				TreeInteriorNode interiorNode = (TreeInteriorNode) node;
-				Dataset left = new Dataset(data.instances);
-				Dataset right = new Dataset(data.instances);
-				split(data, interiorNode, left, right);
-
-				if (depth >= maxDepth - 1) {
-					getStats(left.instances, stats);
-					interiorNode.left = new RegressionTreeLeaf(stats[2]);
-					getStats(right.instances, stats);
-					interiorNode.right = new RegressionTreeLeaf(stats[2]);
-				} else {
-					interiorNode.left = createNode(left, limit, stats);
-					if (!interiorNode.left.isLeaf()) {
-						q.add(new Element<TreeNode>(interiorNode.left, stats[3]));
-						datasets.put(interiorNode.left, left);
-						depths.put(interiorNode.left, depth + 1);
-					}
-					interiorNode.right = createNode(right, limit, stats);
-					if (!interiorNode.right.isLeaf()) {
-						q.add(new Element<TreeNode>(interiorNode.right, stats[3]));
-						datasets.put(interiorNode.right, right);
-						depths.put(interiorNode.right, depth + 1);
-					}
-				}
-			}
-		}
-
+		keepHistogram(dataset, true);
+		invoke(new SubtreeTask(tree.root, dataset, 0, maxDepth, limit, maxNumHistograms));
 		return tree;
 	}
 
-	protected RegressionTree buildMinLeafSizeLimitedTree(Instances instances, int limit) {
+	protected RegressionTree buildMinLeafSizeLimitedTree(Dataset dataset, int limit) {
 		RegressionTree tree = new RegressionTree();
 		// stats[0]: totalWeights
 		// stats[1]: sum
 		// stats[2]: weightedMean
 		// stats[3]: splitEval
 		double[] stats = new double[4];
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
-		Stack<TreeNode> nodes = new Stack<>();
-		Stack<Dataset> datasets = new Stack<>();
 		tree.root = createNode(dataset, limit, stats);
-		nodes.push(tree.root);
-		datasets.push(dataset);
-		while (!nodes.isEmpty()) {
-			TreeNode node = nodes.pop();
-			Dataset data = datasets.pop();
-			if (!node.isLeaf()) {
-				TreeInteriorNode interiorNode = (TreeInteriorNode) node;
-				Dataset left = new Dataset(data.instances);
-				Dataset right = new Dataset(data.instances);
-				split(data, interiorNode, left, right);
-				interiorNode.left = createNode(left, limit, stats);
-				interiorNode.right = createNode(right, limit, stats);
-				nodes.push(interiorNode.left);
-				datasets.push(left);
-				nodes.push(interiorNode.right);
-				datasets.push(right);
-			}
-		}
+		keepHistogram(dataset, true);
+		invoke(new SubtreeTask(tree.root, dataset, 0, Integer.MAX_VALUE, limit, maxNumHistograms));
 		return tree;
 	}
 
-	protected RegressionTree buildNumLeafLimitedTree(Instances instances, int maxNumLeaves) {
+	protected RegressionTree buildNumLeafLimitedTree(Dataset dataset, int maxNumLeaves) {
 		RegressionTree tree = new RegressionTree();
 		final int limit = 5;
 		// stats[0]: totalWeights
@@ -365,42 +438,67 @@ public class RegressionTreeLearner extends RTreeLearner {
 		double[] stats = new double[4];
 		Map<TreeNode, Double> nodePred = new HashMap<>();
 		Map<TreeNode, Dataset> datasets = new HashMap<>();
-		Dataset dataset = null;
-		if (this.cache != null) {
-			dataset = Dataset.create(this.cache, instances);
-		} else {
-			dataset = Dataset.create(instances);
-		}
+		Map<TreeNode, Expansion> expansions = new HashMap<>();
 		PriorityQueue<Element<TreeNode>> q = new PriorityQueue<>();
 		tree.root = createNode(dataset, limit, stats);
 		q.add(new Element<TreeNode>(tree.root, stats[2]));
 		datasets.put(tree.root, dataset);
 		nodePred.put(tree.root, stats[1]);
+		keepHistogram(dataset, true);
 
 		int numLeaves = 0;
 		while (!q.isEmpty()) {
+			if (!q.peek().element.isLeaf() && !expansions.containsKey(q.peek().element)) {
+				// Expand the nodes to be split next concurrently, as far as they are known. Expanding a node does
+				// not depend on other nodes, so nodes that are not split next are expanded ahead of time.
+				PriorityQueue<Element<TreeNode>> next = new PriorityQueue<>(q);
+				final List<TreeInteriorNode> batch = new ArrayList<>();
+				final List<Dataset> batchData = new ArrayList<>();
+				// Histograms of nodes expanded ahead are not kept yet, so at most one batch of them is pending
+				while (!next.isEmpty() && (batch.isEmpty() || batch.size() + expansions.size() < parallelism)) {
+					TreeNode node = next.remove().element;
+					if (!node.isLeaf() && !expansions.containsKey(node)) {
+						batch.add((TreeInteriorNode) node);
+						batchData.add(datasets.get(node));
+					}
+				}
+				final Expansion[] results = new Expansion[batch.size()];
+				if (parallelism > 1 && batch.size() > 1) {
+					for (Dataset data : batchData) {
+						data.partition.allocateBuffers();
+					}
+				}
+				forEach(batch.size(), i -> results[i] = expand(batch.get(i), batchData.get(i), limit));
+				for (int i = 0; i < results.length; i++) {
+					expansions.put(batch.get(i), results[i]);
+				}
+			}
+
 			Element<TreeNode> elemt = q.remove();
 			TreeNode node = elemt.element;
-			Dataset data = datasets.get(node);
 			if (!node.isLeaf()) {
 				TreeInteriorNode interiorNode = (TreeInteriorNode) node;
-				Dataset left = new Dataset(data.instances);
-				Dataset right = new Dataset(data.instances);
-				split(data, interiorNode, left, right);
+				Expansion expansion = expansions.remove(node);
+				datasets.remove(node);
+				if (expansion.kept) {
+					dataset.partition.pool.unreserve();
+				}
 
-				interiorNode.left = createNode(left, limit, stats);
+				interiorNode.left = expansion.left;
 				if (!interiorNode.left.isLeaf()) {
-					nodePred.put(interiorNode.left, stats[2]);
-					q.add(new Element<TreeNode>(interiorNode.left, stats[3]));
-					datasets.put(interiorNode.left, left);
+					nodePred.put(interiorNode.left, expansion.leftStats[2]);
+					q.add(new Element<TreeNode>(interiorNode.left, expansion.leftStats[3]));
+					datasets.put(interiorNode.left, expansion.leftData);
+					keepHistogram(expansion.leftData, true);
 				} else {
 					numLeaves++;
 				}
-				interiorNode.right = createNode(right, limit, stats);
+				interiorNode.right = expansion.right;
 				if (!interiorNode.right.isLeaf()) {
-					nodePred.put(interiorNode.right, stats[2]);
-					q.add(new Element<TreeNode>(interiorNode.right, stats[3]));
-					datasets.put(interiorNode.right, right);
+					nodePred.put(interiorNode.right, expansion.rightStats[2]);
+					q.add(new Element<TreeNode>(interiorNode.right, expansion.rightStats[3]));
+					datasets.put(interiorNode.right, expansion.rightData);
+					keepHistogram(expansion.rightData, true);
 				} else {
 					numLeaves++;
 				}
@@ -421,76 +519,552 @@ public class RegressionTreeLearner extends RTreeLearner {
 			double prediction = nodePred.get(node);
 			TreeInteriorNode interiorNode = (TreeInteriorNode) parent.get(node);
 			if (interiorNode.left == node) {
-				interiorNode.left = new RegressionTreeLeaf(prediction);
+				interiorNode.left = createLeaf(datasets.get(node), prediction);
 			} else {
-				interiorNode.right = new RegressionTreeLeaf(prediction);
+				interiorNode.right = createLeaf(datasets.get(node), prediction);
 			}
 		}
 
 		return tree;
 	}
 
+	/**
+	 * Grows the subtree under a node in depth-first order. The subtrees of children with at least
+	 * {@link #minTaskSize} rows are grown by separate tasks, which run concurrently if the parallelism level is
+	 * greater than 1. A task keeps at most a budget of histograms of nodes waiting to be split, including that of
+	 * its root, and hands half of what it has left to each task it creates. The budgets of all tasks add up to
+	 * {@link #maxNumHistograms}, which the {@link HistogramPool} of the tree enforces. Which histograms are kept
+	 * depends on the budgets and thus on {@link #minTaskSize}, but a histogram derived by subtraction is the same as
+	 * a scanned one, so the tree depends on neither of them nor on the parallelism level.
+	 *
+	 * @param root the root of the subtree, which has been created.
+	 * @param dataset the dataset of the root, whose histogram, if any, is kept.
+	 * @param depth the depth of the root.
+	 * @param maxDepth the maximum depth.
+	 * @param limit the minimum number of instances to split.
+	 * @param budget the maximum number of histograms kept by this task.
+	 */
+	protected void growSubtree(TreeNode root, Dataset dataset, int depth, int maxDepth, int limit, int budget) {
+		if (root.isLeaf()) {
+			return;
+		}
+		// stats[0]: totalWeights
+		// stats[1]: sum
+		// stats[2]: weightedMean
+		// stats[3]: splitEval
+		double[] stats = new double[4];
+		List<SubtreeTask> tasks = new ArrayList<>();
+		Stack<TreeNode> nodes = new Stack<>();
+		Stack<Dataset> datasets = new Stack<>();
+		Stack<Integer> depths = new Stack<>();
+		int numKept = dataset.partition.histogram != null ? 1 : 0;
+		nodes.push(root);
+		datasets.push(dataset);
+		depths.push(depth);
+		while (!nodes.isEmpty()) {
+			TreeInteriorNode interiorNode = (TreeInteriorNode) nodes.pop();
+			Dataset data = datasets.pop();
+			int d = depths.pop();
+			if (data.partition.histogram != null) {
+				data.partition.pool.unreserve();
+				numKept--;
+			}
+			Dataset left = new Dataset(data);
+			Dataset right = new Dataset(data);
+			if (d >= maxDepth - 1) {
+				// Children become leaves, so their histograms are not needed
+				releaseHistogram(data);
+				split(data, interiorNode, left, right);
+				getStats(left, stats);
+				interiorNode.left = createLeaf(left, stats[2]);
+				getStats(right, stats);
+				interiorNode.right = createLeaf(right, stats[2]);
+				continue;
+			}
+			split(data, interiorNode, left, right);
+			interiorNode.left = createNode(left, limit, stats);
+			interiorNode.right = createNode(right, limit, stats);
+			for (int k = 0; k < 2; k++) {
+				TreeNode child = k == 0 ? interiorNode.left : interiorNode.right;
+				Dataset childData = k == 0 ? left : right;
+				if (child.isLeaf()) {
+					continue;
+				}
+				if (childData.size() >= minTaskSize) {
+					int share = (budget - numKept) / 2;
+					keepHistogram(childData, share > 0);
+					budget -= share;
+					SubtreeTask task = new SubtreeTask(child, childData, d + 1, maxDepth, limit, share);
+					if (parallelism > 1) {
+						childData.partition.allocateBuffers();
+						task.fork();
+					}
+					tasks.add(task);
+				} else {
+					if (keepHistogram(childData, numKept < budget)) {
+						numKept++;
+					}
+					nodes.push(child);
+					datasets.push(childData);
+					depths.push(d + 1);
+				}
+			}
+		}
+		for (SubtreeTask task : tasks) {
+			if (parallelism > 1) {
+				task.join();
+			} else {
+				task.invoke();
+			}
+		}
+	}
+
+	/**
+	 * Splits a node and creates its children.
+	 *
+	 * @param node the node to split.
+	 * @param data the dataset of the node.
+	 * @param limit the minimum number of instances to split.
+	 * @return the expansion.
+	 */
+	protected Expansion expand(TreeInteriorNode node, Dataset data, int limit) {
+		Expansion expansion = new Expansion();
+		expansion.kept = data.partition.histogram != null;
+		expansion.leftData = new Dataset(data);
+		expansion.rightData = new Dataset(data);
+		split(data, node, expansion.leftData, expansion.rightData);
+		expansion.leftStats = new double[4];
+		expansion.left = createNode(expansion.leftData, limit, expansion.leftStats);
+		expansion.rightStats = new double[4];
+		expansion.right = createNode(expansion.rightData, limit, expansion.rightStats);
+		return expansion;
+	}
+
+	/**
+	 * Decides whether a node waiting to be split keeps its histogram for histogram subtraction. The node keeps it if
+	 * allowed and if one of the histograms kept by the tree can be reserved from its pool. Otherwise the histogram is
+	 * returned to the pool, and the children of the node are histogrammed by scanning their rows. A kept histogram
+	 * is unreserved when the node is split.
+	 *
+	 * @param dataset the dataset of the node.
+	 * @param allowed {@code true} if the node may keep its histogram.
+	 * @return {@code true} if the node keeps a histogram.
+	 */
+	protected boolean keepHistogram(Dataset dataset, boolean allowed) {
+		if (dataset.partition.histogram == null) {
+			return false;
+		} else if (allowed && dataset.partition.pool.reserve()) {
+			return true;
+		} else {
+			releaseHistogram(dataset);
+			return false;
+		}
+	}
+
+	/**
+	 * Creates the dataset for the root.
+	 *
+	 * @param instances the training set.
+	 * @param targets the targets indexed by row, or {@code null} to use those of the instances.
+	 * @param weights the weights indexed by row, or {@code null} to use those of the instances.
+	 * @param seed the seed of the random stream of the root.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances, double[] targets, double[] weights, long seed) {
+		return createDataset(instances, targets, weights, null, seed);
+	}
+	
+	/**
+	 * Creates the dataset for the root on a sample of the training set. The rows not drawn are left out of the index
+	 * partition, and the weights of the others are multiplied by their counts. The binned or sorted attributes are
+	 * those of the whole training set, so samples of the same training set share them through
+	 * {@link #cache(Instances)}.
+	 *
+	 * @param instances the training set.
+	 * @param targets the targets indexed by row, or {@code null} to use those of the instances.
+	 * @param weights the weights indexed by row, or {@code null} to use those of the instances.
+	 * @param counts the number of times each row is drawn, or {@code null} for all rows.
+	 * @param seed the seed of the random stream of the root.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances, double[] targets, double[] weights, int[] counts,
+			long seed) {
+		return createDataset(instances, cache, targets, weights, counts, seed);
+	}
+	
+	/**
+	 * Creates the dataset for the root on a sample of the training set like
+	 * {@link #createDataset(Instances, double[], double[], int[], long)}, taking the binned or sorted attributes
+	 * from a given dataset rather than from the cache of this learner.
+	 *
+	 * @param instances the training set.
+	 * @param features the dataset holding the binned or sorted attributes, or {@code null} to compute them.
+	 * @param targets the targets indexed by row, or {@code null} to use those of the instances.
+	 * @param weights the weights indexed by row, or {@code null} to use those of the instances.
+	 * @param counts the number of times each row is drawn, or {@code null} for all rows.
+	 * @param seed the seed of the random stream of the root.
+	 * @return the dataset for the root.
+	 */
+	protected Dataset createDataset(Instances instances, Dataset features, double[] targets, double[] weights,
+			int[] counts, long seed) {
+		Dataset dataset;
+		if (maxNumBins > 0) {
+			BinnedFeatures binned = features != null ? features.partition.binned : null;
+			if (binned == null || binned.size != instances.size() || binned.maxNumBins != maxNumBins) {
+				binned = new BinnedFeatures(instances.size(), maxNumBins);
+			}
+			dataset = Dataset.create(binned, instances, targets, weights, counts);
+			dataset.partition.pool = new HistogramPool(binned, instances.getAttributes(), histogramBlockSize,
+					maxNumHistograms);
+		} else {
+			SortedFeatures sorted = features != null ? features.partition.sorted : null;
+			if (sorted == null || sorted.size != instances.size()) {
+				sorted = new SortedFeatures(instances.size());
+			}
+			dataset = Dataset.create(sorted, instances, targets, weights, counts);
+		}
+		Partition partition = dataset.partition;
+		partition.responses = new double[partition.weights.length];
+		for (int i = 0; i < partition.responses.length; i++) {
+			partition.responses[i] = getResponse(partition.targets[i], partition.weights[i]);
+		}
+		if (partition.pool != null) {
+			partition.pool.quantize(partition.weights, partition.responses);
+		}
+		dataset.random = new SplittableRandom(seed);
+		return dataset;
+	}
+
+	/**
+	 * Creates a leaf for a dataset. If leaves are recorded, the leaf is recorded for the rows of the dataset.
+	 *
+	 * @param dataset the dataset.
+	 * @param prediction the prediction of the leaf.
+	 * @return a new leaf.
+	 */
+	protected RegressionTreeLeaf createLeaf(Dataset dataset, double prediction) {
+		RegressionTreeLeaf leaf = new RegressionTreeLeaf(prediction);
+		Partition partition = dataset.partition;
+		if (partition.leaves != null) {
+			for (int i = partition.start; i < partition.end; i++) {
+				partition.leaves[partition.rows[i]] = leaf;
+			}
+		}
+		return leaf;
+	}
+
 	protected TreeNode createNode(Dataset dataset, int limit, double[] stats) {
-		boolean stdIs0 = getStats(dataset.instances, stats);
+		return createNode(dataset, null, limit, stats);
+	}
+
+	/**
+	 * Creates a node from a subset of attributes.
+	 *
+	 * @param dataset the dataset.
+	 * @param positions the positions of the attributes to consider in ascending order, or {@code null} for all.
+	 * @param limit the minimum number of instances to split.
+	 * @param stats the statistics of the node.
+	 * @return a new node.
+	 */
+	protected TreeNode createNode(Dataset dataset, int[] positions, int limit, double[] stats) {
+		boolean stdIs0 = getStats(dataset, stats);
 		final double totalWeights = stats[0];
 		final double sum = stats[1];
 		final double weightedMean = stats[2];
 
 		// 1. Check basic leaf conditions
-		if (dataset.instances.size() < limit || stdIs0) {
-			TreeNode node = new RegressionTreeLeaf(weightedMean);
-			return node;
+		if (dataset.size() < limit || stdIs0) {
+			releaseHistogram(dataset);
+			return createLeaf(dataset, weightedMean);
 		}
 
-		// 2. Find best split
-		double bestEval = Double.POSITIVE_INFINITY;
-		List<IntDoublePair> splits = new ArrayList<>();
-		List<Attribute> attributes = dataset.instances.getAttributes();
-		for (int j = 0; j < attributes.size(); j++) {
-			int attIndex = attributes.get(j).getIndex();
-			String attName = attributes.get(j).getName();
-			List<IntDoublePair> sortedList = dataset.sortedLists.get(attName);
-			List<Double> uniqueValues = new ArrayList<>(sortedList.size());
-			List<DoublePair> histogram = new ArrayList<>(sortedList.size());
-			getHistogram(dataset.instances, sortedList, uniqueValues, totalWeights, sum, histogram);
-
-			if (uniqueValues.size() > 1) {
-				DoublePair split = split(uniqueValues, histogram, totalWeights, sum);
-				if (split.v2 <= bestEval) {
-					IntDoublePair splitPoint = new IntDoublePair(attIndex, split.v1);
-					if (split.v2 < bestEval) {
-						splits.clear();
-						bestEval = split.v2;
-					}
-					splits.add(splitPoint);
+		// 2. Compute histograms, unless derived from the parent
+		Partition partition = dataset.partition;
+		Histogram hist = null;
+		if (partition.binned != null) {
+			hist = partition.histogram;
+			if (hist == null) {
+				hist = partition.pool.obtain();
+				computeHistogram(dataset, positions, hist);
+				// Only complete histograms can be used for subtraction
+				if (positions == null) {
+					partition.histogram = hist;
 				}
 			}
 		}
+
+		// 3. Find best split
+		List<IntDoublePair> splits = new ArrayList<>();
+		double bestEval = findSplits(dataset, hist, positions, totalWeights, sum, splits);
+		if (hist != null && hist != partition.histogram) {
+			partition.pool.recycle(hist);
+		}
 		if (bestEval < Double.POSITIVE_INFINITY) {
-			Random rand = Random.getInstance();
-			IntDoublePair splitPoint = splits.get(rand.nextInt(splits.size()));
-			int attIndex = splitPoint.v1;
-			TreeNode node = new TreeInteriorNode(attIndex, splitPoint.v2);
+			IntDoublePair splitPoint = splits.get(dataset.random.nextInt(splits.size()));
+			TreeNode node = new TreeInteriorNode(splitPoint.v1, splitPoint.v2);
 			stats[3] = bestEval + totalWeights * weightedMean * weightedMean;
 			return node;
 		} else {
-			TreeNode node = new RegressionTreeLeaf(weightedMean);
-			return node;
+			releaseHistogram(dataset);
+			return createLeaf(dataset, weightedMean);
+		}
+	}
+
+	/**
+	 * Finds the best splits over the attributes of a dataset. Attributes are evaluated concurrently if the parallelism
+	 * level is greater than 1. One of the best split points of each attribute is then picked at random, and the
+	 * attributes with the best evaluation are collected, both in attribute order, so that the random numbers drawn
+	 * and thus the tree do not depend on the parallelism level.
+	 *
+	 * @param dataset the dataset.
+	 * @param hist the histogram of the dataset for histogram-based split finding, or {@code null} for exact split
+	 * finding.
+	 * @param positions the positions of the attributes to consider in ascending order, or {@code null} for all.
+	 * @param totalWeights the sum of weights.
+	 * @param sum the sum of responses.
+	 * @param splits the list to store the best split points.
+	 * @return the best evaluation.
+	 */
+	protected double findSplits(final Dataset dataset, final Histogram hist, final int[] positions,
+			final double totalWeights, final double sum, List<IntDoublePair> splits) {
+		List<Attribute> attributes = dataset.schema.getAttributes();
+		final int numAttributes = positions != null ? positions.length : attributes.size();
+		final double[] evals = new double[numAttributes];
+		final List<List<Double>> candidates = new ArrayList<>(Collections.nCopies(numAttributes, (List<Double>) null));
+		forEach(numAttributes, k -> {
+			int j = positions != null ? positions[k] : k;
+			List<Double> list = new ArrayList<>();
+			if (hist != null) {
+				evals[k] = evalSplits(dataset, hist, j, totalWeights, sum, list);
+			} else {
+				evals[k] = evalSplits(dataset, j, totalWeights, sum, list);
+			}
+			candidates.set(k, list);
+		});
+		
+		SplittableRandom rand = dataset.random;
+		double bestEval = Double.POSITIVE_INFINITY;
+		for (int k = 0; k < numAttributes; k++) {
+			List<Double> list = candidates.get(k);
+			if (list.isEmpty()) {
+				continue;
+			}
+			double split = list.get(rand.nextInt(list.size()));
+			if (evals[k] <= bestEval) {
+				int j = positions != null ? positions[k] : k;
+				IntDoublePair splitPoint = new IntDoublePair(attributes.get(j).getIndex(), split);
+				if (evals[k] < bestEval) {
+					splits.clear();
+					bestEval = evals[k];
+				}
+				splits.add(splitPoint);
+			}
+		}
+		return bestEval;
+	}
+
+	/**
+	 * Evaluates the exact splits of an attribute from its sorted range.
+	 *
+	 * @param dataset the dataset.
+	 * @param position the position of the attribute.
+	 * @param totalWeights the sum of weights.
+	 * @param sum the sum of responses.
+	 * @param splits the list to store the best split points.
+	 * @return the best evaluation.
+	 */
+	protected double evalSplits(Dataset dataset, int position, double totalWeights, double sum, List<Double> splits) {
+		int size = dataset.partition.ends[position] - dataset.partition.starts[position];
+		List<Double> uniqueValues = new ArrayList<>(size);
+		List<DoublePair> histogram = new ArrayList<>(size);
+		getHistogram(dataset, position, uniqueValues, totalWeights, sum, histogram);
+		if (uniqueValues.size() > 1) {
+			return evalSplits(uniqueValues, histogram, totalWeights, sum, splits);
+		} else {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Evaluates the splits between the non-empty bins of a binned attribute. Missing values always go to the right
+	 * child.
+	 *
+	 * @param dataset the dataset with binned attributes.
+	 * @param hist the histogram of the dataset.
+	 * @param position the position of the attribute.
+	 * @param totalWeights the sum of weights.
+	 * @param sum the sum of responses.
+	 * @param splits the list to store the best split points.
+	 * @return the best evaluation.
+	 */
+	protected double evalSplits(Dataset dataset, Histogram hist, int position, double totalWeights, double sum,
+			List<Double> splits) {
+		final int attIndex = dataset.schema.get(position).getIndex();
+		final int offset = hist.pool.offsets[position];
+		final int numBins = hist.pool.offsets[position + 1] - offset;
+		double weight1 = 0;
+		double weight2 = totalWeights;
+		double sum1 = 0;
+		double sum2 = sum;
+		// Running sums in fixed point, so that they only depend on the bins
+		long w1 = 0;
+		long s1 = 0;
+		double bestEval = Double.POSITIVE_INFINITY;
+		int prev = -1;
+		for (int b = 0; b < numBins; b++) {
+			if (hist.counts[offset + b] == 0) {
+				continue;
+			}
+			if (prev >= 0) {
+				double eval = -(OptimUtils.getGain(sum1, weight1) + OptimUtils.getGain(sum2, weight2));
+				if (eval <= bestEval) {
+					if (eval < bestEval) {
+						bestEval = eval;
+						splits.clear();
+					}
+					splits.add(dataset.partition.binned.getSplitPoint(attIndex, prev, b));
+				}
+			}
+			w1 += hist.weights[offset + b];
+			s1 += hist.sums[offset + b];
+			weight1 = w1 * hist.pool.weightUnit;
+			weight2 = totalWeights - weight1;
+			sum1 = s1 * hist.pool.responseUnit;
+			sum2 = sum - sum1;
+			prev = b;
+		}
+		return bestEval;
+	}
+
+	/**
+	 * Computes the histograms of some attributes of a dataset. If the parallelism level is greater than 1 and the
+	 * node is large enough, either the attributes are split among threads, or the blocks of rows are split among
+	 * threads, whichever {@link #isRowParallel(int, int, int)} estimates to be faster. Nodes with fewer than
+	 * {@link #minParallelWork} row-attribute pairs are scanned by the calling thread. Rows are always summed in
+	 * blocks of {@link #histogramBlockSize} rows whose partial histograms are added in block order, see
+	 * {@link Histogram#compute(Partition, int)}, so the histograms, and thus the tree, do not depend on the
+	 * parallelism level.
+	 *
+	 * @param dataset the dataset.
+	 * @param positions the positions of the attributes, or {@code null} for all.
+	 * @param hist the histogram to store the result.
+	 */
+	protected void computeHistogram(Dataset dataset, int[] positions, Histogram hist) {
+		final Partition partition = dataset.partition;
+		final int n = partition.size();
+		final HistogramPool pool = partition.pool;
+		final int p = positions != null ? positions.length : pool.columns.length;
+		if (parallelism <= 1 || (long) n * p < minParallelWork) {
+			hist.compute(partition, positions);
+			return;
+		}
+		int numBins = 0;
+		for (int k = 0; k < p; k++) {
+			int j = positions != null ? positions[k] : k;
+			numBins += pool.offsets[j + 1] - pool.offsets[j];
+		}
+		final int blockSize = pool.blockSize;
+		final int numBlocks = (int) (((long) n + blockSize - 1) / blockSize);
+		if (numBlocks <= 1 || !isRowParallel(n, p, numBins)) {
+			forEach(p, k -> hist.compute(partition, positions != null ? positions[k] : k));
+			return;
+		}
+		// Accumulate the blocks in waves of one block per thread, the very first block in place, and add the
+		// partial histograms of the others in block order
+		final int numShards = Math.min(parallelism, numBlocks);
+		final Histogram[] shards = new Histogram[numShards];
+		for (int s = 0; s < numShards; s++) {
+			shards[s] = pool.obtain();
+		}
+		for (int first = 0; first < numBlocks; first += numShards) {
+			final int wave = first;
+			final int m = Math.min(numShards, numBlocks - first);
+			forEach(m, s -> {
+				int from = partition.start + (wave + s) * blockSize;
+				int to = (int) Math.min(partition.end, (long) from + blockSize);
+				(wave + s == 0 ? hist : shards[s]).compute(partition, positions, from, to);
+			});
+			forEach(p, k -> {
+				int j = positions != null ? positions[k] : k;
+				for (int s = wave == 0 ? 1 : 0; s < m; s++) {
+					hist.add(shards[s], j);
+				}
+			});
+		}
+		for (int s = 0; s < numShards; s++) {
+			pool.recycle(shards[s]);
+		}
+	}
+
+	/**
+	 * Returns {@code true} if histograms should be accumulated over shards of rows rather than over subsets of
+	 * attributes. Splitting the attributes among threads needs no merging, but leaves threads idle when there are
+	 * fewer attributes than threads and is only as fast as the thread with most attributes. Splitting the blocks of
+	 * rows balances the scan evenly, at the cost of merging one partial histogram per block.
+	 *
+	 * @param n the number of rows.
+	 * @param p the number of attributes.
+	 * @param numBins the total number of bins of the attributes.
+	 * @return {@code true} if histograms should be accumulated over shards of rows.
+	 */
+	protected boolean isRowParallel(int n, int p, int numBins) {
+		final int t = parallelism;
+		long featureCost = (long) n * ((p + t - 1) / t);
+		long numBlocks = ((long) n + histogramBlockSize - 1) / histogramBlockSize;
+		long rowCost = (long) ((n + t - 1) / t) * p + numBins * numBlocks / Math.min(t, p);
+		return rowCost < featureCost;
+	}
+
+	/**
+	 * Returns the histogram of a dataset to the pool.
+	 *
+	 * @param dataset the dataset.
+	 */
+	protected void releaseHistogram(Dataset dataset) {
+		Partition partition = dataset.partition;
+		if (partition.histogram != null) {
+			partition.pool.recycle(partition.histogram);
+			partition.histogram = null;
 		}
 	}
 
 	protected void split(Dataset data, TreeInteriorNode node, Dataset left, Dataset right) {
 		data.split(node.getSplitAttributeIndex(), node.getSplitPoint(), left, right);
+		left.random = data.random.split();
+		right.random = data.random.split();
+		Partition partition = data.partition;
+		Histogram hist = partition.histogram;
+		if (hist != null) {
+			// Scan the smaller child and subtract it from the parent for the larger one
+			partition.histogram = null;
+			Dataset smaller = left.size() <= right.size() ? left : right;
+			Dataset larger = smaller == left ? right : left;
+			Histogram smallerHist = partition.pool.obtain();
+			computeHistogram(smaller, null, smallerHist);
+			hist.subtract(smallerHist);
+			smaller.partition.histogram = smallerHist;
+			larger.partition.histogram = hist;
+		}
 	}
 
-	protected DoublePair split(List<Double> uniqueValues, List<DoublePair> hist, double totalWeights, double sum) {
+	/**
+	 * Evaluates the splits between consecutive unique values of an attribute.
+	 *
+	 * @param uniqueValues the unique values.
+	 * @param hist the histogram.
+	 * @param totalWeights the sum of weights.
+	 * @param sum the sum of responses.
+	 * @param splits the list to store the best split points.
+	 * @return the best evaluation.
+	 */
+	protected double evalSplits(List<Double> uniqueValues, List<DoublePair> hist, double totalWeights, double sum,
+			List<Double> splits) {
 		double weight1 = hist.get(0).v1;
 		double weight2 = totalWeights - weight1;
 		double sum1 = hist.get(0).v2;
 		double sum2 = sum - sum1;
 
 		double bestEval = -(OptimUtils.getGain(sum1, weight1) + OptimUtils.getGain(sum2, weight2));
-		List<Double> splits = new ArrayList<>();
 		splits.add((uniqueValues.get(0) + uniqueValues.get(0 + 1)) / 2);
 		for (int i = 1; i < uniqueValues.size() - 1; i++) {
 			final double w = hist.get(i).v1;
@@ -511,9 +1085,7 @@ public class RegressionTreeLearner extends RTreeLearner {
 				splits.add(split);
 			}
 		}
-		Random rand = Random.getInstance();
-		double split = splits.get(rand.nextInt(splits.size()));
-		return new DoublePair(split, bestEval);
+		return bestEval;
 	}
 
 	protected void traverse(TreeNode node, Map<TreeNode, TreeNode> parent) {
@@ -530,4 +1102,49 @@ public class RegressionTreeLearner extends RTreeLearner {
 		}
 	}
 
+	/**
+	 * Class for the result of splitting a node and creating its children.
+	 */
+	protected static class Expansion {
+
+		boolean kept;
+		Dataset leftData;
+		Dataset rightData;
+		TreeNode left;
+		TreeNode right;
+		double[] leftStats;
+		double[] rightStats;
+
+	}
+
+	/**
+	 * Task growing the subtree under a node.
+	 */
+	protected class SubtreeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		final TreeNode root;
+		final Dataset dataset;
+		final int depth;
+		final int maxDepth;
+		final int limit;
+		final int budget;
+
+		SubtreeTask(TreeNode root, Dataset dataset, int depth, int maxDepth, int limit, int budget) {
+			this.root = root;
+			this.dataset = dataset;
+			this.depth = depth;
+			this.maxDepth = maxDepth;
+			this.limit = limit;
+			this.budget = budget;
+		}
+
+		@Override
+		protected void compute() {
+			growSubtree(root, dataset, depth, maxDepth, limit, budget);
+		}
+
+	}
+
 }
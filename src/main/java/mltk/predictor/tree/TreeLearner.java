@@ -1,17 +1,32 @@
 package mltk.predictor.tree;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
 
 import mltk.core.Attribute;
+import mltk.core.BinnedColumn;
+import mltk.core.Bins;
+import mltk.core.ColumnarInstances;
 import mltk.core.Instance;
 import mltk.core.Instances;
+import mltk.core.Sampling;
+import mltk.core.Schema;
 import mltk.core.SparseVector;
+import mltk.core.TypedInstances;
+import mltk.core.processor.Discretizer;
 import mltk.predictor.Learner;
+import mltk.predictor.Predictor;
+import mltk.util.Random;
 import mltk.util.tuple.IntDoublePair;
 import mltk.util.tuple.IntDoublePairComparator;
 
@@ -27,6 +42,83 @@ public abstract class TreeLearner extends Learner {
 	protected static final IntDoublePairComparator COMP = new IntDoublePairComparator(false);
 	
 	protected Dataset cache;
+	protected int parallelism;
+	private ForkJoinPool forkJoinPool;
+	
+	/**
+	 * Constructor.
+	 */
+	public TreeLearner() {
+		parallelism = 1;
+	}
+	
+	/**
+	 * Returns the parallelism level.
+	 * 
+	 * @return the parallelism level.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Sets the parallelism level, i.e., the number of threads used to evaluate candidate attributes concurrently.
+	 * Trees do not depend on the parallelism level.
+	 * 
+	 * @param parallelism the parallelism level.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism != this.parallelism && forkJoinPool != null) {
+			forkJoinPool.shutdown();
+			forkJoinPool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * Runs a task for each index in [0, n), concurrently if the parallelism level is greater than 1. Tasks must only
+	 * write to state owned by their index. Ensemble learners may use this method to build several trees at once with
+	 * this learner, sharing its threads with the split search of each tree.
+	 * 
+	 * @param n the number of indices.
+	 * @param task the task.
+	 */
+	public void forEach(int n, IntConsumer task) {
+		if (parallelism <= 1 || n <= 1) {
+			for (int i = 0; i < n; i++) {
+				task.accept(i);
+			}
+		} else {
+			int grain = Math.max(1, n / (4 * parallelism));
+			invoke(new RangeTask(task, 0, n, grain));
+		}
+	}
+	
+	/**
+	 * Runs a task and waits for its completion. If the parallelism level is greater than 1, the task runs in the
+	 * pool of this learner, so that it may fork subtasks; otherwise it runs in the calling thread.
+	 * 
+	 * @param task the task.
+	 * @return the result of the task.
+	 */
+	protected <T> T invoke(ForkJoinTask<T> task) {
+		if (parallelism <= 1) {
+			return task.invoke();
+		}
+		ForkJoinPool pool = getForkJoinPool();
+		if (ForkJoinTask.getPool() == pool) {
+			return task.invoke();
+		} else {
+			return pool.invoke(task);
+		}
+	}
+	
+	private synchronized ForkJoinPool getForkJoinPool() {
+		if (forkJoinPool == null) {
+			forkJoinPool = new ForkJoinPool(parallelism);
+		}
+		return forkJoinPool;
+	}
 	
 	/**
 	 * Returns {@code true} if this tree learner can be used in {@link mltk.predictor.tree.ensemble.brt.LogitBoostLearner}.
@@ -35,6 +127,195 @@ public abstract class TreeLearner extends Learner {
 	 */
 	public abstract boolean isRobust();
 	
+	/**
+	 * Builds a tree that fits gradients weighted by hessians, i.e., as if the target and the weight of the i-th
+	 * instance were {@code gradients[i]} and {@code hessians[i]}. The instances are not modified, so that boosting
+	 * methods do not need to rewrite the training set in every iteration, and the training set can be shared by
+	 * concurrent tasks. Auxiliary data structures, such as histogram bins, are still computed from the instances
+	 * and their own weights.
+	 * 
+	 * @param instances the training set.
+	 * @param gradients the gradients.
+	 * @param hessians the hessians.
+	 * @return a tree.
+	 */
+	public abstract Predictor build(Instances instances, double[] gradients, double[] hessians);
+	
+	/**
+	 * Builds a tree, drawing random numbers from a stream with a given seed rather than from the global random
+	 * object.
+	 * 
+	 * @param instances the training set.
+	 * @param seed the seed of the random numbers.
+	 * @return a tree.
+	 */
+	public abstract Predictor build(Instances instances, long seed);
+	
+	/**
+	 * Builds a tree on a sample of a training set, such as a bootstrap sample, given by the number of times each
+	 * instance is drawn (see {@link Sampling#createBootstrapCounts(int)}). An instance drawn k times counts
+	 * as one instance with k times its weight, and instances not drawn are left out. This implementation copies the
+	 * sample into new instances, see {@link Sampling#createSample(Instances, int[])}; tree learners that partition
+	 * the training set by index override it to leave the instances in place, so that samples only take an array of
+	 * counts each.
+	 * 
+	 * @param instances the training set.
+	 * @param counts the number of times each instance is drawn.
+	 * @param seed the seed of the random numbers.
+	 * @return a tree.
+	 */
+	public Predictor build(Instances instances, int[] counts, long seed) {
+		return build(Sampling.createSample(instances, counts), seed);
+	}
+	
+	/**
+	 * Builds a tree on each of several training sets, such as the bootstrap samples of a bagged ensemble, using a
+	 * number of threads. Each tree is seeded from a random stream derived from the current random object and the index
+	 * of its training set, see {@link Random#derive(long)}, so that the trees are reproducible and do not depend on the
+	 * number of threads. The state of a tree being built is kept apart from this learner, so one learner builds all
+	 * trees concurrently, provided that no auxiliary data structures are cached, see {@link #cache(Instances)}.
+	 * 
+	 * @param bags the training sets.
+	 * @param numThreads the number of threads.
+	 * @return a tree for each training set.
+	 */
+	public Predictor[] build(Instances[] bags, int numThreads) {
+		final long[] seeds = createSeeds(bags.length);
+		final Predictor[] predictors = new Predictor[bags.length];
+		run(i -> predictors[i] = build(bags[i], seeds[i]), bags.length, numThreads);
+		return predictors;
+	}
+	
+	/**
+	 * Builds a tree on each of several samples of a training set, such as the bootstrap samples of a bagged ensemble,
+	 * given by the number of times each instance is drawn (see {@link Sampling#createBags(int, int)}). Trees are
+	 * seeded and built concurrently as in {@link #build(Instances[], int)}, so samples with the same counts lead to
+	 * the same trees for any number of threads.
+	 * 
+	 * @param instances the training set.
+	 * @param counts the number of times each instance is drawn in each sample.
+	 * @param numThreads the number of threads.
+	 * @return a tree for each sample.
+	 */
+	public Predictor[] build(Instances instances, int[][] counts, int numThreads) {
+		return build(instances, counts, numThreads, null);
+	}
+	
+	/**
+	 * Builds a tree on each of several samples of a training set like {@link #build(Instances, int[][], int)}, and
+	 * passes each tree with the index of its sample to a listener as soon as it is built. The listener is called by
+	 * the thread that built the tree, so that work on a tree, such as evaluating it on the instances not drawn, runs
+	 * concurrently with building the others; it must therefore be thread-safe.
+	 * 
+	 * @param instances the training set.
+	 * @param counts the number of times each instance is drawn in each sample.
+	 * @param numThreads the number of threads.
+	 * @param listener the listener, or {@code null} if none.
+	 * @return a tree for each sample.
+	 */
+	public Predictor[] build(Instances instances, int[][] counts, int numThreads, ObjIntConsumer<Predictor> listener) {
+		final Dataset features = createFeatures(instances);
+		final long[] seeds = createSeeds(counts.length);
+		final Predictor[] predictors = new Predictor[counts.length];
+		run(i -> {
+			predictors[i] = build(instances, features, counts[i], seeds[i]);
+			if (listener != null) {
+				listener.accept(predictors[i], i);
+			}
+		}, counts.length, numThreads);
+		return predictors;
+	}
+	
+	/**
+	 * Creates the auxiliary data structures of a training set to be shared by the trees built on its samples, see
+	 * {@link #build(Instances, Dataset, int[], long)}. Unlike {@link #cache(Instances)}, the learner is left
+	 * unchanged. This implementation returns {@code null}.
+	 * 
+	 * @param instances the training set.
+	 * @return the auxiliary data structures, or {@code null} if none.
+	 */
+	protected Dataset createFeatures(Instances instances) {
+		return null;
+	}
+	
+	/**
+	 * Builds a tree on a sample of a training set like {@link #build(Instances, int[], long)}, reusing the auxiliary
+	 * data structures from {@link #createFeatures(Instances)}. This implementation ignores them.
+	 * 
+	 * @param instances the training set.
+	 * @param features the auxiliary data structures of the training set, or {@code null} if none.
+	 * @param counts the number of times each instance is drawn.
+	 * @param seed the seed of the random numbers.
+	 * @return a tree.
+	 */
+	protected Predictor build(Instances instances, Dataset features, int[] counts, long seed) {
+		return build(instances, counts, seed);
+	}
+	
+	/**
+	 * Builds a tree that fits gradients weighted by hessians, drawing random numbers from a stream with a given seed
+	 * rather than from the global random object. Trees built concurrently, each with its own seed, thus do not depend
+	 * on the order in which they are built. This method may be called concurrently once the auxiliary data
+	 * structures are cached, see {@link #cache(Instances)}.
+	 * 
+	 * @param instances the training set.
+	 * @param gradients the gradients.
+	 * @param hessians the hessians.
+	 * @param seed the seed of the random numbers.
+	 * @return a tree.
+	 */
+	public abstract Predictor build(Instances instances, double[] gradients, double[] hessians, long seed);
+	
+	/**
+	 * Builds a tree like {@link #build(Instances, double[], double[], long)}, and records the leaf that each instance
+	 * falls into. Boosting methods can then update the predictions on the training set from the leaves, which also
+	 * reflect later changes to their predictions, instead of traversing the tree for every instance. This
+	 * implementation does not record leaves and fills the array with {@code null}.
+	 * 
+	 * @param instances the training set.
+	 * @param gradients the gradients.
+	 * @param hessians the hessians.
+	 * @param seed the seed of the random numbers.
+	 * @param leaves the array to store the leaf of each instance, or {@code null} if not recorded.
+	 * @return a tree.
+	 */
+	public Predictor build(Instances instances, double[] gradients, double[] hessians, long seed,
+			RegressionTreeLeaf[] leaves) {
+		Arrays.fill(leaves, null);
+		return build(instances, gradients, hessians, seed);
+	}
+	
+	/**
+	 * Returns the seeds of trees built together, each from a random stream derived from the current random object and
+	 * the index of the tree.
+	 */
+	private static long[] createSeeds(int n) {
+		long[] seeds = new long[n];
+		Random random = Random.getInstance().split();
+		for (int i = 0; i < seeds.length; i++) {
+			seeds[i] = random.derive(i).nextLong();
+		}
+		return seeds;
+	}
+	
+	/**
+	 * Runs a task for each index in [0, n) using a number of threads.
+	 */
+	private static void run(IntConsumer task, int n, int numThreads) {
+		if (numThreads <= 1 || n <= 1) {
+			for (int i = 0; i < n; i++) {
+				task.accept(i);
+			}
+		} else {
+			ForkJoinPool pool = new ForkJoinPool(numThreads);
+			try {
+				pool.invoke(new RangeTask(task, 0, n, 1));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+	
 	/**
 	 * Caches the auxiliary data structures. This method is used in ensemble method
 	 * so that same data structures can be shared across iterations.
@@ -59,19 +340,831 @@ public abstract class TreeLearner extends Learner {
 	 */
 	public abstract void setParameters(String mode);
 
-	protected static class Dataset {
+	/**
+	 * Task that runs an index task over a range, splitting the range in halves down to a grain size. Invoked in a
+	 * {@link ForkJoinPool}, it runs on the threads of that pool only.
+	 */
+	public static class RangeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
 		
-		static Dataset create(Instances instances) {
-			Dataset dataset = new Dataset(instances);
+		final IntConsumer task;
+		final int start;
+		final int end;
+		final int grain;
+		
+		/**
+		 * Constructor.
+		 * 
+		 * @param task the index task.
+		 * @param start the start of the range (inclusive).
+		 * @param end the end of the range (exclusive).
+		 * @param grain the largest range run without splitting.
+		 */
+		public RangeTask(IntConsumer task, int start, int end, int grain) {
+			this.task = task;
+			this.start = start;
+			this.end = end;
+			this.grain = grain;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= grain) {
+				for (int i = start; i < end; i++) {
+					task.accept(i);
+				}
+			} else {
+				int mid = (start + end) >>> 1;
+				invokeAll(new RangeTask(task, start, mid, grain), new RangeTask(task, mid, end, grain));
+			}
+		}
+		
+	}
+
+	/**
+	 * Class for attributes pre-binned for histogram-based split finding. Each attribute is discretized once with
+	 * {@link Discretizer#computeBins(Instances, int, int)} and stored as a {@link BinnedColumn} over the rows of a
+	 * dataset, together with the smallest and largest value in each bin, so that a split between two bins can be
+	 * mapped back to a split point on the original values. Columns are stored by attribute index and binned on
+	 * demand, so that the same object can serve datasets with different attribute subsets.
+	 */
+	protected static class BinnedFeatures {
+		
+		final int size;
+		final int maxNumBins;
+		BinnedColumn[] columns;
+		double[][] lowers;
+		double[][] uppers;
+		
+		BinnedFeatures(int size, int maxNumBins) {
+			this.size = size;
+			this.maxNumBins = maxNumBins;
+			this.columns = new BinnedColumn[0];
+			this.lowers = new double[0][];
+			this.uppers = new double[0][];
+		}
+		
+		/**
+		 * Bins the attributes of a dataset that are not binned yet.
+		 */
+		void bin(Instances instances) {
 			List<Attribute> attributes = instances.getAttributes();
-			// From attIndex to attName
-			Map<Integer, String> attMap = new HashMap<>();
+			int width = 0;
+			for (Attribute attribute : attributes) {
+				width = Math.max(width, attribute.getIndex() + 1);
+			}
+			if (width > columns.length) {
+				columns = Arrays.copyOf(columns, width);
+				lowers = Arrays.copyOf(lowers, width);
+				uppers = Arrays.copyOf(uppers, width);
+			}
 			for (int j = 0; j < attributes.size(); j++) {
-				Attribute attribute = attributes.get(j);
-				attMap.put(attribute.getIndex(), attribute.getName());
+				int attIndex = attributes.get(j).getIndex();
+				if (columns[attIndex] == null) {
+					bin(instances, j, attIndex);
+				}
+			}
+		}
+		
+		void bin(Instances instances, int position, int attIndex) {
+			Bins bins = Discretizer.computeBins(instances, position, maxNumBins);
+			double[] boundaries = bins.getBoundaries();
+			final int numBins = Math.max(boundaries.length, 1);
+			BinnedColumn column = new BinnedColumn(numBins, size);
+			double[] lower = new double[numBins];
+			double[] upper = new double[numBins];
+			Arrays.fill(lower, Double.POSITIVE_INFINITY);
+			Arrays.fill(upper, Double.NEGATIVE_INFINITY);
+			for (int i = 0; i < size; i++) {
+				double v = instances.get(i).getValue(attIndex);
+				if (Double.isNaN(v) || boundaries.length == 0) {
+					column.set(i, BinnedColumn.MISSING);
+				} else {
+					int b = bins.getIndex(v);
+					column.set(i, b);
+					lower[b] = Math.min(lower[b], v);
+					upper[b] = Math.max(upper[b], v);
+				}
 			}
+			columns[attIndex] = column;
+			lowers[attIndex] = lower;
+			uppers[attIndex] = upper;
+		}
+		
+		/**
+		 * Returns the split point between two non-empty bins.
+		 */
+		double getSplitPoint(int attIndex, int leftBin, int rightBin) {
+			return (uppers[attIndex][leftBin] + lowers[attIndex][rightBin]) / 2;
+		}
+		
+		/**
+		 * Returns {@code true} if a row goes to the left child of a split.
+		 */
+		boolean goLeft(int attIndex, int row, double split) {
+			int b = columns[attIndex].get(row);
+			return b != BinnedColumn.MISSING && uppers[attIndex][b] <= split;
+		}
+		
+	}
+
+	/**
+	 * Class for attributes pre-sorted for exact split finding. For each attribute, the rows with non-zero values are
+	 * stored in ascending order of value, as parallel arrays of row indices and values. Like {@link BinnedFeatures},
+	 * attributes are stored by attribute index and sorted on demand.
+	 */
+	protected static class SortedFeatures {
+		
+		final int size;
+		int[][] rows;
+		double[][] values;
+		
+		SortedFeatures(int size) {
+			this.size = size;
+			this.rows = new int[0][];
+			this.values = new double[0][];
+		}
+		
+		/**
+		 * Sorts the attributes of a dataset that are not sorted yet.
+		 */
+		void sort(Instances instances) {
+			List<Attribute> attributes = instances.getAttributes();
+			int width = 0;
 			for (Attribute attribute : attributes) {
-				dataset.sortedLists.put(attribute.getName(), new ArrayList<IntDoublePair>());
+				width = Math.max(width, attribute.getIndex() + 1);
+			}
+			if (width > rows.length) {
+				rows = Arrays.copyOf(rows, width);
+				values = Arrays.copyOf(values, width);
+			}
+			List<List<IntDoublePair>> lists = Dataset.createSortedLists(width);
+			List<Integer> pending = new ArrayList<>();
+			for (Attribute attribute : attributes) {
+				int attIndex = attribute.getIndex();
+				if (rows[attIndex] == null && lists.get(attIndex) == null) {
+					lists.set(attIndex, new ArrayList<IntDoublePair>());
+					pending.add(attIndex);
+				}
+			}
+			if (pending.isEmpty()) {
+				return;
+			}
+			if (instances instanceof ColumnarInstances) {
+				ColumnarInstances columnar = (ColumnarInstances) instances;
+				for (int attIndex : pending) {
+					double[] column = columnar.getColumn(attIndex);
+					List<IntDoublePair> list = lists.get(attIndex);
+					for (int i = 0; i < size; i++) {
+						double v = column[columnar.getRowIndex(i)];
+						if (v != 0.0) {
+							list.add(new IntDoublePair(i, v));
+						}
+					}
+				}
+			} else if (instances instanceof TypedInstances) {
+				for (int attIndex : pending) {
+					List<IntDoublePair> list = lists.get(attIndex);
+					for (int i = 0; i < size; i++) {
+						double v = ((TypedInstances) instances).getValue(i, attIndex);
+						if (v != 0.0) {
+							list.add(new IntDoublePair(i, v));
+						}
+					}
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					Instance instance = instances.get(i);
+					if (instance.isSparse()) {
+						SparseVector sv = (SparseVector) instance.getVector();
+						int[] indices = sv.getIndices();
+						double[] v = sv.getValues();
+						for (int k = 0; k < indices.length; k++) {
+							List<IntDoublePair> list = indices[k] < width ? lists.get(indices[k]) : null;
+							if (list != null && v[k] != 0.0) {
+								list.add(new IntDoublePair(i, v[k]));
+							}
+						}
+					} else {
+						for (int attIndex : pending) {
+							double v = instance.getValue(attIndex);
+							if (v != 0.0) {
+								lists.get(attIndex).add(new IntDoublePair(i, v));
+							}
+						}
+					}
+				}
+			}
+			for (int attIndex : pending) {
+				List<IntDoublePair> list = lists.get(attIndex);
+				Collections.sort(list, COMP);
+				int[] r = new int[list.size()];
+				double[] v = new double[list.size()];
+				for (int k = 0; k < r.length; k++) {
+					IntDoublePair pair = list.get(k);
+					r[k] = pair.v1;
+					v[k] = pair.v2;
+				}
+				rows[attIndex] = r;
+				values[attIndex] = v;
+			}
+		}
+		
+	}
+
+	/**
+	 * Class for per-bin sums of weights and responses, and counts of instances, of all attributes of a tree node.
+	 * The bins of all attributes are laid out back to back, at the offsets given by the {@link HistogramPool} that
+	 * created this histogram. Sums are kept in the fixed-point units of the pool, see
+	 * {@link HistogramPool#quantize(double[], double[])}. Integer sums do not depend on the order of the rows, so a
+	 * histogram derived by subtraction is the same as one scanned from the rows, to the last bit.
+	 */
+	protected static class Histogram {
+		
+		final HistogramPool pool;
+		final long[] weights;
+		final long[] sums;
+		final int[] counts;
+		
+		Histogram(HistogramPool pool) {
+			this.pool = pool;
+			int size = pool.offsets[pool.offsets.length - 1];
+			this.weights = new long[size];
+			this.sums = new long[size];
+			this.counts = new int[size];
+		}
+		
+		/**
+		 * Computes the histograms of some attributes from the rows of a node.
+		 * 
+		 * @param node the node.
+		 * @param positions the positions of the attributes, or {@code null} for all.
+		 * @see #compute(Partition, int)
+		 */
+		void compute(Partition node, int[] positions) {
+			final int numAttributes = positions != null ? positions.length : pool.columns.length;
+			for (int k = 0; k < numAttributes; k++) {
+				compute(node, positions != null ? positions[k] : k);
+			}
+		}
+		
+		/**
+		 * Computes the histogram of an attribute from the rows of a node. The rows are scanned in blocks of
+		 * {@link HistogramPool#blockSize} rows from the start of the node, and the partial histogram of each block
+		 * after the first is added in block order. Since sums are integers, histograms do not depend on the number of
+		 * threads.
+		 * 
+		 * @param node the node.
+		 * @param j the position of the attribute.
+		 */
+		void compute(Partition node, int j) {
+			clear(j);
+			final int blockSize = pool.blockSize;
+			final int end = node.end;
+			int from = node.start;
+			int to = (int) Math.min(end, (long) from + blockSize);
+			accumulate(node, j, from, to, weights, sums, counts, pool.offsets[j]);
+			if (to < end) {
+				final int start = pool.offsets[j];
+				final int numBins = pool.offsets[j + 1] - start;
+				long[] blockWeights = new long[numBins];
+				long[] blockSums = new long[numBins];
+				int[] blockCounts = new int[numBins];
+				for (from = to; from < end; from = to) {
+					to = (int) Math.min(end, (long) from + blockSize);
+					Arrays.fill(blockWeights, 0);
+					Arrays.fill(blockSums, 0);
+					Arrays.fill(blockCounts, 0);
+					accumulate(node, j, from, to, blockWeights, blockSums, blockCounts, 0);
+					for (int b = 0; b < numBins; b++) {
+						weights[start + b] += blockWeights[b];
+						sums[start + b] += blockSums[b];
+						counts[start + b] += blockCounts[b];
+					}
+				}
+			}
+		}
+		
+		/**
+		 * Computes the histograms of some attributes from a range of the rows of a node, e.g., a block.
+		 * 
+		 * @param node the node.
+		 * @param positions the positions of the attributes, or {@code null} for all.
+		 * @param from the start of the range in the row permutation of the tree (inclusive).
+		 * @param to the end of the range in the row permutation of the tree (exclusive).
+		 */
+		void compute(Partition node, int[] positions, int from, int to) {
+			final int numAttributes = positions != null ? positions.length : pool.columns.length;
+			for (int k = 0; k < numAttributes; k++) {
+				int j = positions != null ? positions[k] : k;
+				clear(j);
+				accumulate(node, j, from, to, weights, sums, counts, pool.offsets[j]);
+			}
+		}
+		
+		/**
+		 * Clears the histogram of an attribute.
+		 * 
+		 * @param j the position of the attribute.
+		 */
+		void clear(int j) {
+			final int start = pool.offsets[j];
+			final int end = pool.offsets[j + 1];
+			Arrays.fill(weights, start, end, 0);
+			Arrays.fill(sums, start, end, 0);
+			Arrays.fill(counts, start, end, 0);
+		}
+		
+		/**
+		 * Adds a range of the rows of a node to per-bin arrays of an attribute.
+		 * 
+		 * @param node the node.
+		 * @param j the position of the attribute.
+		 * @param from the start of the range in the row permutation of the tree (inclusive).
+		 * @param to the end of the range in the row permutation of the tree (exclusive).
+		 * @param weights the sums of weights.
+		 * @param sums the sums of responses.
+		 * @param counts the counts.
+		 * @param start the offset of the first bin of the attribute in the arrays.
+		 */
+		void accumulate(Partition node, int j, int from, int to, long[] weights, long[] sums, int[] counts,
+				int start) {
+			int[] rows = node.rows;
+			long[] w = pool.weights;
+			long[] r = pool.responses;
+			BinnedColumn column = pool.columns[j];
+			for (int i = from; i < to; i++) {
+				int row = rows[i];
+				int b = column.get(row);
+				if (b != BinnedColumn.MISSING) {
+					weights[start + b] += w[row];
+					sums[start + b] += r[row];
+					counts[start + b]++;
+				}
+			}
+		}
+		
+		/**
+		 * Adds the histogram of an attribute in another histogram to this one, e.g., to merge partial histograms.
+		 * 
+		 * @param hist the histogram to add.
+		 * @param j the position of the attribute.
+		 */
+		void add(Histogram hist, int j) {
+			for (int i = pool.offsets[j]; i < pool.offsets[j + 1]; i++) {
+				weights[i] += hist.weights[i];
+				sums[i] += hist.sums[i];
+				counts[i] += hist.counts[i];
+			}
+		}
+		
+		/**
+		 * Subtracts another histogram from this one, e.g., the histogram of a child from that of its parent.
+		 * 
+		 * @param hist the histogram to subtract.
+		 */
+		void subtract(Histogram hist) {
+			for (int i = 0; i < weights.length; i++) {
+				weights[i] -= hist.weights[i];
+				sums[i] -= hist.sums[i];
+				counts[i] -= hist.counts[i];
+			}
+		}
+		
+	}
+	
+	/**
+	 * Class for recycling histograms over the attributes of a tree, since a histogram over many attributes is costly
+	 * to allocate. It is safe to use from concurrent tasks. The pool also caps the number of histograms kept by
+	 * nodes waiting to be split over the whole tree: a node keeps its histogram only if it can {@link #reserve()}
+	 * one of them.
+	 */
+	protected static class HistogramPool {
+		
+		final BinnedColumn[] columns;
+		final int[] offsets;
+		final int blockSize;
+		final int maxNumKept;
+		final AtomicInteger numKept;
+		ArrayDeque<Histogram> free;
+		long[] weights;
+		long[] responses;
+		double weightUnit;
+		double responseUnit;
+		
+		HistogramPool(BinnedFeatures binned, List<Attribute> attributes, int blockSize, int maxNumKept) {
+			this.blockSize = blockSize;
+			this.maxNumKept = maxNumKept;
+			this.numKept = new AtomicInteger();
+			this.columns = new BinnedColumn[attributes.size()];
+			this.offsets = new int[attributes.size() + 1];
+			for (int j = 0; j < columns.length; j++) {
+				columns[j] = binned.columns[attributes.get(j).getIndex()];
+				offsets[j + 1] = offsets[j] + columns[j].getNumBins();
+			}
+			this.free = new ArrayDeque<>();
+		}
+		
+		/**
+		 * Converts the weights and responses of the rows of a tree to the fixed-point numbers summed in histograms.
+		 * The unit of each is the smallest power of two for which the absolute values of all rows add up to at most
+		 * 2<sup>62</sup> units, so no sum overflows. Each value is rounded to within half a unit, that is, far less
+		 * than the rounding error of summing doubles, and the histograms of a node are exact sums of these values.
+		 * 
+		 * @param weights the weights indexed by row.
+		 * @param responses the responses indexed by row.
+		 */
+		void quantize(double[] weights, double[] responses) {
+			weightUnit = getUnit(weights);
+			responseUnit = getUnit(responses);
+			this.weights = new long[weights.length];
+			this.responses = new long[responses.length];
+			for (int i = 0; i < weights.length; i++) {
+				this.weights[i] = Math.round(weights[i] / weightUnit);
+				this.responses[i] = Math.round(responses[i] / responseUnit);
+			}
+		}
+		
+		private static double getUnit(double[] values) {
+			double total = 0;
+			for (double v : values) {
+				total += Math.abs(v);
+			}
+			// Leave room for the rounding error of the total
+			total *= 1 + 1e-9;
+			return total > 0 ? Math.scalb(1.0, Math.getExponent(total) + 1 - 62) : 1;
+		}
+		
+		/**
+		 * Returns a recycled histogram, or a new one if none is free. The content of the histogram is undefined.
+		 */
+		synchronized Histogram obtain() {
+			return free.isEmpty() ? new Histogram(this) : free.pop();
+		}
+		
+		/**
+		 * Returns a histogram to the pool. This method does nothing if the histogram is {@code null}.
+		 */
+		synchronized void recycle(Histogram hist) {
+			if (hist != null) {
+				free.push(hist);
+			}
+		}
+		
+		/**
+		 * Reserves one of the histograms that nodes waiting to be split may keep.
+		 * 
+		 * @return {@code true} if a histogram is reserved, {@code false} if all of them are taken.
+		 */
+		boolean reserve() {
+			for (;;) {
+				int k = numKept.get();
+				if (k >= maxNumKept) {
+					return false;
+				}
+				if (numKept.compareAndSet(k, k + 1)) {
+					return true;
+				}
+			}
+		}
+		
+		/**
+		 * Releases a histogram reserved by {@link #reserve()}.
+		 */
+		void unreserve() {
+			numKept.decrementAndGet();
+		}
+		
+	}
+
+	/**
+	 * Class for the state of a tree node in the index-partition representation. All nodes of a tree share a
+	 * permutation of row indices, and a node is the range [{@link #start}, {@link #end}) of it. Targets, weights and
+	 * responses are gathered once per tree into arrays indexed by row. For exact split finding, the nodes also share
+	 * the per-attribute sorted arrays of {@link SortedFeatures}, copied once per tree, and a node is a range of each of
+	 * them given by {@link #starts} and {@link #ends}. For histogram-based split finding, the nodes refer to
+	 * {@link #binned} attributes, and a node waiting to be split may keep its {@link #histogram}, from which the
+	 * histograms of its children are derived. Histograms are recycled through the {@link #pool} of the tree.
+	 * 
+	 * <p>
+	 * Splitting a node stably partitions its ranges in place, so no per-node copy is made and the order of rows within
+	 * a node is the same as in the dataset. Since nodes own disjoint ranges, disjoint subtrees can be grown
+	 * concurrently, provided that each has its own scratch buffers, see {@link #allocateBuffers()}.
+	 * </p>
+	 */
+	static class Partition {
+		
+		int[] rows;
+		int start;
+		int end;
+		double[] targets;
+		double[] weights;
+		double[] responses;
+		int[][] sortedRows;
+		double[][] sortedValues;
+		int[] starts;
+		int[] ends;
+		SortedFeatures sorted;
+		BinnedFeatures binned;
+		Histogram histogram;
+		HistogramPool pool;
+		RegressionTreeLeaf[] leaves;
+		boolean[] leftFlags;
+		int[] rowBuffer;
+		double[] valueBuffer;
+		
+		Partition() {
+			
+		}
+		
+		/**
+		 * Constructs the state of a child node, sharing all arrays of its parent. Its ranges are set by
+		 * {@link #split(int, int, double, Partition, Partition)}.
+		 */
+		Partition(Partition parent) {
+			this.rows = parent.rows;
+			this.targets = parent.targets;
+			this.weights = parent.weights;
+			this.responses = parent.responses;
+			this.sortedRows = parent.sortedRows;
+			this.sortedValues = parent.sortedValues;
+			this.sorted = parent.sorted;
+			this.binned = parent.binned;
+			this.pool = parent.pool;
+			this.leaves = parent.leaves;
+			this.leftFlags = parent.leftFlags;
+			this.rowBuffer = parent.rowBuffer;
+			this.valueBuffer = parent.valueBuffer;
+		}
+		
+		/**
+		 * Returns the number of rows of this node.
+		 */
+		int size() {
+			return end - start;
+		}
+		
+		/**
+		 * Splits this node between two children.
+		 * 
+		 * @param attIndex the attribute index.
+		 * @param position the position of the attribute in the schema of the tree.
+		 * @param split the split point.
+		 * @param left the state of the left child.
+		 * @param right the state of the right child.
+		 */
+		void split(int attIndex, int position, double split, Partition left, Partition right) {
+			// 1. Mark the rows going to the left child
+			if (binned != null) {
+				for (int i = start; i < end; i++) {
+					leftFlags[rows[i]] = binned.goLeft(attIndex, rows[i], split);
+				}
+			} else {
+				// Rows that are not in the sorted array have zero values
+				boolean zeroGoesLeft = 0 <= split;
+				for (int i = start; i < end; i++) {
+					leftFlags[rows[i]] = zeroGoesLeft;
+				}
+				int[] r = sortedRows[position];
+				double[] v = sortedValues[position];
+				for (int i = starts[position]; i < ends[position]; i++) {
+					leftFlags[r[i]] = v[i] <= split;
+				}
+			}
+			
+			// 2. Partition the ranges in place
+			int mid = partition(rows, null, start, end);
+			left.start = start;
+			left.end = mid;
+			right.start = mid;
+			right.end = end;
+			if (sortedRows != null) {
+				final int p = sortedRows.length;
+				left.starts = new int[p];
+				left.ends = new int[p];
+				right.starts = new int[p];
+				right.ends = new int[p];
+				for (int j = 0; j < p; j++) {
+					int m = partition(sortedRows[j], sortedValues[j], starts[j], ends[j]);
+					left.starts[j] = starts[j];
+					left.ends[j] = m;
+					right.starts[j] = m;
+					right.ends[j] = ends[j];
+				}
+			}
+		}
+		
+		/**
+		 * Gives this node its own scratch buffers for partitioning, sized for its rows, so that it and the nodes
+		 * under it can be split concurrently with other nodes of the tree. Children otherwise share the buffers of
+		 * their parent.
+		 */
+		void allocateBuffers() {
+			if (rowBuffer != null) {
+				rowBuffer = new int[size()];
+			}
+			if (valueBuffer != null) {
+				valueBuffer = new double[size()];
+			}
+		}
+		
+		/**
+		 * Stably partitions a range of row indices, and optionally the values along with them, so that rows going to
+		 * the left child come first. Returns the end of the left part. The rows going to the right child are buffered
+		 * from the start of the scratch buffers, so the buffers only need to be as large as the range.
+		 */
+		int partition(int[] a, double[] v, int from, int to) {
+			int l = from;
+			int r = 0;
+			for (int i = from; i < to; i++) {
+				int row = a[i];
+				if (leftFlags[row]) {
+					a[l] = row;
+					if (v != null) {
+						v[l] = v[i];
+					}
+					l++;
+				} else {
+					rowBuffer[r] = row;
+					if (v != null) {
+						valueBuffer[r] = v[i];
+					}
+					r++;
+				}
+			}
+			System.arraycopy(rowBuffer, 0, a, l, r);
+			if (v != null) {
+				System.arraycopy(valueBuffer, 0, v, l, r);
+			}
+			return l;
+		}
+
+	}
+
+	/**
+	 * Class for the training data of a tree node. Sorted lists are stored by the position of their attribute in
+	 * {@link #schema}, which is shared by all nodes of a tree, so that no attribute name is hashed during tree
+	 * construction. A sorted list may be {@code null} if a learner does not need it.
+	 * 
+	 * <p>
+	 * Regression tree learners use an index-partition representation instead, in which {@link #instances} is empty and
+	 * no sorted list is built, and the rows of the node are given by its {@link Partition}. Each node draws random
+	 * numbers from its own random stream, split from the stream of its parent, so that a tree does not depend on the
+	 * order in which its nodes are grown.
+	 * </p>
+	 */
+	protected static class Dataset {
+		
+		static Dataset create(BinnedFeatures binned, Instances instances) {
+			return create(binned, instances, null, null);
+		}
+		
+		static Dataset create(BinnedFeatures binned, Instances instances, double[] targets, double[] weights) {
+			return create(binned, instances, targets, weights, null);
+		}
+		
+		static Dataset create(BinnedFeatures binned, Instances instances, double[] targets, double[] weights,
+				int[] counts) {
+			binned.bin(instances);
+			Dataset dataset = createPartition(instances, targets, weights, counts);
+			dataset.partition.binned = binned;
+			return dataset;
+		}
+		
+		static Dataset create(SortedFeatures sorted, Instances instances) {
+			return create(sorted, instances, null, null);
+		}
+		
+		static Dataset create(SortedFeatures sorted, Instances instances, double[] targets, double[] weights) {
+			return create(sorted, instances, targets, weights, null);
+		}
+		
+		static Dataset create(SortedFeatures sorted, Instances instances, double[] targets, double[] weights,
+				int[] counts) {
+			sorted.sort(instances);
+			Dataset dataset = createPartition(instances, targets, weights, counts);
+			Partition partition = dataset.partition;
+			partition.sorted = sorted;
+			List<Attribute> attributes = dataset.schema.getAttributes();
+			final int p = attributes.size();
+			partition.sortedRows = new int[p][];
+			partition.sortedValues = new double[p][];
+			partition.starts = new int[p];
+			partition.ends = new int[p];
+			for (int j = 0; j < p; j++) {
+				int attIndex = attributes.get(j).getIndex();
+				if (counts == null) {
+					partition.sortedRows[j] = sorted.rows[attIndex].clone();
+					partition.sortedValues[j] = sorted.values[attIndex].clone();
+				} else {
+					// Keep the rows in the sample
+					int[] rows = sorted.rows[attIndex];
+					double[] values = sorted.values[attIndex];
+					int[] sampleRows = new int[rows.length];
+					double[] sampleValues = new double[rows.length];
+					int k = 0;
+					for (int i = 0; i < rows.length; i++) {
+						if (counts[rows[i]] > 0) {
+							sampleRows[k] = rows[i];
+							sampleValues[k] = values[i];
+							k++;
+						}
+					}
+					partition.sortedRows[j] = Arrays.copyOf(sampleRows, k);
+					partition.sortedValues[j] = Arrays.copyOf(sampleValues, k);
+				}
+				partition.ends[j] = partition.sortedRows[j].length;
+			}
+			partition.valueBuffer = new double[instances.size()];
+			return dataset;
+		}
+		
+		/**
+		 * Creates the root of an index partition. If targets and weights are given, they are used in place of those
+		 * of the instances without being copied, so they must not be modified while the tree is built.
+		 * 
+		 * @param instances the instances.
+		 * @param targets the targets indexed by row, or {@code null} to read them from the instances.
+		 * @param weights the weights indexed by row, or {@code null} to read them from the instances.
+		 * @return the root of an index partition.
+		 */
+		static Dataset createPartition(Instances instances, double[] targets, double[] weights) {
+			return createPartition(instances, targets, weights, null);
+		}
+		
+		/**
+		 * Creates the root of an index partition over a sample of the instances, given by the number of times each
+		 * instance is drawn. Instances not drawn are left out of the partition, and the weight of the others is
+		 * multiplied by their counts.
+		 * 
+		 * @param instances the instances.
+		 * @param targets the targets indexed by row, or {@code null} to read them from the instances.
+		 * @param weights the weights indexed by row, or {@code null} to read them from the instances.
+		 * @param counts the number of times each instance is drawn, or {@code null} for all instances.
+		 * @return the root of an index partition.
+		 */
+		static Dataset createPartition(Instances instances, double[] targets, double[] weights, int[] counts) {
+			Dataset dataset = new Dataset(instances);
+			Partition partition = new Partition();
+			dataset.partition = partition;
+			final int n = instances.size();
+			if (counts == null) {
+				partition.rows = new int[n];
+				for (int i = 0; i < n; i++) {
+					partition.rows[i] = i;
+				}
+			} else {
+				int m = 0;
+				for (int i = 0; i < n; i++) {
+					if (counts[i] > 0) {
+						m++;
+					}
+				}
+				partition.rows = new int[m];
+				m = 0;
+				for (int i = 0; i < n; i++) {
+					if (counts[i] > 0) {
+						partition.rows[m++] = i;
+					}
+				}
+			}
+			partition.start = 0;
+			partition.end = partition.rows.length;
+			if (targets != null) {
+				partition.targets = targets;
+				partition.weights = weights;
+			} else {
+				partition.targets = new double[n];
+				partition.weights = new double[n];
+				for (int i = 0; i < n; i++) {
+					Instance instance = instances.get(i);
+					partition.targets[i] = instance.getTarget();
+					partition.weights[i] = instance.getWeight();
+				}
+			}
+			if (counts != null) {
+				double[] sampleWeights = new double[n];
+				for (int i = 0; i < n; i++) {
+					sampleWeights[i] = partition.weights[i] * counts[i];
+				}
+				partition.weights = sampleWeights;
+			}
+			partition.leftFlags = new boolean[n];
+			partition.rowBuffer = new int[n];
+			return dataset;
+		}
+		
+		static Dataset create(Instances instances) {
+			if (instances instanceof ColumnarInstances) {
+				return create((ColumnarInstances) instances);
+			} else if (instances instanceof TypedInstances) {
+				return create((TypedInstances) instances);
+			}
+			Dataset dataset = new Dataset(instances);
+			Schema schema = dataset.schema;
+			for (int j = 0; j < schema.size(); j++) {
+				dataset.sortedLists.set(j, new ArrayList<IntDoublePair>());
 			}
 			for (int i = 0; i < instances.size(); i++) {
 				Instance instance = instances.get(i);
@@ -81,35 +1174,85 @@ public abstract class TreeLearner extends Learner {
 					int[] indices = sv.getIndices();
 					double[] values = sv.getValues();
 					for (int k = 0; k < indices.length; k++) {
-						if (attMap.containsKey(indices[k])) {
-							String attName = attMap.get(indices[k]);
-							dataset.sortedLists.get(attName).add(new IntDoublePair(i, values[k]));
+						int position = schema.getPositionByIndex(indices[k]);
+						if (position >= 0) {
+							dataset.sortedLists.get(position).add(new IntDoublePair(i, values[k]));
 						}
 					}
 				} else {
 					double[] values = instance.getValues();
 					for (int j = 0; j < values.length; j++) {
-						if (attMap.containsKey(j) && values[j] != 0.0) {
-							String attName = attMap.get(j);
-							dataset.sortedLists.get(attName).add(new IntDoublePair(i, values[j]));
+						int position = schema.getPositionByIndex(j);
+						if (position >= 0 && values[j] != 0.0) {
+							dataset.sortedLists.get(position).add(new IntDoublePair(i, values[j]));
 						}
 					}
 				}
 			}
-			for (List<IntDoublePair> sortedList : dataset.sortedLists.values()) {
+			for (List<IntDoublePair> sortedList : dataset.sortedLists) {
 				Collections.sort(sortedList, COMP);
 			}
 			return dataset;
 		}
 		
+		/**
+		 * Creates the root of columnar instances. The root takes the instances as they are, since its rows are only
+		 * read, so that no row is copied; children still hold their own lists of row views.
+		 */
+		static Dataset create(ColumnarInstances instances) {
+			Dataset dataset = new Dataset();
+			dataset.instances = instances;
+			dataset.schema = instances.getSchema();
+			dataset.sortedLists = createSortedLists(dataset.schema.size());
+			final int n = instances.size();
+			List<Attribute> attributes = dataset.schema.getAttributes();
+			for (int j = 0; j < attributes.size(); j++) {
+				double[] column = instances.getColumn(attributes.get(j).getIndex());
+				List<IntDoublePair> sortedList = new ArrayList<>();
+				for (int i = 0; i < n; i++) {
+					double v = column[instances.getRowIndex(i)];
+					if (v != 0.0) {
+						sortedList.add(new IntDoublePair(i, v));
+					}
+				}
+				Collections.sort(sortedList, COMP);
+				dataset.sortedLists.set(j, sortedList);
+			}
+			return dataset;
+		}
+		
+		static Dataset create(TypedInstances instances) {
+			Dataset dataset = new Dataset(instances);
+			final int n = instances.size();
+			for (int i = 0; i < n; i++) {
+				dataset.instances.add(instances.get(i).clone());
+			}
+			List<Attribute> attributes = dataset.schema.getAttributes();
+			for (int j = 0; j < attributes.size(); j++) {
+				int attIndex = attributes.get(j).getIndex();
+				List<IntDoublePair> sortedList = new ArrayList<>();
+				for (int i = 0; i < n; i++) {
+					double v = instances.getValue(i, attIndex);
+					if (v != 0.0) {
+						sortedList.add(new IntDoublePair(i, v));
+					}
+				}
+				Collections.sort(sortedList, COMP);
+				dataset.sortedLists.set(j, sortedList);
+			}
+			return dataset;
+		}
+		
 		static Dataset create(Dataset dataset, Instances instances) {
 			Dataset copy = new Dataset();
 			copy.instances = instances;
-			copy.sortedLists = new HashMap<>(instances.dimension());
-			List<Attribute> attributes = instances.getAttributes();
-			for (Attribute attribute : attributes) {
-				String attName = attribute.getName();
-				List<IntDoublePair> sortedList = dataset.sortedLists.get(attName);
+			copy.schema = instances.getSchema();
+			copy.sortedLists = createSortedLists(copy.schema.size());
+			List<Attribute> attributes = copy.schema.getAttributes();
+			for (int j = 0; j < attributes.size(); j++) {
+				Attribute attribute = attributes.get(j);
+				int position = dataset.schema.getPosition(attribute.getName());
+				List<IntDoublePair> sortedList = position >= 0 ? dataset.sortedLists.get(position) : null;
 				if (sortedList == null) {
 					// This should not happen very often
 					sortedList = new ArrayList<>();
@@ -121,31 +1264,86 @@ public abstract class TreeLearner extends Learner {
 						}
 					}
 					Collections.sort(sortedList, COMP);
-					dataset.sortedLists.put(attName, sortedList);
+					if (position >= 0) {
+						dataset.sortedLists.set(position, sortedList);
+					}
 				}
 				List<IntDoublePair> copySortedList = new ArrayList<>(sortedList.size());
 				for (IntDoublePair pair : sortedList) {
 					copySortedList.add(new IntDoublePair(pair.v1, pair.v2));
 				}
-				copy.sortedLists.put(attName, copySortedList);
+				copy.sortedLists.set(j, copySortedList);
 			}
 			return copy;
 		}
+		
+		static List<List<IntDoublePair>> createSortedLists(int size) {
+			return new ArrayList<>(Collections.nCopies(size, (List<IntDoublePair>) null));
+		}
 
 		public Instances instances;
-		public Map<String, List<IntDoublePair>> sortedLists;
+		public Schema schema;
+		public List<List<IntDoublePair>> sortedLists;
+		Partition partition;
+		SplittableRandom random;
 		
 		Dataset() {
 			
 		}
 
 		Dataset(Instances instances) {
+			this(instances, instances.getSchema());
+		}
+		
+		/**
+		 * Constructs an empty dataset for a child node, sharing the schema of its parent. In the index-partition
+		 * representation, the child shares the instances and sorted lists of its parent, and the ranges of its
+		 * partition are set by {@link #split(int, double, Dataset, Dataset)}.
+		 */
+		Dataset(Dataset parent) {
+			this.schema = parent.schema;
+			if (parent.partition != null) {
+				this.instances = parent.instances;
+				this.sortedLists = parent.sortedLists;
+				this.partition = new Partition(parent.partition);
+			} else {
+				this.instances = new Instances(parent.instances.getAttributes(), parent.instances.getTargetAttribute());
+				this.sortedLists = createSortedLists(schema.size());
+			}
+		}
+		
+		Dataset(Instances instances, Schema schema) {
 			this.instances = new Instances(instances.getAttributes(), instances.getTargetAttribute());
-			sortedLists = new HashMap<>(instances.dimension());
+			this.schema = schema;
+			this.sortedLists = createSortedLists(schema.size());
+		}
+		
+		/**
+		 * Returns the random stream of this node.
+		 * 
+		 * @return the random stream of this node.
+		 */
+		public SplittableRandom getRandom() {
+			return random;
+		}
+		
+		/**
+		 * Returns the number of instances in this dataset.
+		 */
+		int size() {
+			return partition != null ? partition.size() : instances.size();
+		}
+		
+		/**
+		 * Returns the sorted list of an attribute, or {@code null} if it is not built.
+		 */
+		List<IntDoublePair> getSortedList(Attribute attribute) {
+			int position = schema.getPositionByIndex(attribute.getIndex());
+			return position >= 0 ? sortedLists.get(position) : null;
 		}
 		
 		static Dataset merge(Dataset left, Dataset right) {
-			Dataset data = new Dataset(left.instances);
+			Dataset data = new Dataset(left);
 			int lSize = left.instances.size();
 			for (Instance instance : left.instances) {
 				data.instances.add(instance);
@@ -153,10 +1351,23 @@ public abstract class TreeLearner extends Learner {
 			for (Instance instance : right.instances) {
 				data.instances.add(instance);
 			}
-			for (String attName : left.sortedLists.keySet()) {
-				List<IntDoublePair> lSortedList = left.sortedLists.get(attName);
-				List<IntDoublePair> rSortedList = right.sortedLists.get(attName);
-				List<IntDoublePair> sortedList = new ArrayList<>(data.instances.size());
+			mergeSortedLists(left, right, lSize, data);
+			return data;
+		}
+		
+		/**
+		 * Merges the sorted lists of two datasets into those of a dataset whose rows are the rows of the left
+		 * dataset followed by the rows of the right dataset.
+		 */
+		static void mergeSortedLists(Dataset left, Dataset right, int lSize, Dataset data) {
+			final int size = lSize + right.size();
+			for (int k = 0; k < left.sortedLists.size(); k++) {
+				List<IntDoublePair> lSortedList = left.sortedLists.get(k);
+				List<IntDoublePair> rSortedList = right.sortedLists.get(k);
+				if (lSortedList == null) {
+					continue;
+				}
+				List<IntDoublePair> sortedList = new ArrayList<>(size);
 				int i = 0;
 				int j = 0;
 				while (i < lSortedList.size() && j < rSortedList.size()) {
@@ -188,13 +1399,15 @@ public abstract class TreeLearner extends Learner {
 					sortedList.add(r);
 					j++;
 				}
-				data.sortedLists.put(attName, sortedList);
+				data.sortedLists.set(k, sortedList);
 			}
-			
-			return data;
 		}
 		
 		void split(int attIndex, double split, Dataset left, Dataset right) {
+			if (partition != null) {
+				partition.split(attIndex, schema.getPositionByIndex(attIndex), split, left.partition, right.partition);
+				return;
+			}
 			int[] leftHash = new int[instances.size()];
 			int[] rightHash = new int[instances.size()];
 			Arrays.fill(leftHash, -1);
@@ -209,24 +1422,35 @@ public abstract class TreeLearner extends Learner {
 					rightHash[i] = right.instances.size() - 1;
 				}
 			}
-
-			for (String attName : sortedLists.keySet()) {
-				left.sortedLists.put(attName, new ArrayList<IntDoublePair>(left.instances.size()));
-				right.sortedLists.put(attName, new ArrayList<IntDoublePair>(right.instances.size()));
-
-				List<IntDoublePair> sortedList = sortedLists.get(attName);
+			splitSortedLists(leftHash, rightHash, left, right);
+		}
+		
+		/**
+		 * Splits the sorted lists of this dataset between two datasets, given the position of each row of this dataset
+		 * in either of them, or -1 if not there.
+		 */
+		void splitSortedLists(int[] leftHash, int[] rightHash, Dataset left, Dataset right) {
+			for (int k = 0; k < sortedLists.size(); k++) {
+				List<IntDoublePair> sortedList = sortedLists.get(k);
+				if (sortedList == null) {
+					continue;
+				}
+				List<IntDoublePair> leftSortedList = new ArrayList<>(left.size());
+				List<IntDoublePair> rightSortedList = new ArrayList<>(right.size());
 				for (IntDoublePair pair : sortedList) {
 					int leftIdx = leftHash[pair.v1];
 					int rightIdx = rightHash[pair.v1];
 					if (leftIdx != -1) {
 						pair.v1 = leftIdx;
-						left.sortedLists.get(attName).add(pair);
+						leftSortedList.add(pair);
 					}
 					if (rightIdx != -1) {
 						pair.v1 = rightIdx;
-						right.sortedLists.get(attName).add(pair);
+						rightSortedList.add(pair);
 					}
 				}
+				left.sortedLists.set(k, leftSortedList);
+				right.sortedLists.set(k, rightSortedList);
 			}
 		}
 
@@ -46,4 +46,13 @@ public class BaggedRTrees extends RTreeList {
 		return pred / trees.size();
 	}
 
+	/**
+	 * Returns the compiled form of this ensemble for fast scoring. The compiled form does not reflect later changes.
+	 * 
+	 * @return the compiled form of this ensemble.
+	 */
+	public CompiledRTreeList compile() {
+		return new CompiledRTreeList(trees, trees.size());
+	}
+
 }
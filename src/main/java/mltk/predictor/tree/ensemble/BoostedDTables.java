@@ -1,6 +1,9 @@
 package mltk.predictor.tree.ensemble;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -8,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Copyable;
 import mltk.core.Instance;
 import mltk.core.SparseVector;
@@ -20,7 +24,7 @@ import mltk.predictor.tree.RTree;
  * @author Yin Lou
  *
  */
-public class BoostedDTables implements Copyable<BoostedDTables> {
+public class BoostedDTables implements Copyable<BoostedDTables>, BinaryWritable {
 	
 	static class IndexElement implements Comparable<IndexElement> {
 		
@@ -274,5 +278,36 @@ public class BoostedDTables implements Copyable<BoostedDTables> {
 			out.println();
 		}
 	}
+
+	/**
+	 * Reads in this boosted decision tables in binary format.
+	 * 
+	 * @param in the input stream.
+	 * @throws IOException
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		for (int j = 0; j < n; j++) {
+			DecisionTable dt = new DecisionTable();
+			dt.read(in);
+			this.dtList.add(dt);
+		}
+		buildIndex();
+	}
+
+	/**
+	 * Writes this boosted decision tables in binary format.
+	 * 
+	 * @param out the output stream.
+	 * @throws IOException
+	 */
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(dtList.size());
+		for (DecisionTable dt : dtList) {
+			dt.write(out);
+		}
+	}
 	
 }
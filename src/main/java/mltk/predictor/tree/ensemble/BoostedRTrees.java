@@ -1,10 +1,16 @@
 package mltk.predictor.tree.ensemble;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
+import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
 import mltk.predictor.tree.RTree;
 
 /**
@@ -13,7 +19,7 @@ import mltk.predictor.tree.RTree;
  * @author Yin Lou
  * 
  */
-public class BoostedRTrees extends RTreeList {
+public class BoostedRTrees extends RTreeList implements BinaryWritable {
 
 	/**
 	 * Constructor.
@@ -48,6 +54,15 @@ public class BoostedRTrees extends RTreeList {
 		return pred;
 	}
 
+	/**
+	 * Returns the compiled form of this ensemble for fast scoring. The compiled form does not reflect later changes.
+	 * 
+	 * @return the compiled form of this ensemble.
+	 */
+	public CompiledRTreeList compile() {
+		return new CompiledRTreeList(trees, 1);
+	}
+
 	@Override
 	public BoostedRTrees copy() {
 		BoostedRTrees copy = new BoostedRTrees();
@@ -80,4 +95,20 @@ public class BoostedRTrees extends RTreeList {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int n = in.readInt();
+		for (int j = 0; j < n; j++) {
+			this.trees.add((RTree) PredictorReader.read(in));
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(trees.size());
+		for (RTree rt : trees) {
+			PredictorWriter.write(rt, out);
+		}
+	}
+
 }
@@ -0,0 +1,144 @@
+package mltk.predictor.tree.ensemble;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import mltk.core.DenseInstanceView;
+import mltk.core.Instance;
+import mltk.predictor.tree.CompiledRegressionTree;
+import mltk.predictor.tree.DecisionTable;
+import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTree;
+
+/**
+ * Class for the compiled form of a list of regression trees, which predicts the sum of the predictions of the trees
+ * divided by a constant. Regression trees are compiled (see {@link CompiledRegressionTree}) and concatenated into one
+ * set of parallel primitive arrays, so that scoring an instance walks contiguous memory; other trees, such as
+ * decision tables, are scored as they are. Trees are summed in their original order, so the predictions are the same
+ * as those of the list. A sparse instance is bound to a {@link DenseInstanceView} of the attributes used by the trees
+ * once, so that the trees look up its attributes in constant time instead of each binary searching its vector.
+ *
+ * <p>
+ * A compiled list is a snapshot: later changes to the list or its trees are not reflected. It can be shared by
+ * concurrent scoring threads.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class CompiledRTreeList {
+
+	/**
+	 * The offsets of the roots of compiled trees, or {@code -k - 1} for the k-th tree that is not compiled.
+	 */
+	protected int[] roots;
+	protected int[] attIndices;
+	protected double[] splits;
+	protected int[] children;
+	protected double[] values;
+	protected RTree[] others;
+	protected double divisor;
+	protected final DenseInstanceView.Cache views = new DenseInstanceView.Cache(this::collectAttributeIndices);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param trees the trees.
+	 * @param divisor the constant that divides the sum of the predictions.
+	 */
+	public CompiledRTreeList(Iterable<? extends RTree> trees, double divisor) {
+		List<CompiledRegressionTree> compiledTrees = new ArrayList<>();
+		List<RTree> otherTrees = new ArrayList<>();
+		List<Integer> order = new ArrayList<>();
+		int numNodes = 0;
+		for (RTree rt : trees) {
+			if (rt instanceof RegressionTree) {
+				CompiledRegressionTree compiled = ((RegressionTree) rt).compile();
+				order.add(numNodes);
+				numNodes += compiled.size();
+				compiledTrees.add(compiled);
+			} else {
+				otherTrees.add(rt.copy());
+				order.add(-otherTrees.size());
+			}
+		}
+
+		roots = new int[order.size()];
+		for (int i = 0; i < roots.length; i++) {
+			roots[i] = order.get(i);
+		}
+		attIndices = new int[numNodes];
+		splits = new double[numNodes];
+		children = new int[numNodes];
+		values = new double[numNodes];
+		int offset = 0;
+		for (CompiledRegressionTree compiled : compiledTrees) {
+			final int n = compiled.size();
+			System.arraycopy(compiled.getAttributeIndices(), 0, attIndices, offset, n);
+			System.arraycopy(compiled.getSplitPoints(), 0, splits, offset, n);
+			System.arraycopy(compiled.getValues(), 0, values, offset, n);
+			int[] c = compiled.getChildren();
+			for (int i = 0; i < n; i++) {
+				children[offset + i] = c[i] + offset;
+			}
+			offset += n;
+		}
+		others = otherTrees.toArray(new RTree[otherTrees.size()]);
+		this.divisor = divisor;
+	}
+
+	/**
+	 * Adds the attribute indices used in the trees of this list to a set. Trees other than {@link RegressionTree} and
+	 * {@link DecisionTable} are skipped.
+	 *
+	 * @param attIndices the set of attribute indices.
+	 */
+	public void collectAttributeIndices(Set<Integer> attIndices) {
+		for (int attIndex : this.attIndices) {
+			if (attIndex >= 0) {
+				attIndices.add(attIndex);
+			}
+		}
+		for (RTree rt : others) {
+			if (rt instanceof DecisionTable) {
+				((DecisionTable) rt).collectAttributeIndices(attIndices);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of trees.
+	 *
+	 * @return the number of trees.
+	 */
+	public int size() {
+		return roots.length;
+	}
+
+	/**
+	 * Regresses an instance.
+	 *
+	 * @param instance the instance.
+	 * @return the regressed value.
+	 */
+	public double regress(Instance instance) {
+		if (instance.isSparse() && !(instance instanceof DenseInstanceView)) {
+			instance = views.get().bind(instance);
+		}
+		double pred = 0;
+		for (int root : roots) {
+			if (root >= 0) {
+				int node = root;
+				while (attIndices[node] >= 0) {
+					node = instance.getValue(attIndices[node]) <= splits[node] ? children[node] : children[node] + 1;
+				}
+				pred += values[node];
+			} else {
+				pred += others[-root - 1].regress(instance);
+			}
+		}
+		return pred / divisor;
+	}
+
+}
@@ -3,9 +3,12 @@ package mltk.predictor.tree.ensemble;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import mltk.core.Copyable;
+import mltk.predictor.tree.DecisionTable;
 import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTree;
 
 /**
  * Class for regression tree list.
@@ -42,6 +45,22 @@ public class RTreeList implements Iterable<RTree>, Copyable<RTreeList> {
 		trees.add(tree);
 	}
 
+	/**
+	 * Adds the attribute indices used in the trees of this list to a set. Trees other than {@link RegressionTree} and
+	 * {@link DecisionTable} are skipped.
+	 * 
+	 * @param attIndices the set of attribute indices.
+	 */
+	public void collectAttributeIndices(Set<Integer> attIndices) {
+		for (RTree rt : trees) {
+			if (rt instanceof RegressionTree) {
+				((RegressionTree) rt).collectAttributeIndices(attIndices);
+			} else if (rt instanceof DecisionTable) {
+				((DecisionTable) rt).collectAttributeIndices(attIndices);
+			}
+		}
+	}
+
 	@Override
 	public RTreeList copy() {
 		RTreeList copy = new RTreeList();
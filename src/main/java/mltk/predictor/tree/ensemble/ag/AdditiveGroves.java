@@ -1,10 +1,15 @@
 package mltk.predictor.tree.ensemble.ag;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import mltk.core.BinaryWritable;
+import mltk.core.DenseInstanceView;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
 import mltk.predictor.tree.RegressionTree;
@@ -15,9 +20,16 @@ import mltk.predictor.tree.RegressionTree;
  * @author Yin Lou
  * 
  */
-public class AdditiveGroves implements Regressor {
+public class AdditiveGroves implements Regressor, BinaryWritable {
 
 	protected List<RegressionTree[]> groves;
+	protected final DenseInstanceView.Cache views = new DenseInstanceView.Cache(attIndices -> {
+		for (RegressionTree[] grove : groves) {
+			for (RegressionTree rt : grove) {
+				rt.collectAttributeIndices(attIndices);
+			}
+		}
+	});
 
 	/**
 	 * Constructor.
@@ -30,6 +42,7 @@ public class AdditiveGroves implements Regressor {
 	public void read(BufferedReader in) throws Exception {
 		int bn = Integer.parseInt(in.readLine().split(": ")[1]);
 		groves = new ArrayList<>();
+		views.invalidate();
 		for (int i = 0; i < bn; i++) {
 			int tn = Integer.parseInt(in.readLine().split(": ")[1]);
 			RegressionTree[] grove = new RegressionTree[tn];
@@ -37,7 +50,7 @@ public class AdditiveGroves implements Regressor {
 				in.readLine();
 				RegressionTree rt = new RegressionTree();
 				rt.read(in);
-				grove[i] = rt;
+				grove[j] = rt;
 
 				in.readLine();
 			}
@@ -60,11 +73,54 @@ public class AdditiveGroves implements Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int bn = in.readInt();
+		groves = new ArrayList<>(bn);
+		views.invalidate();
+		for (int i = 0; i < bn; i++) {
+			RegressionTree[] grove = new RegressionTree[in.readInt()];
+			for (int j = 0; j < grove.length; j++) {
+				grove[j] = new RegressionTree();
+				grove[j].read(in);
+			}
+			groves.add(grove);
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(groves.size());
+		for (RegressionTree[] grove : groves) {
+			out.writeInt(grove.length);
+			for (RegressionTree rt : grove) {
+				rt.write(out);
+			}
+		}
+	}
+
+	/**
+	 * Adds a grove to this model.
+	 * 
+	 * @param grove the grove to add.
+	 */
+	public void add(RegressionTree[] grove) {
+		groves.add(grove);
+		views.invalidate();
+	}
+
+	/**
+	 * Regresses an instance. A sparse instance is bound to a {@link DenseInstanceView} of the attributes used by the
+	 * trees once, so that the trees look up its attributes in constant time.
+	 */
 	@Override
 	public double regress(Instance instance) {
 		if (groves.size() == 0) {
 			return 0;
 		}
+		if (instance.isSparse() && !(instance instanceof DenseInstanceView)) {
+			instance = getView().bind(instance);
+		}
 		double pred = 0;
 		for (RegressionTree[] grove : groves) {
 			for (RegressionTree rt : grove) {
@@ -74,6 +130,26 @@ public class AdditiveGroves implements Regressor {
 		return pred / groves.size();
 	}
 
+	/**
+	 * Returns the compiled form of this model for fast scoring. The compiled form does not reflect later changes.
+	 * 
+	 * @return the compiled form of this model.
+	 */
+	@Override
+	public CompiledAdditiveGroves compile() {
+		return new CompiledAdditiveGroves(this);
+	}
+
+	/**
+	 * Returns the scoring view of this thread, over the attributes used by the trees when it was first requested since
+	 * the last grove was added. Attributes of trees modified in place later are read from the bound instance.
+	 * 
+	 * @return the scoring view of this thread.
+	 */
+	protected DenseInstanceView getView() {
+		return views.get();
+	}
+
 	@Override
 	public AdditiveGroves copy() {
 		AdditiveGroves copy = new AdditiveGroves();
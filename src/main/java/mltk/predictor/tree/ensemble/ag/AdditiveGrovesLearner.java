@@ -1,9 +1,7 @@
 package mltk.predictor.tree.ensemble.ag;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
@@ -40,6 +38,9 @@ public class AdditiveGrovesLearner extends Learner {
 	
 	static class Options extends LearnerOptions {
 
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
 		@Argument(name = "-v", description = "valid set path", required = true)
 		String validPath = null;
 
@@ -73,6 +74,7 @@ public class AdditiveGrovesLearner extends Learner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
+	 * [-P]	parallelism level (default: 1)
 	 * [-o]	output model path
 	 * [-e]	AUC (a), RMSE (r) (default: r)
 	 * [-b]	bagging iterations (default: 60)
@@ -109,6 +111,7 @@ public class AdditiveGrovesLearner extends Learner {
 		learner.setBaggingIters(opts.baggingIters);
 		learner.setNumTrees(opts.n);
 		learner.setMinAlpha(opts.a);
+		learner.setParallelism(opts.parallelism);
 		learner.setMetric(metric);
 		learner.setVerbose(opts.verbose);
 
@@ -213,7 +216,7 @@ public class AdditiveGrovesLearner extends Learner {
 			if (groves[t][a] == null) {
 				groves[t][a] = new AdditiveGroves();
 			}
-			groves[t][a].groves.add(grove);
+			groves[t][a].add(grove);
 		}
 
 	}
@@ -249,6 +252,7 @@ public class AdditiveGrovesLearner extends Learner {
 	private int numTrees;
 	private int baggingIters;
 	private double minAlpha;
+	private int parallelism;
 	private SimpleMetric metric;
 
 	/**
@@ -259,6 +263,7 @@ public class AdditiveGrovesLearner extends Learner {
 		numTrees = 6;
 		baggingIters = 60;
 		minAlpha = 0.01;
+		parallelism = 1;
 		metric = new RMSE();
 	}
 
@@ -364,6 +369,24 @@ public class AdditiveGrovesLearner extends Learner {
 		this.baggingIters = baggingIters;
 	}
 
+	/**
+	 * Returns the parallelism level used to grow each regression tree.
+	 *
+	 * @return the parallelism level.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Sets the parallelism level used to grow each regression tree. Groves do not depend on the parallelism level.
+	 *
+	 * @param parallelism the parallelism level.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
 	/**
 	 * Builds additive groves.
 	 * 
@@ -516,7 +539,7 @@ public class AdditiveGrovesLearner extends Learner {
 
 				RegressionTree[] grove = new RegressionTree[tn];
 				backfit(trainSet, currAlpha, grove, rtPreds, residualTrain);
-				ag.groves.add(grove);
+				ag.add(grove);
 			}
 		}
 
@@ -566,20 +589,13 @@ public class AdditiveGrovesLearner extends Learner {
 
 	protected void backfit(Instances trainSet, double alpha, RegressionTree[] grove, double[][] rtPreds,
 			double[] residualTrain) {
-		Map<Integer, Integer> bagIndices = new HashMap<>();
 		List<Integer> oobIndices = new ArrayList<>();
-		Sampling.createBootstrapSample(trainSet, bagIndices, oobIndices);
-		Instances bag = new Instances(trainSet.getAttributes(), trainSet.getTargetAttribute(), bagIndices.size());
-		for (Integer idx : bagIndices.keySet()) {
-			int weight = bagIndices.get(idx);
-			Instance instance = trainSet.get(idx).clone();
-			instance.setWeight(weight);
-			bag.add(instance);
-		}
+		int[] counts = Sampling.createBootstrapCounts(trainSet.size(), oobIndices);
 
 		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
 		rtLearner.setConstructionMode(Mode.ALPHA_LIMITED);
 		rtLearner.setAlpha(alpha);
+		rtLearner.setParallelism(parallelism);
 
 		double prevRMSE = evalRMSE(oobIndices, residualTrain);
 		for (;;) {
@@ -592,7 +608,7 @@ public class AdditiveGrovesLearner extends Learner {
 					trainSet.get(i).setTarget(residualTrain[i]);
 				}
 
-				RegressionTree rt = rtLearner.build(bag);
+				RegressionTree rt = rtLearner.build(trainSet, counts, Random.getInstance().nextLong());
 				grove[treeIdx] = rt;
 
 				for (int i = 0; i < residualTrain.length; i++) {
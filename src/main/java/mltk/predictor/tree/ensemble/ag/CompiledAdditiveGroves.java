@@ -0,0 +1,125 @@
+package mltk.predictor.tree.ensemble.ag;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mltk.core.BinaryWritable;
+import mltk.core.Instance;
+import mltk.predictor.Regressor;
+import mltk.predictor.tree.RegressionTree;
+import mltk.predictor.tree.ensemble.CompiledRTreeList;
+
+/**
+ * Class for the compiled form of Additive Groves, which holds the trees of all groves in one
+ * {@link CompiledRTreeList}. Predictions are the same as those of the source model.
+ *
+ * <p>
+ * A compiled model is a snapshot: later changes to the source model are not reflected. It can be shared by concurrent
+ * scoring threads. Writing a compiled model writes its source model, which reads back as an {@link AdditiveGroves} from
+ * text format and as a compiled model from binary format.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class CompiledAdditiveGroves implements Regressor, BinaryWritable {
+
+	protected AdditiveGroves ag;
+	protected CompiledRTreeList trees;
+
+	/**
+	 * Constructor.
+	 */
+	public CompiledAdditiveGroves() {
+
+	}
+
+	/**
+	 * Constructor. The model is copied, so that later changes to it are neither scored nor written.
+	 *
+	 * @param ag the model to compile.
+	 */
+	public CompiledAdditiveGroves(AdditiveGroves ag) {
+		compile(ag.copy());
+	}
+
+	/**
+	 * Returns a copy of the source model as it was compiled.
+	 *
+	 * @return the source model.
+	 */
+	public AdditiveGroves getModel() {
+		return ag.copy();
+	}
+
+	/**
+	 * Returns the compiled tree list.
+	 *
+	 * @return the compiled tree list.
+	 */
+	public CompiledRTreeList getRegressionTreeList() {
+		return trees;
+	}
+
+	@Override
+	public double regress(Instance instance) {
+		return trees.regress(instance);
+	}
+
+	/**
+	 * Reads in an {@link AdditiveGroves} and compiles it.
+	 */
+	@Override
+	public void read(BufferedReader in) throws Exception {
+		AdditiveGroves ag = new AdditiveGroves();
+		ag.read(in);
+		compile(ag);
+	}
+
+	/**
+	 * Writes the source model as it was compiled.
+	 */
+	@Override
+	public void write(PrintWriter out) throws Exception {
+		ag.write(out);
+	}
+
+	/**
+	 * Reads in an {@link AdditiveGroves} in binary format and compiles it.
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		AdditiveGroves ag = new AdditiveGroves();
+		ag.read(in);
+		compile(ag);
+	}
+
+	/**
+	 * Writes the source model as it was compiled in binary format.
+	 */
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		ag.write(out);
+	}
+
+	@Override
+	public CompiledAdditiveGroves copy() {
+		return new CompiledAdditiveGroves(ag);
+	}
+
+	protected void compile(AdditiveGroves ag) {
+		this.ag = ag;
+		List<RegressionTree> list = new ArrayList<>();
+		for (RegressionTree[] grove : ag.groves) {
+			list.addAll(Arrays.asList(grove));
+		}
+		trees = new CompiledRTreeList(list, Math.max(ag.groves.size(), 1));
+	}
+
+}
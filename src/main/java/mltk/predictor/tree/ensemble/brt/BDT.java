@@ -1,8 +1,12 @@
 package mltk.predictor.tree.ensemble.brt;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 
+import mltk.core.BinaryWritable;
 import mltk.core.Instance;
 import mltk.predictor.ProbabilisticClassifier;
 import mltk.predictor.Regressor;
@@ -23,7 +27,7 @@ import mltk.util.VectorUtils;
  * @author Yin Lou
  * 
  */
-public class BDT implements ProbabilisticClassifier, Regressor {
+public class BDT implements ProbabilisticClassifier, Regressor, BinaryWritable {
 
 	protected BoostedDTables[] tables;
 	
@@ -102,6 +106,24 @@ public class BDT implements ProbabilisticClassifier, Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int k = in.readInt();
+		tables = new BoostedDTables[k];
+		for (int i = 0; i < tables.length; i++) {
+			tables[i] = new BoostedDTables();
+			tables[i].read(in);
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(tables.length);
+		for (BoostedDTables dtList : tables) {
+			dtList.write(out);
+		}
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		return tables[0].regress(instance);
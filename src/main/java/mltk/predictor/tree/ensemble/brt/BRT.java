@@ -1,9 +1,18 @@
 package mltk.predictor.tree.ensemble.brt;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
+import mltk.core.BinaryWritable;
+import mltk.core.DenseInstanceView;
 import mltk.core.Instance;
+import mltk.core.Instances;
 import mltk.predictor.ProbabilisticClassifier;
 import mltk.predictor.Regressor;
 import mltk.predictor.tree.RTree;
@@ -18,7 +27,7 @@ import mltk.util.VectorUtils;
  * @author Yin Lou
  * 
  */
-public class BRT implements ProbabilisticClassifier, Regressor {
+public class BRT implements ProbabilisticClassifier, Regressor, BinaryWritable {
 
 	protected BoostedRTrees[] trees;
 
@@ -51,6 +60,36 @@ public class BRT implements ProbabilisticClassifier, Regressor {
 		return trees[k];
 	}
 
+	/**
+	 * Returns the attribute indices used in this model in ascending order, e.g., to build a {@link DenseInstanceView}
+	 * shared by the trees of all classes.
+	 * 
+	 * @return the attribute indices used in this model.
+	 */
+	public int[] getAttributeIndices() {
+		Set<Integer> attIndices = new TreeSet<>();
+		for (BoostedRTrees brts : trees) {
+			brts.collectAttributeIndices(attIndices);
+		}
+		int[] a = new int[attIndices.size()];
+		int k = 0;
+		for (int attIndex : attIndices) {
+			a[k++] = attIndex;
+		}
+		return a;
+	}
+
+	/**
+	 * Returns the compiled form of this model for fast scoring, which compiles the tree lists of all classes. The
+	 * compiled form does not reflect later changes.
+	 * 
+	 * @return the compiled form of this model.
+	 */
+	@Override
+	public CompiledBRT compile() {
+		return new CompiledBRT(this);
+	}
+
 	@Override
 	public int classify(Instance instance) {
 		double[] prob = predictProbabilities(instance);
@@ -80,6 +119,24 @@ public class BRT implements ProbabilisticClassifier, Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int k = in.readInt();
+		trees = new BoostedRTrees[k];
+		for (int i = 0; i < trees.length; i++) {
+			trees[i] = new BoostedRTrees();
+			trees[i].read(in);
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(trees.length);
+		for (BoostedRTrees rtList : trees) {
+			rtList.write(out);
+		}
+	}
+
 	@Override
 	public double regress(Instance instance) {
 		return trees[0].regress(instance);
@@ -110,6 +167,30 @@ public class BRT implements ProbabilisticClassifier, Regressor {
 		}
 	}
 
+	/**
+	 * Predicts the probabilities of the classes for a set of instances, scoring the instances concurrently through
+	 * the compiled form of this model, see {@link CompiledBRT#predictProbabilities(Instances, int)}.
+	 * 
+	 * @param instances the instances.
+	 * @param numThreads the number of threads.
+	 * @return the probabilities of the classes for each instance.
+	 */
+	public double[][] predictProbabilities(Instances instances, int numThreads) {
+		return compile().predictProbabilities(instances, numThreads);
+	}
+
+	/**
+	 * Predicts the probabilities of the classes for a set of instances, scoring the instances concurrently in a pool
+	 * through the compiled form of this model, see {@link CompiledBRT#predictProbabilities(Instances, ForkJoinPool)}.
+	 * 
+	 * @param instances the instances.
+	 * @param pool the pool to score the instances in.
+	 * @return the probabilities of the classes for each instance.
+	 */
+	public double[][] predictProbabilities(Instances instances, ForkJoinPool pool) {
+		return compile().predictProbabilities(instances, pool);
+	}
+
 	@Override
 	public BRT copy() {
 		BRT copy = new BRT(trees.length);
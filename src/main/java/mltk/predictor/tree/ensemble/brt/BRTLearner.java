@@ -1,5 +1,10 @@
 package mltk.predictor.tree.ensemble.brt;
 
+import mltk.core.Instances;
+import mltk.predictor.tree.CompiledRegressionTree;
+import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTree;
+import mltk.predictor.tree.RegressionTreeLeaf;
 import mltk.predictor.tree.RegressionTreeLearner.Mode;
 import mltk.predictor.tree.ensemble.TreeEnsembleLearner;
 
@@ -86,4 +91,45 @@ public abstract class BRTLearner extends TreeEnsembleLearner {
 		this.maxNumIters = maxNumIters;
 	}
 	
+	/**
+	 * Adds the predictions of a new tree on the training set, multiplied by a constant, to an array. Predictions are
+	 * read from the leaves recorded when the tree was built, and the tree is only traversed for instances without
+	 * a recorded leaf.
+	 * 
+	 * @param rt the tree.
+	 * @param leaves the leaves of the instances.
+	 * @param instances the training set.
+	 * @param c the constant.
+	 * @param preds the predictions to update.
+	 */
+	protected static void addPredictions(RTree rt, RegressionTreeLeaf[] leaves, Instances instances, double c,
+			double[] preds) {
+		for (int i = 0; i < preds.length; i++) {
+			RegressionTreeLeaf leaf = leaves[i];
+			double pred = leaf != null ? leaf.getPrediction() : rt.regress(instances.get(i));
+			preds[i] += c * pred;
+		}
+	}
+	
+	/**
+	 * Adds the predictions of a new tree on a dataset to an array. Regression trees are compiled first, so that
+	 * instances are routed through the array-based form of the tree.
+	 * 
+	 * @param rt the tree.
+	 * @param instances the dataset.
+	 * @param preds the predictions to update.
+	 */
+	protected static void addPredictions(RTree rt, Instances instances, double[] preds) {
+		if (rt instanceof RegressionTree) {
+			CompiledRegressionTree tree = ((RegressionTree) rt).compile();
+			for (int i = 0; i < preds.length; i++) {
+				preds[i] += tree.regress(instances.get(i));
+			}
+		} else {
+			for (int i = 0; i < preds.length; i++) {
+				preds[i] += rt.regress(instances.get(i));
+			}
+		}
+	}
+	
 }
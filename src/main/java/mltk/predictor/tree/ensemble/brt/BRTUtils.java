@@ -8,7 +8,7 @@ class BRTUtils {
 
 	public static TreeLearner parseTreeLearner(String baseLearner) {
 		String[] data = baseLearner.split(":");
-		if (data.length != 3) {
+		if (data.length != 3 && data.length != 4) {
 			throw new IllegalArgumentException();
 		}
 		TreeLearner rtLearner = null;
@@ -30,6 +30,13 @@ class BRTUtils {
 				throw new IllegalArgumentException();
 		}
 		rtLearner.setParameters(data[1] + ":" + data[2]);
+		if (data.length == 4) {
+			// Maximum number of bins for histogram-based split finding
+			if (!(rtLearner instanceof RegressionTreeLearner)) {
+				throw new IllegalArgumentException();
+			}
+			((RegressionTreeLearner) rtLearner).setMaxNumBins(Integer.parseInt(data[3]));
+		}
 		
 		return rtLearner;
 	}
@@ -0,0 +1,211 @@
+package mltk.predictor.tree.ensemble.brt;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import mltk.core.BinaryWritable;
+import mltk.core.DenseInstanceView;
+import mltk.core.Instance;
+import mltk.core.Instances;
+import mltk.predictor.ProbabilisticClassifier;
+import mltk.predictor.Regressor;
+import mltk.predictor.tree.TreeLearner.RangeTask;
+import mltk.predictor.tree.ensemble.CompiledRTreeList;
+import mltk.util.MathUtils;
+import mltk.util.StatUtils;
+import mltk.util.VectorUtils;
+
+/**
+ * Class for the compiled form of boosted regression trees (BRTs), which holds one {@link CompiledRTreeList} per class.
+ * Predictions are the same as those of the source model. When there are multiple classes, a sparse instance is bound
+ * to a {@link DenseInstanceView} once, so that the trees of all classes look up its attributes in constant time.
+ *
+ * <p>
+ * A compiled model is a snapshot: later changes to the source model are not reflected. It can be shared by concurrent
+ * scoring threads. Writing a compiled model writes its source model, which reads back as a {@link BRT} from text format
+ * and as a compiled model from binary format.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class CompiledBRT implements ProbabilisticClassifier, Regressor, BinaryWritable {
+
+	/**
+	 * The scoring pools, by number of threads.
+	 */
+	private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+	protected BRT brt;
+	protected CompiledRTreeList[] trees;
+	protected final DenseInstanceView.Cache views = new DenseInstanceView.Cache(attIndices -> {
+		for (CompiledRTreeList rtList : trees) {
+			rtList.collectAttributeIndices(attIndices);
+		}
+	});
+
+	/**
+	 * Constructor.
+	 */
+	public CompiledBRT() {
+
+	}
+
+	/**
+	 * Constructor. The model is copied, so that later changes to it are neither scored nor written.
+	 *
+	 * @param brt the model to compile.
+	 */
+	public CompiledBRT(BRT brt) {
+		compile(brt.copy());
+	}
+
+	/**
+	 * Returns a copy of the source model as it was compiled.
+	 *
+	 * @return the source model.
+	 */
+	public BRT getModel() {
+		return brt.copy();
+	}
+
+	/**
+	 * Returns the compiled tree list for class k.
+	 *
+	 * @param k the class k.
+	 * @return the compiled tree list for class k.
+	 */
+	public CompiledRTreeList getRegressionTreeList(int k) {
+		return trees[k];
+	}
+
+	@Override
+	public int classify(Instance instance) {
+		double[] prob = predictProbabilities(instance);
+		return StatUtils.indexOfMax(prob);
+	}
+
+	@Override
+	public double regress(Instance instance) {
+		return trees[0].regress(instance);
+	}
+
+	@Override
+	public double[] predictProbabilities(Instance instance) {
+		if (trees.length == 1) {
+			double[] prob = new double[2];
+			double pred = regress(instance);
+			prob[1] = MathUtils.sigmoid(pred);
+			prob[0] = 1 - prob[1];
+			return prob;
+		} else {
+			double[] prob = new double[trees.length];
+			double[] pred = new double[trees.length];
+			Instance x = instance.isSparse() ? views.get().bind(instance) : instance;
+			for (int i = 0; i < trees.length; i++) {
+				pred[i] = trees[i].regress(x);
+			}
+			double max = StatUtils.max(pred);
+			double sum = 0;
+			for (int i = 0; i < prob.length; i++) {
+				prob[i] = Math.exp(pred[i] - max);
+				sum += prob[i];
+			}
+			VectorUtils.divide(prob, sum);
+			return prob;
+		}
+	}
+
+	/**
+	 * Predicts the probabilities of the classes for a set of instances, scoring the instances concurrently with a
+	 * number of threads. Each instance is scored by one thread, so the predictions do not depend on the number of
+	 * threads. The threads come from a pool that is created once for each number of threads and shared by all
+	 * compiled models, so scoring calls do not create threads of their own.
+	 * 
+	 * @param instances the instances.
+	 * @param numThreads the number of threads.
+	 * @return the probabilities of the classes for each instance.
+	 */
+	public double[][] predictProbabilities(Instances instances, int numThreads) {
+		if (numThreads <= 1) {
+			final double[][] probs = new double[instances.size()][];
+			for (int i = 0; i < probs.length; i++) {
+				probs[i] = predictProbabilities(instances.get(i));
+			}
+			return probs;
+		}
+		return predictProbabilities(instances, POOLS.computeIfAbsent(numThreads, ForkJoinPool::new));
+	}
+
+	/**
+	 * Predicts the probabilities of the classes for a set of instances, scoring the instances concurrently in a pool.
+	 * Each instance is scored by one thread, so the predictions do not depend on the pool.
+	 * 
+	 * @param instances the instances.
+	 * @param pool the pool to score the instances in.
+	 * @return the probabilities of the classes for each instance.
+	 */
+	public double[][] predictProbabilities(Instances instances, ForkJoinPool pool) {
+		final double[][] probs = new double[instances.size()][];
+		int grain = Math.max(1, probs.length / (4 * pool.getParallelism()));
+		pool.invoke(new RangeTask(i -> probs[i] = predictProbabilities(instances.get(i)), 0, probs.length, grain));
+		return probs;
+	}
+
+	/**
+	 * Reads in a {@link BRT} and compiles it.
+	 */
+	@Override
+	public void read(BufferedReader in) throws Exception {
+		BRT brt = new BRT();
+		brt.read(in);
+		compile(brt);
+	}
+
+	/**
+	 * Writes the source model as it was compiled.
+	 */
+	@Override
+	public void write(PrintWriter out) throws Exception {
+		brt.write(out);
+	}
+
+	/**
+	 * Reads in a {@link BRT} in binary format and compiles it.
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		BRT brt = new BRT();
+		brt.read(in);
+		compile(brt);
+	}
+
+	/**
+	 * Writes the source model as it was compiled in binary format.
+	 */
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		brt.write(out);
+	}
+
+	@Override
+	public CompiledBRT copy() {
+		return new CompiledBRT(brt);
+	}
+
+	protected void compile(BRT brt) {
+		this.brt = brt;
+		trees = new CompiledRTreeList[brt.trees.length];
+		for (int i = 0; i < trees.length; i++) {
+			trees[i] = brt.trees[i].compile();
+		}
+		views.invalidate();
+	}
+
+}
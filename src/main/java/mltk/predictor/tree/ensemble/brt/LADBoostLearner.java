@@ -10,6 +10,7 @@ import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
 import mltk.cmdline.options.HoldoutValidatedLearnerOptions;
 import mltk.core.Attribute;
+import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.io.InstancesReader;
 import mltk.predictor.evaluation.ConvergenceTester;
@@ -36,7 +37,10 @@ public class LADBoostLearner extends BRTLearner {
 	
 	static class Options extends HoldoutValidatedLearnerOptions {
 
-		@Argument(name = "-b", description = "base learner (tree:mode:parameter) (default: rt:l:100)")
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
+		@Argument(name = "-b", description = "base learner (tree:mode:parameter[:bins]) (default: rt:l:100)")
 		String baseLearner = "rt:l:100";
 
 		@Argument(name = "-m", description = "maximum number of iterations", required = true)
@@ -63,7 +67,8 @@ public class LADBoostLearner extends BRTLearner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
-	 * [-b]	base learner (tree:mode:parameter) (default: rt:l:100)
+	 * [-P]	parallelism level (default: 1)
+	 * [-b]	base learner (tree:mode:parameter[:bins]) (default: rt:l:100)
 	 * [-s]	seed of the random number generator (default: 0)
 	 * [-l]	learning rate (default: 0.01)
 	 * </pre>
@@ -84,6 +89,7 @@ public class LADBoostLearner extends BRTLearner {
 				metric = MetricFactory.getMetric(opts.metric);
 			}
 			rtLearner = BRTUtils.parseTreeLearner(opts.baseLearner);
+			rtLearner.setParallelism(opts.parallelism);
 		} catch (IllegalArgumentException e) {
 			parser.printUsage();
 			System.exit(1);
@@ -155,10 +161,13 @@ public class LADBoostLearner extends BRTLearner {
 		Permutation perm = new Permutation(attributes.size());
 		perm.permute();
 
-		// Backup targets
+		// Read targets and weights
 		double[] target = new double[trainSet.size()];
+		double[] weight = new double[target.length];
 		for (int i = 0; i < target.length; i++) {
-			target[i] = trainSet.get(i).getTarget();
+			Instance instance = trainSet.get(i);
+			target[i] = instance.getTarget();
+			weight[i] = instance.getWeight();
 		}
 		double intercept = ArrayUtils.getMedian(target);
 		RegressionTree initialTree = new RegressionTree(new RegressionTreeLeaf(intercept));
@@ -168,8 +177,10 @@ public class LADBoostLearner extends BRTLearner {
 		for (int i = 0; i < rTrain.length; i++) {
 			rTrain[i] = target[i] - intercept;
 		}
+		double[] gradients = new double[trainSet.size()];
 		double[] pValid = new double[validSet.size()];
 		Arrays.fill(pValid, intercept);
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[trainSet.size()];
 
 		// Resets the convergence tester
 		ct.setMetric(metric);
@@ -184,12 +195,13 @@ public class LADBoostLearner extends BRTLearner {
 				List<Attribute> attList = trainSet.getAttributes(indices);
 				trainSet.setAttributes(attList);
 			}
-			// Prepare training set
+			// Compute gradients
 			for (int i = 0; i < rTrain.length; i++) {
-				trainSet.get(i).setTarget(MathUtils.sign(rTrain[i]));
+				gradients[i] = MathUtils.sign(rTrain[i]);
 			}
 
-			RegressionTree rt = (RegressionTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RegressionTree rt = (RegressionTree) treeLearner.build(trainSet, gradients, weight, seed, leaves);
 			brt.trees[0].add(rt);
 
 			if (alpha < 1) {
@@ -200,7 +212,7 @@ public class LADBoostLearner extends BRTLearner {
 			// Replace the leaf value by median
 			Map<RegressionTreeLeaf, List<Integer>> map = new HashMap<>();
 			for (int i = 0; i < rTrain.length; i++) {
-				RegressionTreeLeaf leaf = rt.getLeafNode(trainSet.get(i));
+				RegressionTreeLeaf leaf = leaves[i] != null ? leaves[i] : rt.getLeafNode(trainSet.get(i));
 				if (!map.containsKey(leaf)) {
 					map.put(leaf, new ArrayList<Integer>());
 				}
@@ -218,14 +230,8 @@ public class LADBoostLearner extends BRTLearner {
 			}
 
 			// Update predictions and residuals
-			for (int i = 0; i < rTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				rTrain[i] -= pred;
-			}
-			for (int i = 0; i < pValid.length; i++) {
-				double pred = rt.regress(validSet.get(i));
-				pValid[i] += pred;
-			}
+			addPredictions(rt, leaves, trainSet, -1, rTrain);
+			addPredictions(rt, validSet, pValid);
 
 			double measure = metric.eval(pValid, validSet);
 			ct.add(measure);
@@ -243,11 +249,6 @@ public class LADBoostLearner extends BRTLearner {
 			brt.trees[0].removeLast();
 		}
 
-		// Restore targets
-		for (int i = 0; i < target.length; i++) {
-			trainSet.get(i).setTarget(target[i]);
-		}
-
 		treeLearner.evictCache();
 		return brt;
 	}
@@ -270,10 +271,13 @@ public class LADBoostLearner extends BRTLearner {
 		Permutation perm = new Permutation(attributes.size());
 		perm.permute();
 
-		// Backup targets
+		// Read targets and weights
 		double[] target = new double[trainSet.size()];
+		double[] weight = new double[target.length];
 		for (int i = 0; i < target.length; i++) {
-			target[i] = trainSet.get(i).getTarget();
+			Instance instance = trainSet.get(i);
+			target[i] = instance.getTarget();
+			weight[i] = instance.getWeight();
 		}
 		double intercept = ArrayUtils.getMedian(target);
 		RegressionTree initialTree = new RegressionTree(new RegressionTreeLeaf(intercept));
@@ -285,6 +289,8 @@ public class LADBoostLearner extends BRTLearner {
 			pTrain[i] = intercept;
 			rTrain[i] = target[i] - intercept;
 		}
+		double[] gradients = new double[trainSet.size()];
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[trainSet.size()];
 
 		for (int iter = 0; iter < maxNumIters; iter++) {
 			// Prepare attributes
@@ -297,12 +303,13 @@ public class LADBoostLearner extends BRTLearner {
 				List<Attribute> attList = trainSet.getAttributes(indices);
 				trainSet.setAttributes(attList);
 			}
-			// Prepare training set
+			// Compute gradients
 			for (int i = 0; i < rTrain.length; i++) {
-				trainSet.get(i).setTarget(MathUtils.sign(rTrain[i]));
+				gradients[i] = MathUtils.sign(rTrain[i]);
 			}
 
-			RegressionTree rt = (RegressionTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RegressionTree rt = (RegressionTree) treeLearner.build(trainSet, gradients, weight, seed, leaves);
 			brt.trees[0].add(rt);
 
 			if (alpha < 1) {
@@ -313,7 +320,7 @@ public class LADBoostLearner extends BRTLearner {
 			// Replace the leaf value by median
 			Map<RegressionTreeLeaf, List<Integer>> map = new HashMap<>();
 			for (int i = 0; i < rTrain.length; i++) {
-				RegressionTreeLeaf leaf = rt.getLeafNode(trainSet.get(i));
+				RegressionTreeLeaf leaf = leaves[i] != null ? leaves[i] : rt.getLeafNode(trainSet.get(i));
 				if (!map.containsKey(leaf)) {
 					map.put(leaf, new ArrayList<Integer>());
 				}
@@ -331,11 +338,8 @@ public class LADBoostLearner extends BRTLearner {
 			}
 
 			// Update residuals
-			for (int i = 0; i < rTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				pTrain[i] += pred;
-				rTrain[i] -= pred;
-			}
+			addPredictions(rt, leaves, trainSet, 1, pTrain);
+			addPredictions(rt, leaves, trainSet, -1, rTrain);
 
 			if (verbose) {
 				double measure = simpleMetric.eval(pTrain, target);
@@ -343,11 +347,6 @@ public class LADBoostLearner extends BRTLearner {
 			}
 		}
 
-		// Restore targets
-		for (int i = 0; i < target.length; i++) {
-			trainSet.get(i).setTarget(target[i]);
-		}
-
 		treeLearner.evictCache();
 		return brt;
 	}
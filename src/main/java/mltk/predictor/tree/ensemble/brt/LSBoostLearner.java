@@ -7,6 +7,7 @@ import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
 import mltk.cmdline.options.HoldoutValidatedLearnerOptions;
 import mltk.core.Attribute;
+import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.io.InstancesReader;
 import mltk.predictor.evaluation.ConvergenceTester;
@@ -16,6 +17,7 @@ import mltk.predictor.evaluation.RMSE;
 import mltk.predictor.evaluation.SimpleMetric;
 import mltk.predictor.io.PredictorWriter;
 import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTreeLeaf;
 import mltk.predictor.tree.TreeLearner;
 import mltk.util.Permutation;
 import mltk.util.Random;
@@ -30,7 +32,10 @@ public class LSBoostLearner extends BRTLearner {
 	
 	static class Options extends HoldoutValidatedLearnerOptions {
 
-		@Argument(name = "-b", description = "base learner (tree:mode:parameter) (default: rt:l:100)")
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
+		@Argument(name = "-b", description = "base learner (tree:mode:parameter[:bins]) (default: rt:l:100)")
 		String baseLearner = "rt:l:100";
 
 		@Argument(name = "-m", description = "maximum number of iterations", required = true)
@@ -57,7 +62,8 @@ public class LSBoostLearner extends BRTLearner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
-	 * [-b]	base learner (tree:mode:parameter) (default: rt:l:100)
+	 * [-P]	parallelism level (default: 1)
+	 * [-b]	base learner (tree:mode:parameter[:bins]) (default: rt:l:100)
 	 * [-s]	seed of the random number generator (default: 0)
 	 * [-l]	learning rate (default: 0.01)
 	 * </pre>
@@ -78,6 +84,7 @@ public class LSBoostLearner extends BRTLearner {
 				metric = MetricFactory.getMetric(opts.metric);
 			}
 			rtLearner = BRTUtils.parseTreeLearner(opts.baseLearner);
+			rtLearner.setParallelism(opts.parallelism);
 		} catch (IllegalArgumentException e) {
 			parser.printUsage();
 			System.exit(1);
@@ -149,10 +156,13 @@ public class LSBoostLearner extends BRTLearner {
 		Permutation perm = new Permutation(attributes.size());
 		perm.permute();
 
-		// Backup targets
+		// Read targets and weights
 		double[] target = new double[trainSet.size()];
+		double[] weight = new double[target.length];
 		for (int i = 0; i < target.length; i++) {
-			target[i] = trainSet.get(i).getTarget();
+			Instance instance = trainSet.get(i);
+			target[i] = instance.getTarget();
+			weight[i] = instance.getWeight();
 		}
 
 		double[] rTrain = new double[trainSet.size()];
@@ -160,6 +170,7 @@ public class LSBoostLearner extends BRTLearner {
 			rTrain[i] = target[i];
 		}
 		double[] pValid = new double[validSet.size()];
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[trainSet.size()];
 
 		// Resets the convergence tester
 		ct.setMetric(metric);
@@ -174,12 +185,9 @@ public class LSBoostLearner extends BRTLearner {
 				List<Attribute> attList = trainSet.getAttributes(indices);
 				trainSet.setAttributes(attList);
 			}
-			// Prepare training set
-			for (int i = 0; i < rTrain.length; i++) {
-				trainSet.get(i).setTarget(rTrain[i]);
-			}
 
-			RTree rt = (RTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RTree rt = (RTree) treeLearner.build(trainSet, rTrain, weight, seed, leaves);
 			if (learningRate != 1) {
 				rt.multiply(learningRate);
 			}
@@ -191,14 +199,8 @@ public class LSBoostLearner extends BRTLearner {
 			}
 
 			// Update predictions and residuals
-			for (int i = 0; i < rTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				rTrain[i] -= pred;
-			}
-			for (int i = 0; i < pValid.length; i++) {
-				double pred = rt.regress(validSet.get(i));
-				pValid[i] += pred;
-			}
+			addPredictions(rt, leaves, trainSet, -1, rTrain);
+			addPredictions(rt, validSet, pValid);
 
 			double measure = metric.eval(pValid, validSet);
 			ct.add(measure);
@@ -216,11 +218,6 @@ public class LSBoostLearner extends BRTLearner {
 			brt.trees[0].removeLast();
 		}
 
-		// Restore targets
-		for (int i = 0; i < target.length; i++) {
-			trainSet.get(i).setTarget(target[i]);
-		}
-
 		treeLearner.evictCache();
 		return brt;
 	}
@@ -243,10 +240,13 @@ public class LSBoostLearner extends BRTLearner {
 		Permutation perm = new Permutation(attributes.size());
 		perm.permute();
 
-		// Backup targets
+		// Read targets and weights
 		double[] target = new double[trainSet.size()];
+		double[] weight = new double[target.length];
 		for (int i = 0; i < target.length; i++) {
-			target[i] = trainSet.get(i).getTarget();
+			Instance instance = trainSet.get(i);
+			target[i] = instance.getTarget();
+			weight[i] = instance.getWeight();
 		}
 
 		double[] pTrain = new double[trainSet.size()];
@@ -254,6 +254,7 @@ public class LSBoostLearner extends BRTLearner {
 		for (int i = 0; i < rTrain.length; i++) {
 			rTrain[i] = target[i];
 		}
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[trainSet.size()];
 
 		for (int iter = 0; iter < maxNumIters; iter++) {
 			// Prepare training set
@@ -266,11 +267,9 @@ public class LSBoostLearner extends BRTLearner {
 				List<Attribute> attList = trainSet.getAttributes(indices);
 				trainSet.setAttributes(attList);
 			}
-			for (int i = 0; i < rTrain.length; i++) {
-				trainSet.get(i).setTarget(rTrain[i]);
-			}
 
-			RTree rt = (RTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RTree rt = (RTree) treeLearner.build(trainSet, rTrain, weight, seed, leaves);
 			if (learningRate != 1) {
 				rt.multiply(learningRate);
 			}
@@ -282,11 +281,8 @@ public class LSBoostLearner extends BRTLearner {
 			}
 
 			// Update residuals
-			for (int i = 0; i < rTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				pTrain[i] += pred;
-				rTrain[i] -= pred;
-			}
+			addPredictions(rt, leaves, trainSet, 1, pTrain);
+			addPredictions(rt, leaves, trainSet, -1, rTrain);
 
 			if (verbose) {
 				double measure = simpleMetric.eval(pTrain, target);
@@ -294,11 +290,6 @@ public class LSBoostLearner extends BRTLearner {
 			}
 		}
 
-		// Restore targets
-		for (int i = 0; i < target.length; i++) {
-			trainSet.get(i).setTarget(target[i]);
-		}
-
 		treeLearner.evictCache();
 		return brt;
 	}
@@ -19,6 +19,7 @@ import mltk.predictor.evaluation.MetricFactory;
 import mltk.predictor.evaluation.SimpleMetric;
 import mltk.predictor.io.PredictorWriter;
 import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTreeLeaf;
 import mltk.predictor.tree.TreeLearner;
 import mltk.util.MathUtils;
 import mltk.util.OptimUtils;
@@ -41,7 +42,10 @@ public class LogitBoostLearner extends BRTLearner {
 	
 	static class Options extends HoldoutValidatedLearnerOptions {
 
-		@Argument(name = "-b", description = "base learner (tree:mode:parameter) (default: rt:l:100)")
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
+		@Argument(name = "-b", description = "base learner (tree:mode:parameter[:bins]) (default: rt:l:100)")
 		String baseLearner = "rt:l:100";
 
 		@Argument(name = "-m", description = "maximum number of iterations", required = true)
@@ -68,7 +72,8 @@ public class LogitBoostLearner extends BRTLearner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
-	 * [-b]	base learner (tree:mode:parameter) (default: rt:l:100)
+	 * [-P]	parallelism level (default: 1)
+	 * [-b]	base learner (tree:mode:parameter[:bins]) (default: rt:l:100)
 	 * [-s]	seed of the random number generator (default: 0)
 	 * [-l]	learning rate (default: 0.01)
 	 * </pre>
@@ -91,6 +96,7 @@ public class LogitBoostLearner extends BRTLearner {
 			// Using robust version of the base tree learner
 			opts.baseLearner = "r" + opts.baseLearner;
 			rtLearner = BRTUtils.parseTreeLearner(opts.baseLearner);
+			rtLearner.setParallelism(opts.parallelism);
 		} catch (IllegalArgumentException e) {
 			parser.printUsage();
 			System.exit(1);
@@ -173,7 +179,7 @@ public class LogitBoostLearner extends BRTLearner {
 			perm.permute();
 		}
 
-		// Backup targets and weights
+		// Read targets and weights
 		double[] targetTrain = new double[trainSet.size()];
 		double[] weightTrain = new double[targetTrain.length];
 		for (int i = 0; i < targetTrain.length; i++) {
@@ -188,6 +194,9 @@ public class LogitBoostLearner extends BRTLearner {
 		computeProbabilities(predTrain, probTrain);
 		double[] rTrain = new double[targetTrain.length];
 		OptimUtils.computePseudoResidual(predTrain, targetTrain, rTrain);
+		double[] gradients = new double[targetTrain.length];
+		double[] hessians = new double[targetTrain.length];
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[targetTrain.length];
 		double[] predValid = new double[validSet.size()];
 
 		// Resets the convergence tester
@@ -204,29 +213,23 @@ public class LogitBoostLearner extends BRTLearner {
 				trainSet.setAttributes(attList);
 			}
 			
-			// Prepare training set
+			// Compute gradients and hessians
 			for (int i = 0; i < targetTrain.length; i++) {
-				Instance instance = trainSet.get(i);
 				double prob = probTrain[i];
 				double w = prob * (1 - prob);
-				instance.setTarget(rTrain[i] * weightTrain[i]);
-				instance.setWeight(w * weightTrain[i]);
+				gradients[i] = rTrain[i] * weightTrain[i];
+				hessians[i] = w * weightTrain[i];
 			}
 			
-			RTree rt = (RTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RTree rt = (RTree) treeLearner.build(trainSet, gradients, hessians, seed, leaves);
 			if (learningRate != 1) {
 				rt.multiply(learningRate);
 			}
 			brt.trees[0].add(rt);
 			
-			for (int i = 0; i < predTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				predTrain[i] += pred;
-			}
-			for (int i = 0; i < predValid.length; i++) {
-				double pred = rt.regress(validSet.get(i));
-				predValid[i] += pred;
-			}
+			addPredictions(rt, leaves, trainSet, 1, predTrain);
+			addPredictions(rt, validSet, predValid);
 
 			if (alpha < 1) {
 				// Restore attributes
@@ -253,13 +256,6 @@ public class LogitBoostLearner extends BRTLearner {
 			brt.trees[0].removeLast();
 		}
 
-		// Restore targets and weights
-		for (int i = 0; i < targetTrain.length; i++) {
-			Instance instance = trainSet.get(i);
-			instance.setTarget(targetTrain[i]);
-			instance.setWeight(weightTrain[i]);
-		}
-
 		treeLearner.evictCache();
 		return brt;
 	}
@@ -293,7 +289,7 @@ public class LogitBoostLearner extends BRTLearner {
 			perm.permute();
 		}
 
-		// Backup targets and weights
+		// Read targets and weights
 		double[] targetTrain = new double[trainSet.size()];
 		double[] weightTrain = new double[targetTrain.length];
 		for (int i = 0; i < targetTrain.length; i++) {
@@ -308,6 +304,9 @@ public class LogitBoostLearner extends BRTLearner {
 		computeProbabilities(predTrain, probTrain);
 		double[] rTrain = new double[targetTrain.length];
 		OptimUtils.computePseudoResidual(predTrain, targetTrain, rTrain);
+		double[] gradients = new double[targetTrain.length];
+		double[] hessians = new double[targetTrain.length];
+		RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[targetTrain.length];
 
 		List<Double> measureList = new ArrayList<>(maxNumIters);
 		for (int iter = 0; iter < maxNumIters; iter++) {
@@ -322,25 +321,22 @@ public class LogitBoostLearner extends BRTLearner {
 				trainSet.setAttributes(attList);
 			}
 			
-			// Prepare training set
+			// Compute gradients and hessians
 			for (int i = 0; i < targetTrain.length; i++) {
-				Instance instance = trainSet.get(i);
 				double prob = probTrain[i];
 				double w = prob * (1 - prob);
-				instance.setTarget(rTrain[i] * weightTrain[i]);
-				instance.setWeight(w * weightTrain[i]);
+				gradients[i] = rTrain[i] * weightTrain[i];
+				hessians[i] = w * weightTrain[i];
 			}
 			
-			RTree rt = (RTree) treeLearner.build(trainSet);
+			long seed = Random.getInstance().nextLong();
+			RTree rt = (RTree) treeLearner.build(trainSet, gradients, hessians, seed, leaves);
 			if (learningRate != 1) {
 				rt.multiply(learningRate);
 			}
 			brt.trees[0].add(rt);
 			
-			for (int i = 0; i < predTrain.length; i++) {
-				double pred = rt.regress(trainSet.get(i));
-				predTrain[i] += pred;
-			}
+			addPredictions(rt, leaves, trainSet, 1, predTrain);
 
 			if (alpha < 1) {
 				// Restore attributes
@@ -363,13 +359,6 @@ public class LogitBoostLearner extends BRTLearner {
 		for (int i = brt.trees[0].size() - 1; i > idx; i--) {
 			brt.trees[0].removeLast();
 		}
-
-		// Restore targets and weights
-		for (int i = 0; i < targetTrain.length; i++) {
-			Instance instance = trainSet.get(i);
-			instance.setTarget(targetTrain[i]);
-			instance.setWeight(weightTrain[i]);
-		}
 		
 		treeLearner.evictCache();
 		return brt;
@@ -407,7 +396,7 @@ public class LogitBoostLearner extends BRTLearner {
 				perm.permute();
 			}
 
-			// Backup targets and weights
+			// Read targets and weights
 			double[] targetTrain = new double[trainSet.size()];
 			double[] weightTrain = new double[targetTrain.length];
 			for (int i = 0; i < targetTrain.length; i++) {
@@ -433,6 +422,8 @@ public class LogitBoostLearner extends BRTLearner {
 				}
 			}
 			double[][] predValid = new double[numClasses][validSet.size()];
+			double[][] gradients = new double[numClasses][targetTrain.length];
+			double[][] hessians = new double[numClasses][targetTrain.length];
 
 			for (int iter = 0; iter < maxNumIters; iter++) {
 				// Prepare attributes
@@ -446,34 +437,10 @@ public class LogitBoostLearner extends BRTLearner {
 					trainSet.setAttributes(attList);
 				}
 
+				RTree[] rts = buildTrees(trainSet, weightTrain, rTrain, probTrain, predTrain, l, gradients, hessians);
+				treeLearner.forEach(numClasses, k -> addPredictions(rts[k], validSet, predValid[k]));
 				for (int k = 0; k < numClasses; k++) {
-					// Prepare training set
-					int[] rkTrain = rTrain[k];
-					double[] probkTrain = probTrain[k];
-					for (int i = 0; i < targetTrain.length; i++) {
-						Instance instance = trainSet.get(i);
-						double pk = probkTrain[i];
-						double t = rkTrain[i] - pk;
-						double w = pk * (1 - pk);
-						instance.setTarget(t * weightTrain[i]);
-						instance.setWeight(w * weightTrain[i]);
-					}
-
-					RTree rt = (RTree) treeLearner.build(trainSet);
-					rt.multiply(l);
-					brt.trees[k].add(rt);
-
-					double[] predkTrain = predTrain[k];
-					for (int i = 0; i < predkTrain.length; i++) {
-						double p = rt.regress(trainSet.get(i));
-						predkTrain[i] += p;
-					}
-
-					double[] predkValid = predValid[k];
-					for (int i = 0; i < predkValid.length; i++) {
-						double p = rt.regress(validSet.get(i));
-						predkValid[i] += p;
-					}
+					brt.trees[k].add(rts[k]);
 				}
 
 				if (alpha < 1) {
@@ -504,13 +471,6 @@ public class LogitBoostLearner extends BRTLearner {
 				}
 			}
 
-			// Restore targets and weights
-			for (int i = 0; i < targetTrain.length; i++) {
-				Instance instance = trainSet.get(i);
-				instance.setTarget(targetTrain[i]);
-				instance.setWeight(weightTrain[i]);
-			}
-
 			treeLearner.evictCache();
 			return brt;
 		}
@@ -547,7 +507,7 @@ public class LogitBoostLearner extends BRTLearner {
 				perm.permute();
 			}
 
-			// Backup targets and weights
+			// Read targets and weights
 			double[] target = new double[n];
 			double[] weight = new double[n];
 			for (int i = 0; i < n; i++) {
@@ -560,6 +520,8 @@ public class LogitBoostLearner extends BRTLearner {
 			double[][] predTrain = new double[numClasses][n];
 			double[][] probTrain = new double[numClasses][n];
 			int[][] rTrain = new int[numClasses][n];
+			double[][] gradients = new double[numClasses][n];
+			double[][] hessians = new double[numClasses][n];
 			for (int k = 0; k < numClasses; k++) {
 				int[] rkTrain = rTrain[k];
 				double[] probkTrain = probTrain[k];
@@ -581,28 +543,9 @@ public class LogitBoostLearner extends BRTLearner {
 					trainSet.setAttributes(attList);
 				}
 
+				RTree[] rts = buildTrees(trainSet, weight, rTrain, probTrain, predTrain, l, gradients, hessians);
 				for (int k = 0; k < numClasses; k++) {
-					// Prepare training set
-					int[] rkTrain = rTrain[k];
-					double[] probkTrain = probTrain[k];
-					for (int i = 0; i < n; i++) {
-						Instance instance = trainSet.get(i);
-						double pk = probkTrain[i];
-						double t = rkTrain[i] - pk;
-						double w = pk * (1 - pk);
-						instance.setTarget(t * weight[i]);
-						instance.setWeight(w * weight[i]);
-					}
-
-					RTree rt = (RTree) treeLearner.build(trainSet);
-					rt.multiply(l);
-					brt.trees[k].add(rt);
-
-					double[] predkTrain = predTrain[k];
-					for (int i = 0; i < n; i++) {
-						double p = rt.regress(trainSet.get(i));
-						predkTrain[i] += p;
-					}
+					brt.trees[k].add(rts[k]);
 				}
 
 				if (alpha < 1) {
@@ -633,18 +576,59 @@ public class LogitBoostLearner extends BRTLearner {
 				}
 			}
 
-			// Restore targets and weights
-			for (int i = 0; i < n; i++) {
-				Instance instance = trainSet.get(i);
-				instance.setTarget(target[i]);
-				instance.setWeight(weight[i]);
-			}
-
 			treeLearner.evictCache();
 			return brt;
 		}
 	}
 	
+	/**
+	 * Builds the trees of all classes in an iteration of multiclass LogitBoost and adds their predictions to the
+	 * training set. The trees only depend on the probabilities from the previous iteration, so they are built
+	 * concurrently if the parallelism level of the tree learner is greater than 1. Each tree draws random numbers
+	 * from its own seed, so the trees do not depend on the parallelism level.
+	 * 
+	 * @param trainSet the training set.
+	 * @param weight the weights of the training set.
+	 * @param rTrain the class indicators of the training set.
+	 * @param probTrain the class probabilities of the training set.
+	 * @param predTrain the class predictions of the training set to update.
+	 * @param l the learning rate.
+	 * @param gradients the buffers for the gradients of each class.
+	 * @param hessians the buffers for the hessians of each class.
+	 * @return the trees of all classes.
+	 */
+	protected RTree[] buildTrees(Instances trainSet, double[] weight, int[][] rTrain, double[][] probTrain,
+			double[][] predTrain, double l, double[][] gradients, double[][] hessians) {
+		final int numClasses = rTrain.length;
+		final long[] seeds = new long[numClasses];
+		for (int k = 0; k < numClasses; k++) {
+			seeds[k] = Random.getInstance().nextLong();
+		}
+		final RTree[] rts = new RTree[numClasses];
+		treeLearner.forEach(numClasses, k -> {
+			// Compute gradients and hessians
+			int[] rkTrain = rTrain[k];
+			double[] probkTrain = probTrain[k];
+			double[] gk = gradients[k];
+			double[] hk = hessians[k];
+			for (int i = 0; i < weight.length; i++) {
+				double pk = probkTrain[i];
+				double t = rkTrain[i] - pk;
+				double w = pk * (1 - pk);
+				gk[i] = t * weight[i];
+				hk[i] = w * weight[i];
+			}
+
+			RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[weight.length];
+			RTree rt = (RTree) treeLearner.build(trainSet, gk, hk, seeds[k], leaves);
+			rt.multiply(l);
+			rts[k] = rt;
+
+			addPredictions(rt, leaves, trainSet, 1, predTrain[k]);
+		});
+		return rts;
+	}
+	
 	@Override
 	public void setTreeLearner(TreeLearner treeLearner) {
 		if (!treeLearner.isRobust()) {
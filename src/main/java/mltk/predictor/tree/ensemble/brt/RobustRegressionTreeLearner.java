@@ -22,6 +22,11 @@ public class RobustRegressionTreeLearner extends RegressionTreeLearner {
 		return true;
 	}
 
+	protected double getResponse(double target, double weight) {
+		// The key difference is we do not use weighted sum.
+		return target;
+	}
+
 	protected boolean getStats(Instances instances, double[] stats) {
 		stats[0] = stats[1] = stats[2] = 0;
 		if (instances.size() == 0) {
@@ -0,0 +1,126 @@
+package mltk.predictor.tree.ensemble.rf;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import mltk.core.BinaryWritable;
+import mltk.core.Instance;
+import mltk.predictor.Regressor;
+import mltk.predictor.tree.ensemble.CompiledRTreeList;
+
+/**
+ * Class for the compiled form of random forests, which holds the trees of the forest in one
+ * {@link CompiledRTreeList}. Predictions are the same as those of the source model.
+ *
+ * <p>
+ * A compiled model is a snapshot: later changes to the source model are not reflected. It can be shared by concurrent
+ * scoring threads. Writing a compiled model writes its source model, which reads back as a {@link RandomForest} from
+ * text format and as a compiled model from binary format.
+ * </p>
+ *
+ * @author Yin Lou
+ *
+ */
+public class CompiledRandomForest implements Regressor, BinaryWritable {
+
+	protected RandomForest rf;
+	protected CompiledRTreeList trees;
+
+	/**
+	 * Constructor.
+	 */
+	public CompiledRandomForest() {
+
+	}
+
+	/**
+	 * Constructor. The model is copied, so that later changes to it are neither scored nor written.
+	 *
+	 * @param rf the model to compile.
+	 */
+	public CompiledRandomForest(RandomForest rf) {
+		compile(rf.copy());
+	}
+
+	/**
+	 * Returns a copy of the source model as it was compiled.
+	 *
+	 * @return the source model.
+	 */
+	public RandomForest getModel() {
+		return rf.copy();
+	}
+
+	/**
+	 * Returns the compiled tree list.
+	 *
+	 * @return the compiled tree list.
+	 */
+	public CompiledRTreeList getRegressionTreeList() {
+		return trees;
+	}
+
+	/**
+	 * Returns the number of trees.
+	 *
+	 * @return the number of trees.
+	 */
+	public int size() {
+		return trees.size();
+	}
+
+	@Override
+	public double regress(Instance instance) {
+		return trees.regress(instance);
+	}
+
+	/**
+	 * Reads in a {@link RandomForest} and compiles it.
+	 */
+	@Override
+	public void read(BufferedReader in) throws Exception {
+		RandomForest rf = new RandomForest();
+		rf.read(in);
+		compile(rf);
+	}
+
+	/**
+	 * Writes the source model as it was compiled.
+	 */
+	@Override
+	public void write(PrintWriter out) throws Exception {
+		rf.write(out);
+	}
+
+	/**
+	 * Reads in a {@link RandomForest} in binary format and compiles it.
+	 */
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		RandomForest rf = new RandomForest();
+		rf.read(in);
+		compile(rf);
+	}
+
+	/**
+	 * Writes the source model as it was compiled in binary format.
+	 */
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		rf.write(out);
+	}
+
+	@Override
+	public CompiledRandomForest copy() {
+		return new CompiledRandomForest(rf);
+	}
+
+	protected void compile(RandomForest rf) {
+		this.rf = rf;
+		trees = new CompiledRTreeList(rf.getTreeList(), Math.max(rf.size(), 1));
+	}
+
+}
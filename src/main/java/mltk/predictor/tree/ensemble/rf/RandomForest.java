@@ -1,10 +1,17 @@
 package mltk.predictor.tree.ensemble.rf;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.io.PrintWriter;
 
+import mltk.core.BinaryWritable;
+import mltk.core.DenseInstanceView;
 import mltk.core.Instance;
 import mltk.predictor.Regressor;
+import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
 import mltk.predictor.tree.RTree;
 import mltk.predictor.tree.RegressionTree;
 import mltk.predictor.tree.ensemble.RTreeList;
@@ -15,9 +22,11 @@ import mltk.predictor.tree.ensemble.RTreeList;
  * @author Yin Lou
  *
  */
-public class RandomForest implements Regressor {
+public class RandomForest implements Regressor, BinaryWritable {
 	
 	protected RTreeList rtList;
+	protected final DenseInstanceView.Cache views = new DenseInstanceView.Cache(
+			attIndices -> rtList.collectAttributeIndices(attIndices));
 	
 	/**
 	 * Constructor.
@@ -39,6 +48,7 @@ public class RandomForest implements Regressor {
 	public void read(BufferedReader in) throws Exception {
 		int capacity = Integer.parseInt(in.readLine().split(": ")[1]);
 		rtList = new RTreeList(capacity);
+		views.invalidate();
 		in.readLine();
 		for (int i = 0; i < capacity; i++) {
 			in.readLine();
@@ -61,6 +71,24 @@ public class RandomForest implements Regressor {
 		}
 	}
 
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int capacity = in.readInt();
+		rtList = new RTreeList(capacity);
+		views.invalidate();
+		for (int i = 0; i < capacity; i++) {
+			rtList.add((RTree) PredictorReader.read(in));
+		}
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(size());
+		for (RTree rt : rtList) {
+			PredictorWriter.write(rt, out);
+		}
+	}
+
 	@Override
 	public RandomForest copy() {
 		RandomForest copy = new RandomForest(size());
@@ -70,11 +98,18 @@ public class RandomForest implements Regressor {
 		return copy;
 	}
 
+	/**
+	 * Regresses an instance. A sparse instance is bound to a {@link DenseInstanceView} of the attributes used by the
+	 * trees once, so that the trees look up its attributes in constant time.
+	 */
 	@Override
 	public double regress(Instance instance) {
 		if (size() == 0) {
 			return 0.0;
 		} else {
+			if (instance.isSparse() && !(instance instanceof DenseInstanceView)) {
+				instance = getView().bind(instance);
+			}
 			double prediction = 0.0;
 			for (RTree rt : rtList) {
 				prediction += rt.regress(instance);
@@ -83,6 +118,16 @@ public class RandomForest implements Regressor {
 		}
 	}
 	
+	/**
+	 * Returns the compiled form of this forest for fast scoring. The compiled form does not reflect later changes.
+	 * 
+	 * @return the compiled form of this forest.
+	 */
+	@Override
+	public CompiledRandomForest compile() {
+		return new CompiledRandomForest(this);
+	}
+	
 	/**
 	 * Adds a regression tree to the ensemble.
 	 * 
@@ -90,6 +135,7 @@ public class RandomForest implements Regressor {
 	 */
 	public void add(RTree rt) {
 		rtList.add(rt);
+		views.invalidate();
 	}
 	
 	/**
@@ -119,5 +165,15 @@ public class RandomForest implements Regressor {
 	public int size() {
 		return rtList.size();
 	}
+	
+	/**
+	 * Returns the scoring view of this thread, over the attributes used by the trees when it was first requested since
+	 * the last change. Attributes of trees modified in place later are read from the bound instance.
+	 * 
+	 * @return the scoring view of this thread.
+	 */
+	protected DenseInstanceView getView() {
+		return views.get();
+	}
 
 }
@@ -1,15 +1,29 @@
 package mltk.predictor.tree.ensemble.rf;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ObjIntConsumer;
+
 import mltk.cmdline.Argument;
 import mltk.cmdline.CmdLineParser;
 import mltk.cmdline.options.LearnerOptions;
+import mltk.core.Attribute;
+import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.Sampling;
 import mltk.core.io.InstancesReader;
 import mltk.predictor.Learner;
+import mltk.predictor.Predictor;
+import mltk.predictor.evaluation.Metric;
+import mltk.predictor.evaluation.MetricFactory;
 import mltk.predictor.io.PredictorWriter;
+import mltk.predictor.tree.CompiledRegressionTree;
+import mltk.predictor.tree.RTree;
+import mltk.predictor.tree.RegressionTree;
 import mltk.predictor.tree.RegressionTreeLearner;
 import mltk.predictor.tree.RegressionTreeLearner.Mode;
+import mltk.util.Random;
 
 /**
  * Class for learning random forests.
@@ -21,6 +35,9 @@ public class RandomForestLearner extends Learner {
 
 	static class Options extends LearnerOptions {
 
+		@Argument(name = "-P", description = "parallelism level (default: 1)")
+		int parallelism = 1;
+
 		@Argument(name = "-m", description = "construction mode:parameter. Construction mode can be alpha limited (a), depth limited (d), number of leaves limited (l) and minimum leaf size limited (s) (default: a:0.001)")
 		String mode = "a:0.001";
 
@@ -30,6 +47,15 @@ public class RandomForestLearner extends Learner {
 		@Argument(name = "-b", description = "bagging iterations (default: 100)")
 		int baggingIters = 100;
 
+		@Argument(name = "-T", description = "number of threads to build trees (default: 1)")
+		int numThreads = 1;
+
+		@Argument(name = "-e", description = "out-of-bag evaluation metric (default: none)")
+		String metric = null;
+
+		@Argument(name = "-I", description = "whether to compute permutation importances (default: false)")
+		boolean computeImportances = false;
+
 	}
 
 	/**
@@ -44,9 +70,13 @@ public class RandomForestLearner extends Learner {
 	 * [-r]	attribute file path
 	 * [-o]	output model path
 	 * [-V]	verbose (default: true)
+	 * [-P]	parallelism level (default: 1)
 	 * [-m]	construction mode:parameter. Construction mode can be alpha limited (a), depth limited (d), number of leaves limited (l) and minimum leaf size limited (s) (default: a:0.001)
 	 * [-f]	number of features to consider
 	 * [-b]	bagging iterations (default: 100)
+	 * [-T]	number of threads to build trees (default: 1)
+	 * [-e]	out-of-bag evaluation metric (default: none)
+	 * [-I]	whether to compute permutation importances (default: false)
 	 * </pre>
 	 *
 	 * @param args the command line arguments.
@@ -56,8 +86,12 @@ public class RandomForestLearner extends Learner {
 		Options opts = new Options();
 		CmdLineParser parser = new CmdLineParser(RandomForestLearner.class, opts);
 		RandomRegressionTreeLearner rtLearner = new RandomRegressionTreeLearner();
+		Metric metric = null;
 		try {
 			parser.parse(args);
+			if (opts.metric != null) {
+				metric = MetricFactory.getMetric(opts.metric);
+			}
 			String[] data = opts.mode.split(":");
 			if (data.length != 2) {
 				throw new IllegalArgumentException();
@@ -89,15 +123,29 @@ public class RandomForestLearner extends Learner {
 		Instances trainSet = InstancesReader.read(opts.attPath, opts.trainPath);
 
 		rtLearner.setNumFeatures(opts.numFeatures);
+		rtLearner.setParallelism(opts.parallelism);
 		RandomForestLearner rfLearner = new RandomForestLearner();
 		rfLearner.setBaggingIterations(opts.baggingIters);
+		rfLearner.setNumThreads(opts.numThreads);
 		rfLearner.setRegressionTreeLearner(rtLearner);
+		rfLearner.setMetric(metric);
+		rfLearner.setComputeImportances(opts.computeImportances);
 		rfLearner.setVerbose(opts.verbose);
 		
 		long start = System.currentTimeMillis();
 		RandomForest rf = rfLearner.build(trainSet);
 		long end = System.currentTimeMillis();
 		System.out.println("Time: " + (end - start) / 1000.0 + " (s).");
+		if (metric != null) {
+			System.out.println("Out-of-bag measure: " + rfLearner.getOutOfBagMeasure());
+		}
+		if (opts.computeImportances) {
+			double[] importances = rfLearner.getImportances();
+			List<Attribute> attributes = trainSet.getAttributes();
+			for (int j = 0; j < importances.length; j++) {
+				System.out.println(attributes.get(j).getName() + "\t" + importances[j]);
+			}
+		}
 
 		if (opts.outputModelPath != null) {
 			PredictorWriter.write(rf, opts.outputModelPath);
@@ -105,16 +153,66 @@ public class RandomForestLearner extends Learner {
 	}
 	
 	private int baggingIters;
+	private int numThreads;
 	private RegressionTreeLearner rtLearner;
+	private Metric metric;
+	private boolean computeImportances;
+	private double[] oobPreds;
+	private double oobMeasure;
+	private double[] importances;
 
+	/**
+	 * Builds a random forest. If an out-of-bag metric is set or importances are computed, each tree is evaluated on
+	 * the instances not drawn in its bag as soon as it is built, by the thread that built it. The statistics of the
+	 * trees are then summed in the order of the bags, so that they do not depend on the number of threads.
+	 * 
+	 * @param instances the training set.
+	 * @return a random forest.
+	 */
 	@Override
 	public RandomForest build(Instances instances) {
 		// Create bags
-		Instances[] bags = Sampling.createBags(instances, baggingIters);
+		int[][] bags = Sampling.createBags(instances.size(), baggingIters);
+		
+		// Permutations for importances are drawn from streams derived from this one
+		final Random random = Random.getInstance().split();
+		OutOfBagStats stats = null;
+		ObjIntConsumer<Predictor> listener = null;
+		if (metric != null || computeImportances) {
+			stats = new OutOfBagStats(instances, bags);
+			final OutOfBagStats oobStats = stats;
+			listener = (rt, i) -> {
+				CompiledRegressionTree tree = ((RegressionTree) rt).compile();
+				int[] rows = getOutOfBagRows(bags[i]);
+				double[] preds = new double[rows.length];
+				for (int k = 0; k < rows.length; k++) {
+					preds[k] = tree.regress(instances.get(rows[k]));
+				}
+				double[] increases = null;
+				if (computeImportances) {
+					increases = computeImportances(tree, instances, rows, preds, random.derive(i));
+				}
+				oobStats.add(i, preds, increases);
+			};
+		}
 		
 		RandomForest rf = new RandomForest(baggingIters);
-		for (Instances bag : bags) {
-			rf.add(rtLearner.build(bag));
+		for (Predictor rt : rtLearner.build(instances, bags, numThreads, listener)) {
+			rf.add((RTree) rt);
+		}
+		
+		oobPreds = null;
+		oobMeasure = Double.NaN;
+		importances = null;
+		if (metric != null) {
+			oobPreds = stats.getPredictions();
+			oobMeasure = evalOutOfBag(instances, oobPreds);
+			if (verbose) {
+				System.out.println("Out-of-bag measure: " + oobMeasure);
+			}
+		}
+		if (computeImportances) {
+			importances = stats.getImportances();
 		}
 		return rf;
 	}
@@ -125,6 +223,7 @@ public class RandomForestLearner extends Learner {
 	public RandomForestLearner() {
 		verbose = false;
 		baggingIters = 100;
+		numThreads = 1;
 		rtLearner = new RandomRegressionTreeLearner();
 	}
 	
@@ -146,6 +245,96 @@ public class RandomForestLearner extends Learner {
 		this.baggingIters = baggingIters;
 	}
 	
+	/**
+	 * Returns the number of threads to build trees.
+	 * 
+	 * @return the number of threads to build trees.
+	 */
+	public int getNumThreads() {
+		return numThreads;
+	}
+
+	/**
+	 * Sets the number of threads to build trees. Each tree is built from its own seeded random stream, so the forest
+	 * does not depend on the number of threads.
+	 * 
+	 * @param numThreads the number of threads to build trees.
+	 */
+	public void setNumThreads(int numThreads) {
+		this.numThreads = numThreads;
+	}
+	
+	/**
+	 * Returns the metric for out-of-bag evaluation.
+	 * 
+	 * @return the metric for out-of-bag evaluation, or {@code null} if out-of-bag evaluation is off.
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * Sets the metric for out-of-bag evaluation. Each instance is predicted by the trees whose bags do not draw it,
+	 * which estimates the error of the forest on new data without a validation set. Without bagging, every tree draws
+	 * every instance, so there are no out-of-bag predictions and the measure is {@code NaN}.
+	 * 
+	 * @param metric the metric for out-of-bag evaluation, or {@code null} to turn it off.
+	 */
+	public void setMetric(Metric metric) {
+		this.metric = metric;
+	}
+	
+	/**
+	 * Returns {@code true} if permutation importances are computed.
+	 * 
+	 * @return {@code true} if permutation importances are computed.
+	 */
+	public boolean getComputeImportances() {
+		return computeImportances;
+	}
+
+	/**
+	 * Sets whether to compute permutation importances. The importance of an attribute is the increase in the
+	 * out-of-bag mean squared error of a tree when the values of the attribute are permuted among the instances not
+	 * drawn in its bag, averaged over the trees.
+	 * 
+	 * @param computeImportances whether to compute permutation importances.
+	 */
+	public void setComputeImportances(boolean computeImportances) {
+		this.computeImportances = computeImportances;
+	}
+	
+	/**
+	 * Returns the out-of-bag predictions of the last forest built with a metric for out-of-bag evaluation. The
+	 * prediction is {@code NaN} for instances drawn in every bag.
+	 * 
+	 * @return the out-of-bag predictions, or {@code null} if out-of-bag evaluation is off.
+	 */
+	public double[] getOutOfBagPredictions() {
+		return oobPreds;
+	}
+	
+	/**
+	 * Returns the out-of-bag measure of the last forest built with a metric for out-of-bag evaluation, over the
+	 * instances with out-of-bag predictions.
+	 * 
+	 * @return the out-of-bag measure, or {@code NaN} if out-of-bag evaluation is off or no instance has an out-of-bag
+	 * prediction.
+	 */
+	public double getOutOfBagMeasure() {
+		return oobMeasure;
+	}
+	
+	/**
+	 * Returns the permutation importances of the last forest built with importances computed, indexed by the position
+	 * of the attribute in the training set.
+	 * 
+	 * @return the permutation importances, or {@code null} if they are not computed.
+	 */
+	public double[] getImportances() {
+		return importances;
+	}
+	
 	/**
 	 * Returns the regression tree learner.
 	 * 
@@ -163,5 +352,182 @@ public class RandomForestLearner extends Learner {
 	public void setRegressionTreeLearner(RegressionTreeLearner rtLearner) {
 		this.rtLearner = rtLearner;
 	}
+	
+	/**
+	 * Returns the rows not drawn in a bag, in ascending order.
+	 */
+	static int[] getOutOfBagRows(int[] counts) {
+		int m = 0;
+		for (int count : counts) {
+			if (count == 0) {
+				m++;
+			}
+		}
+		int[] rows = new int[m];
+		m = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] == 0) {
+				rows[m++] = i;
+			}
+		}
+		return rows;
+	}
+	
+	/**
+	 * Returns the increase in mean squared error of a tree on the out-of-bag rows when each attribute is permuted,
+	 * indexed by the position of the attribute. Attributes the tree does not split on are not permuted.
+	 */
+	static double[] computeImportances(CompiledRegressionTree tree, Instances instances, int[] rows, double[] preds,
+			Random rand) {
+		List<Attribute> attributes = instances.getAttributes();
+		double[] increases = new double[attributes.size()];
+		final int m = rows.length;
+		if (m == 0) {
+			return increases;
+		}
+		Set<Integer> used = new HashSet<>();
+		for (int attIndex : tree.getAttributeIndices()) {
+			if (attIndex >= 0) {
+				used.add(attIndex);
+			}
+		}
+		double[] values = new double[m];
+		for (int j = 0; j < increases.length; j++) {
+			int attIndex = attributes.get(j).getIndex();
+			if (!used.contains(attIndex)) {
+				continue;
+			}
+			for (int k = 0; k < m; k++) {
+				values[k] = instances.get(rows[k]).getValue(attIndex);
+			}
+			for (int k = m - 1; k > 0; k--) {
+				int l = rand.nextInt(k + 1);
+				double t = values[k];
+				values[k] = values[l];
+				values[l] = t;
+			}
+			double increase = 0;
+			for (int k = 0; k < m; k++) {
+				Instance instance = instances.get(rows[k]);
+				double target = instance.getTarget();
+				double d = target - tree.regress(instance, attIndex, values[k]);
+				double d0 = target - preds[k];
+				increase += d * d - d0 * d0;
+			}
+			increases[j] = increase / m;
+		}
+		return increases;
+	}
+	
+	/**
+	 * Evaluates the out-of-bag predictions on the instances that have one, or returns {@code NaN} if none has.
+	 */
+	private double evalOutOfBag(Instances instances, double[] preds) {
+		int m = 0;
+		for (double pred : preds) {
+			if (!Double.isNaN(pred)) {
+				m++;
+			}
+		}
+		if (m == 0) {
+			return Double.NaN;
+		} else if (m == preds.length) {
+			return metric.eval(preds, instances);
+		}
+		Instances oobSet = new Instances(instances.getAttributes(), instances.getTargetAttribute(), m);
+		double[] oobPreds = new double[m];
+		m = 0;
+		for (int i = 0; i < preds.length; i++) {
+			if (!Double.isNaN(preds[i])) {
+				oobSet.add(instances.get(i));
+				oobPreds[m++] = preds[i];
+			}
+		}
+		return metric.eval(oobPreds, oobSet);
+	}
+	
+	/**
+	 * Class for summing the out-of-bag statistics of trees in the order of their bags. Statistics of a tree that
+	 * completes before the trees of earlier bags are kept until those are added.
+	 */
+	static class OutOfBagStats {
+		
+		final int[][] bags;
+		final double[][] pendingPreds;
+		final double[][] pendingIncreases;
+		final boolean[] completed;
+		int next;
+		double[] sums;
+		int[] numTrees;
+		double[] increases;
+		int numEvaluatedTrees;
+		
+		OutOfBagStats(Instances instances, int[][] bags) {
+			this.bags = bags;
+			this.pendingPreds = new double[bags.length][];
+			this.pendingIncreases = new double[bags.length][];
+			this.completed = new boolean[bags.length];
+			this.next = 0;
+			this.sums = new double[instances.size()];
+			this.numTrees = new int[instances.size()];
+			this.increases = new double[instances.getAttributes().size()];
+			this.numEvaluatedTrees = 0;
+		}
+		
+		/**
+		 * Adds the predictions of a tree on the out-of-bag rows of its bag, and its increases in error.
+		 */
+		synchronized void add(int bag, double[] preds, double[] increases) {
+			pendingPreds[bag] = preds;
+			pendingIncreases[bag] = increases;
+			completed[bag] = true;
+			while (next < completed.length && completed[next]) {
+				merge(next);
+				pendingPreds[next] = null;
+				pendingIncreases[next] = null;
+				next++;
+			}
+		}
+		
+		void merge(int bag) {
+			double[] preds = pendingPreds[bag];
+			if (preds.length == 0) {
+				return;
+			}
+			int[] counts = bags[bag];
+			int k = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 0) {
+					sums[i] += preds[k++];
+					numTrees[i]++;
+				}
+			}
+			if (pendingIncreases[bag] != null) {
+				for (int j = 0; j < increases.length; j++) {
+					increases[j] += pendingIncreases[bag][j];
+				}
+			}
+			numEvaluatedTrees++;
+		}
+		
+		double[] getPredictions() {
+			double[] preds = new double[sums.length];
+			for (int i = 0; i < preds.length; i++) {
+				preds[i] = numTrees[i] > 0 ? sums[i] / numTrees[i] : Double.NaN;
+			}
+			return preds;
+		}
+		
+		double[] getImportances() {
+			double[] importances = new double[increases.length];
+			if (numEvaluatedTrees > 0) {
+				for (int j = 0; j < importances.length; j++) {
+					importances[j] = increases[j] / numEvaluatedTrees;
+				}
+			}
+			return importances;
+		}
+		
+	}
 
 }
@@ -1,21 +1,9 @@
 package mltk.predictor.tree.ensemble.rf;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
 
-import mltk.core.Attribute;
-import mltk.core.Instances;
-import mltk.predictor.tree.RegressionTree;
-import mltk.predictor.tree.RegressionTreeLeaf;
 import mltk.predictor.tree.RegressionTreeLearner;
-import mltk.predictor.tree.TreeInteriorNode;
 import mltk.predictor.tree.TreeNode;
-import mltk.util.Permutation;
-import mltk.util.Random;
-import mltk.util.tuple.DoublePair;
-import mltk.util.tuple.IntDoublePair;
 
 /**
  * Class for learning random regression trees.
@@ -26,7 +14,11 @@ import mltk.util.tuple.IntDoublePair;
 public class RandomRegressionTreeLearner extends RegressionTreeLearner {
 
 	protected int numFeatures;
-	protected Permutation perm;
+
+	/**
+	 * The identity permutation of attribute positions of each thread, partially shuffled to sample attributes.
+	 */
+	private final ThreadLocal<int[]> identities = ThreadLocal.withInitial(() -> new int[0]);
 
 	/**
 	 * Constructor.
@@ -47,7 +39,8 @@ public class RandomRegressionTreeLearner extends RegressionTreeLearner {
 	}
 
 	/**
-	 * Sets the maximum number of features to consider for each node.
+	 * Sets the maximum number of features to consider for each node. A negative value means a third of the
+	 * attributes of the training set.
 	 *
 	 * @param numFeatures the new maximum number of features.
 	 */
@@ -55,88 +48,52 @@ public class RandomRegressionTreeLearner extends RegressionTreeLearner {
 		this.numFeatures = numFeatures;
 	}
 
-	@Override
-	public RegressionTree build(Instances instances) {
-		if (numFeatures < 0) {
-			numFeatures = instances.getAttributes().size() / 3;
-		}
-		if (perm == null || perm.size() != instances.getAttributes().size()) {
-			perm = new Permutation(instances.getAttributes().size());
-		}
-		RegressionTree rt = null;
-		switch (mode) {
-			case ALPHA_LIMITED:
-				rt = buildAlphaLimitedTree(instances, alpha);
-				break;
-			case NUM_LEAVES_LIMITED:
-				rt = buildNumLeafLimitedTree(instances, maxNumLeaves);
-				break;
-			case DEPTH_LIMITED:
-				rt = buildDepthLimitedTree(instances, maxDepth);
-				break;
-			case MIN_LEAF_SIZE_LIMITED:
-				rt = buildMinLeafSizeLimitedTree(instances, minLeafSize);
-			default:
-				break;
-		}
-		return rt;
-	}
-
 	protected TreeNode createNode(Dataset dataset, int limit, double[] stats) {
-		boolean stdIs0 = getStats(dataset.instances, stats);
-		final double totalWeights = stats[0];
-		final double sum = stats[1];
-		final double weightedMean = stats[2];
-
-		// 1. Check basic leaf conditions
-		if (stats[0] < limit || stdIs0) {
-			RegressionTreeLeaf node = new RegressionTreeLeaf(weightedMean);
-			return node;
-		}
+		return createNode(dataset, sampleAttributes(dataset), limit, stats);
+	}
 
-		// 2. Find best split
-		double bestEval = Double.POSITIVE_INFINITY;
-		List<IntDoublePair> splits = new ArrayList<>();
-		List<Attribute> attributes = dataset.instances.getAttributes();
-		int[] a = perm.permute().getPermutation();
-		Set<Integer> selected = new HashSet<>(numFeatures);
-		for (int i = 0; i < numFeatures; i++) {
-			selected.add(a[i]);
+	/**
+	 * Samples the positions of the attributes to consider for a node, in ascending order. The node's random stream
+	 * is used, so that the sample does not depend on the order in which nodes are created. Only as many steps of a
+	 * Fisher-Yates shuffle as there are features to sample are taken, on an identity permutation kept per thread, and
+	 * undone afterwards, so a node takes time linear in the number of features sampled rather than in the number of
+	 * attributes.
+	 *
+	 * @param dataset the dataset of the node.
+	 * @return the positions of the attributes to consider, or {@code null} for all.
+	 */
+	protected int[] sampleAttributes(Dataset dataset) {
+		final int p = dataset.schema.size();
+		final int numFeatures = this.numFeatures < 0 ? p / 3 : this.numFeatures;
+		if (numFeatures >= p) {
+			return null;
 		}
-		for (int j = 0; j < attributes.size(); j++) {
-			int attIndex = attributes.get(j).getIndex();
-			if (!selected.contains(j)) {
-				continue;
-			}
-			String attName = attributes.get(j).getName();
-			List<IntDoublePair> sortedList = dataset.sortedLists.get(attName);
-			List<Double> uniqueValues = new ArrayList<>(sortedList.size());
-			List<DoublePair> histogram = new ArrayList<>(sortedList.size());
-			getHistogram(dataset.instances, sortedList, uniqueValues, totalWeights, sum, histogram);
-
-			if (uniqueValues.size() > 1) {
-				DoublePair split = split(uniqueValues, histogram, totalWeights, sum);
-				if (split.v2 <= bestEval) {
-					IntDoublePair splitPoint = new IntDoublePair(attIndex, split.v1);
-					if (split.v2 < bestEval) {
-						splits.clear();
-						bestEval = split.v2;
-					}
-					splits.add(splitPoint);
-				}
+		int[] a = identities.get();
+		if (a.length != p) {
+			a = new int[p];
+			for (int i = 0; i < p; i++) {
+				a[i] = i;
 			}
+			identities.set(a);
+		}
+		final int k = Math.max(numFeatures, 0);
+		int[] positions = new int[k];
+		int[] swaps = new int[k];
+		for (int i = 0; i < k; i++) {
+			int j = i + dataset.getRandom().nextInt(p - i);
+			swaps[i] = j;
+			positions[i] = a[j];
+			a[j] = a[i];
+			a[i] = positions[i];
 		}
-		if (bestEval < Double.POSITIVE_INFINITY) {
-			Random rand = Random.getInstance();
-			IntDoublePair splitPoint = splits.get(rand.nextInt(splits.size()));
-			int attIndex = splitPoint.v1;
-			TreeNode node = new TreeInteriorNode(attIndex, splitPoint.v2);
-			stats[3] = bestEval + totalWeights * weightedMean * weightedMean;
-			return node;
-		} else {
-			RegressionTreeLeaf node = new RegressionTreeLeaf(weightedMean);
-			return node;
+		// Restore the identity permutation
+		for (int i = k - 1; i >= 0; i--) {
+			int j = swaps[i];
+			a[j] = j;
+			a[i] = i;
 		}
+		Arrays.sort(positions);
+		return positions;
 	}
 
 }
@@ -1,5 +1,8 @@
 package mltk.util;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -247,4 +250,152 @@ public class ArrayUtils {
 		return idx;
 	}
 
+	/**
+	 * Writes a length-prefixed int array in binary format. A {@code null} array is written as length -1.
+	 * 
+	 * @param out the output.
+	 * @param a the array.
+	 * @throws IOException
+	 */
+	public static void writeIntArray(DataOutput out, int[] a) throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(a.length);
+		for (int v : a) {
+			out.writeInt(v);
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed int array in binary format.
+	 * 
+	 * @param in the input.
+	 * @return the array, or {@code null}.
+	 * @throws IOException
+	 */
+	public static int[] readIntArray(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		int[] a = new int[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = in.readInt();
+		}
+		return a;
+	}
+
+	/**
+	 * Writes a length-prefixed long array in binary format. A {@code null} array is written as length -1.
+	 * 
+	 * @param out the output.
+	 * @param a the array.
+	 * @throws IOException
+	 */
+	public static void writeLongArray(DataOutput out, long[] a) throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(a.length);
+		for (long v : a) {
+			out.writeLong(v);
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed long array in binary format.
+	 * 
+	 * @param in the input.
+	 * @return the array, or {@code null}.
+	 * @throws IOException
+	 */
+	public static long[] readLongArray(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		long[] a = new long[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = in.readLong();
+		}
+		return a;
+	}
+
+	/**
+	 * Writes a length-prefixed double array in binary format. A {@code null} array is written as length -1.
+	 * 
+	 * @param out the output.
+	 * @param a the array.
+	 * @throws IOException
+	 */
+	public static void writeDoubleArray(DataOutput out, double[] a) throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(a.length);
+		for (double v : a) {
+			out.writeDouble(v);
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed double array in binary format.
+	 * 
+	 * @param in the input.
+	 * @return the array, or {@code null}.
+	 * @throws IOException
+	 */
+	public static double[] readDoubleArray(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		double[] a = new double[length];
+		for (int i = 0; i < length; i++) {
+			a[i] = in.readDouble();
+		}
+		return a;
+	}
+
+	/**
+	 * Writes a length-prefixed 2D double array in binary format. A {@code null} array is written as length -1.
+	 * 
+	 * @param out the output.
+	 * @param a the array.
+	 * @throws IOException
+	 */
+	public static void writeDoubleMatrix(DataOutput out, double[][] a) throws IOException {
+		if (a == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(a.length);
+		for (double[] row : a) {
+			writeDoubleArray(out, row);
+		}
+	}
+
+	/**
+	 * Reads a length-prefixed 2D double array in binary format.
+	 * 
+	 * @param in the input.
+	 * @return the array, or {@code null}.
+	 * @throws IOException
+	 */
+	public static double[][] readDoubleMatrix(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		double[][] a = new double[length][];
+		for (int i = 0; i < length; i++) {
+			a[i] = readDoubleArray(in);
+		}
+		return a;
+	}
+
 }
@@ -28,8 +28,18 @@ public class Permutation {
 	 * @return this permutation.
 	 */
 	public Permutation permute() {
+		return permute(Random.getInstance());
+	}
+
+	/**
+	 * Randomly permutes this permutation with a random object.
+	 * 
+	 * @param rand the random object.
+	 * @return this permutation.
+	 */
+	public Permutation permute(Random rand) {
 		for (int i = a.length - 1; i > 0; i--) {
-			int idx = Random.getInstance().nextInt(i + 1);
+			int idx = rand.nextInt(i + 1);
 			int t = a[idx];
 			a[idx] = a[i];
 			a[i] = t;
@@ -1,28 +1,59 @@
 package mltk.util;
 
+import java.util.function.Supplier;
+
 /**
- * Class for global random object.
+ * Class for random objects. Besides the global random object, random objects form a hierarchy of independent streams:
+ * {@link #derive(long)} returns the stream for a key, such as the index of an ensemble member or an iteration, and
+ * {@link #split()} returns a new stream seeded from this one.
+ * 
+ * <p>
+ * A random object can be bound to the current thread while a task runs, see {@link #call(Supplier)}; code that draws
+ * from {@link #getInstance()}, such as sampling, permutations and shuffling, then draws from the stream of its task.
+ * Tasks with their own streams thus run concurrently without contending on the global random object, and their
+ * results do not depend on how threads interleave.
+ * </p>
  * 
  * @author Yin Lou
  * 
  */
 public class Random {
 
-	protected static Random instance = null;
+	protected static volatile Random instance = null;
+	protected static final ThreadLocal<Random> current = new ThreadLocal<>();
 	protected java.util.Random rand;
+	protected long seed;
 
 	protected Random() {
-		rand = new java.util.Random();
+		this(new java.util.Random().nextLong());
+	}
+
+	/**
+	 * Constructs a random object with a seed.
+	 * 
+	 * @param seed the random seed.
+	 */
+	public Random(long seed) {
+		this.rand = new java.util.Random(seed);
+		this.seed = seed;
 	}
 
 	/**
-	 * Returns the random object.
+	 * Returns the random object bound to the current thread, or the global random object if there is none.
 	 * 
-	 * @return the singleton random object.
+	 * @return the random object of the current thread.
 	 */
 	public static Random getInstance() {
+		Random random = current.get();
+		if (random != null) {
+			return random;
+		}
 		if (instance == null) {
-			instance = new Random();
+			synchronized (Random.class) {
+				if (instance == null) {
+					instance = new Random();
+				}
+			}
 		}
 		return instance;
 	}
@@ -34,6 +65,61 @@ public class Random {
 	 */
 	public void setSeed(long seed) {
 		rand.setSeed(seed);
+		this.seed = seed;
+	}
+
+	/**
+	 * Returns the random object for a key. Its stream is determined by the seed of this object and the key, and not
+	 * by the numbers drawn from this object, so the random objects of different keys can be used concurrently and
+	 * reproducibly. Keys can be chained, e.g., {@code derive(member).derive(iteration)}.
+	 * 
+	 * @param key the key.
+	 * @return the random object for a key.
+	 */
+	public Random derive(long key) {
+		return new Random(mix(seed + (key + 1) * 0x9E3779B97F4A7C15L));
+	}
+
+	/**
+	 * Returns a new random object whose seed is drawn from this object.
+	 * 
+	 * @return a new random object.
+	 */
+	public Random split() {
+		return new Random(mix(rand.nextLong()));
+	}
+
+	/**
+	 * Runs a task with this random object bound to the current thread, so that {@link #getInstance()} returns this
+	 * object in the task. The previous binding is restored afterwards.
+	 * 
+	 * @param task the task.
+	 * @return the result of the task.
+	 */
+	public <T> T call(Supplier<T> task) {
+		Random previous = current.get();
+		current.set(this);
+		try {
+			return task.get();
+		} finally {
+			if (previous == null) {
+				current.remove();
+			} else {
+				current.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Runs a task with this random object bound to the current thread, see {@link #call(Supplier)}.
+	 * 
+	 * @param task the task.
+	 */
+	public void run(Runnable task) {
+		call(() -> {
+			task.run();
+			return null;
+		});
 	}
 
 	/**
@@ -125,4 +211,10 @@ public class Random {
 		return rand;
 	}
 
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
 }
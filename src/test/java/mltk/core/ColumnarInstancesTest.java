@@ -0,0 +1,123 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.util.MathUtils;
+
+public class ColumnarInstancesTest {
+
+	@Test
+	public void testConversion() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		Assert.assertEquals(instances.size(), columnar.size());
+		Assert.assertEquals(instances.dimension(), columnar.dimension());
+		for (int i = 0; i < instances.size(); i++) {
+			Instance instance = instances.get(i);
+			Instance row = columnar.get(i);
+			for (int j = 0; j < instances.dimension(); j++) {
+				Assert.assertEquals(instance.getValue(j), row.getValue(j), MathUtils.EPSILON);
+				Assert.assertEquals(instance.getValue(j), columnar.getColumn(j)[i], MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instance.getTarget(), row.getTarget(), MathUtils.EPSILON);
+			Assert.assertEquals(instance.getWeight(), row.getWeight(), MathUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testWriteThrough() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		Instance row = columnar.get(3);
+		row.setTarget(-1);
+		row.setWeight(2);
+		row.setValue(0, 5);
+		Assert.assertEquals(-1, columnar.getTargets()[3], MathUtils.EPSILON);
+		Assert.assertEquals(2, columnar.getWeights()[3], MathUtils.EPSILON);
+		Assert.assertEquals(5, columnar.getColumn(0)[3], MathUtils.EPSILON);
+
+		// Shallow copies share target but not weight
+		Instance clone = row.clone();
+		clone.setWeight(3);
+		clone.setTarget(-2);
+		Assert.assertEquals(2, row.getWeight(), MathUtils.EPSILON);
+		Assert.assertEquals(-2, row.getTarget(), MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testCopyConstructor() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		columnar.get(3).setWeight(2);
+		Instance copy = new Instance(columnar.get(3));
+		Assert.assertEquals(instances.get(3).getTarget(), copy.getTarget(), MathUtils.EPSILON);
+		Assert.assertEquals(2, copy.getWeight(), MathUtils.EPSILON);
+		Assert.assertEquals(instances.get(3).getValue(0), copy.getValue(0), MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testShuffle() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset().copy();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		instances.shuffle(new java.util.Random(1));
+		columnar.shuffle(new java.util.Random(1));
+		for (int i = 0; i < instances.size(); i++) {
+			Assert.assertEquals(instances.get(i).getValue(0), columnar.get(i).getValue(0), MathUtils.EPSILON);
+			Assert.assertEquals(instances.get(i).getTarget(), columnar.get(i).getTarget(), MathUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testShuffleKeepsRows() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		double[] column = columnar.getColumn(0);
+		Instance row = columnar.get(3);
+		Instance clone = row.clone();
+		columnar.shuffle(new java.util.Random(1));
+		Assert.assertEquals(instances.get(3).getValue(0), row.getValue(0), MathUtils.EPSILON);
+		Assert.assertEquals(instances.get(3).getTarget(), clone.getTarget(), MathUtils.EPSILON);
+		Assert.assertSame(column, columnar.getColumn(0));
+		for (int i = 0; i < columnar.size(); i++) {
+			int r = columnar.getRowIndex(i);
+			Assert.assertEquals(columnar.get(i).getValue(0), column[r], MathUtils.EPSILON);
+			Assert.assertEquals(columnar.get(i).getValue(0), columnar.copyColumn(0)[i], MathUtils.EPSILON);
+			Assert.assertEquals(columnar.get(i).getTarget(), columnar.getTarget(i), MathUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testSparseInstances() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 5; j++) {
+			attributes.add(new NumericalAttribute("f" + j, j));
+		}
+		Instances instances = new Instances(attributes);
+		instances.add(new Instance(new int[] { 1, 3 }, new double[] { 0.5, 1.5 }, 1.0));
+		instances.add(new Instance(new int[] { 0, 4 }, new double[] { 2.5, 3.5 }, 0.0));
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		Assert.assertEquals(2, columnar.size());
+		Assert.assertEquals(0.5, columnar.get(0).getValue(1), MathUtils.EPSILON);
+		Assert.assertEquals(0.0, columnar.get(0).getValue(0), MathUtils.EPSILON);
+		Assert.assertEquals(3.5, columnar.getColumn(4)[1], MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testClearThenAddSparse() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 3; j++) {
+			attributes.add(new NumericalAttribute("f" + j, j));
+		}
+		ColumnarInstances columnar = new ColumnarInstances(attributes, null);
+		columnar.add(new Instance(new double[] { 7, 8, 9 }, 0.0));
+		columnar.clear();
+		columnar.add(new Instance(new int[] { 1 }, new double[] { 5 }, 1.0));
+		Assert.assertEquals(1, columnar.size());
+		Assert.assertArrayEquals(new double[] { 0, 5, 0 }, columnar.get(0).getValues(), MathUtils.EPSILON);
+	}
+
+}
@@ -0,0 +1,158 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.predictor.Regressor;
+import mltk.predictor.gam.GAM;
+import mltk.predictor.tree.RegressionTree;
+import mltk.predictor.tree.RegressionTreeLearner;
+import mltk.predictor.tree.ensemble.BoostedRTrees;
+import mltk.predictor.tree.ensemble.ag.AdditiveGroves;
+import mltk.predictor.tree.ensemble.brt.BRT;
+import mltk.predictor.tree.ensemble.brt.CompiledBRT;
+import mltk.predictor.tree.ensemble.rf.CompiledRandomForest;
+import mltk.predictor.tree.ensemble.rf.RandomForest;
+import mltk.util.MathUtils;
+
+public class DenseInstanceViewTest {
+
+	@Test
+	public void testSparse() {
+		DenseInstanceView view = new DenseInstanceView(new int[] { 7, 2, 100 });
+		Assert.assertArrayEquals(new int[] { 2, 7, 100 }, view.getAttributeIndices());
+		Assert.assertEquals(1, view.getSlot(7));
+		Assert.assertEquals(-1, view.getSlot(-1));
+		Assert.assertEquals(-1, view.getSlot(3));
+
+		Instance instance = new Instance(new int[] { 1, 2, 50, 100 }, new double[] { 1.5, 2.5, 3.5, 4.5 }, 9);
+		view.bind(instance);
+		Assert.assertTrue(view.isSparse());
+		Assert.assertEquals(2.5, view.getValue(2), MathUtils.EPSILON);
+		Assert.assertEquals(0, view.getValue(7), MathUtils.EPSILON);
+		Assert.assertEquals(4.5, view.getValue(100), MathUtils.EPSILON);
+		// Attributes outside the view are read from the instance
+		Assert.assertEquals(1.5, view.getValue(1), MathUtils.EPSILON);
+		Assert.assertEquals(3.5, view.getValue(50), MathUtils.EPSILON);
+		Assert.assertEquals(9, view.getTarget(), MathUtils.EPSILON);
+
+		// Rebinding clears values of absent attributes
+		view.bind(new Instance(new int[] { 7 }, new double[] { -1 }, 0));
+		Assert.assertEquals(0, view.getValue(2), MathUtils.EPSILON);
+		Assert.assertEquals(-1, view.getValue(7), MathUtils.EPSILON);
+		Assert.assertEquals(0, view.getValue(100), MathUtils.EPSILON);
+
+		// Instances with more entries than the view are merged
+		view.bind(new Instance(new int[] { 0, 1, 2, 3, 4, 5, 6, 7 }, new double[] { 0, 1, 2, 3, 4, 5, 6, 7 }, 0));
+		Assert.assertEquals(2, view.getValue(2), MathUtils.EPSILON);
+		Assert.assertEquals(7, view.getValue(7), MathUtils.EPSILON);
+		Assert.assertEquals(0, view.getValue(100), MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testEnsemble() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner learner = new RegressionTreeLearner();
+		learner.setConstructionMode(RegressionTreeLearner.Mode.DEPTH_LIMITED);
+		learner.setMaxDepth(3);
+		RegressionTree rt = learner.build(instances);
+		learner.setMaxDepth(2);
+		BRT brt = new BRT(3);
+		brt.getRegressionTreeList(0).add(rt);
+		brt.getRegressionTreeList(0).add(rt.copy());
+		brt.getRegressionTreeList(1).add(learner.build(instances));
+		brt.getRegressionTreeList(2).add(rt.copy());
+
+		DenseInstanceView view = new DenseInstanceView(brt.getAttributeIndices());
+		CompiledBRT compiled = brt.compile();
+		BoostedRTrees trees = brt.getRegressionTreeList(0);
+		for (Instance instance : instances) {
+			Instance sparse = toSparse(instance);
+			double expected = trees.regress(instance);
+			Assert.assertEquals(expected, trees.regress(sparse), MathUtils.EPSILON);
+			Assert.assertEquals(expected, trees.regress(view.bind(sparse)), MathUtils.EPSILON);
+			Assert.assertEquals(expected, trees.regress(view.bind(instance)), MathUtils.EPSILON);
+			Assert.assertArrayEquals(brt.predictProbabilities(instance), compiled.predictProbabilities(sparse),
+					MathUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testModels() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner learner = new RegressionTreeLearner();
+		learner.setConstructionMode(RegressionTreeLearner.Mode.DEPTH_LIMITED);
+		learner.setMaxDepth(3);
+		RegressionTree rt1 = learner.build(instances);
+		learner.setMaxDepth(2);
+		RegressionTree rt2 = learner.build(instances);
+
+		RandomForest rf = new RandomForest();
+		rf.add(rt1);
+		AdditiveGroves ag = new AdditiveGroves();
+		ag.add(new RegressionTree[] { rt1 });
+		GAM gam = new GAM();
+		gam.add(new int[] { 0 }, rt1);
+		Regressor[] regressors = { rf, ag, gam };
+		CompiledRandomForest compiled = rf.compile();
+		for (Instance instance : instances) {
+			Instance sparse = toSparse(instance);
+			Assert.assertEquals(rf.regress(instance), compiled.regress(sparse), MathUtils.EPSILON);
+			for (Regressor regressor : regressors) {
+				Assert.assertEquals(regressor.regress(instance), regressor.regress(sparse), MathUtils.EPSILON);
+			}
+		}
+
+		// Views are rebuilt when the models change
+		rf.add(rt2);
+		ag.add(new RegressionTree[] { rt2 });
+		gam.add(new int[] { 1 }, rt2);
+		compiled = rf.compile();
+		for (Instance instance : instances) {
+			Instance sparse = toSparse(instance);
+			Assert.assertEquals(rf.regress(instance), compiled.regress(sparse), MathUtils.EPSILON);
+			for (Regressor regressor : regressors) {
+				Assert.assertEquals(regressor.regress(instance), regressor.regress(sparse), MathUtils.EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testCache() {
+		List<Integer> used = new ArrayList<>(Arrays.asList(3, 1));
+		DenseInstanceView.Cache cache = new DenseInstanceView.Cache(attIndices -> attIndices.addAll(used));
+		DenseInstanceView view = cache.get();
+		Assert.assertArrayEquals(new int[] { 1, 3 }, view.getAttributeIndices());
+		Assert.assertSame(view, cache.get());
+
+		// Views are kept while the set of attribute indices does not change
+		used.add(3);
+		cache.invalidate();
+		Assert.assertSame(view, cache.get());
+
+		used.add(5);
+		Assert.assertSame(view, cache.get());
+		cache.invalidate();
+		Assert.assertArrayEquals(new int[] { 1, 3, 5 }, cache.get().getAttributeIndices());
+	}
+
+	private static Instance toSparse(Instance instance) {
+		double[] values = instance.getValues();
+		int[] indices = new int[values.length];
+		double[] v = new double[values.length];
+		int k = 0;
+		for (int j = 0; j < values.length; j++) {
+			if (values[j] != 0) {
+				indices[k] = j;
+				v[k] = values[j];
+				k++;
+			}
+		}
+		return new Instance(Arrays.copyOf(indices, k), Arrays.copyOf(v, k), instance.getTarget());
+	}
+
+}
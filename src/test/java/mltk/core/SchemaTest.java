@@ -0,0 +1,43 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SchemaTest {
+
+	@Test
+	public void testCachedSchema() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset().copy();
+		Schema schema = instances.getSchema();
+		Assert.assertSame(schema, instances.getSchema());
+
+		// Changes to the attribute list in place are picked up
+		Attribute attribute = new NumericalAttribute("g1", 0);
+		instances.getAttributes().set(0, attribute);
+		Schema updated = instances.getSchema();
+		Assert.assertSame(attribute, updated.getAttribute("g1"));
+		Assert.assertEquals(-1, updated.getPosition("f1"));
+
+		instances.setAttributes(instances.getAttributes(1, 2));
+		Assert.assertEquals(2, instances.getSchema().size());
+		Assert.assertEquals(-1, instances.getSchema().getPositionByIndex(0));
+		Assert.assertEquals(1, instances.getSchema().getPositionByIndex(2));
+	}
+
+	@Test
+	public void testSparseIndices() {
+		List<Attribute> attributes = new ArrayList<>();
+		attributes.add(new NumericalAttribute("f0", 7));
+		attributes.add(new NumericalAttribute("f1", 1 << 24));
+		Schema schema = new Schema(attributes);
+		Assert.assertEquals((1 << 24) + 1, schema.width());
+		Assert.assertEquals(0, schema.getPositionByIndex(7));
+		Assert.assertEquals(1, schema.getPositionByIndex(1 << 24));
+		Assert.assertEquals(-1, schema.getPositionByIndex(8));
+		Assert.assertEquals(-1, schema.getPositionByIndex(-1));
+	}
+
+}
@@ -0,0 +1,155 @@
+package mltk.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.predictor.glm.GLM;
+import mltk.predictor.glm.LassoLearner;
+import mltk.util.MathUtils;
+
+public class SparseInstancesTest {
+
+	private static Instances getSparseDataset() {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 5; j++) {
+			Attribute attribute = new NumericalAttribute("f" + j);
+			attribute.setIndex(j);
+			attributes.add(attribute);
+		}
+		Instances instances = new Instances(attributes, new NumericalAttribute("target"));
+		java.util.Random rand = new java.util.Random(3);
+		for (int i = 0; i < 100; i++) {
+			List<Integer> indices = new ArrayList<>();
+			for (int j = 0; j < 5; j++) {
+				if (rand.nextInt(3) == 0) {
+					indices.add(j);
+				}
+			}
+			int[] idx = new int[indices.size()];
+			double[] values = new double[indices.size()];
+			double target = 0;
+			for (int k = 0; k < idx.length; k++) {
+				idx[k] = indices.get(k);
+				values[k] = rand.nextGaussian();
+				target += (idx[k] + 1) * values[k];
+			}
+			instances.add(new Instance(idx, values, target));
+		}
+		return instances;
+	}
+
+	@Test
+	public void testConversion() {
+		Instances instances = getSparseDataset();
+		SparseInstances sparse = new SparseInstances(instances);
+		Assert.assertEquals(instances.size(), sparse.size());
+		Assert.assertEquals(5, sparse.width());
+		int nnz = 0;
+		for (int i = 0; i < instances.size(); i++) {
+			Instance instance = instances.get(i);
+			Instance row = sparse.get(i);
+			Assert.assertTrue(row.isSparse());
+			SparseVector sv = (SparseVector) instance.getVector();
+			SparseVector rv = (SparseVector) row.getVector();
+			Assert.assertArrayEquals(sv.getIndices(), rv.getIndices());
+			Assert.assertArrayEquals(sv.getValues(), rv.getValues(), MathUtils.EPSILON);
+			for (int j = 0; j < 5; j++) {
+				Assert.assertEquals(instance.getValue(j), row.getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instance.getTarget(), row.getTarget(), MathUtils.EPSILON);
+			nnz += sv.getIndices().length;
+		}
+		Assert.assertEquals(nnz, sparse.numNonZeros());
+	}
+
+	@Test
+	public void testColumns() {
+		Instances instances = getSparseDataset();
+		SparseInstances sparse = new SparseInstances(instances);
+		int[] colPtr = sparse.getColumnPointers();
+		int[] rowIndices = sparse.getRowIndices();
+		double[] colValues = sparse.getColumnValues();
+		for (int j = 0; j < 5; j++) {
+			int prev = -1;
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++) {
+				Assert.assertTrue(rowIndices[k] > prev);
+				Assert.assertEquals(instances.get(rowIndices[k]).getValue(j), colValues[k], MathUtils.EPSILON);
+				prev = rowIndices[k];
+			}
+			double[] column = sparse.copyColumn(j);
+			for (int i = 0; i < instances.size(); i++) {
+				Assert.assertEquals(instances.get(i).getValue(j), column[i], MathUtils.EPSILON);
+			}
+		}
+		Assert.assertEquals(sparse.numNonZeros(), colPtr[5]);
+
+		// Modifications are reflected in the column view
+		SparseVector rv = (SparseVector) sparse.get(0).getVector();
+		int attIndex = rv.getIndices()[0];
+		sparse.get(0).setValue(attIndex, 42);
+		Assert.assertEquals(0, sparse.getRowIndices()[sparse.getColumnPointers()[attIndex]]);
+		Assert.assertEquals(42, sparse.getColumnValues()[sparse.getColumnPointers()[attIndex]], MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testShuffle() {
+		Instances instances = getSparseDataset();
+		SparseInstances sparse = new SparseInstances(instances);
+		instances.shuffle(new java.util.Random(7));
+		sparse.shuffle(new java.util.Random(7));
+		for (int i = 0; i < instances.size(); i++) {
+			for (int j = 0; j < 5; j++) {
+				Assert.assertEquals(instances.get(i).getValue(j), sparse.get(i).getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instances.get(i).getTarget(), sparse.get(i).getTarget(), MathUtils.EPSILON);
+		}
+	}
+
+	@Test
+	public void testShuffleKeepsRows() {
+		Instances instances = getSparseDataset();
+		SparseInstances sparse = new SparseInstances(instances);
+		double[] rowValues = sparse.getRowValues();
+		Instance row = sparse.get(3);
+		sparse.shuffle(new java.util.Random(7));
+		Assert.assertSame(rowValues, sparse.getRowValues());
+		for (int j = 0; j < 5; j++) {
+			Assert.assertEquals(instances.get(3).getValue(j), row.getValue(j), MathUtils.EPSILON);
+		}
+		// The CSC view and copies are in the order of the instances
+		SparseInstances copy = sparse.copy();
+		int[] colPtr = sparse.getColumnPointers();
+		int[] rowIndices = sparse.getRowIndices();
+		double[] colValues = sparse.getColumnValues();
+		for (int j = 0; j < 5; j++) {
+			for (int k = colPtr[j]; k < colPtr[j + 1]; k++) {
+				Assert.assertEquals(sparse.get(rowIndices[k]).getValue(j), colValues[k], MathUtils.EPSILON);
+				if (k > colPtr[j]) {
+					Assert.assertTrue(rowIndices[k - 1] < rowIndices[k]);
+				}
+			}
+		}
+		for (int i = 0; i < sparse.size(); i++) {
+			for (int j = 0; j < 5; j++) {
+				Assert.assertEquals(sparse.get(i).getValue(j), copy.get(i).getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(sparse.get(i).getTarget(), sparse.getTargets()[sparse.getRowIndex(i)], 0);
+			Assert.assertEquals(sparse.get(i).getTarget(), copy.copyTargets()[i], 0);
+		}
+	}
+
+	@Test
+	public void testLasso() {
+		Instances instances = getSparseDataset();
+		SparseInstances sparse = new SparseInstances(instances);
+		LassoLearner learner = new LassoLearner();
+		GLM expected = learner.buildGaussianRegressor(instances, true, 100, 0.01);
+		GLM actual = learner.buildGaussianRegressor(sparse, true, 100, 0.01);
+		Assert.assertArrayEquals(expected.coefficients(0), actual.coefficients(0), MathUtils.EPSILON);
+		Assert.assertArrayEquals(expected.intercept(), actual.intercept(), MathUtils.EPSILON);
+	}
+
+}
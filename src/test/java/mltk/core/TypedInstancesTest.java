@@ -0,0 +1,113 @@
+package mltk.core;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.core.Attribute.Type;
+import mltk.predictor.tree.RegressionTree;
+import mltk.predictor.tree.RegressionTreeLearner;
+import mltk.util.MathUtils;
+import mltk.util.Random;
+
+public class TypedInstancesTest {
+
+	private static Instances getDataset() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDatasetWMissing().copy();
+		instances.setAttributes(instances.getAttributes(0, 1, 2));
+		return instances;
+	}
+
+	@Test
+	public void testSchema() {
+		Instances instances = getDataset();
+		Schema schema = instances.getSchema();
+		Assert.assertEquals(3, schema.size());
+		Assert.assertEquals(3, schema.width());
+		Assert.assertEquals(1, schema.getPosition("f2"));
+		Assert.assertEquals(-1, schema.getPosition("f4"));
+		Assert.assertEquals(2, schema.getPositionByIndex(2));
+		Assert.assertEquals(-1, schema.getPositionByIndex(3));
+		Assert.assertSame(instances.getAttributes().get(0), schema.getAttribute("f1"));
+		Assert.assertSame(instances.getAttributes().get(1), schema.getAttributeByIndex(1));
+		Assert.assertNull(schema.getAttributeByIndex(-1));
+	}
+
+	@Test
+	public void testConversion() {
+		Instances instances = getDataset();
+		TypedInstances typed = new TypedInstances(instances);
+		Assert.assertEquals(Type.NUMERIC, typed.getType(0));
+		Assert.assertEquals(Type.NOMINAL, typed.getType(1));
+		Assert.assertEquals(Type.NOMINAL, typed.getType(2));
+		Assert.assertNull(typed.getType(3));
+		Assert.assertNotNull(typed.getNumericColumn(0));
+		Assert.assertNotNull(typed.getCodedColumn(1));
+		Assert.assertEquals(3, typed.getCodedColumn(1).getNumBins());
+		Assert.assertEquals("f3", typed.getSchema().get(2).getName());
+		Assert.assertEquals(instances.size(), typed.size());
+		for (int i = 0; i < instances.size(); i++) {
+			for (int j = 0; j < 3; j++) {
+				Assert.assertEquals(instances.get(i).getValue(j), typed.get(i).getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instances.get(i).getTarget(), typed.get(i).getTarget(), MathUtils.EPSILON);
+		}
+		Assert.assertTrue(typed.get(0).isMissing(0));
+
+		TypedInstances copy = typed.copy();
+		copy.get(5).setValue(1, 2);
+		Assert.assertEquals(2, copy.get(5).getValue(1), MathUtils.EPSILON);
+		Assert.assertEquals(instances.get(5).getValue(1), typed.get(5).getValue(1), MathUtils.EPSILON);
+		try {
+			copy.get(5).setValue(1, 3);
+			Assert.fail("Should see exception");
+		} catch (IllegalArgumentException e) {
+			// Code out of range
+		}
+	}
+
+	@Test
+	public void testShuffleKeepsRows() {
+		Instances instances = getDataset();
+		TypedInstances typed = new TypedInstances(instances);
+		double[] column = typed.getNumericColumn(0);
+		Instance row = typed.get(3);
+		typed.shuffle(new java.util.Random(1));
+		Assert.assertSame(column, typed.getNumericColumn(0));
+		Assert.assertEquals(instances.get(3).getValue(1), row.getValue(1), MathUtils.EPSILON);
+		TypedInstances copy = typed.copy();
+		for (int i = 0; i < typed.size(); i++) {
+			int r = typed.getRowIndex(i);
+			Assert.assertEquals(typed.get(i).getValue(0), column[r], MathUtils.EPSILON);
+			Assert.assertEquals(typed.get(i).getValue(1), typed.getCodedColumn(1).getValue(r), MathUtils.EPSILON);
+			Assert.assertEquals(typed.get(i).getTarget(), typed.copyTargets()[i], 0);
+			for (int j = 0; j < 3; j++) {
+				Assert.assertEquals(typed.get(i).getValue(j), copy.get(i).getValue(j), MathUtils.EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testTreeLearner() throws Exception {
+		Instances instances = getDataset();
+		TypedInstances typed = new TypedInstances(instances);
+		RegressionTreeLearner learner = new RegressionTreeLearner();
+		learner.setConstructionMode(RegressionTreeLearner.Mode.NUM_LEAVES_LIMITED);
+		learner.setMaxNumLeaves(6);
+		Random.getInstance().setSeed(0);
+		String expected = toString(learner.build(instances));
+		Random.getInstance().setSeed(0);
+		Assert.assertEquals(expected, toString(learner.build(typed)));
+	}
+
+	private static String toString(RegressionTree rt) throws Exception {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		rt.write(out);
+		out.flush();
+		return sw.toString();
+	}
+
+}
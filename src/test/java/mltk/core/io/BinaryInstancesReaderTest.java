@@ -0,0 +1,125 @@
+package mltk.core.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.core.Attribute;
+import mltk.core.Instance;
+import mltk.core.Instances;
+import mltk.core.InstancesTestHelper;
+import mltk.core.MappedInstances;
+import mltk.core.NominalAttribute;
+import mltk.core.NumericalAttribute;
+import mltk.util.MathUtils;
+
+public class BinaryInstancesReaderTest {
+
+	@Test
+	public void testReadWrite() throws IOException {
+		Instances instances = InstancesTestHelper.getInstance().getDenseClassificationDataset();
+		File file = File.createTempFile("mltk", ".bin");
+		file.deleteOnExit();
+		BinaryInstancesWriter.write(instances, file.getPath());
+
+		MappedInstances mapped = BinaryInstancesReader.read(file.getPath());
+		Assert.assertEquals(instances.size(), mapped.size());
+		Assert.assertEquals(instances.dimension(), mapped.dimension());
+		for (int j = 0; j < instances.dimension(); j++) {
+			Assert.assertEquals(instances.getAttributes().get(j).getType(), mapped.getAttributes().get(j).getType());
+			Assert.assertEquals(instances.getAttributes().get(j).getName(), mapped.getAttributes().get(j).getName());
+		}
+		Assert.assertEquals(instances.getTargetAttribute().getType(), mapped.getTargetAttribute().getType());
+		for (int i = 0; i < instances.size(); i++) {
+			Instance instance = instances.get(i);
+			Instance row = mapped.get(i);
+			for (int j = 0; j < instances.dimension(); j++) {
+				Assert.assertEquals(instance.getValue(j), row.getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instance.getTarget(), row.getTarget(), MathUtils.EPSILON);
+			Assert.assertEquals(instance.getWeight(), row.getWeight(), MathUtils.EPSILON);
+		}
+
+		// Targets are copied on write
+		mapped.get(0).setTarget(-1);
+		Assert.assertEquals(-1, mapped.getTarget(0), MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testLongAttribute() throws IOException {
+		String[] states = new String[20000];
+		for (int i = 0; i < states.length; i++) {
+			states[i] = "state" + i;
+		}
+		List<Attribute> attributes = new ArrayList<>();
+		attributes.add(new NominalAttribute("f0", states, 0));
+		Instances instances = new Instances(attributes, new NumericalAttribute("target"));
+		instances.add(new Instance(new double[] { 19999 }, 1.0));
+		File file = File.createTempFile("mltk", ".bin");
+		file.deleteOnExit();
+		BinaryInstancesWriter.write(instances, file.getPath());
+
+		MappedInstances mapped = BinaryInstancesReader.read(file.getPath());
+		NominalAttribute attribute = (NominalAttribute) mapped.getAttributes().get(0);
+		Assert.assertEquals(states.length, attribute.getCardinality());
+		Assert.assertEquals(19999, mapped.getValue(0, 0), MathUtils.EPSILON);
+	}
+
+	@Test
+	public void testSparseInstances() throws IOException {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < 4; j++) {
+			attributes.add(new NumericalAttribute("f" + j, j));
+		}
+		Instances instances = new Instances(attributes, new NumericalAttribute("target"));
+		instances.add(new Instance(new int[] { 1, 3 }, new double[] { 0.5, 1.5 }, 1.0));
+		instances.add(new Instance(new int[] { 0 }, new double[] { 2.5 }, 0.0));
+		File file = File.createTempFile("mltk", ".bin");
+		file.deleteOnExit();
+		BinaryInstancesWriter.write(instances, file.getPath());
+
+		MappedInstances mapped = BinaryInstancesReader.read(file.getPath());
+		Assert.assertEquals(2, mapped.size());
+		for (int i = 0; i < instances.size(); i++) {
+			for (int j = 0; j < attributes.size(); j++) {
+				Assert.assertEquals(instances.get(i).getValue(j), mapped.getValue(i, j), 0);
+			}
+			Assert.assertEquals(instances.get(i).getTarget(), mapped.getTarget(i), 0);
+		}
+	}
+
+	@Test
+	public void testMutators() throws IOException {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		File file = File.createTempFile("mltk", ".bin");
+		file.deleteOnExit();
+		BinaryInstancesWriter.write(instances, file.getPath());
+		MappedInstances mapped = BinaryInstancesReader.read(file.getPath());
+
+		Instance row = mapped.get(3);
+		Instances expected = instances.copy();
+		expected.shuffle(new java.util.Random(1));
+		mapped.shuffle(new java.util.Random(1));
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getValue(0), mapped.get(i).getValue(0), MathUtils.EPSILON);
+			Assert.assertEquals(expected.get(i).getTarget(), mapped.getTarget(i), MathUtils.EPSILON);
+		}
+		// Rows taken before shuffling still show the same instance
+		Assert.assertEquals(instances.get(3).getValue(0), row.getValue(0), MathUtils.EPSILON);
+
+		row.setValue(0, -5);
+		Assert.assertEquals(-5, row.getValue(0), MathUtils.EPSILON);
+		mapped.add(new Instance(new double[] { 1, 2, 3, 4 }, 5));
+		Assert.assertEquals(instances.size() + 1, mapped.size());
+		Assert.assertEquals(3, mapped.get(instances.size()).getValue(2), MathUtils.EPSILON);
+		Assert.assertEquals(5, mapped.getTarget(instances.size()), MathUtils.EPSILON);
+		Assert.assertEquals(-5, row.getValue(0), MathUtils.EPSILON);
+		mapped.clear();
+		Assert.assertEquals(0, mapped.size());
+	}
+
+}
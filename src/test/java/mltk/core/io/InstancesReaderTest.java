@@ -1,9 +1,14 @@
 package mltk.core.io;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import mltk.core.Instance;
+import mltk.core.Instances;
 
 public class InstancesReaderTest {
 
@@ -13,5 +18,122 @@ public class InstancesReaderTest {
 		Instance instance = InstancesReader.parseDenseInstance(data, 3);
 		Assert.assertTrue(instance.isMissing(2));
 	}
-	
+
+	@Test
+	public void testTokenizer() throws IOException {
+		// Equivalent to the default delimiter, but forces the regular expression path
+		String delimiter = "[ \\t\\n\\x0B\\f\\r]+";
+
+		String dense = "1 0.1 -2.5e-3\r\n0 ? 1.7976931348623157E308\n1\t+.5  0.30000000000000004  \r"
+				+ "0 -0.0 123456789012345678901234567890\n1 4.9e-324 1e23";
+		File file = createTempFile(dense);
+		assertEquals(InstancesReader.read(file.getPath(), 0, delimiter), InstancesReader.read(file.getPath(), 0));
+
+		String sparse = "1 3:0.5 10:2\n0 1:0.25 2:1e-5\r\n-1 7:3.25 8:0.1\n";
+		file = createTempFile(sparse);
+		assertEquals(InstancesReader.read(null, file.getPath(), delimiter), InstancesReader.read(null, file.getPath()));
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		java.util.Random rand = new java.util.Random(1);
+		StringBuilder dense = new StringBuilder("x0 x1 x2 y z\n");
+		StringBuilder sparse = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			String eol = i % 3 == 0 ? "\r\n" : "\n";
+			dense.append(rand.nextInt(2)).append(' ').append(rand.nextGaussian()).append(" ?\t")
+					.append(rand.nextInt(100) / 10.0).append(' ').append(i % 5).append(eol);
+			sparse.append(i % 2).append(' ').append(rand.nextInt(20)).append(':').append(rand.nextDouble())
+					.append(' ').append(20 + rand.nextInt(50)).append(":1").append(eol);
+		}
+
+		File file = createTempFile(dense.toString());
+		assertEquals(InstancesReader.read(null, file.getPath()), InstancesReader.read(null, file.getPath(), 4));
+
+		file = createTempFile(dense.substring(dense.indexOf("\n") + 1));
+		assertEquals(InstancesReader.read(file.getPath(), 4), InstancesReader.read(file.getPath(), 4, 3));
+		File attFile = createTempFile("x0: cont\nx1: cont\nx2: cont\ny: cont (target)\nz: cont\n");
+		assertEquals(InstancesReader.read(attFile.getPath(), file.getPath()),
+				InstancesReader.read(attFile.getPath(), file.getPath(), 4));
+
+		file = createTempFile(sparse.toString());
+		Instances expected = InstancesReader.read(null, file.getPath());
+		Instances actual = InstancesReader.read(null, file.getPath(), 4);
+		assertEquals(expected, actual);
+		Assert.assertEquals(expected.getAttributes().size(), actual.getAttributes().size());
+	}
+
+	@Test
+	public void testSkippedLines() throws IOException {
+		// Dense lines whose number of columns does not match are skipped by all readers
+		String data = "1 0.5 2\n0 1\n1 3:2.5\n0 -1 ?\n1 2 3 4\n";
+		File file = createTempFile(data);
+		File attFile = createTempFile("x0: cont\nx1: cont\ny: cont (target)\n");
+		Instances expected = InstancesReader.read(attFile.getPath(), file.getPath());
+		Assert.assertEquals(3, expected.size());
+		assertEquals(expected, InstancesReader.read(attFile.getPath(), file.getPath(), "[ \\t]+"));
+		assertEquals(expected, InstancesReader.read(attFile.getPath(), file.getPath(), 2));
+		try (InstancesStream stream = InstancesReader.stream(attFile.getPath(), file.getPath())) {
+			Instances actual = new Instances(expected.getAttributes(), expected.getTargetAttribute());
+			for (Instance instance : stream) {
+				actual.add(instance);
+			}
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testStream() throws IOException {
+		String data = "a b c\n1 0.5 ?\n0 -1 2\n1 7:2.5 9:1\n0 1\n";
+		File file = createTempFile(data);
+		Instances expected = InstancesReader.read(null, file.getPath());
+		try (InstancesStream stream = InstancesReader.stream(null, file.getPath())) {
+			Instances actual = new Instances(expected.getAttributes(), expected.getTargetAttribute());
+			for (Instance instance : stream) {
+				actual.add(instance);
+			}
+			assertEquals(expected, actual);
+
+			// Each iteration is a new pass
+			int n = 0;
+			for (InstancesStream.InstanceIterator iter = stream.iterator(); iter.hasNext(); iter.next()) {
+				n++;
+			}
+			Assert.assertEquals(expected.size(), n);
+		}
+
+		// Closing the stream also closes the passes that are still open
+		InstancesStream stream = InstancesReader.stream(null, file.getPath());
+		InstancesStream.InstanceIterator iter = stream.iterator();
+		iter.next();
+		stream.close();
+		Assert.assertFalse(iter.hasNext());
+	}
+
+	private static File createTempFile(String content) throws IOException {
+		File file = File.createTempFile("mltk", ".txt");
+		file.deleteOnExit();
+		FileWriter out = new FileWriter(file);
+		out.write(content);
+		out.close();
+		return file;
+	}
+
+	private static void assertEquals(Instances expected, Instances actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected.dimension(), actual.dimension());
+		for (int i = 0; i < expected.size(); i++) {
+			Instance a = expected.get(i);
+			Instance b = actual.get(i);
+			Assert.assertEquals(a.isSparse(), b.isSparse());
+			Assert.assertArrayEquals(a.getValues(), b.getValues(), 0);
+			Assert.assertEquals(Double.doubleToLongBits(a.getTarget()), Double.doubleToLongBits(b.getTarget()));
+			if (a.isSparse()) {
+				Assert.assertArrayEquals(((mltk.core.SparseVector) a.getVector()).getIndices(),
+						((mltk.core.SparseVector) b.getVector()).getIndices());
+			}
+		}
+		Assert.assertEquals(expected.getTargetAttribute().toString(), actual.getTargetAttribute().toString());
+	}
+
 }
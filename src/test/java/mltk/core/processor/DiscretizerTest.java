@@ -4,6 +4,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import mltk.core.BinnedAttribute;
+import mltk.core.BinnedInstances;
 import mltk.core.Instances;
 import mltk.core.InstancesTestHelper;
 import mltk.util.MathUtils;
@@ -24,4 +25,22 @@ public class DiscretizerTest {
 		}
 	}
 
+	@Test
+	public void testPackedDiscretization() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseClassificationDatasetWMissing().copy();
+		instances.setAttributes(instances.getAttributes(0, 1, 2));
+		BinnedInstances binnedInstances = Discretizer.discretize(instances, 10);
+		Discretizer.discretize(instances, 0, 10);
+		Assert.assertEquals(instances.size(), binnedInstances.size());
+		Assert.assertEquals(BinnedAttribute.class, binnedInstances.getAttributes().get(0).getClass());
+		Assert.assertEquals(10, binnedInstances.getColumn(0).getNumBins());
+		for (int i = 0; i < instances.size(); i++) {
+			for (int j = 0; j < 3; j++) {
+				Assert.assertEquals(instances.get(i).getValue(j), binnedInstances.get(i).getValue(j), MathUtils.EPSILON);
+			}
+			Assert.assertEquals(instances.get(i).getTarget(), binnedInstances.get(i).getTarget(), MathUtils.EPSILON);
+		}
+		Assert.assertTrue(binnedInstances.get(0).isMissing(0));
+	}
+
 }
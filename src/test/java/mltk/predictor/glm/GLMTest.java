@@ -3,10 +3,13 @@ package mltk.predictor.glm;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 
 import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
 import mltk.util.MathUtils;
 
 import org.junit.Assert;
@@ -47,5 +50,29 @@ public class GLMTest {
 			Assert.fail("Should not see exception: " + e.getMessage());
 		}
 	}
-	
+
+	@Test
+	public void testBinaryIO() {
+		double[] intercept = {1.0, -1.0};
+		double[][] w = {
+				{1, 2, 3},
+				{-1, -2, -3}
+		};
+		GLM glm = new GLM(intercept, w);
+		
+		try {
+			ByteArrayOutputStream boas = new ByteArrayOutputStream();
+			PredictorWriter.writeBinary(glm, new DataOutputStream(boas));
+			
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(boas.toByteArray()));
+			GLM parsedGLM = (GLM) PredictorReader.readBinary(in);
+			Assert.assertArrayEquals(intercept, parsedGLM.intercept, MathUtils.EPSILON);
+			for (int i = 0; i < intercept.length; i++) {
+				Assert.assertArrayEquals(w[i], parsedGLM.coefficients(i), MathUtils.EPSILON);
+			}
+		} catch (Exception e) {
+			Assert.fail("Should not see exception: " + e.getMessage());
+		}
+	}
+
 }
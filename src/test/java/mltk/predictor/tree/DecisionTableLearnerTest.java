@@ -1,13 +1,19 @@
 package mltk.predictor.tree;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import mltk.core.Attribute;
+import mltk.core.BinnedInstances;
+import mltk.core.ColumnarInstances;
 import mltk.core.Instances;
 import mltk.core.InstancesTestHelper;
+import mltk.core.processor.Discretizer;
+import mltk.util.Random;
 
 public class DecisionTableLearnerTest {
 
@@ -40,5 +46,130 @@ public class DecisionTableLearnerTest {
 		Assert.assertEquals(2, attributeIndices.length);
 		Assert.assertEquals(1, attributeIndices[0]);
 	}
-	
+
+	@Test
+	public void testBinnedInstances() throws Exception {
+		assertSameTables(InstancesTestHelper.getInstance().getDenseRegressionDataset().copy());
+	}
+
+	@Test
+	public void testBinnedInstancesWithMissing() throws Exception {
+		assertSameTables(InstancesTestHelper.getInstance().getDenseRegressionDatasetWMissing().copy());
+	}
+
+	private static void assertSameTables(Instances instances) throws Exception {
+		instances.setAttributes(instances.getAttributes(0, 1, 2));
+		BinnedInstances binnedInstances = Discretizer.discretize(instances, 16);
+		// Discretize the row-oriented instances the same way, i.e., only the numeric attributes
+		List<Attribute> attributes = instances.getAttributes();
+		for (int j = 0; j < attributes.size(); j++) {
+			if (attributes.get(j).getType() == Attribute.Type.NUMERIC) {
+				Discretizer.discretize(instances, j, 16);
+			}
+		}
+		for (int i = 0; i < instances.size(); i++) {
+			for (Attribute attribute : attributes) {
+				Assert.assertEquals(instances.get(i).getValue(attribute), binnedInstances.get(i).getValue(attribute),
+						0);
+			}
+		}
+
+		DecisionTableLearner rtLearner = new DecisionTableLearner();
+		rtLearner.setMaxDepth(3);
+		rtLearner.setNumPasses(2);
+		for (DecisionTableLearner.Mode mode : DecisionTableLearner.Mode.values()) {
+			rtLearner.setConstructionMode(mode);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(instances));
+			Random.getInstance().setSeed(0);
+			String actual = toString(rtLearner.build(binnedInstances));
+			Assert.assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testShuffledBinnedInstances() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset().copy();
+		instances.setAttributes(instances.getAttributes(0, 1, 2));
+		BinnedInstances binnedInstances = Discretizer.discretize(instances, 16);
+		binnedInstances.shuffle(new java.util.Random(1));
+		// Copies store the rows in the order of the instances
+		BinnedInstances expectedSet = binnedInstances.copy();
+		// Sums of these do not depend on the order of the rows
+		double[] gradients = new double[instances.size()];
+		double[] hessians = new double[instances.size()];
+		for (int i = 0; i < gradients.length; i++) {
+			gradients[i] = i % 5 - 2;
+			hessians[i] = 0.5 + i % 3;
+		}
+		DecisionTableLearner rtLearner = new DecisionTableLearner();
+		rtLearner.setMaxDepth(3);
+		rtLearner.setNumPasses(2);
+		for (DecisionTableLearner.Mode mode : DecisionTableLearner.Mode.values()) {
+			rtLearner.setConstructionMode(mode);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(expectedSet, gradients, hessians));
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(rtLearner.build(binnedInstances, gradients, hessians)));
+		}
+	}
+
+	@Test
+	public void testParallelSplitSearch() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		DecisionTableLearner rtLearner = new DecisionTableLearner();
+		rtLearner.setMaxDepth(3);
+		rtLearner.setNumPasses(2);
+		for (DecisionTableLearner.Mode mode : DecisionTableLearner.Mode.values()) {
+			rtLearner.setConstructionMode(mode);
+			rtLearner.setParallelism(1);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(instances));
+			rtLearner.setParallelism(4);
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+		}
+	}
+
+	@Test
+	public void testGradientsAndHessians() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		double[] gradients = new double[instances.size()];
+		double[] hessians = new double[instances.size()];
+		double[] targets = new double[instances.size()];
+		Instances expectedSet = instances.copy();
+		ColumnarInstances columnar = new ColumnarInstances(instances);
+		for (int i = 0; i < gradients.length; i++) {
+			targets[i] = instances.get(i).getTarget();
+			gradients[i] = 1 - 2 * instances.get(i).getTarget();
+			hessians[i] = 0.5 + i % 3;
+			expectedSet.get(i).setTarget(gradients[i]);
+			expectedSet.get(i).setWeight(hessians[i]);
+		}
+		DecisionTableLearner rtLearner = new DecisionTableLearner();
+		rtLearner.setMaxDepth(3);
+		rtLearner.setNumPasses(2);
+		for (DecisionTableLearner.Mode mode : DecisionTableLearner.Mode.values()) {
+			rtLearner.setConstructionMode(mode);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(expectedSet));
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(rtLearner.build(instances, gradients, hessians)));
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(rtLearner.build(columnar, gradients, hessians)));
+		}
+		for (int i = 0; i < gradients.length; i++) {
+			Assert.assertEquals(1.0, instances.get(i).getWeight(), 0);
+			Assert.assertEquals(targets[i], instances.get(i).getTarget(), 0);
+		}
+	}
+
+	private static String toString(DecisionTable rt) throws Exception {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		rt.write(out);
+		out.flush();
+		return sw.toString();
+	}
+
 }
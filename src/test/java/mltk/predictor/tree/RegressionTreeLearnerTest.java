@@ -1,13 +1,21 @@
 package mltk.predictor.tree;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import mltk.core.Attribute;
+import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.InstancesTestHelper;
+import mltk.core.NumericalAttribute;
+import mltk.core.Sampling;
+import mltk.util.Random;
 
 public class RegressionTreeLearnerTest {
 
@@ -41,4 +49,368 @@ public class RegressionTreeLearnerTest {
 		Assert.assertEquals(1, root.attIndex);
 	}
 	
+	@Test
+	public void testHistogramSplits() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner exactLearner = new RegressionTreeLearner();
+		RegressionTreeLearner histLearner = new RegressionTreeLearner();
+		// No attribute has more distinct values than bins
+		histLearner.setMaxNumBins(1024);
+		for (String mode : new String[] {"d:3", "l:8", "a:0.05"}) {
+			exactLearner.setParameters(mode);
+			histLearner.setParameters(mode);
+			Random.getInstance().setSeed(0);
+			String expected = toString(exactLearner.build(instances));
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(histLearner.build(instances)));
+			
+			histLearner.cache(instances);
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(expected, toString(histLearner.build(instances)));
+			histLearner.evictCache();
+		}
+	}
+	
+	@Test
+	public void testCachedSortedFeatures() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset().copy();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.setParameters("l:8");
+		rtLearner.cache(instances);
+		for (int iter = 0; iter < 3; iter++) {
+			// Targets change between builds as in boosting, while the cached order of values stays valid
+			for (int i = 0; i < instances.size(); i++) {
+				instances.get(i).setTarget(instances.get(i).getTarget() * 0.5 + i % 3);
+			}
+			Random.getInstance().setSeed(0);
+			String actual = toString(rtLearner.build(instances));
+			RegressionTreeLearner uncached = new RegressionTreeLearner();
+			uncached.setParameters("l:8");
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(toString(uncached.build(instances)), actual);
+		}
+		rtLearner.evictCache();
+	}
+	
+	@Test
+	public void testParallelSplitSearch() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		for (int maxNumBins : new int[] {0, 16}) {
+			rtLearner.setMaxNumBins(maxNumBins);
+			for (String mode : new String[] {"d:4", "l:10", "a:0.05"}) {
+				rtLearner.setParameters(mode);
+				rtLearner.setParallelism(1);
+				Random.getInstance().setSeed(0);
+				String expected = toString(rtLearner.build(instances));
+				rtLearner.setParallelism(4);
+				Random.getInstance().setSeed(0);
+				Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+			}
+		}
+	}
+	
+	@Test
+	public void testParallelTreeGrowth() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		for (int maxNumBins : new int[] {0, 16}) {
+			rtLearner.setMaxNumBins(maxNumBins);
+			for (String mode : new String[] {"d:6", "l:20", "a:0.01"}) {
+				rtLearner.setParameters(mode);
+				rtLearner.setParallelism(1);
+				Random.getInstance().setSeed(0);
+				String expected = toString(rtLearner.build(instances));
+				// Grow small subtrees as separate tasks, sequentially and concurrently
+				rtLearner.minTaskSize = 16;
+				for (int parallelism : new int[] {1, 4}) {
+					rtLearner.setParallelism(parallelism);
+					Random.getInstance().setSeed(0);
+					Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+				}
+				rtLearner.minTaskSize = 1024;
+			}
+		}
+	}
+
+	@Test
+	public void testParallelTreeGrowthOnZeroHeavyData() throws Exception {
+		// Sorted arrays only hold non-zero values, so their ranges differ from those of the rows
+		Instances instances = createZeroHeavyDataset(20000, 8, 0.3);
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.minTaskSize = 64;
+		for (String mode : new String[] {"d:12", "l:200"}) {
+			rtLearner.setParameters(mode);
+			rtLearner.setParallelism(1);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(instances));
+			rtLearner.setParallelism(4);
+			for (int i = 0; i < 3; i++) {
+				Random.getInstance().setSeed(0);
+				Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+			}
+		}
+	}
+
+	@Test
+	public void testParallelHistograms() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		for (final boolean rowParallel : new boolean[] {false, true}) {
+			RegressionTreeLearner rtLearner = new RegressionTreeLearner() {
+
+				@Override
+				protected boolean isRowParallel(int n, int p, int numBins) {
+					return rowParallel;
+				}
+
+			};
+			rtLearner.setMaxNumBins(16);
+			rtLearner.minParallelWork = 0;
+			rtLearner.histogramBlockSize = 64;
+			for (String mode : new String[] {"d:4", "l:10", "a:0.05"}) {
+				rtLearner.setParameters(mode);
+				rtLearner.setParallelism(1);
+				Random.getInstance().setSeed(0);
+				String expected = toString(rtLearner.build(instances));
+				for (int parallelism : new int[] {3, 8}) {
+					rtLearner.setParallelism(parallelism);
+					Random.getInstance().setSeed(0);
+					Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testHistogramSummationOrder() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		double[] targets = new double[instances.size()];
+		double[] weights = new double[instances.size()];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = Math.sin(i) * 1e3 + 0.1 * i;
+			weights[i] = 0.1 + (i % 7) / 3.0;
+		}
+		for (final boolean rowParallel : new boolean[] {false, true}) {
+			RegressionTreeLearner rtLearner = new RegressionTreeLearner() {
+
+				@Override
+				protected boolean isRowParallel(int n, int p, int numBins) {
+					return rowParallel;
+				}
+
+			};
+			rtLearner.setMaxNumBins(16);
+			rtLearner.minParallelWork = 0;
+			rtLearner.histogramBlockSize = 37;
+			TreeLearner.Dataset dataset = rtLearner.createDataset(instances, targets, weights, 0L);
+			TreeLearner.Histogram expected = dataset.partition.pool.obtain();
+			rtLearner.computeHistogram(dataset, null, expected);
+			for (int parallelism : new int[] {2, 3, 8}) {
+				rtLearner.setParallelism(parallelism);
+				TreeLearner.Histogram hist = dataset.partition.pool.obtain();
+				rtLearner.computeHistogram(dataset, null, hist);
+				Assert.assertArrayEquals(expected.weights, hist.weights);
+				Assert.assertArrayEquals(expected.sums, hist.sums);
+				Assert.assertArrayEquals(expected.counts, hist.counts);
+			}
+		}
+	}
+
+	@Test
+	public void testGradientsAndHessians() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		double[] gradients = new double[instances.size()];
+		double[] hessians = new double[instances.size()];
+		double[] targets = new double[instances.size()];
+		Instances expectedSet = instances.copy();
+		for (int i = 0; i < gradients.length; i++) {
+			targets[i] = instances.get(i).getTarget();
+			gradients[i] = 1 - 2 * instances.get(i).getTarget();
+			hessians[i] = 0.5 + i % 3;
+			expectedSet.get(i).setTarget(gradients[i]);
+			expectedSet.get(i).setWeight(hessians[i]);
+		}
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		for (int maxNumBins : new int[] {0, 16}) {
+			rtLearner.setMaxNumBins(maxNumBins);
+			// Bins are computed from the weights of the instances, as in boosting
+			rtLearner.cache(instances);
+			for (String mode : new String[] {"d:4", "l:10", "a:0.05"}) {
+				rtLearner.setParameters(mode);
+				Random.getInstance().setSeed(0);
+				String expected = toString(rtLearner.build(expectedSet));
+				Random.getInstance().setSeed(0);
+				Assert.assertEquals(expected, toString(rtLearner.build(instances, gradients, hessians)));
+			}
+			rtLearner.evictCache();
+		}
+		for (int i = 0; i < gradients.length; i++) {
+			Assert.assertEquals(1.0, instances.get(i).getWeight(), 0);
+			Assert.assertEquals(targets[i], instances.get(i).getTarget(), 0);
+		}
+	}
+
+	@Test
+	public void testHistogramSubtraction() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.setMaxNumBins(256);
+		for (String mode : new String[] {"d:4", "l:10", "a:0.05"}) {
+			rtLearner.setParameters(mode);
+			// Without subtraction, with a pool that is exhausted quickly, and with enough histograms
+			rtLearner.setMaxNumHistograms(0);
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(instances));
+			for (int maxNumHistograms : new int[] {1, 2, 64}) {
+				rtLearner.setMaxNumHistograms(maxNumHistograms);
+				Random.getInstance().setSeed(0);
+				Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+			}
+		}
+	}
+	
+	@Test
+	public void testHistogramSubtractionOnLargeData() throws Exception {
+		// Bins hold thousands of rows, so sums in a different order would round differently
+		Instances instances = createZeroHeavyDataset(20000, 8, 0.3);
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.setMaxNumBins(64);
+		for (String mode : new String[] {"d:12", "l:200"}) {
+			rtLearner.setParameters(mode);
+			rtLearner.setMaxNumHistograms(0);
+			rtLearner.minTaskSize = Integer.MAX_VALUE;
+			Random.getInstance().setSeed(0);
+			String expected = toString(rtLearner.build(instances));
+			for (int maxNumHistograms : new int[] {1, 64}) {
+				for (int minTaskSize : new int[] {64, 1024, Integer.MAX_VALUE}) {
+					rtLearner.setMaxNumHistograms(maxNumHistograms);
+					rtLearner.minTaskSize = minTaskSize;
+					Random.getInstance().setSeed(0);
+					Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testHistogramBudget() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		final AtomicInteger maxNumKept = new AtomicInteger();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner() {
+
+			@Override
+			protected boolean keepHistogram(Dataset dataset, boolean allowed) {
+				boolean kept = super.keepHistogram(dataset, allowed);
+				if (kept) {
+					maxNumKept.accumulateAndGet(dataset.partition.pool.numKept.get(), Math::max);
+				}
+				return kept;
+			}
+
+		};
+		rtLearner.setMaxNumBins(256);
+		rtLearner.minTaskSize = 16;
+		for (String mode : new String[] {"d:8", "l:40", "a:0.01"}) {
+			rtLearner.setParameters(mode);
+			for (int maxNumHistograms : new int[] {1, 4}) {
+				rtLearner.setMaxNumHistograms(maxNumHistograms);
+				rtLearner.setParallelism(1);
+				Random.getInstance().setSeed(0);
+				String expected = toString(rtLearner.build(instances));
+				maxNumKept.set(0);
+				rtLearner.setParallelism(4);
+				Random.getInstance().setSeed(0);
+				Assert.assertEquals(expected, toString(rtLearner.build(instances)));
+				Assert.assertTrue(maxNumKept.get() <= maxNumHistograms);
+			}
+		}
+	}
+	
+	@Test
+	public void testHistogramSplitsWithFewBins() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDatasetWMissing();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.setConstructionMode(RegressionTreeLearner.Mode.DEPTH_LIMITED);
+		rtLearner.setMaxDepth(3);
+		rtLearner.setMaxNumBins(8);
+		RegressionTree rt = rtLearner.build(instances);
+		Assert.assertFalse(rt.getRoot().isLeaf());
+		for (int i = 0; i < instances.size(); i++) {
+			double pred = rt.regress(instances.get(i));
+			Assert.assertTrue(pred >= 0 && pred <= 1);
+		}
+	}
+	
+	@Test
+	public void testLeafAssignments() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		double[] gradients = new double[instances.size()];
+		double[] hessians = new double[instances.size()];
+		for (int i = 0; i < gradients.length; i++) {
+			gradients[i] = instances.get(i).getTarget();
+			hessians[i] = 1;
+		}
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.minTaskSize = 16;
+		for (int maxNumBins : new int[] {0, 256}) {
+			rtLearner.setMaxNumBins(maxNumBins);
+			rtLearner.cache(instances);
+			for (String mode : new String[] {"d:0", "d:4", "l:10", "a:0.05"}) {
+				rtLearner.setParameters(mode);
+				for (int parallelism : new int[] {1, 4}) {
+					rtLearner.setParallelism(parallelism);
+					RegressionTreeLeaf[] leaves = new RegressionTreeLeaf[instances.size()];
+					RegressionTree rt = rtLearner.build(instances, gradients, hessians, 0L, leaves);
+					for (int i = 0; i < leaves.length; i++) {
+						Assert.assertSame(rt.getLeafNode(instances.get(i)), leaves[i]);
+					}
+				}
+			}
+		}
+		rtLearner.evictCache();
+	}
+	
+	@Test
+	public void testBootstrapCounts() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		Random.getInstance().setSeed(0);
+		int[] counts = Sampling.createBootstrapCounts(instances.size());
+		Instances sample = Sampling.createSample(instances, counts);
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		for (String mode : new String[] {"d:4", "l:10", "a:0.05"}) {
+			rtLearner.setParameters(mode);
+			String expected = toString(rtLearner.build(sample, 0L));
+			Assert.assertEquals(expected, toString(rtLearner.build(instances, counts, 0L)));
+		}
+		for (int i = 0; i < instances.size(); i++) {
+			Assert.assertEquals(1.0, instances.get(i).getWeight(), 0);
+		}
+	}
+	
+	private static Instances createZeroHeavyDataset(int n, int p, double zeroRate) {
+		List<Attribute> attributes = new ArrayList<>();
+		for (int j = 0; j < p; j++) {
+			attributes.add(new NumericalAttribute("f" + j, j));
+		}
+		Instances instances = new Instances(attributes, n);
+		java.util.Random rand = new java.util.Random(0);
+		for (int i = 0; i < n; i++) {
+			double[] values = new double[p];
+			for (int j = 0; j < p; j++) {
+				values[j] = rand.nextDouble() < zeroRate ? 0 : rand.nextGaussian();
+			}
+			double target = Math.sin(values[0]) + values[1] * values[2] - Math.abs(values[3]) + 0.1 * rand.nextGaussian();
+			instances.add(new Instance(values, target));
+		}
+		return instances;
+	}
+
+	private static String toString(RegressionTree rt) throws Exception {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		rt.write(out);
+		out.flush();
+		return sw.toString();
+	}
+	
 }
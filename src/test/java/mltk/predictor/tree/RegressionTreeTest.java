@@ -9,6 +9,9 @@ import java.io.PrintWriter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import mltk.core.Instance;
+import mltk.core.Instances;
+import mltk.core.InstancesTestHelper;
 import mltk.predictor.io.PredictorReader;
 import mltk.util.MathUtils;
 
@@ -54,4 +57,34 @@ public class RegressionTreeTest {
 		}
 	}
 
+	@Test
+	public void testCompile() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDatasetWMissing();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		rtLearner.setConstructionMode(RegressionTreeLearner.Mode.NUM_LEAVES_LIMITED);
+		rtLearner.setMaxNumLeaves(10);
+		RegressionTree tree = rtLearner.build(instances);
+		CompiledRegressionTree compiled = tree.compile();
+		Assert.assertEquals(19, compiled.size());
+		for (Instance instance : instances) {
+			Assert.assertEquals(tree.regress(instance), compiled.regress(instance), 0);
+		}
+		
+		// The source tree is rebuilt as it was compiled
+		double[] expected = new double[instances.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = tree.regress(instances.get(i));
+		}
+		tree.multiply(2);
+		RegressionTree model = compiled.getModel();
+		for (int i = 0; i < expected.length; i++) {
+			Assert.assertEquals(expected[i], compiled.regress(instances.get(i)), 0);
+			Assert.assertEquals(expected[i], model.regress(instances.get(i)), 0);
+		}
+		
+		CompiledRegressionTree leaf = new RegressionTree(new RegressionTreeLeaf(0.5)).compile();
+		Assert.assertEquals(1, leaf.size());
+		Assert.assertEquals(0.5, leaf.regress(instances.get(0)), 0);
+	}
+
 }
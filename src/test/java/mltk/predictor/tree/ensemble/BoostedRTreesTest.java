@@ -9,10 +9,21 @@ import java.io.PrintWriter;
 import org.junit.Assert;
 import org.junit.Test;
 
+import mltk.core.Instance;
+import mltk.core.Instances;
+import mltk.core.InstancesTestHelper;
+import mltk.predictor.BaggedEnsemble;
+import mltk.predictor.tree.CompiledRegressionTree;
+import mltk.predictor.tree.DecisionTableLearner;
 import mltk.predictor.tree.RegressionTree;
 import mltk.predictor.tree.RegressionTreeLeaf;
+import mltk.predictor.tree.RegressionTreeLearner;
 import mltk.predictor.tree.RegressionTreeTestHelper;
 import mltk.predictor.tree.TreeInteriorNode;
+import mltk.predictor.tree.ensemble.ag.AdditiveGroves;
+import mltk.predictor.tree.ensemble.ag.CompiledAdditiveGroves;
+import mltk.predictor.tree.ensemble.rf.CompiledRandomForest;
+import mltk.predictor.tree.ensemble.rf.RandomForest;
 import mltk.util.MathUtils;
 
 public class BoostedRTreesTest {
@@ -54,4 +65,44 @@ public class BoostedRTreesTest {
 		}
 	}
 
+	@Test
+	public void testCompile() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RegressionTreeLearner rtLearner = new RegressionTreeLearner();
+		DecisionTableLearner dtLearner = new DecisionTableLearner();
+		dtLearner.setMaxDepth(2);
+		BoostedRTrees bt = new BoostedRTrees();
+		RandomForest rf = new RandomForest();
+		AdditiveGroves ag = new AdditiveGroves();
+		BaggedEnsemble ensemble = new BaggedEnsemble();
+		for (String mode : new String[] {"d:0", "d:3", "l:10"}) {
+			rtLearner.setParameters(mode);
+			RegressionTree rt = rtLearner.build(instances);
+			bt.add(rt);
+			bt.add(dtLearner.build(instances));
+			rf.add(rt);
+			ag.add(new RegressionTree[] { rt, rt });
+			ensemble.add(rt);
+		}
+		
+		CompiledRTreeList compiledBT = bt.compile();
+		CompiledRandomForest compiledRF = rf.compile();
+		CompiledAdditiveGroves compiledAG = ag.compile();
+		BaggedEnsemble compiledEnsemble = ensemble.compile();
+		Assert.assertEquals(6, compiledBT.size());
+		Assert.assertEquals(3, compiledRF.size());
+		Assert.assertTrue(compiledEnsemble.get(0) instanceof CompiledRegressionTree);
+		for (Instance instance : instances) {
+			Assert.assertEquals(bt.regress(instance), compiledBT.regress(instance), 0);
+			Assert.assertEquals(rf.regress(instance), compiledRF.regress(instance), 0);
+			Assert.assertEquals(ag.regress(instance), compiledAG.regress(instance), 0);
+			Assert.assertEquals(ensemble.regress(instance), compiledEnsemble.regress(instance), 0);
+		}
+		// Compiled models are not compiled again
+		Assert.assertSame(compiledRF, compiledRF.compile());
+		Assert.assertSame(compiledAG, compiledAG.compile());
+		Assert.assertSame(compiledEnsemble, compiledEnsemble.compile());
+		Assert.assertEquals(0, new RandomForest().compile().regress(instances.get(0)), 0);
+	}
+
 }
@@ -3,6 +3,8 @@ package mltk.predictor.tree.ensemble.brt;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 
@@ -13,6 +15,7 @@ import mltk.core.Instance;
 import mltk.core.Instances;
 import mltk.core.InstancesTestHelper;
 import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
 import mltk.predictor.tree.DecisionTable;
 import mltk.predictor.tree.DecisionTableTestHelper;
 import mltk.predictor.tree.ensemble.BoostedDTables;
@@ -81,4 +84,22 @@ public class BDTTest {
 		}
 	}
 
+	@Test
+	public void testBinaryIO() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		try {
+			ByteArrayOutputStream boas = new ByteArrayOutputStream();
+			PredictorWriter.writeBinary(bdt, new DataOutputStream(boas));
+			
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(boas.toByteArray()));
+			BDT b = (BDT) PredictorReader.readBinary(in);
+			Assert.assertEquals(2, b.getDecisionTreeList(0).size());
+			for (Instance instance : instances) {
+				Assert.assertEquals(bdt.regress(instance), b.regress(instance), MathUtils.EPSILON);
+			}
+		} catch (Exception e) {
+			Assert.fail("Should not see exception: " + e.getMessage());
+		}
+	}
+
 }
@@ -3,13 +3,23 @@ package mltk.predictor.tree.ensemble.brt;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import mltk.core.Instance;
+import mltk.core.Instances;
+import mltk.core.InstancesTestHelper;
 import mltk.predictor.io.PredictorReader;
+import mltk.predictor.io.PredictorWriter;
+import mltk.predictor.tree.DecisionTable;
+import mltk.predictor.tree.DecisionTableTestHelper;
 import mltk.predictor.tree.RegressionTree;
 import mltk.predictor.tree.RegressionTreeLeaf;
 import mltk.predictor.tree.RegressionTreeTestHelper;
@@ -58,4 +68,125 @@ public class BRTTest {
 		}
 	}
 
+	@Test
+	public void testBinaryIO() {
+		RegressionTree tree1 = RegressionTreeTestHelper.getInstance().getTree1();
+		DecisionTable table2 = DecisionTableTestHelper.getInstance().getTable2();
+		BoostedRTrees bt = new BoostedRTrees();
+		bt.add(tree1);
+		bt.add(table2);
+		
+		BRT brt = new BRT(1);
+		brt.trees[0] = bt;
+		
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		try {
+			ByteArrayOutputStream boas = new ByteArrayOutputStream();
+			PredictorWriter.writeBinary(brt, new DataOutputStream(boas));
+			
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(boas.toByteArray()));
+			BRT b = (BRT) PredictorReader.readBinary(in);
+			BoostedRTrees ts = b.getRegressionTreeList(0);
+			Assert.assertEquals(2, ts.size());
+			Assert.assertTrue(ts.get(0) instanceof RegressionTree);
+			Assert.assertTrue(ts.get(1) instanceof DecisionTable);
+			for (Instance instance : instances) {
+				Assert.assertEquals(brt.regress(instance), b.regress(instance), MathUtils.EPSILON);
+			}
+			
+			File file = File.createTempFile("brt", ".bin");
+			file.deleteOnExit();
+			PredictorWriter.writeBinary(brt, file.getPath());
+			b = PredictorReader.readBinary(file.getPath(), BRT.class);
+			for (Instance instance : instances) {
+				Assert.assertEquals(brt.regress(instance), b.regress(instance), MathUtils.EPSILON);
+			}
+		} catch (Exception e) {
+			Assert.fail("Should not see exception: " + e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPredictProbabilities() {
+		RegressionTree tree1 = RegressionTreeTestHelper.getInstance().getTree1();
+		DecisionTable table2 = DecisionTableTestHelper.getInstance().getTable2();
+		BRT brt = new BRT(17);
+		for (int k = 0; k < brt.trees.length; k++) {
+			brt.trees[k].add(k % 2 == 0 ? tree1 : table2);
+		}
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		for (Instance instance : instances) {
+			double[] prob = brt.predictProbabilities(instance);
+			double p1 = Math.exp(tree1.regress(instance));
+			double p2 = Math.exp(table2.regress(instance));
+			double sum = (brt.trees.length + 1) / 2 * p1 + brt.trees.length / 2 * p2;
+			for (int k = 0; k < prob.length; k++) {
+				Assert.assertEquals((k % 2 == 0 ? p1 : p2) / sum, prob[k], MathUtils.EPSILON);
+			}
+		}
+	}
+
+	@Test
+	public void testCompile() {
+		RegressionTree tree1 = RegressionTreeTestHelper.getInstance().getTree1();
+		DecisionTable table2 = DecisionTableTestHelper.getInstance().getTable2();
+		BRT brt = new BRT(3);
+		brt.trees[0].add(tree1);
+		brt.trees[0].add(tree1.copy());
+		brt.trees[1].add(table2);
+		brt.trees[2].add(tree1);
+		brt.trees[2].add(table2);
+		
+		CompiledBRT compiled = brt.compile();
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		for (Instance instance : instances) {
+			Assert.assertEquals(brt.regress(instance), compiled.regress(instance), MathUtils.EPSILON);
+			Assert.assertArrayEquals(brt.predictProbabilities(instance), compiled.predictProbabilities(instance),
+					MathUtils.EPSILON);
+			Assert.assertEquals(brt.classify(instance), compiled.classify(instance));
+		}
+		
+		double[][] probs = brt.predictProbabilities(instances, 4);
+		Assert.assertEquals(instances.size(), probs.length);
+		for (int i = 0; i < probs.length; i++) {
+			Assert.assertArrayEquals(brt.predictProbabilities(instances.get(i)), probs[i], 0);
+		}
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			double[][] poolProbs = compiled.predictProbabilities(instances, pool);
+			for (int i = 0; i < probs.length; i++) {
+				Assert.assertArrayEquals(probs[i], poolProbs[i], 0);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testCompiledBinaryIO() {
+		RegressionTree tree1 = RegressionTreeTestHelper.getInstance().getTree1();
+		DecisionTable table2 = DecisionTableTestHelper.getInstance().getTable2();
+		BRT brt = new BRT(2);
+		brt.trees[0].add(tree1);
+		brt.trees[1].add(table2);
+		CompiledBRT compiled = brt.compile();
+		// Later changes to the source model are not written
+		brt.trees[0].add(table2);
+		
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		try {
+			ByteArrayOutputStream boas = new ByteArrayOutputStream();
+			PredictorWriter.writeBinary(compiled, new DataOutputStream(boas));
+			
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(boas.toByteArray()));
+			CompiledBRT c = (CompiledBRT) PredictorReader.readBinary(in);
+			for (Instance instance : instances) {
+				Assert.assertArrayEquals(compiled.predictProbabilities(instance), c.predictProbabilities(instance),
+						MathUtils.EPSILON);
+			}
+		} catch (Exception e) {
+			Assert.fail("Should not see exception: " + e.getMessage());
+		}
+	}
+
 }
@@ -1,13 +1,19 @@
 package mltk.predictor.tree.ensemble.brt;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import mltk.core.Instances;
 import mltk.core.InstancesTestHelper;
+import mltk.core.NominalAttribute;
 import mltk.predictor.evaluation.Evaluator;
 import mltk.predictor.evaluation.MetricFactory;
 import mltk.predictor.tree.TreeLearner;
+import mltk.util.Random;
 
 public class LogitBoostLearnerTest {
 
@@ -26,4 +32,43 @@ public class LogitBoostLearnerTest {
 		Assert.assertTrue(auc > 0.5);
 	}
 	
+	@Test
+	public void testParallelClasses() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset().copy();
+		// Turn the regression target into 3 classes
+		double[] targets = new double[instances.size()];
+		for (int i = 0; i < targets.length; i++) {
+			targets[i] = instances.get(i).getTarget();
+		}
+		double[] sorted = targets.clone();
+		Arrays.sort(sorted);
+		double t1 = sorted[sorted.length / 3];
+		double t2 = sorted[sorted.length * 2 / 3];
+		for (int i = 0; i < targets.length; i++) {
+			instances.get(i).setTarget(targets[i] < t1 ? 0 : (targets[i] < t2 ? 1 : 2));
+		}
+		instances.setTargetAttribute(new NominalAttribute("class", new String[] {"0", "1", "2"}));
+		
+		TreeLearner treeLearner = BRTUtils.parseTreeLearner("rrt:d:3");
+		LogitBoostLearner learner = new LogitBoostLearner();
+		learner.setLearningRate(0.1);
+		learner.setTreeLearner(treeLearner);
+		String expected = null;
+		for (int parallelism : new int[] {1, 4}) {
+			treeLearner.setParallelism(parallelism);
+			Random.getInstance().setSeed(0);
+			BRT brt = learner.buildClassifier(instances, 5);
+			Assert.assertEquals(5, brt.getRegressionTreeList(2).size());
+			StringWriter sw = new StringWriter();
+			PrintWriter out = new PrintWriter(sw);
+			brt.write(out);
+			out.flush();
+			if (expected == null) {
+				expected = sw.toString();
+			} else {
+				Assert.assertEquals(expected, sw.toString());
+			}
+		}
+	}
+	
 }
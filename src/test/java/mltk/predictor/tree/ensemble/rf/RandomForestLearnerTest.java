@@ -0,0 +1,104 @@
+package mltk.predictor.tree.ensemble.rf;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mltk.core.Instances;
+import mltk.core.InstancesTestHelper;
+import mltk.predictor.evaluation.RMSE;
+import mltk.util.Random;
+
+public class RandomForestLearnerTest {
+
+	@Test
+	public void testParallelBagging() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RandomRegressionTreeLearner rtLearner = new RandomRegressionTreeLearner();
+		rtLearner.setParameters("d:3");
+		RandomForestLearner rfLearner = new RandomForestLearner();
+		rfLearner.setRegressionTreeLearner(rtLearner);
+		rfLearner.setBaggingIterations(8);
+
+		rfLearner.setNumThreads(1);
+		Random.getInstance().setSeed(0);
+		RandomForest expected = rfLearner.build(instances);
+		Assert.assertEquals(8, expected.size());
+		for (int numThreads : new int[] {1, 4}) {
+			rfLearner.setNumThreads(numThreads);
+			Random.getInstance().setSeed(0);
+			Assert.assertEquals(toString(expected), toString(rfLearner.build(instances)));
+		}
+	}
+
+	@Test
+	public void testOutOfBag() throws Exception {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RandomRegressionTreeLearner rtLearner = new RandomRegressionTreeLearner();
+		rtLearner.setParameters("d:3");
+		RandomForestLearner rfLearner = new RandomForestLearner();
+		rfLearner.setRegressionTreeLearner(rtLearner);
+		rfLearner.setBaggingIterations(20);
+
+		Random.getInstance().setSeed(0);
+		String expected = toString(rfLearner.build(instances));
+		Assert.assertNull(rfLearner.getOutOfBagPredictions());
+		Assert.assertNull(rfLearner.getImportances());
+
+		rfLearner.setMetric(new RMSE());
+		rfLearner.setComputeImportances(true);
+		rfLearner.setNumThreads(1);
+		Random.getInstance().setSeed(0);
+		Assert.assertEquals(expected, toString(rfLearner.build(instances)));
+		double[] preds = rfLearner.getOutOfBagPredictions();
+		double measure = rfLearner.getOutOfBagMeasure();
+		double[] importances = rfLearner.getImportances();
+		Assert.assertEquals(instances.size(), preds.length);
+		for (double pred : preds) {
+			Assert.assertFalse(Double.isNaN(pred));
+		}
+		Assert.assertEquals(new RMSE().eval(preds, instances), measure, 0);
+		Assert.assertEquals(instances.getAttributes().size(), importances.length);
+		double maxImportance = 0;
+		for (double importance : importances) {
+			maxImportance = Math.max(maxImportance, importance);
+		}
+		Assert.assertTrue(maxImportance > 0);
+
+		rfLearner.setNumThreads(4);
+		Random.getInstance().setSeed(0);
+		Assert.assertEquals(expected, toString(rfLearner.build(instances)));
+		Assert.assertArrayEquals(preds, rfLearner.getOutOfBagPredictions(), 0);
+		Assert.assertEquals(measure, rfLearner.getOutOfBagMeasure(), 0);
+		Assert.assertArrayEquals(importances, rfLearner.getImportances(), 0);
+	}
+
+	@Test
+	public void testOutOfBagWithoutBagging() {
+		Instances instances = InstancesTestHelper.getInstance().getDenseRegressionDataset();
+		RandomRegressionTreeLearner rtLearner = new RandomRegressionTreeLearner();
+		rtLearner.setParameters("d:3");
+		RandomForestLearner rfLearner = new RandomForestLearner();
+		rfLearner.setRegressionTreeLearner(rtLearner);
+		rfLearner.setBaggingIterations(0);
+		rfLearner.setMetric(new RMSE());
+
+		Random.getInstance().setSeed(0);
+		rfLearner.build(instances);
+		for (double pred : rfLearner.getOutOfBagPredictions()) {
+			Assert.assertTrue(Double.isNaN(pred));
+		}
+		Assert.assertTrue(Double.isNaN(rfLearner.getOutOfBagMeasure()));
+	}
+
+	private static String toString(RandomForest rf) throws Exception {
+		StringWriter sw = new StringWriter();
+		PrintWriter out = new PrintWriter(sw);
+		rf.write(out);
+		out.flush();
+		return sw.toString();
+	}
+
+}
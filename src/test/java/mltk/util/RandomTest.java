@@ -0,0 +1,48 @@
+package mltk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RandomTest {
+
+	@Test
+	public void testDerive() {
+		Random rand = new Random(0);
+		long expected = rand.derive(3).nextLong();
+		rand.nextLong();
+		Assert.assertEquals(expected, rand.derive(3).nextLong());
+		Assert.assertEquals(new Random(0).derive(3).derive(1).nextLong(), rand.derive(3).derive(1).nextLong());
+		Assert.assertFalse(expected == rand.derive(4).nextLong());
+	}
+
+	@Test
+	public void testCall() throws Exception {
+		Random global = Random.getInstance();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<int[]>> futures = new ArrayList<>();
+			for (int k = 0; k < 8; k++) {
+				final Random rand = new Random(k);
+				futures.add(executor.submit(() -> rand.call(() -> new Permutation(100).permute().getPermutation())));
+			}
+			for (int k = 0; k < futures.size(); k++) {
+				int[] expected = new Permutation(100).permute(new Random(k)).getPermutation();
+				Assert.assertArrayEquals(expected, futures.get(k).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertSame(global, Random.getInstance());
+		
+		Random rand = new Random(0);
+		Assert.assertSame(rand, rand.call(() -> Random.getInstance()));
+		Assert.assertSame(global, Random.getInstance());
+	}
+
+}